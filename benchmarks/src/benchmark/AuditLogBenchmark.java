@@ -0,0 +1,116 @@
+package benchmark;
+
+import manager.AuditLog;
+import manager.InMemoryTaskManager;
+import manager.TaskSnapshot;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена журнала аудита: обновление задачи с журналом и без, восстановление доски и одной сущности
+ * на случайный момент прошлого. После замера печатается объём журнала на одно изменение.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditLogBenchmark {
+    private static final int HISTORY = 200_000;
+
+    @State(Scope.Benchmark)
+    public static class Managers {
+        @Param({"1000", "16384"})
+        int checkpointInterval;
+
+        @Param({"10000"})
+        int tasks;
+
+        InMemoryTaskManager plain;
+        InMemoryTaskManager audited;
+        AuditLog auditLog;
+        long changes;
+        int sequence;
+        long firstTime;
+        long lastTime;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            plain = new InMemoryTaskManager();
+            auditLog = new AuditLog(Clock.systemUTC(), checkpointInterval);
+            audited = new InMemoryTaskManager(auditLog);
+            firstTime = System.currentTimeMillis();
+            for (int i = 0; i < tasks; i++) {
+                plain.addTask(new Task(0, "Задача " + i, "Описание задачи", TaskStatus.NEW));
+                audited.addTask(new Task(0, "Задача " + i, "Описание задачи", TaskStatus.NEW));
+            }
+            changes = tasks;
+            for (int i = 0; i < HISTORY; i++) {
+                update(audited);
+            }
+            lastTime = System.currentTimeMillis();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.printf("%nЖурнал: %d байт на изменение%n", auditLog.storedBytes() / changes);
+            auditLog.close();
+        }
+
+        void update(InMemoryTaskManager manager) {
+            int seed = sequence++ & Integer.MAX_VALUE;
+            int id = 1 + ThreadLocalRandom.current().nextInt(tasks);
+            Task task = new Task(manager.getTasks(id - 1, 1).getFirst());
+            task.setStatus(TaskStatus.values()[seed % 3]);
+            if (seed % 4 == 0) {
+                task.setDescription("Описание " + seed);
+            }
+            manager.updateTask(task);
+            if (manager == audited) {
+                changes++;
+            }
+        }
+
+        Instant pastTime() {
+            return Instant.ofEpochMilli(ThreadLocalRandom.current().nextLong(firstTime, lastTime + 1));
+        }
+    }
+
+    @Benchmark
+    public void updatePlain(Managers managers) {
+        managers.update(managers.plain);
+    }
+
+    @Benchmark
+    public void updateAudited(Managers managers) {
+        managers.update(managers.audited);
+    }
+
+    @Benchmark
+    public TaskSnapshot boardAt(Managers managers) {
+        return managers.auditLog.boardAt(managers.pastTime());
+    }
+
+    @Benchmark
+    public Task entityAt(Managers managers) {
+        return managers.auditLog.entityAt(1 + ThreadLocalRandom.current().nextInt(managers.tasks),
+                managers.pastTime());
+    }
+}
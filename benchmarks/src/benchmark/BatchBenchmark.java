@@ -0,0 +1,90 @@
+package benchmark;
+
+import manager.FileBackedTaskManager;
+import manager.FsyncPolicy;
+import manager.InMemoryTaskManager;
+import manager.TaskBatch;
+import model.Epic;
+import model.Subtask;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Создание эпика с size подзадачами: цепочка addEpic/addSubtask против одного applyBatch.
+ * В варианте wal каждая запись журнала сбрасывается на диск (FsyncPolicy.ALWAYS).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class BatchBenchmark {
+    @State(Scope.Thread)
+    public static class ManagerState {
+        @Param({"100", "1000"})
+        int size;
+
+        @Param({"memory", "wal"})
+        String storage;
+
+        InMemoryTaskManager manager;
+        Path directory;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            if (storage.equals("wal")) {
+                directory = Files.createTempDirectory("kanban-batch");
+                manager = new FileBackedTaskManager(directory, FsyncPolicy.ALWAYS, 1, Integer.MAX_VALUE);
+            } else {
+                manager = new InMemoryTaskManager();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            if (manager instanceof FileBackedTaskManager fileBacked) {
+                fileBacked.close();
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int separateCalls(ManagerState state) {
+        int epicId = state.manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+        for (int i = 0; i < state.size; i++) {
+            state.manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epicId));
+        }
+        return epicId;
+    }
+
+    @Benchmark
+    public int[] applyBatch(ManagerState state) {
+        TaskBatch batch = new TaskBatch();
+        int epicRef = batch.addEpic(new Epic(0, "Эпик", "Описание"));
+        for (int i = 0; i < state.size; i++) {
+            batch.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epicRef));
+        }
+        return state.manager.applyBatch(batch);
+    }
+}
@@ -0,0 +1,155 @@
+package benchmark;
+
+import manager.BoardCsv;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Перенос доски через {@link BoardCsv} против наивного варианта, который при выгрузке собирает списки getAll*
+ * и весь текст файла в памяти, а при загрузке сначала читает файл целиком. Для каждой фазы печатаются сущности
+ * в секунду и пик кучи сверх живых данных до начала фазы (сумма пиков пулов кучи после сброса). В пик входит
+ * и ещё не собранный мусор, поэтому он зависит от -Xmx; наглядней всего запуск с небольшим запасом кучи.
+ * Запуск: {@code java -Xmx4g benchmark.BoardTransfer [сущностей]}.
+ */
+public class BoardTransfer {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path file = Files.createTempFile("board", ".csv");
+        try {
+            export(size, file);
+            measure("загрузка BoardCsv", size, () -> {
+                TaskManager target = new InMemoryTaskManager();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return BoardCsv.read(target, channel);
+                }
+            });
+            measure("загрузка наивная", size, () -> {
+                byte[] content = Files.readAllBytes(file);
+                TaskManager target = new InMemoryTaskManager();
+                return BoardCsv.read(target, Channels.newChannel(new ByteArrayInputStream(content)));
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Исходная доска живёт только на время выгрузки, чтобы не мешать замерам загрузки
+    private static void export(int size, Path file) throws IOException, InterruptedException {
+        TaskManager source = fill(size);
+        measure("выгрузка BoardCsv", size, () -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                return BoardCsv.write(source, channel);
+            }
+        });
+        System.out.printf("файл: %d МБ%n", Files.size(file) >> 20);
+        measure("выгрузка наивная", size, () -> naiveWrite(source, file));
+    }
+
+    // Треть - задачи, остальное - эпики по 100 подзадач; у половины задач есть время
+    private static TaskManager fill(int size) {
+        TaskManager manager = new InMemoryTaskManager();
+        int tasks = size / 3;
+        for (int i = 0; i < tasks; i++) {
+            manager.addTask(i % 2 == 0
+                    ? new Task(0, "Задача " + i, "Описание, \"в кавычках\"", TaskStatus.NEW)
+                    : new Task(0, "Задача " + i, "Описание", TaskStatus.DONE, START.plusMinutes(10L * i),
+                    Duration.ofMinutes(5)));
+        }
+        int left = size - tasks;
+        while (left > 0) {
+            int epicId = manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+            left--;
+            for (int i = 0; i < 100 && left > 0; i++, left--) {
+                manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.IN_PROGRESS, epicId));
+            }
+        }
+        for (int id = 1; id <= 1_000; id++) {
+            manager.getTask(id);
+        }
+        return manager;
+    }
+
+    private static long naiveWrite(TaskManager manager, Path file) throws IOException {
+        List<Task> tasks = manager.getAllTasks();
+        List<Epic> epics = manager.getAllEpics();
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        StringBuilder text = new StringBuilder("type,id,name,description,status,startTime,duration,epic\n");
+        for (Epic epic : epics) {
+            row(text, epic, "");
+        }
+        for (Subtask subtask : subtasks) {
+            row(text, subtask, String.valueOf(subtask.getEpicId()));
+        }
+        for (Task task : tasks) {
+            row(text, task, "");
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return tasks.size() + epics.size() + subtasks.size();
+    }
+
+    private static void row(StringBuilder text, Task task, String epic) {
+        text.append(task.getType()).append(',').append(task.getId())
+                .append(",\"").append(task.getName().replace("\"", "\"\""))
+                .append("\",\"").append(task.getDescription().replace("\"", "\"\""))
+                .append("\",").append(task.getStatus())
+                .append(',').append(task.getStartTime() == null ? "" : task.getStartTime())
+                .append(',').append(task.getDuration() == null ? "" : task.getDuration())
+                .append(',').append(epic).append('\n');
+    }
+
+    private static void measure(String title, int size, Phase phase) throws IOException, InterruptedException {
+        long live = usedHeap();
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long started = System.nanoTime();
+        long count;
+        try {
+            count = phase.run();
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%s: не хватило кучи (занято до начала %d МБ)%n", title, live >> 20);
+            return;
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long peak = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        System.out.printf("%s: %d сущностей за %.1f с, %.0f тыс./с, занято до начала %d МБ, пик +%d МБ%n",
+                title, count, seconds, count / seconds / 1_000, live >> 20, Math.max(0, peak - live) >> 20);
+        if (count < size) {
+            throw new IllegalStateException("Перенесено " + count + " из " + size);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private interface Phase {
+        long run() throws IOException;
+    }
+}
@@ -0,0 +1,220 @@
+package benchmark;
+
+import http.TaskJson;
+import manager.TaskCodec;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись и чтение 1000 сущностей: {@link TaskCodec} без словаря и со словарём против стандартной сериализации
+ * Java и JSON HTTP API через {@link TaskJson}. Модель не Serializable, поэтому для сериализации Java
+ * берётся record с теми же полями.
+ * Размер одной сущности в каждом формате печатается при подготовке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+    private static final int COUNT = 1_000;
+    private static final String[] WORDS = {"Отчёт", "Релиз", "Встреча", "Сервер", "Клиент", "Договор", "Оплата",
+            "Сборка", "Тестирование", "Документация"};
+
+    @Param({"task", "subtask", "epic"})
+    String kind;
+
+    private List<Task> tasks;
+    private List<TaskRecord> records;
+    private ByteBuffer buffer;
+    private byte[] plainBytes;
+    private byte[] dictionaryBytes;
+    private byte[] javaBytes;
+    private String[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ClassNotFoundException {
+        Random random = new Random(1);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        tasks = new ArrayList<>(COUNT);
+        records = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            int id = 1_000 + i;
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            String description = "Описание: " + WORDS[random.nextInt(WORDS.length)];
+            TaskStatus status = TaskStatus.values()[random.nextInt(3)];
+            LocalDateTime startTime = start.plusMinutes(30L * i);
+            Duration duration = Duration.ofMinutes(15);
+            Task task = switch (kind) {
+                case "subtask" -> new Subtask(id, name, description, status, 1, startTime, duration);
+                case "epic" -> {
+                    Epic epic = new Epic(id, name, description);
+                    for (int s = 0; s < 20; s++) {
+                        epic.addSubtaskId(100_000 + i * 20 + s, TaskStatus.values()[random.nextInt(3)]);
+                    }
+                    yield epic;
+                }
+                default -> new Task(id, name, description, status, startTime, duration);
+            };
+            tasks.add(task);
+            records.add(TaskRecord.of(task));
+        }
+        buffer = ByteBuffer.allocate(1 << 22);
+        plainBytes = toBytes(binaryWrite());
+        dictionaryBytes = toBytes(binaryWriteDictionary());
+        javaBytes = javaWrite();
+        json = jsonWrite();
+        long jsonBytes = 0;
+        for (String text : json) {
+            jsonBytes += text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.printf("%nбайт на сущность: TaskCodec %d, со словарём %d, Java %d, JSON %d%n",
+                plainBytes.length / COUNT, dictionaryBytes.length / COUNT, javaBytes.length / COUNT,
+                jsonBytes / COUNT);
+        if (!binaryRead().equals(tasks) || !binaryReadDictionary().equals(tasks) || !javaRead().equals(records)) {
+            throw new IllegalStateException("Формат не восстановил исходные сущности");
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer binaryWrite() {
+        TaskCodec codec = new TaskCodec();
+        buffer.clear();
+        for (Task task : tasks) {
+            codec.write(task, buffer);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer binaryWriteDictionary() {
+        TaskCodec codec = new TaskCodec(1_024);
+        buffer.clear();
+        for (Task task : tasks) {
+            codec.write(task, buffer);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public List<Task> binaryRead() {
+        return read(new TaskCodec(), plainBytes);
+    }
+
+    @Benchmark
+    public List<Task> binaryReadDictionary() {
+        return read(new TaskCodec(1_024), dictionaryBytes);
+    }
+
+    @Benchmark
+    public byte[] javaWrite() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (TaskRecord record : records) {
+                out.writeObject(record);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<TaskRecord> javaRead() throws IOException, ClassNotFoundException {
+        List<TaskRecord> result = new ArrayList<>(COUNT);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaBytes))) {
+            for (int i = 0; i < COUNT; i++) {
+                result.add((TaskRecord) in.readObject());
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String[] jsonWrite() throws IOException {
+        String[] result = new String[COUNT];
+        CharArrayWriter out = new CharArrayWriter(256);
+        TaskJson writer = new TaskJson(out);
+        for (int i = 0; i < COUNT; i++) {
+            out.reset();
+            writer.write(tasks.get(i));
+            result[i] = out.toString();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void jsonRead(Blackhole blackhole) {
+        for (String text : json) {
+            blackhole.consume(TaskJson.readTask(text));
+        }
+    }
+
+    private List<Task> read(TaskCodec codec, byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        List<Task> result = new ArrayList<>(COUNT);
+        while (in.hasRemaining()) {
+            result.add(codec.read(in));
+        }
+        return result;
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    record TaskRecord(int id, String type, String name, String description, TaskStatus status,
+                      LocalDateTime startTime, Duration duration, int epicId, int[] subtaskIds)
+            implements Serializable {
+        static TaskRecord of(Task task) {
+            int[] subtaskIds = task instanceof Epic epic
+                    ? epic.getSubtaskIds().stream().mapToInt(Integer::intValue).toArray() : null;
+            return new TaskRecord(task.getId(), task.getType().name(), task.getName(), task.getDescription(),
+                    task.getStatus(), task.getStartTime(), task.getDuration(),
+                    task instanceof Subtask subtask ? subtask.getEpicId() : 0, subtaskIds);
+        }
+
+        // Массив сравнивается по ссылке, так что для проверки хватает полей без него
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TaskRecord other && id == other.id && type.equals(other.type)
+                    && name.equals(other.name) && status == other.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
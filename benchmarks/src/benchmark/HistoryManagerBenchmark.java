@@ -0,0 +1,117 @@
+package benchmark;
+
+import manager.BoundedHistoryManager;
+import manager.ConcurrentHistoryManager;
+import manager.InMemoryHistoryManager;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * add/remove/getHistory для истории, заполненной size задачами.
+ * add для уже просмотренной задачи переносит её в конец списка.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryManagerBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    private Task[] tasks;
+    private InMemoryHistoryManager history;
+    private ConcurrentHistoryManager concurrentHistory;
+    private BoundedHistoryManager boundedHistory;
+    private Task[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new Task[size];
+        history = new InMemoryHistoryManager();
+        concurrentHistory = new ConcurrentHistoryManager();
+        boundedHistory = new BoundedHistoryManager(size);
+        buffer = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task(i + 1, "Задача " + i, "Описание", TaskStatus.NEW);
+            history.add(tasks[i]);
+            concurrentHistory.add(tasks[i]);
+            boundedHistory.add(tasks[i]);
+        }
+    }
+
+    private Task pick() {
+        return tasks[ThreadLocalRandom.current().nextInt(tasks.length)];
+    }
+
+    @Benchmark
+    public void add() {
+        history.add(pick());
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        Task task = pick();
+        history.remove(task.getId());
+        history.add(task);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Benchmark
+    public void addBounded() {
+        boundedHistory.add(pick());
+    }
+
+    @Benchmark
+    public void removeAndAddBounded() {
+        Task task = pick();
+        boundedHistory.remove(task.getId());
+        boundedHistory.add(task);
+    }
+
+    @Benchmark
+    public int getHistoryIntoBuffer() {
+        return boundedHistory.getHistory(buffer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addGlobalLock() {
+        Task task = pick();
+        synchronized (history) {
+            history.add(task);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addConcurrent() {
+        concurrentHistory.add(pick());
+    }
+
+    @Benchmark
+    public List<Task> getHistoryConcurrent() {
+        return concurrentHistory.getHistory();
+    }
+}
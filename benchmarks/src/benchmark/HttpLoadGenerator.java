@@ -0,0 +1,148 @@
+package benchmark;
+
+import http.HttpTaskServer;
+import manager.ConcurrentTaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест {@link HttpTaskServer}, запущенного в том же процессе.
+ * Каждый из concurrency клиентов в своём виртуальном потоке шлёт запросы без пауз:
+ * 80% GET /tasks/{id}, 10% GET /subtasks/epic/{id}, 10% POST /tasks.
+ * В конце печатаются запросы в секунду и перцентили задержки.
+ * Запуск: {@code java benchmark.HttpLoadGenerator [concurrency] [секунды] [задач]}.
+ */
+public class HttpLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        HttpTaskServer.enableTcpNoDelay();
+
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        int[] taskIds = new int[size];
+        int[] epicIds = new int[Math.max(1, size / 100)];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = manager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+        }
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = manager.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+            for (int j = 0; j < 10; j++) {
+                manager.addSubtask(new Subtask(0, "Подзадача " + j, "Описание", TaskStatus.NEW, epicIds[i]));
+            }
+        }
+
+        HttpTaskServer server = new HttpTaskServer(manager, 0);
+        server.start();
+        String base = "http://localhost:" + server.getPort();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+             ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Прогрев, чтобы JIT и пул соединений не попадали в замер
+            run(client, workers, base, taskIds, epicIds, concurrency, TimeUnit.SECONDS.toNanos(Math.min(3, seconds)));
+            Result result = run(client, workers, base, taskIds, epicIds, concurrency,
+                    TimeUnit.SECONDS.toNanos(seconds));
+            result.print(concurrency, seconds);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Result run(HttpClient client, ExecutorService workers, String base, int[] taskIds,
+                              int[] epicIds, int concurrency, long durationNanos) throws Exception {
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> {
+                Result result = new Result();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int kind = random.nextInt(10);
+                    HttpRequest request;
+                    if (kind < 8) {
+                        request = HttpRequest.newBuilder(URI.create(base + "/tasks/"
+                                + taskIds[random.nextInt(taskIds.length)])).GET().build();
+                    } else if (kind < 9) {
+                        request = HttpRequest.newBuilder(URI.create(base + "/subtasks/epic/"
+                                + epicIds[random.nextInt(epicIds.length)])).GET().build();
+                    } else {
+                        request = HttpRequest.newBuilder(URI.create(base + "/tasks"))
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"name\": \"Новая задача\", \"description\": \"Описание\"}"))
+                                .build();
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        result.record(System.nanoTime() - start, response.statusCode() < 400);
+                    } catch (java.io.IOException e) {
+                        result.record(System.nanoTime() - start, false);
+                    }
+                }
+                return result;
+            }));
+        }
+        Result total = new Result();
+        for (Future<Result> future : futures) {
+            total.merge(future.get());
+        }
+        return total;
+    }
+
+    private static class Result {
+        long[] latencies = new long[1_024];
+        int count;
+        int errors;
+
+        void record(long nanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void merge(Result other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], true);
+            }
+            errors += other.errors;
+        }
+
+        void print(int concurrency, int seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("Клиентов: %d, длительность: %d с, запросов: %d, ошибок: %d%n",
+                    concurrency, seconds, count, errors);
+            System.out.printf("Запросов в секунду: %d%n", count / Math.max(seconds, 1));
+            System.out.printf("p50: %.3f мс, p99: %.3f мс, max: %.3f мс%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), count == 0 ? 0.0 : sorted[count - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
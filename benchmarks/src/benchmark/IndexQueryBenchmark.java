@@ -0,0 +1,85 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Выборки по вторичным индексам против полного просмотра хранилища.
+ * Статус IN_PROGRESS выбран редким (около 1%), чтобы показать выигрыш на селективных запросах.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexQueryBenchmark {
+    private static final String PREFIX = "Релиз 42";
+
+    @Param({"10000", "100000"})
+    int size;
+
+    private InMemoryTaskManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Random random = new Random(1);
+        int epics = Math.max(1, size / 100);
+        for (int i = 0; i < epics; i++) {
+            int epicId = manager.addEpic(new Epic(0, "Релиз " + i, "Описание")).getId();
+            for (int j = 0; j < size / epics; j++) {
+                TaskStatus status = random.nextInt(100) == 0 ? TaskStatus.IN_PROGRESS
+                        : random.nextBoolean() ? TaskStatus.NEW : TaskStatus.DONE;
+                manager.addSubtask(new Subtask(0, "Релиз " + i + " шаг " + j, "Описание", status, epicId));
+            }
+        }
+        // Построить индексы до замеров
+        manager.findByNamePrefix(PREFIX);
+    }
+
+    @Benchmark
+    public List<Subtask> subtasksByStatusIndexed() {
+        return manager.getSubtasksByStatus(TaskStatus.IN_PROGRESS);
+    }
+
+    @Benchmark
+    public List<Subtask> subtasksByStatusScan() {
+        return manager.streamSubtasks()
+                .filter(subtask -> subtask.getStatus() == TaskStatus.IN_PROGRESS)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Task> namePrefixIndexed() {
+        return manager.findByNamePrefix(PREFIX);
+    }
+
+    @Benchmark
+    public List<Task> namePrefixScan() {
+        return Stream.of(manager.streamTasks(), manager.streamEpics(), manager.streamSubtasks())
+                .flatMap(stream -> stream)
+                .filter(task -> task.getName().startsWith(PREFIX))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import manager.InstrumentedTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена {@link InstrumentedTaskManager}: те же вызовы напрямую (sampleInterval = 0) и через обёртку
+ * с замером каждого вызова или выборки. getTask - самая дешёвая операция, на ней накладные
+ * расходы заметнее всего.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+    @Param({"0", "1", "64"})
+    int sampleInterval;
+
+    private TaskManager manager;
+    private int[] taskIds;
+    private int[] epicIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryTaskManager target = new InMemoryTaskManager();
+        taskIds = new int[10_000];
+        epicIds = new int[1_000];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = target.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+        }
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = target.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+        }
+        for (int i = 0; i < taskIds.length; i++) {
+            target.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW,
+                    epicIds[i % epicIds.length]));
+        }
+        manager = sampleInterval == 0 ? target : new InstrumentedTaskManager(target, sampleInterval);
+    }
+
+    private static int pick(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(pick(taskIds));
+    }
+
+    @Benchmark
+    public List<Subtask> getEpicSubtasks() {
+        return manager.getEpicSubtasks(pick(epicIds));
+    }
+
+    @Benchmark
+    public List<Task> getTasksPage() {
+        return manager.getTasks(pick(taskIds), 20);
+    }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import manager.MappedSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Сравнение времени старта и занятой кучи после загрузки снапшота
+ * с ленивыми и с немедленно декодированными строками.
+ * Запуск: {@code java benchmark.MappedSnapshotBenchmark [количество сущностей]}.
+ */
+public class MappedSnapshotBenchmark {
+    public static void main(String[] args) throws IOException {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path file = Files.createTempFile("kanban", ".snapshot");
+        try {
+            InMemoryTaskManager source = new InMemoryTaskManager();
+            int created = 0;
+            while (created < entities) {
+                Epic epic = source.addEpic(new Epic(0, "Эпик " + created, "Описание эпика " + created));
+                created++;
+                for (int i = 0; i < 8 && created < entities; i++, created++) {
+                    source.addSubtask(new Subtask(0, "Подзадача " + created, "Описание подзадачи " + created,
+                            TaskStatus.NEW, epic.getId()));
+                }
+                if (created < entities) {
+                    source.addTask(new Task(0, "Задача " + created, "Описание задачи " + created, TaskStatus.DONE));
+                    created++;
+                }
+            }
+            MappedSnapshot.write(source, file);
+            System.out.printf("Размер снапшота: %d МБ%n", Files.size(file) >> 20);
+            source = null;
+
+            measure(file, false);
+            measure(file, true);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void measure(Path file, boolean lazy) {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        InMemoryTaskManager manager = MappedSnapshot.load(file, lazy);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long heap = usedHeap() - before;
+        System.out.printf("%s загрузка: %d мс, куча после загрузки: %d МБ%n",
+                lazy ? "Ленивая" : "Полная", millis, heap >> 20);
+        Reference.reachabilityFence(manager);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
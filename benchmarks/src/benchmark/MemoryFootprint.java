@@ -0,0 +1,86 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Занимаемая куча на сущность в {@link InMemoryTaskManager}: разница занятой памяти после сборки мусора
+ * до и после заполнения менеджера. Для сравнения так же измеряются те же сущности в простом массиве,
+ * разница между двумя числами - накладные расходы хранилища (ключи, узлы, списки id в эпиках).
+ * Запуск: {@code java -Xmx3g benchmark.MemoryFootprint [сущностей]}.
+ */
+public class MemoryFootprint {
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int epicCount = Math.max(1, size / 1_000);
+        int perEpic = size / epicCount;
+
+        report("задачи", size, () -> {
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            for (int i = 0; i < size; i++) {
+                manager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+            }
+            return manager;
+        }, () -> {
+            Task[] payload = new Task[size];
+            for (int i = 0; i < size; i++) {
+                payload[i] = new Task(i + 1, "Задача " + i, "Описание", TaskStatus.NEW);
+            }
+            return payload;
+        });
+
+        int total = epicCount * (perEpic + 1);
+        report("эпики с подзадачами", total, () -> {
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            for (int e = 0; e < epicCount; e++) {
+                int epicId = manager.addEpic(new Epic(0, "Эпик " + e, "Описание")).getId();
+                for (int i = 0; i < perEpic; i++) {
+                    manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epicId));
+                }
+            }
+            return manager;
+        }, () -> {
+            Task[] payload = new Task[total];
+            int id = 1;
+            for (int e = 0; e < epicCount; e++) {
+                int epicId = id;
+                payload[id - 1] = new Epic(id++, "Эпик " + e, "Описание");
+                for (int i = 0; i < perEpic; i++) {
+                    payload[id - 1] = new Subtask(id++, "Подзадача " + i, "Описание", TaskStatus.NEW, epicId);
+                }
+            }
+            return payload;
+        });
+    }
+
+    private static void report(String title, int count, Supplier<Object> manager, Supplier<Object> payload)
+            throws InterruptedException {
+        long managerBytes = measure(manager);
+        // Сам массив ссылок в полезную нагрузку не входит
+        long payloadBytes = measure(payload) - 16 - 4L * count;
+        System.out.printf("%s, %d сущностей: менеджер %d байт на сущность, объекты %d, накладные расходы %d%n",
+                title, count, managerBytes / count, payloadBytes / count, (managerBytes - payloadBytes) / count);
+    }
+
+    private static long measure(Supplier<Object> supplier) throws InterruptedException {
+        long before = usedHeap();
+        Object result = supplier.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(result);
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
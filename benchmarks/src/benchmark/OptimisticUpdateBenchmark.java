@@ -0,0 +1,107 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.SnapshotTaskManager;
+import manager.TaskManager;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение-изменение-запись задачи из нескольких потоков: под общей блокировкой InMemoryTaskManager против
+ * обновления с проверкой версии и повтором при конфликте. hotTasks - сколько задач делят потоки:
+ * при 1 все пишут в одну задачу и конфликтуют постоянно. Счётчик retries - повторы из-за устаревшей версии.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class OptimisticUpdateBenchmark {
+    @State(Scope.Benchmark)
+    public static class Managers {
+        @Param({"1", "1024"})
+        int hotTasks;
+
+        InMemoryTaskManager locked;
+        ConcurrentTaskManager concurrent;
+        SnapshotTaskManager snapshot;
+        int firstId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            locked = new InMemoryTaskManager();
+            concurrent = new ConcurrentTaskManager();
+            snapshot = new SnapshotTaskManager();
+            for (int i = 0; i < hotTasks; i++) {
+                firstId = locked.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+                concurrent.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+                snapshot.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+            }
+            firstId -= hotTasks - 1;
+        }
+
+        int pickTask() {
+            return firstId + ThreadLocalRandom.current().nextInt(hotTasks);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retries {
+        public long retries;
+    }
+
+    @Benchmark
+    public Task globalLock(Managers managers) {
+        int id = managers.pickTask();
+        synchronized (managers.locked) {
+            Task task = modified(managers.locked, id);
+            managers.locked.updateTask(task);
+            return task;
+        }
+    }
+
+    @Benchmark
+    public Task optimisticConcurrent(Managers managers, Retries retries) {
+        return optimistic(managers.concurrent, managers.pickTask(), retries);
+    }
+
+    @Benchmark
+    public Task optimisticSnapshot(Managers managers, Retries retries) {
+        return optimistic(managers.snapshot, managers.pickTask(), retries);
+    }
+
+    private static Task optimistic(TaskManager manager, int id, Retries retries) {
+        Task task = modified(manager, id);
+        while (!manager.updateTask(task, task.getVersion())) {
+            retries.retries++;
+            task = modified(manager, id);
+        }
+        return task;
+    }
+
+    // Копия текущего состояния без записи в историю просмотров, со сменой статуса
+    private static Task modified(TaskManager manager, int id) {
+        Task task = new Task(manager.getTasks(id - 1, 1).getFirst());
+        task.setStatus(task.getStatus() == TaskStatus.NEW ? TaskStatus.IN_PROGRESS : TaskStatus.NEW);
+        return task;
+    }
+}
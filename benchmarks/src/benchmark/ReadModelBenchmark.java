@@ -0,0 +1,111 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.SnapshotTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение без копий через TaskView и EpicView против защитной копии, которую потребитель снимает
+ * с объекта из get*. Выделение памяти на чтение видно с {@code -prof gc} (gc.alloc.rate.norm).
+ * Эпики - по 16 подзадач. Варианты *Page читают страницу из 100 сущностей.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReadModelBenchmark {
+    private static final int SIZE = 10_000;
+    private static final int SUBTASKS_PER_EPIC = 16;
+    private static final int PAGE = 100;
+
+    @Param({"inMemory", "concurrent", "snapshot"})
+    String manager;
+
+    private TaskManager taskManager;
+    private int[] taskIds;
+    private int[] epicIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskManager = switch (manager) {
+            case "inMemory" -> new InMemoryTaskManager();
+            case "concurrent" -> new ConcurrentTaskManager();
+            default -> new SnapshotTaskManager();
+        };
+        taskIds = new int[SIZE];
+        epicIds = new int[SIZE / SUBTASKS_PER_EPIC];
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = taskManager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+        }
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = taskManager.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                taskManager.addSubtask(new Subtask(0, "Подзадача " + j, "Описание",
+                        j % 2 == 0 ? TaskStatus.NEW : TaskStatus.DONE, epicIds[i]));
+            }
+        }
+    }
+
+    private static int pick(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    // Страницы читаются без истории просмотров, поэтому копии сравниваются со страницами get*
+    @Benchmark
+    public Task copiedTask() {
+        int id = pick(taskIds);
+        return new Task(taskManager.getTasks(id - 1, 1).getFirst());
+    }
+
+    @Benchmark
+    public TaskView taskView() {
+        return taskManager.getTaskView(pick(taskIds));
+    }
+
+    @Benchmark
+    public Epic copiedEpic() {
+        int id = pick(epicIds);
+        return new Epic(taskManager.getEpics(id - 1, 1).getFirst());
+    }
+
+    @Benchmark
+    public EpicView epicView() {
+        return taskManager.getEpicView(pick(epicIds));
+    }
+
+    @Benchmark
+    public List<Task> copiedTaskPage() {
+        List<Task> page = taskManager.getTasks(pick(taskIds) - 1, PAGE);
+        page.replaceAll(Task::new);
+        return page;
+    }
+
+    @Benchmark
+    public List<TaskView> taskViewPage() {
+        return taskManager.getTaskViews(pick(taskIds) - 1, PAGE);
+    }
+}
@@ -0,0 +1,108 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полнотекстовый поиск по индексу против полного просмотра (реализация TaskManager по умолчанию).
+ * Слова названий и описаний выбираются по закону Ципфа из словаря в 20 000 слов, поэтому частые слова
+ * встречаются в десятках процентов задач, а редкие - в единицах.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final int VOCABULARY = 20_000;
+    private static final int LIMIT = 20;
+    private static final String[] STEMS = {"отчёт", "встреча", "релиз", "сервер", "клиент", "договор", "платёж",
+            "задача", "проект", "тест", "сборка", "ошибка", "документ", "план", "склад", "заказ"};
+
+    @Param({"1000000"})
+    int size;
+
+    // rare - редкое слово, common - самое частое, pair - частое и редкое вместе, prefix - префикс редкого слова
+    @Param({"rare", "pair", "prefix", "common"})
+    String query;
+
+    private InMemoryTaskManager indexed;
+    private TaskManager scanned;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexed = new InMemoryTaskManager();
+        scanned = new ConcurrentTaskManager();
+        double[] cumulative = zipf();
+        Random random = new Random(1);
+        for (int i = 0; i < size; i++) {
+            String name = word(cumulative, random) + " " + word(cumulative, random) + " " + i;
+            String description = word(cumulative, random) + " " + word(cumulative, random) + " "
+                    + word(cumulative, random);
+            indexed.addTask(new Task(0, name, description, TaskStatus.NEW));
+            scanned.addTask(new Task(0, name, description, TaskStatus.NEW));
+        }
+        text = switch (query) {
+            case "rare" -> word(500);
+            case "common" -> word(0);
+            case "pair" -> word(0) + " " + word(500);
+            default -> word(500).substring(0, word(500).length() - 1) + "*";
+        };
+        // Построить индекс до замеров
+        indexed.search(text, LIMIT);
+    }
+
+    @Benchmark
+    public int[] index() {
+        return indexed.search(text, LIMIT);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 3, time = 1)
+    public int[] scan() {
+        return scanned.search(text, LIMIT);
+    }
+
+    private static double[] zipf() {
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < VOCABULARY; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static String word(double[] cumulative, Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return word(rank < 0 ? Math.min(-rank - 1, VOCABULARY - 1) : rank);
+    }
+
+    private static String word(int rank) {
+        return STEMS[rank % STEMS.length] + (rank / STEMS.length);
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import manager.InMemoryTaskManager;
+import manager.ShardedTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена маршрутизации ShardedTaskManager в одном процессе: чтение по id и подзадачи эпика идут в один шард,
+ * страница собирается со всех. shards=1 - тот же менеджер без шардирования.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardingBenchmark {
+    private static final int EPICS = 1_000;
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    @Param({"1", "4"})
+    int shards;
+
+    private TaskManager manager;
+    private int[] epicIds;
+    private int[] taskIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (shards == 1) {
+            manager = new InMemoryTaskManager();
+        } else {
+            List<TaskManager> list = new ArrayList<>();
+            for (int i = 0; i < shards; i++) {
+                list.add(new InMemoryTaskManager());
+            }
+            manager = new ShardedTaskManager(list);
+        }
+        epicIds = new int[EPICS];
+        taskIds = new int[EPICS];
+        for (int i = 0; i < EPICS; i++) {
+            taskIds[i] = manager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+            epicIds[i] = manager.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                manager.addSubtask(new Subtask(0, "Подзадача " + j, "Описание", TaskStatus.NEW, epicIds[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(taskIds[ThreadLocalRandom.current().nextInt(EPICS)]);
+    }
+
+    @Benchmark
+    public List<Subtask> getEpicSubtasks() {
+        return manager.getEpicSubtasks(epicIds[ThreadLocalRandom.current().nextInt(EPICS)]);
+    }
+
+    @Benchmark
+    public List<Task> getTasksPage() {
+        return manager.getTasks(taskIds[ThreadLocalRandom.current().nextInt(EPICS)], 50);
+    }
+}
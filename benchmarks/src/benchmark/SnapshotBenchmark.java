@@ -0,0 +1,115 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.SnapshotTaskManager;
+import manager.TaskManager;
+import manager.TaskSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение эпика с подзадачами и запись подзадачи: {@link SnapshotTaskManager} со снимками
+ * против {@link ConcurrentTaskManager}. Варианты *Snapshot читают эпик и его подзадачи из одного снимка.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private ConcurrentTaskManager concurrentManager;
+    private SnapshotTaskManager snapshotManager;
+    private int[] taskIds;
+    private int[] epicIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        concurrentManager = new ConcurrentTaskManager();
+        snapshotManager = new SnapshotTaskManager();
+        taskIds = new int[size];
+        epicIds = new int[Math.max(1, size / 10)];
+        fill(concurrentManager);
+        fill(snapshotManager);
+    }
+
+    // Менеджеры заполняются одинаково, поэтому id совпадают
+    private void fill(TaskManager target) {
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = target.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+        }
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = target.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+        }
+        for (int i = 0; i < size; i++) {
+            target.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW,
+                    epicIds[i % epicIds.length]));
+        }
+    }
+
+    private static int pick(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    public Task getTaskConcurrent() {
+        return concurrentManager.getTask(pick(taskIds));
+    }
+
+    @Benchmark
+    public Task getTaskSnapshot() {
+        return snapshotManager.snapshot().getTask(pick(taskIds));
+    }
+
+    @Benchmark
+    public List<Subtask> getEpicWithSubtasksConcurrent() {
+        int epicId = pick(epicIds);
+        concurrentManager.getEpic(epicId);
+        return concurrentManager.getEpicSubtasks(epicId);
+    }
+
+    @Benchmark
+    public List<Subtask> getEpicWithSubtasksSnapshot() {
+        int epicId = pick(epicIds);
+        TaskSnapshot snapshot = snapshotManager.snapshot();
+        snapshot.getEpic(epicId);
+        return snapshot.getEpicSubtasks(epicId);
+    }
+
+    // Запись: подзадача добавляется и сразу удаляется, чтобы размер не рос
+    @Benchmark
+    public Subtask addDeleteSubtaskConcurrent() {
+        Subtask subtask = concurrentManager.addSubtask(
+                new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, pick(epicIds)));
+        concurrentManager.deleteSubtask(subtask.getId());
+        return subtask;
+    }
+
+    @Benchmark
+    public Subtask addDeleteSubtaskSnapshot() {
+        Subtask subtask = snapshotManager.addSubtask(
+                new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, pick(epicIds)));
+        snapshotManager.deleteSubtask(subtask.getId());
+        return subtask;
+    }
+}
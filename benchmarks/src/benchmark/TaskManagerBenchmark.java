@@ -0,0 +1,159 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Чтение из {@link TaskManager}: get* вместе с записью в историю и копирование в getAllTasks.
+ * Варианты *GlobalLock повторяют обёртку с одной блокировкой вокруг {@link InMemoryTaskManager},
+ * варианты *Concurrent читают из {@link ConcurrentTaskManager} без внешней блокировки.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskManagerBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private InMemoryTaskManager manager;
+    private ConcurrentTaskManager concurrentManager;
+    private int[] taskIds;
+    private int[] epicIds;
+    private int[] subtaskIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        concurrentManager = new ConcurrentTaskManager();
+        taskIds = new int[size];
+        epicIds = new int[Math.max(1, size / 10)];
+        subtaskIds = new int[size];
+        fill(manager);
+        fill(concurrentManager);
+    }
+
+    // Менеджеры заполняются одинаково, поэтому id совпадают
+    private void fill(TaskManager target) {
+        for (int i = 0; i < taskIds.length; i++) {
+            taskIds[i] = target.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW)).getId();
+        }
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = target.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+        }
+        for (int i = 0; i < subtaskIds.length; i++) {
+            subtaskIds[i] = target.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW,
+                    epicIds[i % epicIds.length])).getId();
+        }
+    }
+
+    // Каждый поток бенчмарка изображает набор пользователей со своими историями
+    @State(Scope.Thread)
+    public static class User {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private final String[] userIds = new String[1_000];
+
+        public User() {
+            int thread = THREADS.getAndIncrement();
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = "user-" + thread + "-" + i;
+            }
+        }
+
+        String pick() {
+            return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+        }
+    }
+
+    private static int pick(int[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(pick(taskIds));
+    }
+
+    @Benchmark
+    public Epic getEpic() {
+        return manager.getEpic(pick(epicIds));
+    }
+
+    @Benchmark
+    public Subtask getSubtask() {
+        return manager.getSubtask(pick(subtaskIds));
+    }
+
+    @Benchmark
+    public List<Task> getAllTasks() {
+        return manager.getAllTasks();
+    }
+
+    @Benchmark
+    public List<Task> getTasksPage() {
+        return manager.getTasks(pick(taskIds), 100);
+    }
+
+    @Benchmark
+    public long streamTasksCount() {
+        return manager.streamTasks().filter(task -> task.getStatus() == TaskStatus.NEW).count();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task getTaskGlobalLock() {
+        synchronized (manager) {
+            return manager.getTask(pick(taskIds));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Subtask getSubtaskGlobalLock() {
+        synchronized (manager) {
+            return manager.getSubtask(pick(subtaskIds));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task getTaskConcurrent() {
+        return concurrentManager.getTask(pick(taskIds));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Subtask getSubtaskConcurrent() {
+        return concurrentManager.getSubtask(pick(subtaskIds));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Task getTaskPerUserConcurrent(User user) {
+        return concurrentManager.getTask(user.pick(), pick(taskIds));
+    }
+}
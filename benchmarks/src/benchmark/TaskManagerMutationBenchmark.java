@@ -0,0 +1,189 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.TaskSubscription;
+import model.Epic;
+import model.Subtask;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * addSubtask и каскадное deleteEpic. Состояние пересоздаётся перед каждой итерацией
+ * (для deleteEpic - перед каждым вызовом), поэтому используется режим SingleShotTime.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class TaskManagerMutationBenchmark {
+    private static final int BATCH = 10_000;
+
+    @State(Scope.Thread)
+    public static class AddState {
+        InMemoryTaskManager manager;
+        int epicId;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            manager = new InMemoryTaskManager();
+            epicId = manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+        }
+    }
+
+    // Тот же addSubtask с подписчиком на события: цена публикации на пути изменения
+    @State(Scope.Thread)
+    public static class SubscribedAddState {
+        @Param({"false", "true"})
+        boolean coalesce;
+
+        InMemoryTaskManager manager;
+        TaskSubscription subscription;
+        LongAdder delivered = new LongAdder();
+        int epicId;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            manager = new InMemoryTaskManager();
+            epicId = manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+            subscription = manager.subscribe(event -> delivered.increment(),
+                    TaskSubscription.DEFAULT_CAPACITY, coalesce);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            subscription.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ContendedAddState {
+        InMemoryTaskManager manager;
+        ConcurrentTaskManager concurrentManager;
+        int[] epicIds;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            manager = new InMemoryTaskManager();
+            concurrentManager = new ConcurrentTaskManager();
+            epicIds = new int[64];
+            for (int i = 0; i < epicIds.length; i++) {
+                epicIds[i] = manager.addEpic(new Epic(0, "Эпик " + i, "Описание")).getId();
+                concurrentManager.addEpic(new Epic(0, "Эпик " + i, "Описание"));
+            }
+        }
+
+        int pickEpic() {
+            return epicIds[ThreadLocalRandom.current().nextInt(epicIds.length)];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteState {
+        @Param({"1000", "100000"})
+        int fanOut;
+
+        InMemoryTaskManager manager;
+        int epicId;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            manager = new InMemoryTaskManager();
+            epicId = manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+            for (int i = 0; i < fanOut; i++) {
+                Subtask subtask = manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание",
+                        TaskStatus.NEW, epicId));
+                manager.getSubtask(subtask.getId());
+            }
+        }
+    }
+
+    // Каскад в ConcurrentTaskManager: время вызова без фоновой очистки, которая дожидается вне замера
+    @State(Scope.Thread)
+    public static class ConcurrentDeleteState {
+        @Param({"1000", "100000"})
+        int fanOut;
+
+        ConcurrentTaskManager manager;
+        int epicId;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            manager = new ConcurrentTaskManager();
+            epicId = manager.addEpic(new Epic(0, "Эпик", "Описание")).getId();
+            for (int i = 0; i < fanOut; i++) {
+                Subtask subtask = manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание",
+                        TaskStatus.NEW, epicId));
+                manager.getSubtask(subtask.getId());
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            manager.awaitReclamation();
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public Subtask addSubtask(AddState state) {
+        return state.manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, state.epicId));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public Subtask addSubtaskWithSubscriber(SubscribedAddState state) {
+        return state.manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, state.epicId));
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public Subtask addSubtaskGlobalLock(ContendedAddState state) {
+        Subtask subtask = new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, state.pickEpic());
+        synchronized (state.manager) {
+            return state.manager.addSubtask(subtask);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Warmup(iterations = 5, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public Subtask addSubtaskConcurrent(ContendedAddState state) {
+        return state.concurrentManager.addSubtask(
+                new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, state.pickEpic()));
+    }
+
+    @Benchmark
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void deleteEpic(DeleteState state) {
+        state.manager.deleteEpic(state.epicId);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void deleteEpicConcurrent(ConcurrentDeleteState state) {
+        state.manager.deleteEpic(state.epicId);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import manager.FileBackedTaskManager;
+import manager.FsyncPolicy;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Замер времени восстановления {@link FileBackedTaskManager} для журнала из миллиона сущностей:
+ * полное проигрывание журнала против загрузки из снапшота.
+ * Запуск: {@code java benchmark.WalRecoveryBenchmark [количество сущностей]}.
+ */
+public class WalRecoveryBenchmark {
+    public static void main(String[] args) throws IOException {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("kanban-wal");
+        try {
+            long writeStart = System.nanoTime();
+            try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.BATCH, 1_024,
+                    Integer.MAX_VALUE)) {
+                fill(manager, entities);
+            }
+            report("Запись журнала", writeStart, entities);
+            System.out.printf("Размер журнала: %d МБ%n", Files.size(directory.resolve("tasks.wal")) >> 20);
+
+            long replayStart = System.nanoTime();
+            try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+                report("Восстановление из журнала", replayStart, entities);
+                manager.compact();
+            }
+
+            long snapshotStart = System.nanoTime();
+            try (FileBackedTaskManager ignored = new FileBackedTaskManager(directory)) {
+                report("Восстановление из снапшота", snapshotStart, entities);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void fill(FileBackedTaskManager manager, int entities) {
+        int created = 0;
+        while (created < entities) {
+            if (created % 10 == 0) {
+                Epic epic = manager.addEpic(new Epic(0, "Эпик " + created, "Описание эпика"));
+                created++;
+                for (int i = 0; i < 5 && created < entities; i++, created++) {
+                    manager.addSubtask(new Subtask(0, "Подзадача " + created, "Описание подзадачи",
+                            TaskStatus.NEW, epic.getId()));
+                }
+            } else {
+                manager.addTask(new Task(0, "Задача " + created, "Описание задачи", TaskStatus.IN_PROGRESS));
+                created++;
+            }
+        }
+    }
+
+    private static void report(String stage, long startNanos, int entities) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        System.out.printf("%s: %d мс (%d сущностей/с)%n", stage, millis, entities * 1000L / Math.max(millis, 1));
+    }
+}
@@ -0,0 +1,194 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import manager.ManagerValidationException;
+import manager.TaskManager;
+import model.Task;
+import model.TaskStatus;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Общая часть обработчиков: разбор пути и тела, потоковая отправка JSON
+ * и перевод исключений в коды ответа.
+ */
+abstract class BaseHttpHandler implements HttpHandler {
+    // Если заголовок задан, просмотры попадают в историю этого пользователя
+    static final String USER_HEADER = "X-User-Id";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    protected final TaskManager taskManager;
+
+    protected BaseHttpHandler(TaskManager taskManager) {
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                process(exchange, exchange.getRequestURI().getPath().split("/"));
+            } catch (NotFoundException e) {
+                sendNotFound(exchange, e.getMessage());
+            } catch (ManagerValidationException e) {
+                sendHasOverlaps(exchange, e.getMessage());
+            } catch (IllegalArgumentException | DateTimeParseException | ClassCastException e) {
+                sendText(exchange, 400, "Некорректный запрос: " + e.getMessage());
+            } catch (RuntimeException e) {
+                sendText(exchange, 500, "Внутренняя ошибка: " + e.getMessage());
+            }
+        }
+    }
+
+    // parts - путь запроса, разбитый по "/"; parts[0] всегда пустой
+    protected abstract void process(HttpExchange exchange, String[] parts) throws IOException;
+
+    protected void sendTask(HttpExchange exchange, int code, Task task) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, 0);
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        new JsonWriter(writer).writeTask(task);
+        writer.flush();
+    }
+
+    // Длина ответа заранее неизвестна, поэтому он уходит chunked по мере обхода
+    protected void sendTasks(HttpExchange exchange, Iterator<? extends Task> tasks) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        new JsonWriter(writer).writeTasks(tasks);
+        writer.flush();
+    }
+
+    protected void sendText(HttpExchange exchange, int code, String text) throws IOException {
+        // Если ответ уже начал уходить, код сменить нельзя - остаётся только оборвать соединение
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    protected void sendNotFound(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, 404, message);
+    }
+
+    protected void sendHasOverlaps(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, 406, message);
+    }
+
+    protected void sendConflict(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, 409, message);
+    }
+
+    protected void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        sendText(exchange, 405, "Метод " + exchange.getRequestMethod() + " не поддерживается");
+    }
+
+    protected static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("некорректный id " + value);
+        }
+    }
+
+    protected static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return parameters;
+    }
+
+    // Страница при наличии параметра limit, иначе всё хранилище
+    protected static boolean isPaged(Map<String, String> parameters) {
+        return parameters.containsKey("limit");
+    }
+
+    protected static int afterId(Map<String, String> parameters) {
+        return parseId(parameters.getOrDefault("afterId", "0"));
+    }
+
+    protected static int limit(Map<String, String> parameters) {
+        return parseId(parameters.get("limit"));
+    }
+
+    protected static String userId(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst(USER_HEADER);
+    }
+
+    protected static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        return JsonParser.parseObject(body);
+    }
+
+    protected static int intField(Map<String, Object> json, String name) {
+        Object value = json.get(name);
+        if (value == null) {
+            return 0;
+        }
+        long number = (Long) value;
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("поле " + name + " вне диапазона");
+        }
+        return (int) number;
+    }
+
+    // Версия, которую клиент видел при чтении; без неё обновление применяется безусловно
+    protected static Long versionField(Map<String, Object> json) {
+        return (Long) json.get("version");
+    }
+
+    protected static String stringField(Map<String, Object> json, String name) {
+        return (String) json.get(name);
+    }
+
+    protected static TaskStatus statusField(Map<String, Object> json) {
+        String status = stringField(json, "status");
+        return status == null ? TaskStatus.NEW : TaskStatus.valueOf(status);
+    }
+
+    protected static LocalDateTime startTimeField(Map<String, Object> json) {
+        String startTime = stringField(json, "startTime");
+        return startTime == null ? null : LocalDateTime.parse(startTime);
+    }
+
+    // Длительность в формате ISO-8601, например "PT1H30M"
+    protected static Duration durationField(Map<String, Object> json) {
+        String duration = stringField(json, "duration");
+        return duration == null ? null : Duration.parse(duration);
+    }
+
+    protected static Task taskField(Map<String, Object> json) {
+        return new Task(intField(json, "id"), stringField(json, "name"), stringField(json, "description"),
+                statusField(json), startTimeField(json), durationField(json));
+    }
+
+    // Проверка существования без записи в историю просмотров
+    protected static boolean exists(List<? extends Task> page, int id) {
+        return !page.isEmpty() && page.getFirst().getId() == id;
+    }
+}
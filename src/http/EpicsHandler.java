@@ -0,0 +1,66 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import model.Epic;
+import java.io.IOException;
+import java.util.Map;
+
+class EpicsHandler extends BaseHttpHandler {
+    EpicsHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange, String[] parts) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                if (parts.length == 2) {
+                    Map<String, String> parameters = queryParameters(exchange);
+                    sendTasks(exchange, isPaged(parameters)
+                            ? taskManager.getEpics(afterId(parameters), limit(parameters)).iterator()
+                            : taskManager.streamEpics().iterator());
+                } else if (parts.length == 3) {
+                    int id = parseId(parts[2]);
+                    String userId = userId(exchange);
+                    Epic epic = userId == null ? taskManager.getEpic(id) : taskManager.getEpic(userId, id);
+                    if (epic == null) {
+                        throw new NotFoundException("Эпик " + id + " не найден");
+                    }
+                    sendTask(exchange, 200, epic);
+                } else {
+                    throw new NotFoundException("Неизвестный путь");
+                }
+            }
+            case "POST" -> {
+                Map<String, Object> json = readBody(exchange);
+                Epic epic = new Epic(intField(json, "id"), stringField(json, "name"),
+                        stringField(json, "description"));
+                if (epic.getId() == 0) {
+                    sendTask(exchange, 201, taskManager.addEpic(epic));
+                } else if (exists(taskManager.getEpics(epic.getId() - 1, 1), epic.getId())) {
+                    Long version = versionField(json);
+                    if (version == null) {
+                        taskManager.updateEpic(epic);
+                    } else if (!taskManager.updateEpic(epic, version)) {
+                        sendConflict(exchange, "Эпик " + epic.getId() + " уже изменён, версия " + version
+                                + " устарела");
+                        return;
+                    }
+                    sendTask(exchange, 200, taskManager.getEpics(epic.getId() - 1, 1).getFirst());
+                } else {
+                    throw new NotFoundException("Эпик " + epic.getId() + " не найден");
+                }
+            }
+            case "DELETE" -> {
+                if (parts.length == 2) {
+                    taskManager.deleteAllEpics();
+                } else {
+                    taskManager.deleteEpic(parseId(parts[2]));
+                }
+                sendText(exchange, 200, "");
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
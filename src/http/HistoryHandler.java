@@ -0,0 +1,24 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import java.io.IOException;
+
+class HistoryHandler extends BaseHttpHandler {
+    HistoryHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange, String[] parts) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        if (parts.length != 2) {
+            throw new NotFoundException("Неизвестный путь");
+        }
+        String userId = userId(exchange);
+        sendTasks(exchange, (userId == null ? taskManager.getHistory() : taskManager.getHistory(userId)).iterator());
+    }
+}
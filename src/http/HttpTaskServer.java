@@ -0,0 +1,97 @@
+package http;
+
+import com.sun.net.httpserver.HttpServer;
+import manager.ConcurrentTaskManager;
+import manager.InstrumentedTaskManager;
+import manager.ShardedTaskManager;
+import manager.TaskManager;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP API поверх {@link TaskManager}. Каждый запрос обрабатывается в отдельном виртуальном потоке,
+ * поэтому менеджер должен быть потокобезопасным, например {@link ConcurrentTaskManager}.
+ * <p>
+ * Эндпоинты: {@code /tasks}, {@code /epics}, {@code /subtasks} (GET списком или по id, POST создаёт
+ * при id = 0 и обновляет иначе, DELETE), {@code /subtasks/epic/{id}} и {@code /history}.
+ * Списки принимают параметры {@code afterId} и {@code limit} для постраничного чтения.
+ * Для {@link InstrumentedTaskManager} доступен ещё {@code /metrics} со статистикой операций.
+ */
+public class HttpTaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Заголовки и тело ответа уходят отдельными записями в сокет, поэтому без TCP_NODELAY алгоритм Нейгла
+     * вместе с отложенным ACK клиента добавляет к каждому запросу около 40 мс. JDK читает настройку
+     * {@code sun.net.httpserver.nodelay} один раз на процесс, при создании первого HttpServer, и сервер
+     * её не меняет: {@link #main} включает её через {@link #enableTcpNoDelay()}, а при встраивании
+     * это делает приложение - тем же методом или флагом {@code -Dsun.net.httpserver.nodelay=true}.
+     */
+    public HttpTaskServer(TaskManager taskManager, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/tasks", new TasksHandler(taskManager));
+        server.createContext("/epics", new EpicsHandler(taskManager));
+        server.createContext("/subtasks", new SubtasksHandler(taskManager));
+        server.createContext("/history", new HistoryHandler(taskManager));
+        if (taskManager instanceof InstrumentedTaskManager instrumented) {
+            server.createContext("/metrics", new MetricsHandler(instrumented));
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    // Фактический порт; полезно, если сервер создан с портом 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Включает TCP_NODELAY для HttpServer этого процесса, если настройка не задана явно.
+     * Действует, только если вызвана до создания первого сервера.
+     */
+    public static void enableTcpNoDelay() {
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        enableTcpNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        TaskManager taskManager = new ConcurrentTaskManager();
+        // -Dkanban.shards=N распределяет сущности по N менеджерам с привязкой подзадач к шарду эпика
+        int shardCount = Integer.getInteger("kanban.shards", 1);
+        if (shardCount > 1) {
+            List<TaskManager> shards = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                shards.add(new ConcurrentTaskManager());
+            }
+            taskManager = new ShardedTaskManager(shards);
+        }
+        // -Dkanban.metrics=true включает статистику операций: /metrics и MBean по JMX
+        if (Boolean.getBoolean("kanban.metrics")) {
+            InstrumentedTaskManager instrumented = new InstrumentedTaskManager(taskManager);
+            instrumented.registerMBeans("http");
+            taskManager = instrumented;
+        }
+        HttpTaskServer server = new HttpTaskServer(taskManager, port);
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+}
@@ -0,0 +1,105 @@
+package http;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Потоковая запись задач в JSON: элементы пишутся в {@link Writer} по мере обхода,
+ * промежуточная строка или дерево объектов не строится.
+ */
+class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    void writeTasks(Iterator<? extends Task> tasks) throws IOException {
+        out.write('[');
+        boolean first = true;
+        while (tasks.hasNext()) {
+            if (!first) {
+                out.write(',');
+            }
+            writeTask(tasks.next());
+            first = false;
+        }
+        out.write(']');
+    }
+
+    void writeTask(Task task) throws IOException {
+        out.write("{\"id\":");
+        out.write(Integer.toString(task.getId()));
+        out.write(",\"type\":\"");
+        out.write(task.getType().name());
+        out.write("\",\"name\":");
+        writeString(task.getName());
+        out.write(",\"description\":");
+        writeString(task.getDescription());
+        out.write(",\"status\":\"");
+        out.write(task.getStatus().name());
+        out.write("\",\"version\":");
+        out.write(Long.toString(task.getVersion()));
+        if (task.getStartTime() != null) {
+            out.write(",\"startTime\":\"");
+            out.write(task.getStartTime().toString());
+            out.write('"');
+        }
+        if (task.getDuration() != null) {
+            out.write(",\"duration\":\"");
+            out.write(task.getDuration().toString());
+            out.write('"');
+        }
+        if (task instanceof Subtask subtask) {
+            out.write(",\"epicId\":");
+            out.write(Integer.toString(subtask.getEpicId()));
+        } else if (task instanceof Epic epic) {
+            out.write(",\"subtaskIds\":[");
+            boolean first = true;
+            for (Integer subtaskId : epic.getSubtaskIds()) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(Integer.toString(subtaskId));
+                first = false;
+            }
+            out.write(']');
+        }
+        out.write('}');
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write("\\u00");
+                        out.write(HEX[c >> 4]);
+                        out.write(HEX[c & 0xF]);
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,26 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.InstrumentedTaskManager;
+import java.io.IOException;
+
+class MetricsHandler extends BaseHttpHandler {
+    private final InstrumentedTaskManager metrics;
+
+    MetricsHandler(InstrumentedTaskManager taskManager) {
+        super(taskManager);
+        this.metrics = taskManager;
+    }
+
+    @Override
+    protected void process(HttpExchange exchange, String[] parts) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        if (parts.length != 2) {
+            throw new NotFoundException("Неизвестный путь");
+        }
+        sendText(exchange, 200, metrics.dump());
+    }
+}
@@ -0,0 +1,87 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import model.Subtask;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+class SubtasksHandler extends BaseHttpHandler {
+    SubtasksHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange, String[] parts) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                if (parts.length == 2) {
+                    Map<String, String> parameters = queryParameters(exchange);
+                    sendTasks(exchange, isPaged(parameters)
+                            ? taskManager.getSubtasks(afterId(parameters), limit(parameters)).iterator()
+                            : taskManager.streamSubtasks().iterator());
+                } else if (parts.length == 3) {
+                    int id = parseId(parts[2]);
+                    String userId = userId(exchange);
+                    Subtask subtask = userId == null ? taskManager.getSubtask(id)
+                            : taskManager.getSubtask(userId, id);
+                    if (subtask == null) {
+                        throw new NotFoundException("Подзадача " + id + " не найдена");
+                    }
+                    sendTask(exchange, 200, subtask);
+                } else if (parts.length == 4 && parts[2].equals("epic")) {
+                    int epicId = parseId(parts[3]);
+                    if (!exists(taskManager.getEpics(epicId - 1, 1), epicId)) {
+                        throw new NotFoundException("Эпик " + epicId + " не найден");
+                    }
+                    sendTasks(exchange, taskManager.getEpicSubtasks(epicId).iterator());
+                } else {
+                    throw new NotFoundException("Неизвестный путь");
+                }
+            }
+            case "POST" -> {
+                Map<String, Object> json = readBody(exchange);
+                Subtask subtask = new Subtask(intField(json, "id"), stringField(json, "name"),
+                        stringField(json, "description"), statusField(json), intField(json, "epicId"),
+                        startTimeField(json), durationField(json));
+                if (subtask.getId() == 0) {
+                    Subtask saved = taskManager.addSubtask(subtask);
+                    if (saved == null) {
+                        throw new NotFoundException("Эпик " + subtask.getEpicId() + " не найден");
+                    }
+                    sendTask(exchange, 201, saved);
+                } else {
+                    List<Subtask> stored = taskManager.getSubtasks(subtask.getId() - 1, 1);
+                    if (!exists(stored, subtask.getId())) {
+                        throw new NotFoundException("Подзадача " + subtask.getId() + " не найдена");
+                    }
+                    // Подзадача не переходит в другой эпик: менеджер такое обновление молча пропустит
+                    if (stored.getFirst().getEpicId() != subtask.getEpicId()) {
+                        sendConflict(exchange, "Подзадача " + subtask.getId() + " не принадлежит эпику "
+                                + subtask.getEpicId());
+                        return;
+                    }
+                    Long version = versionField(json);
+                    if (version == null) {
+                        taskManager.updateSubtask(subtask);
+                    } else if (!taskManager.updateSubtask(subtask, version)) {
+                        sendConflict(exchange, "Подзадача " + subtask.getId()
+                                + " уже изменена или не принадлежит эпику " + subtask.getEpicId());
+                        return;
+                    }
+                    sendTask(exchange, 200, subtask);
+                }
+            }
+            case "DELETE" -> {
+                if (parts.length == 2) {
+                    taskManager.deleteAllSubtasks();
+                } else {
+                    taskManager.deleteSubtask(parseId(parts[2]));
+                }
+                sendText(exchange, 200, "");
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package http;
+
+import model.Task;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON задачи в том виде, в каком его отдаёт и принимает HTTP API, для кода вне пакета:
+ * запись идёт через {@link JsonWriter} сервера, разбор - как у тела POST /tasks.
+ */
+public final class TaskJson {
+    private final JsonWriter writer;
+
+    public TaskJson(Writer out) {
+        writer = new JsonWriter(out);
+    }
+
+    public void write(Task task) throws IOException {
+        writer.writeTask(task);
+    }
+
+    public static Task readTask(String text) {
+        return BaseHttpHandler.taskField(JsonParser.parseObject(text));
+    }
+}
@@ -0,0 +1,65 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import model.Task;
+import java.io.IOException;
+import java.util.Map;
+
+class TasksHandler extends BaseHttpHandler {
+    TasksHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange, String[] parts) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                if (parts.length == 2) {
+                    Map<String, String> parameters = queryParameters(exchange);
+                    sendTasks(exchange, isPaged(parameters)
+                            ? taskManager.getTasks(afterId(parameters), limit(parameters)).iterator()
+                            : taskManager.streamTasks().iterator());
+                } else if (parts.length == 3) {
+                    int id = parseId(parts[2]);
+                    String userId = userId(exchange);
+                    Task task = userId == null ? taskManager.getTask(id) : taskManager.getTask(userId, id);
+                    if (task == null) {
+                        throw new NotFoundException("Задача " + id + " не найдена");
+                    }
+                    sendTask(exchange, 200, task);
+                } else {
+                    throw new NotFoundException("Неизвестный путь");
+                }
+            }
+            case "POST" -> {
+                Map<String, Object> json = readBody(exchange);
+                Task task = taskField(json);
+                if (task.getId() == 0) {
+                    sendTask(exchange, 201, taskManager.addTask(task));
+                } else if (exists(taskManager.getTasks(task.getId() - 1, 1), task.getId())) {
+                    Long version = versionField(json);
+                    if (version == null) {
+                        taskManager.updateTask(task);
+                    } else if (!taskManager.updateTask(task, version)) {
+                        sendConflict(exchange, "Задача " + task.getId() + " уже изменена, версия " + version
+                                + " устарела");
+                        return;
+                    }
+                    sendTask(exchange, 200, task);
+                } else {
+                    throw new NotFoundException("Задача " + task.getId() + " не найдена");
+                }
+            }
+            case "DELETE" -> {
+                if (parts.length == 2) {
+                    taskManager.deleteAllTasks();
+                } else {
+                    taskManager.deleteTask(parseId(parts[2]));
+                }
+                sendText(exchange, 200, "");
+            }
+            default -> sendMethodNotAllowed(exchange);
+        }
+    }
+}
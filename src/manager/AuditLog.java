@@ -0,0 +1,577 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Журнал аудита {@link InMemoryTaskManager}: каждое изменение хранится как разница полей с отметкой времени,
+ * и по журналу восстанавливается доска ({@link #boardAt(Instant)}) или сущность ({@link #entityAt(int, Instant)})
+ * на любой момент.
+ * <p>
+ * Журнал делится на куски. Кусок начинается с контрольной точки - доски на момент его начала, - за которой
+ * идут изменения: создание (сущность целиком), обновление (маска изменённых полей, их новые значения и версия)
+ * и удаление (тип и id). Сущности кодируются {@link TaskCodec} со словарём строк куска. Статус и подзадачи
+ * эпика не записываются: при восстановлении они собираются из подзадач. Заполненный кусок сжимается
+ * и, если задан каталог, дописывается в файл, а в памяти остаются только его границы и положение;
+ * без каталога сжатые куски хранятся в памяти.
+ * <p>
+ * Новый кусок начинается, когда изменений в текущем набралось не меньше checkpointInterval и не меньше
+ * сущностей в его контрольной точке. Контрольная точка получается воспроизведением предыдущего куска,
+ * а не чтением менеджера, поэтому не зависит от того, на каком шаге каскадного изменения начался кусок.
+ * Её построение обходится в O(1) на изменение, а восстановление читает одну контрольную точку
+ * и не больше max(checkpointInterval, размер доски) изменений.
+ * <p>
+ * Журнал ведёт менеджер, переданный ему при создании; он начинает новый кусок с пустой доски. Текущий кусок
+ * попадает в файл только при заполнении или в {@link #close()}. Не потокобезопасен, как и InMemoryTaskManager.
+ */
+public final class AuditLog implements AutoCloseable {
+    private static final String LOG_FILE = "audit.log";
+    private static final int CHUNK_MAGIC = 0x4B415544;
+    // magic, время начала и конца, длина до и после сжатия, crc32 сжатых данных
+    private static final int CHUNK_HEADER_SIZE = Integer.BYTES * 4 + Long.BYTES * 2;
+    private static final int DICTIONARY_CAPACITY = 4096;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 16_384;
+    private static final int INITIAL_CHUNK_CAPACITY = 64 * 1024;
+    // Запас под всё, кроме строк: заголовок изменения и поля записи TaskCodec
+    private static final int RECORD_OVERHEAD = 128;
+    // Все сущности, а не одна: см. replay
+    private static final int ALL = 0;
+
+    // Байт операции: вид изменения в младших битах, тип сущности - выше
+    private static final int CREATED = 1;
+    private static final int UPDATED = 2;
+    private static final int DELETED = 3;
+    private static final int OPERATION_MASK = 0b11;
+    private static final int TYPE_SHIFT = 2;
+    private static final TaskType[] TYPES = TaskType.values();
+
+    // Поля в маске обновления
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 1 << 1;
+    private static final int STATUS = 1 << 2;
+    private static final int START_TIME = 1 << 3;
+    private static final int DURATION = 1 << 4;
+
+    private final Clock clock;
+    private final int checkpointInterval;
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final TaskCodec codec = new TaskCodec(DICTIONARY_CAPACITY);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    // Текущий кусок без сжатия: контрольная точка и изменения после неё
+    private ByteBuffer active = ByteBuffer.allocate(INITIAL_CHUNK_CAPACITY);
+    private boolean chunkOpen;
+    private long chunkStart;
+    private int checkpointSize;
+    private int changes;
+    private long lastTime = Long.MIN_VALUE;
+    private boolean attached;
+
+    public AuditLog() {
+        this(Clock.systemUTC(), DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Журнал только в памяти.
+     */
+    public AuditLog(Clock clock, int checkpointInterval) {
+        checkInterval(checkpointInterval);
+        this.clock = clock;
+        this.checkpointInterval = checkpointInterval;
+        this.path = null;
+        this.channel = null;
+    }
+
+    /**
+     * Журнал в файле audit.log каталога directory. Куски, записанные в него раньше, доступны для запросов;
+     * повреждённый хвост файла отбрасывается.
+     */
+    public AuditLog(Path directory, Clock clock, int checkpointInterval) {
+        checkInterval(checkpointInterval);
+        this.clock = clock;
+        this.checkpointInterval = checkpointInterval;
+        this.path = directory.resolve(LOG_FILE);
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            loadChunks();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть журнал аудита " + path, e);
+        }
+    }
+
+    /**
+     * Доска на момент time: состояние после всех изменений с отметкой не позже time.
+     * До начала журнала доска пуста.
+     */
+    public TaskSnapshot boardAt(Instant time) {
+        return replayAt(time.toEpochMilli(), ALL);
+    }
+
+    /**
+     * Задача, эпик или подзадача с данным id на момент time либо null, если её тогда не было.
+     * Восстанавливаются только эпики, сама сущность и подзадачи эпика.
+     */
+    public Task entityAt(int id, Instant time) {
+        if (id == ALL) {
+            return null;
+        }
+        TaskSnapshot board = replayAt(time.toEpochMilli(), id);
+        Task task = board.getTask(id);
+        if (task == null) {
+            task = board.getEpic(id);
+        }
+        return task != null ? task : board.getSubtask(id);
+    }
+
+    /**
+     * Объём журнала в байтах: сжатые куски и текущий кусок без сжатия.
+     */
+    public long storedBytes() {
+        long bytes = active.position();
+        for (Chunk chunk : chunks) {
+            bytes += chunk.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Сжимает текущий кусок и, для журнала в файле, дописывает его и закрывает файл.
+     * После закрытия журнал не принимает изменений.
+     */
+    @Override
+    public void close() {
+        try {
+            if (chunkOpen) {
+                seal();
+            }
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть журнал аудита " + path, e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Вызывается из конструктора менеджера: его доска пока пуста
+    void attach() {
+        if (attached) {
+            throw new IllegalStateException("Журнал аудита уже ведёт другой менеджер");
+        }
+        attached = true;
+        startChunk(Math.max(clock.millis(), lastTime), TaskSnapshot.EMPTY);
+    }
+
+    void created(Task task) {
+        long time = nextTime();
+        Task entity = task instanceof Epic epic ? header(epic) : task;
+        reserve(entity);
+        putOperation(time, CREATED, task.getType());
+        codec.write(entity, active);
+    }
+
+    void updated(Task oldTask, Task newTask) {
+        Task delta = new Task(newTask.getId(), null, null, null);
+        int mask = 0;
+        if (!Objects.equals(oldTask.getName(), newTask.getName())) {
+            mask |= NAME;
+            delta.setName(newTask.getName());
+        }
+        if (!Objects.equals(oldTask.getDescription(), newTask.getDescription())) {
+            mask |= DESCRIPTION;
+            delta.setDescription(newTask.getDescription());
+        }
+        if (oldTask.getStatus() != newTask.getStatus()) {
+            mask |= STATUS;
+            delta.setStatus(newTask.getStatus());
+        }
+        if (!Objects.equals(oldTask.getStartTime(), newTask.getStartTime())) {
+            mask |= START_TIME;
+            delta.setStartTime(newTask.getStartTime());
+        }
+        if (!Objects.equals(oldTask.getDuration(), newTask.getDuration())) {
+            mask |= DURATION;
+            delta.setDuration(newTask.getDuration());
+        }
+        writeUpdate(newTask, mask, delta);
+    }
+
+    // Эпик меняется на месте, поэтому прежние значения передаются отдельно; статус эпика производный
+    void renamed(Epic epic, String oldName, String oldDescription) {
+        Task delta = new Task(epic.getId(), null, null, null);
+        int mask = 0;
+        if (!Objects.equals(oldName, epic.getName())) {
+            mask |= NAME;
+            delta.setName(epic.getName());
+        }
+        if (!Objects.equals(oldDescription, epic.getDescription())) {
+            mask |= DESCRIPTION;
+            delta.setDescription(epic.getDescription());
+        }
+        writeUpdate(epic, mask, delta);
+    }
+
+    void deleted(Task task) {
+        long time = nextTime();
+        reserve(null);
+        putOperation(time, DELETED, task.getType());
+        TaskCodec.putVarInt(active, task.getId());
+    }
+
+    private void writeUpdate(Task task, int mask, Task delta) {
+        long time = nextTime();
+        delta.setVersion(task.getVersion());
+        reserve(delta);
+        putOperation(time, UPDATED, task.getType());
+        active.put((byte) mask);
+        codec.write(delta, active);
+    }
+
+    // Отметка времени очередного изменения; при заполненном куске начинает следующий
+    private long nextTime() {
+        if (!chunkOpen) {
+            throw new IllegalStateException("Журнал аудита закрыт или не подключён к менеджеру");
+        }
+        long time = Math.max(clock.millis(), lastTime);
+        if (changes >= Math.max(checkpointInterval, checkpointSize)) {
+            TaskSnapshot board = replay(activeChunk(), chunkStart, Long.MAX_VALUE, ALL);
+            seal();
+            startChunk(time, board);
+        }
+        changes++;
+        return time;
+    }
+
+    private void putOperation(long time, int operation, TaskType type) {
+        TaskCodec.putVarLong(active, time - lastTime);
+        lastTime = time;
+        active.put((byte) (operation | type.ordinal() << TYPE_SHIFT));
+    }
+
+    private void startChunk(long time, TaskSnapshot board) {
+        active.clear();
+        codec.reset();
+        chunkOpen = true;
+        chunkStart = time;
+        lastTime = time;
+        changes = 0;
+        checkpointSize = board.epics.size() + board.subtasks.size() + board.tasks.size();
+        TaskCodec.putVarInt(active, checkpointSize);
+        // Эпики раньше подзадач: при восстановлении подзадача попадает в уже известный эпик
+        board.epics.forEachAfter(-1, this::writeEntity);
+        board.subtasks.forEachAfter(-1, this::writeEntity);
+        board.tasks.forEachAfter(-1, this::writeEntity);
+    }
+
+    private boolean writeEntity(Task task) {
+        reserve(task);
+        codec.write(task, active);
+        return true;
+    }
+
+    // Гарантирует место под запись с такими строками: в UTF-8 символ занимает не больше трёх байт
+    private void reserve(Task task) {
+        int needed = RECORD_OVERHEAD;
+        if (task != null) {
+            needed += 3 * (length(task.getName()) + length(task.getDescription()));
+        }
+        if (active.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + needed));
+            active = grown.put(active.flip());
+        }
+    }
+
+    private void seal() {
+        byte[] compressed = deflate(active.array(), active.position());
+        if (channel == null) {
+            chunks.add(new Chunk(chunkStart, lastTime, active.position(), compressed, -1, compressed.length));
+        } else {
+            long offset = append(compressed);
+            chunks.add(new Chunk(chunkStart, lastTime, active.position(), null, offset, compressed.length));
+        }
+        chunkOpen = false;
+    }
+
+    private byte[] deflate(byte[] raw, int length) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        byte[] out = new byte[Math.max(256, length / 4)];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            size += deflater.deflate(out, size, out.length - size);
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    // Дописывает кусок в файл и возвращает позицию его данных
+    private long append(byte[] compressed) {
+        crc.reset();
+        crc.update(compressed);
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE)
+                .putInt(CHUNK_MAGIC)
+                .putLong(chunkStart)
+                .putLong(lastTime)
+                .putInt(active.position())
+                .putInt(compressed.length)
+                .putInt((int) crc.getValue())
+                .flip();
+        try {
+            long offset = channel.position() + CHUNK_HEADER_SIZE;
+            ByteBuffer data = ByteBuffer.wrap(compressed);
+            while (header.hasRemaining() || data.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, data});
+            }
+            return offset;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал аудита " + path, e);
+        }
+    }
+
+    private void loadChunks() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        while (position + CHUNK_HEADER_SIZE <= size) {
+            readFully(header.clear(), position);
+            header.flip();
+            int magic = header.getInt();
+            long first = header.getLong();
+            long last = header.getLong();
+            int rawLength = header.getInt();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            long offset = position + CHUNK_HEADER_SIZE;
+            if (magic != CHUNK_MAGIC || last < first || rawLength < 0 || length < 0 || offset + length > size) {
+                break;
+            }
+            ByteBuffer data = ByteBuffer.allocate(length);
+            readFully(data, offset);
+            crc.reset();
+            crc.update(data.flip());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            chunks.add(new Chunk(first, last, rawLength, null, offset, length));
+            lastTime = Math.max(lastTime, last);
+            position = offset + length;
+        }
+        // Недописанный кусок в конце файла - след падения, отбрасываем его
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Журнал аудита " + path + " обрывается на позиции " + position);
+            }
+        }
+    }
+
+    private TaskSnapshot replayAt(long time, int target) {
+        if (chunkOpen && chunkStart <= time) {
+            return replay(activeChunk(), chunkStart, time, target);
+        }
+        // Последний кусок, начавшийся не позже time
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chunks.get(middle).firstTime() <= time) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return TaskSnapshot.EMPTY;
+        }
+        Chunk chunk = chunks.get(high);
+        return replay(ByteBuffer.wrap(inflate(chunk)), chunk.firstTime(), time, target);
+    }
+
+    private ByteBuffer activeChunk() {
+        return ByteBuffer.wrap(active.array(), 0, active.position());
+    }
+
+    private byte[] inflate(Chunk chunk) {
+        byte[] compressed = chunk.data();
+        if (compressed == null) {
+            ByteBuffer data = ByteBuffer.allocate(chunk.length());
+            try {
+                readFully(data, chunk.offset());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось прочитать журнал аудита " + path, e);
+            }
+            compressed = data.array();
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[chunk.rawLength()];
+            int size = 0;
+            while (size < raw.length) {
+                int read = inflater.inflate(raw, size, raw.length - size);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("кусок короче заявленного");
+                }
+                size += read;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new ManagerSaveException("Повреждённый кусок журнала аудита", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Контрольная точка куска и его изменения с отметкой не позже time. Для target, отличного от ALL,
+    // из задач и подзадач восстанавливаются только сама сущность и подзадачи эпика target
+    private static TaskSnapshot replay(ByteBuffer in, long start, long time, int target) {
+        TaskCodec reader = new TaskCodec(DICTIONARY_CAPACITY);
+        try {
+            TaskSnapshot board = TaskSnapshot.EMPTY;
+            for (int i = TaskCodec.getVarInt(in); i > 0; i--) {
+                board = create(board, reader.read(in), target);
+            }
+            long recordTime = start;
+            while (in.hasRemaining()) {
+                recordTime += TaskCodec.getVarLong(in);
+                if (recordTime > time) {
+                    break;
+                }
+                int operation = in.get();
+                TaskType type = TYPES[operation >>> TYPE_SHIFT];
+                switch (operation & OPERATION_MASK) {
+                    case CREATED -> board = create(board, reader.read(in), target);
+                    case UPDATED -> {
+                        int mask = in.get();
+                        board = update(board, type, mask, reader.read(in));
+                    }
+                    case DELETED -> board = delete(board, type, TaskCodec.getVarInt(in));
+                    default -> throw new IllegalArgumentException("Неизвестная операция " + operation);
+                }
+            }
+            return board;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Повреждённый кусок журнала аудита", e);
+        }
+    }
+
+    private static TaskSnapshot create(TaskSnapshot board, Task task, int target) {
+        boolean relevant = target == ALL || task.getId() == target || task.getType() == TaskType.EPIC
+                || task instanceof Subtask subtask && subtask.getEpicId() == target;
+        return relevant ? put(board, task) : board;
+    }
+
+    private static TaskSnapshot update(TaskSnapshot board, TaskType type, int mask, Task delta) {
+        int id = delta.getId();
+        Task updated = switch (type) {
+            case EPIC -> {
+                Epic epic = board.epics.get(id);
+                yield epic == null ? null : new Epic(id, epic.getName(), epic.getDescription());
+            }
+            case SUBTASK -> {
+                Subtask subtask = board.subtasks.get(id);
+                yield subtask == null ? null : new Subtask(subtask);
+            }
+            default -> {
+                Task task = board.tasks.get(id);
+                yield task == null ? null : new Task(task);
+            }
+        };
+        if (updated == null) {
+            return board;
+        }
+        if ((mask & NAME) != 0) {
+            updated.setName(delta.getName());
+        }
+        if ((mask & DESCRIPTION) != 0) {
+            updated.setDescription(delta.getDescription());
+        }
+        if ((mask & STATUS) != 0) {
+            updated.setStatus(delta.getStatus());
+        }
+        if ((mask & START_TIME) != 0) {
+            updated.setStartTime(delta.getStartTime());
+        }
+        if ((mask & DURATION) != 0) {
+            updated.setDuration(delta.getDuration());
+        }
+        updated.setVersion(delta.getVersion());
+        return put(board, updated);
+    }
+
+    private static TaskSnapshot delete(TaskSnapshot board, TaskType type, int id) {
+        return switch (type) {
+            case EPIC -> board.removeEpic(id);
+            case SUBTASK -> board.removeSubtask(id);
+            default -> board.removeTask(id);
+        };
+    }
+
+    private static TaskSnapshot put(TaskSnapshot board, Task task) {
+        return switch (task.getType()) {
+            case EPIC -> board.putEpic((Epic) task);
+            case SUBTASK -> {
+                // Подзадача эпика, которого к этому моменту нет, - повреждённый журнал; пропускаем её
+                Subtask subtask = (Subtask) task;
+                yield board.epics.containsKey(subtask.getEpicId()) ? board.putSubtask(subtask) : board;
+            }
+            default -> board.putTask(task);
+        };
+    }
+
+    // Эпик без подзадач: в журнале и в TaskSnapshot эпик хранится заголовком
+    private static Epic header(Epic epic) {
+        Epic header = new Epic(epic.getId(), epic.getName(), epic.getDescription());
+        header.setVersion(epic.getVersion());
+        return header;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static void checkInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("checkpointInterval должен быть положительным");
+        }
+    }
+
+    // data - сжатые байты куска в памяти либо null, если кусок лежит в файле с позиции offset
+    private record Chunk(long firstTime, long lastTime, int rawLength, byte[] data, long offset, int length) {
+    }
+}
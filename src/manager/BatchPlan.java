@@ -0,0 +1,195 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Проверка пакета {@link TaskBatch} за один проход до каких-либо изменений.
+ * Ссылки на создаваемые в пакете сущности заменяются настоящими id, ссылки на эпики
+ * проверяются по состоянию менеджера с учётом предыдущих операций пакета.
+ * Пересечения по времени проверяются для итогового состояния, поэтому пакет может,
+ * например, поменять две задачи местами.
+ */
+final class BatchPlan {
+    // Отметка удалённой в пакете сущности
+    private static final Task DELETED = new Task(0, null, null, null);
+
+    private final int firstId;
+    private final int createCount;
+    private final IntFunction<Task> lookup;
+    // Итоговое состояние создаваемых сущностей по смещению от firstId и затронутых пакетом существующих id
+    private final Task[] created;
+    private final Map<Integer, Task> changed = new HashMap<>();
+
+    private BatchPlan(int firstId, int createCount, IntFunction<Task> lookup) {
+        this.firstId = firstId;
+        this.createCount = createCount;
+        this.lookup = lookup;
+        this.created = new Task[createCount];
+    }
+
+    /**
+     * Возвращает операции пакета с настоящими id и копиями сущностей. Состояние менеджера не меняется.
+     *
+     * @param firstId  id первой создаваемой сущности, остальные идут подряд
+     * @param lookup   сущность любого типа по id из текущего состояния или null
+     * @throws ManagerValidationException если пакет нельзя применить целиком
+     */
+    static List<TaskBatch.Operation> resolve(TaskBatch batch, int firstId, IntFunction<Task> lookup,
+                                             PrioritizedIndex prioritizedTasks) {
+        BatchPlan plan = new BatchPlan(firstId, batch.createCount(), lookup);
+        List<TaskBatch.Operation> resolved = new ArrayList<>(batch.size());
+        for (TaskBatch.Operation operation : batch.operations()) {
+            TaskBatch.Operation result = switch (operation.kind()) {
+                case ADD -> plan.add(operation);
+                case UPDATE -> plan.update(operation);
+                case DELETE -> plan.delete(operation);
+            };
+            if (result != null) {
+                resolved.add(result);
+            }
+        }
+        plan.checkTimeSlots(prioritizedTasks);
+        return resolved;
+    }
+
+    private TaskBatch.Operation add(TaskBatch.Operation operation) {
+        int id = firstId - operation.id() - 1;
+        Task copy = copy(operation.type(), operation.task(), id);
+        if (copy instanceof Subtask subtask) {
+            if (!(current(subtask.getEpicId()) instanceof Epic)) {
+                throw new ManagerValidationException("Эпик " + describe(((Subtask) operation.task()).getEpicId())
+                        + " для подзадачи " + subtask.getName() + " не найден");
+            }
+        }
+        created[id - firstId] = copy;
+        return new TaskBatch.Operation(TaskBatch.Kind.ADD, operation.type(), id, copy);
+    }
+
+    private TaskBatch.Operation update(TaskBatch.Operation operation) {
+        int id = resolveId(operation.id());
+        Task existing = current(id);
+        if (existing == null || existing.getType() != operation.type()) {
+            throw new ManagerValidationException("Сущность " + describe(operation.id()) + " типа "
+                    + operation.type() + " для обновления не найдена");
+        }
+        Task copy = copy(operation.type(), operation.task(), id);
+        if (copy instanceof Subtask subtask && subtask.getEpicId() != ((Subtask) existing).getEpicId()) {
+            throw new ManagerValidationException("Подзадача " + describe(operation.id()) + " не может сменить эпик");
+        }
+        put(id, copy);
+        return new TaskBatch.Operation(TaskBatch.Kind.UPDATE, operation.type(), id, copy);
+    }
+
+    private TaskBatch.Operation delete(TaskBatch.Operation operation) {
+        int id = resolveId(operation.id());
+        Task existing = current(id);
+        // Как и одиночное удаление, удаление отсутствующей сущности ничего не делает
+        if (existing == null || existing.getType() != operation.type()) {
+            return null;
+        }
+
+        put(id, DELETED);
+        if (operation.type() == TaskType.EPIC) {
+            if (lookup.apply(id) instanceof Epic stored) {
+                for (int i = 0; i < stored.getSubtaskCount(); i++) {
+                    int subtaskId = stored.getSubtaskId(i);
+                    if (current(subtaskId) != null) {
+                        put(subtaskId, DELETED);
+                    }
+                }
+            }
+            for (int i = 0; i < created.length; i++) {
+                if (created[i] instanceof Subtask subtask && subtask.getEpicId() == id) {
+                    created[i] = DELETED;
+                }
+            }
+        }
+        return new TaskBatch.Operation(TaskBatch.Kind.DELETE, operation.type(), id, null);
+    }
+
+    private void checkTimeSlots(PrioritizedIndex prioritizedTasks) {
+        List<Task> scheduled = new ArrayList<>();
+        for (Task task : created) {
+            addScheduled(scheduled, task);
+        }
+        for (Task task : changed.values()) {
+            addScheduled(scheduled, task);
+        }
+        if (scheduled.isEmpty()) {
+            return;
+        }
+        scheduled.sort(Comparator.comparing(Task::getStartTime).thenComparingInt(Task::getId));
+
+        // Сравнение с задачей, которая заканчивается позже всех предыдущих, находит пересечения внутри пакета
+        Task latestEnding = null;
+        for (Task task : scheduled) {
+            if (latestEnding != null && PrioritizedIndex.intersects(latestEnding, task)
+                    || prioritizedTasks.overlaps(task, changed::containsKey)) {
+                throw new ManagerValidationException("Время задачи " + task.getName()
+                        + " пересекается с другой задачей");
+            }
+            if (latestEnding == null || task.getEndTime().isAfter(latestEnding.getEndTime())) {
+                latestEnding = task;
+            }
+        }
+    }
+
+    private static void addScheduled(List<Task> scheduled, Task task) {
+        if (task != null && task != DELETED && task.getType() != TaskType.EPIC && task.getStartTime() != null) {
+            scheduled.add(task);
+        }
+    }
+
+    private boolean isCreated(int id) {
+        return id >= firstId && id < firstId + createCount;
+    }
+
+    private void put(int id, Task task) {
+        if (isCreated(id)) {
+            created[id - firstId] = task;
+        } else {
+            changed.put(id, task);
+        }
+    }
+
+    private Task current(int id) {
+        Task task = isCreated(id) ? created[id - firstId] : changed.get(id);
+        if (task == null) {
+            return lookup.apply(id);
+        }
+        return task == DELETED ? null : task;
+    }
+
+    private int resolveId(int id) {
+        if (id >= 0) {
+            return id;
+        }
+        if (-id > createCount) {
+            throw new ManagerValidationException("Неизвестная ссылка " + id + " в пакете");
+        }
+        return firstId - id - 1;
+    }
+
+    private Task copy(TaskType type, Task task, int id) {
+        return switch (type) {
+            case TASK -> new Task(id, task.getName(), task.getDescription(), task.getStatus(), task.getStartTime(),
+                    task.getDuration());
+            case EPIC -> new Epic(id, task.getName(), task.getDescription());
+            case SUBTASK -> new Subtask(id, task.getName(), task.getDescription(), task.getStatus(),
+                    resolveId(((Subtask) task).getEpicId()), task.getStartTime(), task.getDuration());
+        };
+    }
+
+    private static String describe(int id) {
+        return id < 0 ? "(ссылка " + id + ")" : String.valueOf(id);
+    }
+}
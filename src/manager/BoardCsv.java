@@ -0,0 +1,435 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Потоковый перенос доски между менеджерами в CSV (RFC 4180, UTF-8).
+ * <p>
+ * Строки: заголовок, затем просмотры истории от старых к новым ({@code VIEW,id}), эпики, подзадачи и задачи.
+ * Колонки: {@code type,id,name,description,status,startTime,duration,epic}; пустое поле без кавычек - null,
+ * {@code ""} - пустая строка. Время и длительность - в формате ISO-8601.
+ * <p>
+ * Сущности читаются из потоков менеджера и пишутся через буфер фиксированного размера, а при импорте
+ * создаются по мере чтения, так что ни одна из сторон не собирает доску в памяти целиком. При импорте
+ * сущности получают новые id; помнить приходится только соответствие для эпиков и просмотренных сущностей.
+ * История пользователей не переносится.
+ */
+public final class BoardCsv {
+    static final String HEADER = "type,id,name,description,status,startTime,duration,epic";
+    private static final String VIEW = "VIEW";
+    private static final int COLUMNS = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BoardCsv() {
+    }
+
+    /**
+     * Записывает доску в канал и возвращает число записанных сущностей. Канал не закрывается.
+     */
+    public static long write(TaskManager manager, WritableByteChannel channel) {
+        try {
+            Writer writer = new Writer(channel);
+            writer.line(HEADER);
+            for (Task task : manager.getHistory()) {
+                writer.field(VIEW).field(task.getId()).endRow();
+            }
+            long count = writeAll(writer, manager.streamEpics())
+                    + writeAll(writer, manager.streamSubtasks())
+                    + writeAll(writer, manager.streamTasks());
+            writer.flush();
+            return count;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось выгрузить доску", e);
+        }
+    }
+
+    /**
+     * Добавляет в менеджер сущности из канала и воспроизводит просмотры истории.
+     * Возвращает число созданных сущностей. Канал не закрывается.
+     */
+    public static long read(TaskManager manager, ReadableByteChannel channel) {
+        try {
+            Reader reader = new Reader(channel);
+            List<String> row = new ArrayList<>(COLUMNS);
+            if (!reader.next(row) || !String.join(",", row).equals(HEADER)) {
+                throw new ManagerValidationException("Ожидался заголовок " + HEADER);
+            }
+
+            // Старый id -> место в истории; новые id и типы просмотренных сущностей по месту в истории
+            IntIntMap viewed = new IntIntMap(16);
+            List<Integer> viewedIds = new ArrayList<>();
+            List<TaskType> viewedTypes = new ArrayList<>();
+            IntIntMap epicIds = new IntIntMap(1024);
+            long count = 0;
+            while (reader.next(row)) {
+                String type = field(row, 0, reader);
+                int oldId = parseInt(field(row, 1, reader), reader);
+                if (type.equals(VIEW)) {
+                    if (count > 0) {
+                        throw reader.error("Просмотры должны идти до сущностей");
+                    }
+                    viewed.put(oldId, viewedIds.size());
+                    viewedIds.add(0);
+                    viewedTypes.add(null);
+                    continue;
+                }
+
+                Task added = add(manager, row, type, epicIds, reader);
+                if (added == null) {
+                    continue;
+                }
+                count++;
+                if (added.getType() == TaskType.EPIC) {
+                    epicIds.put(oldId, added.getId());
+                }
+                int position = viewed.get(oldId);
+                if (position != IntIntMap.MISSING) {
+                    viewedIds.set(position, added.getId());
+                    viewedTypes.set(position, added.getType());
+                }
+            }
+
+            for (int i = 0; i < viewedIds.size(); i++) {
+                if (viewedTypes.get(i) != null) {
+                    view(manager, viewedTypes.get(i), viewedIds.get(i));
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось загрузить доску", e);
+        }
+    }
+
+    private static long writeAll(Writer writer, Stream<? extends Task> stream) throws IOException {
+        long count = 0;
+        try (stream) {
+            Iterator<? extends Task> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                writer.field(task.getType().name())
+                        .field(task.getId())
+                        .field(task.getName())
+                        .field(task.getDescription())
+                        .field(task.getStatus() == null ? null : task.getStatus().name())
+                        .field(task.getStartTime() == null ? null : task.getStartTime().toString())
+                        .field(task.getDuration() == null ? null : task.getDuration().toString());
+                if (task instanceof Subtask subtask) {
+                    writer.field(subtask.getEpicId());
+                } else {
+                    writer.field(null);
+                }
+                writer.endRow();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Подзадача неизвестного эпика - ошибка формата: эпики идут раньше подзадач
+    private static Task add(TaskManager manager, List<String> row, String type, IntIntMap epicIds, Reader reader) {
+        if (row.size() != COLUMNS) {
+            throw reader.error("Ожидалось " + COLUMNS + " полей, а не " + row.size());
+        }
+        String name = row.get(2);
+        String description = row.get(3);
+        TaskStatus status = row.get(4) == null ? null : parseEnum(TaskStatus.class, row.get(4), reader);
+        LocalDateTime startTime;
+        Duration duration;
+        try {
+            startTime = row.get(5) == null ? null : LocalDateTime.parse(row.get(5));
+            duration = row.get(6) == null ? null : Duration.parse(row.get(6));
+        } catch (DateTimeParseException e) {
+            throw reader.error("Неверное время: " + e.getParsedString());
+        }
+        switch (parseEnum(TaskType.class, type, reader)) {
+            case EPIC -> {
+                return manager.addEpic(new Epic(0, name, description));
+            }
+            case SUBTASK -> {
+                int oldEpicId = parseInt(field(row, 7, reader), reader);
+                int epicId = epicIds.get(oldEpicId);
+                if (epicId == IntIntMap.MISSING) {
+                    throw reader.error("Эпик " + oldEpicId + " не встречался раньше подзадачи");
+                }
+                return manager.addSubtask(new Subtask(0, name, description, status, epicId, startTime, duration));
+            }
+            default -> {
+                return manager.addTask(new Task(0, name, description, status, startTime, duration));
+            }
+        }
+    }
+
+    private static void view(TaskManager manager, TaskType type, int id) {
+        switch (type) {
+            case EPIC -> manager.getEpic(id);
+            case SUBTASK -> manager.getSubtask(id);
+            default -> manager.getTask(id);
+        }
+    }
+
+    private static String field(List<String> row, int index, Reader reader) {
+        if (index >= row.size() || row.get(index) == null) {
+            throw reader.error("Нет обязательного поля " + HEADER.split(",")[index]);
+        }
+        return row.get(index);
+    }
+
+    private static int parseInt(String value, Reader reader) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw reader.error("Ожидалось число: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, Reader reader) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw reader.error("Неизвестное значение " + value);
+        }
+    }
+
+    // Строка собирается в StringBuilder и кодируется в буфер, который сбрасывается в канал по заполнении
+    private static final class Writer {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final StringBuilder line = new StringBuilder(256);
+        private boolean firstField = true;
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void line(String text) throws IOException {
+            line.append(text);
+            endRow();
+        }
+
+        Writer field(int value) {
+            separate();
+            line.append(value);
+            return this;
+        }
+
+        Writer field(String value) {
+            separate();
+            if (value == null) {
+                return this;
+            }
+            if (!value.isEmpty() && !needsQuotes(value)) {
+                line.append(value);
+                return this;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+            return this;
+        }
+
+        void endRow() throws IOException {
+            line.append('\n');
+            CharBuffer chars = CharBuffer.wrap(line);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (!result.isOverflow()) {
+                    break;
+                }
+                drain();
+            }
+            encoder.reset();
+            line.setLength(0);
+            firstField = true;
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void separate() {
+            if (!firstField) {
+                line.append(',');
+            }
+            firstField = false;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private static boolean needsQuotes(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Разбор CSV по символам поверх буферов фиксированного размера; поле в кавычках может пересекать их границы
+    private static final class Reader {
+        private final ReadableByteChannel channel;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final StringBuilder value = new StringBuilder(256);
+        private boolean endOfInput;
+        private long line;
+
+        Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+            bytes.flip();
+            chars.flip();
+        }
+
+        // Читает следующую строку в row; false - строк больше нет
+        boolean next(List<String> row) throws IOException {
+            row.clear();
+            int c = read();
+            if (c < 0) {
+                return false;
+            }
+            line++;
+            while (true) {
+                value.setLength(0);
+                boolean quoted = false;
+                if (c == '"') {
+                    quoted = true;
+                    while (true) {
+                        c = read();
+                        if (c < 0) {
+                            throw error("Незакрытые кавычки");
+                        }
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        value.append((char) c);
+                        appendRun(true);
+                    }
+                } else {
+                    while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                        value.append((char) c);
+                        appendRun(false);
+                        c = read();
+                    }
+                }
+                row.add(quoted || !value.isEmpty() ? value.toString() : null);
+                if (c == ',') {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r') {
+                    c = read();
+                    if (c != '\n' && c >= 0) {
+                        throw error("Ожидался перевод строки после \\r");
+                    }
+                }
+                if (c >= 0 && c != '\n') {
+                    throw error("Лишние символы после кавычек");
+                }
+                return true;
+            }
+        }
+
+        // Переносит в value всё до ближайшего особого символа в уже декодированной части буфера
+        private void appendRun(boolean quoted) {
+            char[] array = chars.array();
+            int start = chars.position();
+            int end = start;
+            int limit = chars.limit();
+            while (end < limit) {
+                char c = array[end];
+                if (c == '"' || !quoted && (c == ',' || c == '\n' || c == '\r')) {
+                    break;
+                }
+                end++;
+            }
+            value.append(array, start, end - start);
+            chars.position(end);
+        }
+
+        ManagerValidationException error(String message) {
+            return new ManagerValidationException("Строка " + line + ": " + message);
+        }
+
+        private int read() throws IOException {
+            while (!chars.hasRemaining()) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            return chars.get();
+        }
+
+        private boolean fill() throws IOException {
+            if (endOfInput && !bytes.hasRemaining()) {
+                return false;
+            }
+            chars.compact();
+            if (!endOfInput) {
+                bytes.compact();
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+            }
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                try {
+                    result.throwException();
+                } catch (CharacterCodingException e) {
+                    throw error("Неверная кодировка UTF-8");
+                }
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                // Неполная последовательность в конце файла
+                if (bytes.hasRemaining()) {
+                    throw error("Неверная кодировка UTF-8");
+                }
+            }
+            chars.flip();
+            return chars.hasRemaining() || !endOfInput;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package manager;
+
+import model.Task;
+import java.util.AbstractSequentialList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * История фиксированной ёмкости: при переполнении вытесняется самый давний просмотр.
+ * Двусвязный список построен на индексах в массивах prev/next, а id -> ячейка хранится
+ * в {@link IntIntMap}, поэтому add и remove ничего не аллоцируют.
+ */
+public class BoundedHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+
+    private final Task[] tasks;
+    private final int[] ids;
+    private final int[] prev;
+    private final int[] next;
+    private final IntIntMap slots;
+    private final List<Task> view = new HistoryView();
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeHead;
+    private int size;
+    private int modCount;
+
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть положительной: " + capacity);
+        }
+        tasks = new Task[capacity];
+        ids = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        slots = new IntIntMap(capacity);
+        // Свободные ячейки связаны через next
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1 < capacity ? i + 1 : NIL;
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+
+        int slot = slots.get(task.getId());
+        if (slot != IntIntMap.MISSING) {
+            tasks[slot] = task;
+            if (slot != tail) {
+                unlink(slot);
+                linkLast(slot);
+            }
+            modCount++;
+            return;
+        }
+
+        if (size == tasks.length) {
+            remove(ids[head]);
+        }
+        slot = freeHead;
+        freeHead = next[slot];
+        tasks[slot] = task;
+        ids[slot] = task.getId();
+        linkLast(slot);
+        slots.put(task.getId(), slot);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = slots.remove(id);
+        if (slot != IntIntMap.MISSING) {
+            unlink(slot);
+            tasks[slot] = null;
+            next[slot] = freeHead;
+            freeHead = slot;
+            size--;
+            modCount++;
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(size);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            history.add(tasks[slot]);
+        }
+        return history;
+    }
+
+    /**
+     * Копирует историю от самого давнего просмотра в буфер вызывающего кода.
+     * Если буфер меньше истории, копируется только её начало.
+     *
+     * @return количество записанных элементов
+     */
+    public int getHistory(Task[] buffer) {
+        int count = 0;
+        for (int slot = head; slot != NIL && count < buffer.length; slot = next[slot]) {
+            buffer[count++] = tasks[slot];
+        }
+        return count;
+    }
+
+    /**
+     * Представление истории только для чтения без копирования. Изменение истории
+     * во время обхода приводит к {@link ConcurrentModificationException}.
+     */
+    public List<Task> historyView() {
+        return view;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return tasks.length;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NIL) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+
+        if (next[slot] != NIL) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tail = prev[slot];
+        }
+    }
+
+    private class HistoryView extends AbstractSequentialList<Task> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public ListIterator<Task> listIterator(int index) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Индекс: " + index + ", размер: " + size);
+            }
+            HistoryIterator iterator = new HistoryIterator();
+            for (int i = 0; i < index; i++) {
+                iterator.next();
+            }
+            return iterator;
+        }
+    }
+
+    private class HistoryIterator implements ListIterator<Task> {
+        private final int expectedModCount = modCount;
+        private int nextSlot = head;
+        private int nextIndex;
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public Task next() {
+            checkForComodification();
+            if (nextSlot == NIL) {
+                throw new NoSuchElementException();
+            }
+            Task task = tasks[nextSlot];
+            nextSlot = next[nextSlot];
+            nextIndex++;
+            return task;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public Task previous() {
+            checkForComodification();
+            if (nextIndex == 0) {
+                throw new NoSuchElementException();
+            }
+            nextSlot = nextSlot == NIL ? tail : prev[nextSlot];
+            nextIndex--;
+            return tasks[nextSlot];
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("История доступна только для чтения");
+        }
+
+        @Override
+        public void set(Task task) {
+            throw new UnsupportedOperationException("История доступна только для чтения");
+        }
+
+        @Override
+        public void add(Task task) {
+            throw new UnsupportedOperationException("История доступна только для чтения");
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
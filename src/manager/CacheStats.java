@@ -0,0 +1,11 @@
+package manager;
+
+/**
+ * Счётчики кеша {@link CachingTaskManager} с момента создания.
+ */
+public record CacheStats(long hits, long misses, long evictions, int size) {
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
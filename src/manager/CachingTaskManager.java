@@ -0,0 +1,468 @@
+package manager;
+
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.SubtaskView;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import model.TaskView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Кеширующая обёртка над {@link TaskManager} с медленным хранилищем.
+ * <p>
+ * getTask, getEpic и getSubtask читают сущность из кеша ограниченного размера (LRU), а при промахе -
+ * из хранилища постраничным запросом, который не пишет в историю хранилища. Списки getEpicSubtasks
+ * кешируются отдельно и сбрасываются при любом изменении подзадач эпика. Остальные чтения идут
+ * в хранилище напрямую.
+ * <p>
+ * Историю просмотров ведёт сама обёртка, поэтому просмотр попадает в неё и при попадании в кеш;
+ * удаления через обёртку вычищают историю. Изменения должны проходить через обёртку: запись в хранилище
+ * в обход неё кеш не увидит. Методы чтения возвращают копии, чтобы вызывающий код не мог испортить кеш.
+ */
+public class CachingTaskManager implements TaskManager {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final TaskManager delegate;
+    private final HistoryManager historyManager;
+    private final UserHistoryRegistry userHistories;
+    // Задачи, эпики и подзадачи по id: id у всех типов общие
+    private final LruCache<Task> entities;
+    // Неизменяемые списки подзадач по id эпика
+    private final LruCache<List<Subtask>> epicSubtasks;
+
+    public CachingTaskManager(TaskManager delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    public CachingTaskManager(TaskManager delegate, int capacity) {
+        this(delegate, capacity, new ConcurrentHistoryManager(), new UserHistoryRegistry());
+    }
+
+    public CachingTaskManager(TaskManager delegate, int capacity, HistoryManager historyManager,
+                              UserHistoryRegistry userHistories) {
+        this.delegate = delegate;
+        this.historyManager = historyManager;
+        this.userHistories = userHistories;
+        this.entities = new LruCache<>(capacity);
+        this.epicSubtasks = new LruCache<>(capacity);
+    }
+
+    public CacheStats entityStats() {
+        return entities.stats();
+    }
+
+    public CacheStats epicSubtasksStats() {
+        return epicSubtasks.stats();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return delegate.getAllTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        int[] ids = delegate.streamTasks().mapToInt(Task::getId).toArray();
+        delegate.deleteAllTasks();
+        for (int id : ids) {
+            entities.invalidate(id);
+            historyManager.remove(id);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = load(id, TaskType.TASK);
+        historyManager.add(task);
+        return task == null ? null : new Task(task);
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        return delegate.addTask(task);
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        delegate.updateTask(task);
+        entities.invalidate(task.getId());
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        if (!delegate.updateTask(task, expectedVersion)) {
+            return false;
+        }
+        entities.invalidate(task.getId());
+        return true;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        delegate.deleteTask(id);
+        entities.invalidate(id);
+        historyManager.remove(id);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return delegate.getAllEpics();
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        int[] ids = Stream.concat(delegate.streamEpics(), delegate.streamSubtasks()).mapToInt(Task::getId).toArray();
+        delegate.deleteAllEpics();
+        for (int id : ids) {
+            historyManager.remove(id);
+        }
+        entities.invalidateAll();
+        epicSubtasks.invalidateAll();
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = (Epic) load(id, TaskType.EPIC);
+        historyManager.add(epic);
+        return epic == null ? null : new Epic(epic);
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        return delegate.addEpic(epic);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        delegate.updateEpic(epic);
+        entities.invalidate(epic.getId());
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        if (!delegate.updateEpic(epic, expectedVersion)) {
+            return false;
+        }
+        entities.invalidate(epic.getId());
+        return true;
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        List<Subtask> subtasks = delegate.getEpicSubtasks(id);
+        delegate.deleteEpic(id);
+        for (Subtask subtask : subtasks) {
+            entities.invalidate(subtask.getId());
+            historyManager.remove(subtask.getId());
+        }
+        entities.invalidate(id);
+        epicSubtasks.invalidate(id);
+        historyManager.remove(id);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        List<Subtask> subtasks = epicSubtasks.get(epicId);
+        if (subtasks == null) {
+            long version = epicSubtasks.version(epicId);
+            List<Subtask> loaded = delegate.getEpicSubtasks(epicId);
+            List<Subtask> copies = new ArrayList<>(loaded.size());
+            for (Subtask subtask : loaded) {
+                copies.add(new Subtask(subtask));
+            }
+            subtasks = Collections.unmodifiableList(copies);
+            epicSubtasks.putIfUnchanged(epicId, subtasks, version);
+        }
+        List<Subtask> result = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            result.add(new Subtask(subtask));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return delegate.getAllSubtasks();
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        int[] ids = delegate.streamSubtasks().mapToInt(Task::getId).toArray();
+        delegate.deleteAllSubtasks();
+        for (int id : ids) {
+            historyManager.remove(id);
+        }
+        // Меняются и подзадачи, и статусы всех эпиков
+        entities.invalidateAll();
+        epicSubtasks.invalidateAll();
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = (Subtask) load(id, TaskType.SUBTASK);
+        historyManager.add(subtask);
+        return subtask == null ? null : new Subtask(subtask);
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        Subtask added = delegate.addSubtask(subtask);
+        // Подзадача без эпика не добавлена, и сбрасывать в кеше нечего
+        if (added == null) {
+            return null;
+        }
+        invalidateEpic(added.getEpicId());
+        return added;
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        delegate.updateSubtask(subtask);
+        entities.invalidate(subtask.getId());
+        invalidateEpic(subtask.getEpicId());
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        if (!delegate.updateSubtask(subtask, expectedVersion)) {
+            return false;
+        }
+        entities.invalidate(subtask.getId());
+        invalidateEpic(subtask.getEpicId());
+        return true;
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        Subtask subtask = (Subtask) load(id, TaskType.SUBTASK);
+        delegate.deleteSubtask(id);
+        entities.invalidate(id);
+        if (subtask != null) {
+            invalidateEpic(subtask.getEpicId());
+        }
+        historyManager.remove(id);
+    }
+
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        List<Integer> deleted = new ArrayList<>();
+        for (TaskBatch.Operation operation : batch.operations()) {
+            // Отрицательный id - сущность, созданная в этом же пакете: в истории её ещё нет
+            if (operation.kind() != TaskBatch.Kind.DELETE || operation.id() < 0) {
+                continue;
+            }
+            deleted.add(operation.id());
+            if (operation.type() == TaskType.EPIC) {
+                for (Subtask subtask : delegate.getEpicSubtasks(operation.id())) {
+                    deleted.add(subtask.getId());
+                }
+            }
+        }
+        int[] ids = delegate.applyBatch(batch);
+        for (int id : deleted) {
+            historyManager.remove(id);
+        }
+        // Пакет может затронуть что угодно, а применяется редко: проще сбросить кеш целиком
+        entities.invalidateAll();
+        epicSubtasks.invalidateAll();
+        return ids;
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return delegate.getTasks(afterId, limit);
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return delegate.getEpics(afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return delegate.getSubtasks(afterId, limit);
+    }
+
+    @Override
+    public TaskView getTaskView(int id) {
+        return delegate.getTaskView(id);
+    }
+
+    @Override
+    public EpicView getEpicView(int id) {
+        return delegate.getEpicView(id);
+    }
+
+    @Override
+    public SubtaskView getSubtaskView(int id) {
+        return delegate.getSubtaskView(id);
+    }
+
+    @Override
+    public List<TaskView> getTaskViews(int afterId, int limit) {
+        return delegate.getTaskViews(afterId, limit);
+    }
+
+    @Override
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        return delegate.getEpicViews(afterId, limit);
+    }
+
+    @Override
+    public List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        return delegate.getSubtaskViews(afterId, limit);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return delegate.streamTasks();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return delegate.streamEpics();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return delegate.streamSubtasks();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return delegate.getTasksByStatus(status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return delegate.getEpicsByStatus(status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return delegate.getSubtasksByStatus(status);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, TaskStatus status) {
+        return delegate.getEpicSubtasks(epicId, status);
+    }
+
+    @Override
+    public List<Task> findByNamePrefix(String prefix) {
+        return delegate.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public int[] search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        // В истории лежат те же объекты, что и в кеше
+        return Entities.copyAll(historyManager.getHistory());
+    }
+
+    @Override
+    public int taskCount() {
+        return delegate.taskCount();
+    }
+
+    @Override
+    public int epicCount() {
+        return delegate.epicCount();
+    }
+
+    @Override
+    public int subtaskCount() {
+        return delegate.subtaskCount();
+    }
+
+    @Override
+    public int historySize() {
+        return historyManager.size();
+    }
+
+    @Override
+    public Task getTask(String userId, int id) {
+        Task task = load(id, TaskType.TASK);
+        userHistories.add(userId, task);
+        return task == null ? null : new Task(task);
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        Epic epic = (Epic) load(id, TaskType.EPIC);
+        userHistories.add(userId, epic);
+        return epic == null ? null : new Epic(epic);
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        Subtask subtask = (Subtask) load(id, TaskType.SUBTASK);
+        userHistories.add(userId, subtask);
+        return subtask == null ? null : new Subtask(subtask);
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        return Entities.copyAll(userHistories.getHistory(userId, id -> entities.contains(id)
+                || fetch(id, TaskType.TASK) != null || fetch(id, TaskType.EPIC) != null
+                || fetch(id, TaskType.SUBTASK) != null));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return delegate.getPrioritizedTasks();
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        return delegate.subscribe(listener, capacity, coalesce);
+    }
+
+    // Сущность заданного типа из кеша или хранилища; в кеше лежит копия, наружу она не отдаётся
+    private Task load(int id, TaskType type) {
+        Task task = entities.get(id);
+        if (task == null) {
+            long version = entities.version(id);
+            task = fetch(id, type);
+            if (task == null) {
+                return null;
+            }
+            entities.putIfUnchanged(id, task, version);
+        }
+        return task.getType() == type ? task : null;
+    }
+
+    // Копия из хранилища без записи в его историю просмотров: страница из одного элемента после id - 1
+    private Task fetch(int id, TaskType type) {
+        switch (type) {
+            case EPIC -> {
+                List<Epic> page = delegate.getEpics(id - 1, 1);
+                return page.isEmpty() || page.getFirst().getId() != id ? null : new Epic(page.getFirst());
+            }
+            case SUBTASK -> {
+                List<Subtask> page = delegate.getSubtasks(id - 1, 1);
+                return page.isEmpty() || page.getFirst().getId() != id ? null : new Subtask(page.getFirst());
+            }
+            default -> {
+                List<Task> page = delegate.getTasks(id - 1, 1);
+                return page.isEmpty() || page.getFirst().getId() != id ? null : new Task(page.getFirst());
+            }
+        }
+    }
+
+    // Статус эпика и список его подзадач зависят от каждой подзадачи
+    private void invalidateEpic(int epicId) {
+        entities.invalidate(epicId);
+        epicSubtasks.invalidate(epicId);
+    }
+}
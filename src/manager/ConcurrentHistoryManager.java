@@ -0,0 +1,56 @@
+package manager;
+
+import model.Task;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static class Entry {
+        final Task task;
+        final long order;
+
+        Entry(Task task, long order) {
+            this.task = task;
+            this.order = order;
+        }
+    }
+
+    private final ConcurrentMap<Integer, Entry> historyMap = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+
+        // Повторный просмотр получает новый порядковый номер и тем самым перемещается в конец истории
+        historyMap.put(task.getId(), new Entry(task, sequence.incrementAndGet()));
+    }
+
+    @Override
+    public void remove(int id) {
+        historyMap.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return historyMap.size();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Entry> entries = new ArrayList<>(historyMap.values());
+        entries.sort(Comparator.comparingLong(entry -> entry.order));
+
+        List<Task> history = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            history.add(entry.task);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,955 @@
+package manager;
+
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.SubtaskView;
+import model.Task;
+import model.TaskStatus;
+import model.TaskView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная реализация {@link TaskManager}.
+ * Чтение идёт напрямую из {@link ConcurrentSkipListMap} без блокировок, а операции,
+ * затрагивающие эпик и его подзадачи, сериализуются блокировкой полосы эпика. Обновление и удаление задачи
+ * берут блокировку полосы её id, поэтому пакет {@link #applyBatch(TaskBatch)}, который держит все полосы,
+ * применяется для остальных писателей целиком.
+ * Страницы и потоки слабо согласованы: параллельные изменения могут быть видны частично. Методы чтения
+ * возвращают копии; эпик, который меняется на месте, копируется под блокировкой своей полосы.
+ * <p>
+ * Большие каскадные удаления (эпик с тысячами подзадач, deleteAllEpics, deleteAllSubtasks) не держат
+ * вызывающий поток: эпик или хранилище целиком отцепляется за O(1), и с этого момента удалённые
+ * подзадачи не видны ни одному методу чтения. Сами подзадачи, их слоты в расписании, записи истории
+ * и события DELETED вычищаются в фоне, очень большие каскады - параллельно.
+ * {@link #awaitReclamation()} дожидается окончания фоновой очистки.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    // Каскады меньше этого размера выполняются сразу в вызывающем потоке
+    public static final int ASYNC_CASCADE_THRESHOLD = 4_096;
+    private static final int PARALLEL_RECLAIM_THRESHOLD = 65_536;
+    private static final int RECLAIM_CHUNK = 1_024;
+    private static final int LOCK_STRIPES = 64;
+    // Версии сущностей начинаются с 1, так что это значение означает обновление без проверки версии
+    private static final long ANY_VERSION = -1;
+
+    // Упорядочены по id: постраничное чтение и потоки видят элементы в порядке id.
+    // epics и subtasks подменяются пустыми под всеми блокировками в deleteAll*
+    private final ConcurrentNavigableMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentNavigableMap<Integer, Epic> epics = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentNavigableMap<Integer, Subtask> subtasks = new ConcurrentSkipListMap<>();
+    // Эпики, удалённые без каскада: их подзадачи ещё лежат в subtasks до фоновой очистки
+    private final Set<Integer> detachedEpics = ConcurrentHashMap.newKeySet();
+    // Хранилища подзадач, отцепленные в deleteAll*, до фоновой очистки
+    private final List<ConcurrentNavigableMap<Integer, Subtask>> retiredSubtasks = new CopyOnWriteArrayList<>();
+    // Число незавершённых фоновых очисток; пока оно не ноль, история и расписание фильтруются
+    private final AtomicInteger pendingReclaims = new AtomicInteger();
+    // Очистки выполняются по очереди; поле защищено монитором reclaimLock
+    private final Object reclaimLock = new Object();
+    private CompletableFuture<Void> reclamation = CompletableFuture.completedFuture(null);
+    // Число видимых сущностей для taskCount и других: size() у ConcurrentSkipListMap обходит всю карту.
+    // Эпики и подзадачи считаются под блокировками полос и сбрасываются в deleteAll* под всеми блокировками
+    private final LongAdder taskCounter = new LongAdder();
+    private final LongAdder epicCounter = new LongAdder();
+    private final LongAdder subtaskCounter = new LongAdder();
+    private final HistoryManager historyManager = new ConcurrentHistoryManager();
+    private final UserHistoryRegistry userHistories;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ReentrantLock[] epicLocks = new ReentrantLock[LOCK_STRIPES];
+    // Защищает индекс по времени; берётся всегда последним, после блокировок эпиков
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final PrioritizedIndex prioritizedTasks = new PrioritizedIndex();
+    private final TaskEventBus events = new TaskEventBus();
+
+    public ConcurrentTaskManager() {
+        this(new UserHistoryRegistry());
+    }
+
+    public ConcurrentTaskManager(UserHistoryRegistry userHistories) {
+        this.userHistories = userHistories;
+        for (int i = 0; i < epicLocks.length; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return copyAll(new ArrayList<>(tasks.values()));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (Integer id : tasks.keySet()) {
+            deleteTask(id);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            historyManager.add(task);
+            // Задачу могли удалить между чтением и записью в историю
+            if (!tasks.containsKey(id)) {
+                historyManager.remove(id);
+            }
+        }
+        return Entities.copy(task);
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        Task savedTask = new Task(task);
+        savedTask.setId(nextId.getAndIncrement());
+        savedTask.setVersion(1);
+        if (savedTask.getStartTime() == null) {
+            tasks.put(savedTask.getId(), savedTask);
+        } else {
+            scheduleLock.lock();
+            try {
+                checkTimeSlot(savedTask);
+                tasks.put(savedTask.getId(), savedTask);
+                prioritizedTasks.add(savedTask);
+            } finally {
+                scheduleLock.unlock();
+            }
+        }
+        taskCounter.increment();
+        events.publish(TaskEvent.Type.CREATED, savedTask);
+        task.setId(savedTask.getId());
+        task.setVersion(1);
+        return task;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        replaceTask(task, ANY_VERSION);
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        return expectedVersion != ANY_VERSION && replaceTask(task, expectedVersion);
+    }
+
+    private boolean replaceTask(Task task, long expectedVersion) {
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            Task oldTask = tasks.get(task.getId());
+            if (oldTask == null || expectedVersion != ANY_VERSION && oldTask.getVersion() != expectedVersion) {
+                return false;
+            }
+            Task savedTask = new Task(task);
+            savedTask.setVersion(oldTask.getVersion() + 1);
+            if (oldTask.getStartTime() == null && savedTask.getStartTime() == null) {
+                tasks.put(savedTask.getId(), savedTask);
+            } else {
+                scheduleLock.lock();
+                try {
+                    checkTimeSlot(savedTask);
+                    tasks.put(savedTask.getId(), savedTask);
+                    prioritizedTasks.remove(oldTask);
+                    prioritizedTasks.add(savedTask);
+                } finally {
+                    scheduleLock.unlock();
+                }
+            }
+            events.publish(TaskEvent.Type.UPDATED, savedTask);
+            task.setVersion(savedTask.getVersion());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Task task = tasks.remove(id);
+            if (task != null) {
+                taskCounter.decrement();
+                historyManager.remove(id);
+                events.publish(TaskEvent.Type.DELETED, task);
+                if (task.getStartTime() != null) {
+                    scheduleLock.lock();
+                    try {
+                        prioritizedTasks.remove(task);
+                    } finally {
+                        scheduleLock.unlock();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return copyAll(new ArrayList<>(epics.values()));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lockAll();
+        scheduleLock.lock();
+        try {
+            ConcurrentNavigableMap<Integer, Epic> oldEpics = epics;
+            ConcurrentNavigableMap<Integer, Subtask> oldSubtasks = subtasks;
+            epicCounter.reset();
+            subtaskCounter.reset();
+            if (oldEpics.size() + oldSubtasks.size() >= ASYNC_CASCADE_THRESHOLD) {
+                epics = new ConcurrentSkipListMap<>();
+                subtasks = new ConcurrentSkipListMap<>();
+                retire(oldSubtasks, () -> {
+                    for (Epic epic : oldEpics.values()) {
+                        historyManager.remove(epic.getId());
+                        events.publish(TaskEvent.Type.DELETED, epic);
+                    }
+                });
+                return;
+            }
+            for (Epic epic : epics.values()) {
+                historyManager.remove(epic.getId());
+                events.publish(TaskEvent.Type.DELETED, epic);
+            }
+            for (Subtask subtask : subtasks.values()) {
+                historyManager.remove(subtask.getId());
+                prioritizedTasks.remove(subtask);
+                // О подзадачах отцепленных эпиков сообщает их фоновая очистка
+                if (visible(subtask) != null) {
+                    events.publish(TaskEvent.Type.DELETED, subtask);
+                }
+            }
+            epics.clear();
+            subtasks.clear();
+        } finally {
+            scheduleLock.unlock();
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            historyManager.add(epic);
+            if (!epics.containsKey(id)) {
+                historyManager.remove(id);
+            }
+        }
+        return copy(epic);
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        int id = nextId.getAndIncrement();
+        // Под блокировкой полосы вставка и счётчик не расходятся со сбросом в deleteAllEpics
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            epic.setId(id);
+            epic.setVersion(1);
+            Epic savedEpic = new Epic(id, epic.getName(), epic.getDescription());
+            savedEpic.setVersion(1);
+            epics.put(id, savedEpic);
+            epicCounter.increment();
+            events.publish(TaskEvent.Type.CREATED, savedEpic);
+            return epic;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        renameEpic(epic, ANY_VERSION);
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        return expectedVersion != ANY_VERSION && renameEpic(epic, expectedVersion);
+    }
+
+    private boolean renameEpic(Epic epic, long expectedVersion) {
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            Epic savedEpic = epics.get(epic.getId());
+            if (savedEpic == null || expectedVersion != ANY_VERSION && savedEpic.getVersion() != expectedVersion) {
+                return false;
+            }
+            savedEpic.setName(epic.getName());
+            savedEpic.setDescription(epic.getDescription());
+            savedEpic.setVersion(savedEpic.getVersion() + 1);
+            events.publish(TaskEvent.Type.UPDATED, savedEpic);
+            epic.setVersion(savedEpic.getVersion());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                epicCounter.decrement();
+                subtaskCounter.add(-epic.getSubtaskCount());
+            }
+            if (epic != null && epic.getSubtaskCount() >= ASYNC_CASCADE_THRESHOLD) {
+                detach(epic);
+                return;
+            }
+            epics.remove(id);
+            if (epic != null) {
+                scheduleLock.lock();
+                try {
+                    for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                        int subtaskId = epic.getSubtaskId(i);
+                        Subtask subtask = subtasks.remove(subtaskId);
+                        prioritizedTasks.remove(subtask);
+                        historyManager.remove(subtaskId);
+                        events.publish(TaskEvent.Type.DELETED, subtask);
+                    }
+                } finally {
+                    scheduleLock.unlock();
+                }
+                historyManager.remove(id);
+                events.publish(TaskEvent.Type.DELETED, epic);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return new ArrayList<>();
+            }
+
+            List<Subtask> result = new ArrayList<>(epic.getSubtaskCount());
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                int subtaskId = epic.getSubtaskId(i);
+                result.add(Entities.copy(subtasks.get(subtaskId)));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        if (detachedEpics.isEmpty()) {
+            return copyAll(new ArrayList<>(subtasks.values()));
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (Subtask subtask : subtasks.values()) {
+            if (visible(subtask) != null) {
+                result.add(subtask.copy());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lockAll();
+        scheduleLock.lock();
+        try {
+            ConcurrentNavigableMap<Integer, Subtask> oldSubtasks = subtasks;
+            subtaskCounter.reset();
+            if (oldSubtasks.size() >= ASYNC_CASCADE_THRESHOLD) {
+                subtasks = new ConcurrentSkipListMap<>();
+                for (Epic epic : epics.values()) {
+                    TaskStatus oldStatus = epic.getStatus();
+                    epic.clearSubtaskIds();
+                    events.publishEpicStatus(epic, oldStatus);
+                }
+                retire(oldSubtasks, () -> { });
+                return;
+            }
+            for (Subtask subtask : subtasks.values()) {
+                historyManager.remove(subtask.getId());
+                prioritizedTasks.remove(subtask);
+                // О подзадачах отцепленных эпиков сообщает их фоновая очистка
+                if (visible(subtask) != null) {
+                    events.publish(TaskEvent.Type.DELETED, subtask);
+                }
+            }
+            subtasks.clear();
+
+            for (Epic epic : epics.values()) {
+                TaskStatus oldStatus = epic.getStatus();
+                epic.clearSubtaskIds();
+                events.publishEpicStatus(epic, oldStatus);
+            }
+        } finally {
+            scheduleLock.unlock();
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = visible(subtasks.get(id));
+        if (subtask != null) {
+            historyManager.add(subtask);
+            if (visible(subtasks.get(id)) == null) {
+                historyManager.remove(id);
+            }
+        }
+        return Entities.copy(subtask);
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        ReentrantLock lock = lockFor(subtask.getEpicId());
+        lock.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                return null;
+            }
+            Subtask savedSubtask = new Subtask(subtask);
+            savedSubtask.setId(nextId.getAndIncrement());
+            savedSubtask.setVersion(1);
+            reschedule(null, savedSubtask);
+            subtasks.put(savedSubtask.getId(), savedSubtask);
+            subtaskCounter.increment();
+            events.publish(TaskEvent.Type.CREATED, savedSubtask);
+            TaskStatus oldStatus = epic.getStatus();
+            epic.addSubtaskId(savedSubtask.getId(), savedSubtask.getStatus());
+            events.publishEpicStatus(epic, oldStatus);
+            subtask.setId(savedSubtask.getId());
+            subtask.setVersion(1);
+            return subtask;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        replaceSubtask(subtask, ANY_VERSION);
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        return expectedVersion != ANY_VERSION && replaceSubtask(subtask, expectedVersion);
+    }
+
+    private boolean replaceSubtask(Subtask subtask, long expectedVersion) {
+        // Подзадача не может сменить эпик, поэтому блокировки эпика из запроса достаточно
+        ReentrantLock lock = lockFor(subtask.getEpicId());
+        lock.lock();
+        try {
+            Subtask oldSubtask = visible(subtasks.get(subtask.getId()));
+            if (oldSubtask == null || oldSubtask.getEpicId() != subtask.getEpicId()
+                    || expectedVersion != ANY_VERSION && oldSubtask.getVersion() != expectedVersion) {
+                return false;
+            }
+            Subtask savedSubtask = new Subtask(subtask);
+            savedSubtask.setVersion(oldSubtask.getVersion() + 1);
+            reschedule(oldSubtask, savedSubtask);
+            subtasks.put(savedSubtask.getId(), savedSubtask);
+            events.publish(TaskEvent.Type.UPDATED, savedSubtask);
+            Epic epic = epics.get(oldSubtask.getEpicId());
+            TaskStatus oldStatus = epic.getStatus();
+            epic.changeSubtaskStatus(oldSubtask.getStatus(), savedSubtask.getStatus());
+            events.publishEpicStatus(epic, oldStatus);
+            subtask.setVersion(savedSubtask.getVersion());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        Subtask savedSubtask = visible(subtasks.get(id));
+        if (savedSubtask == null) {
+            return;
+        }
+
+        ReentrantLock lock = lockFor(savedSubtask.getEpicId());
+        lock.lock();
+        try {
+            // Под блокировкой эпика его не могут отцепить, поэтому видимость проверяется один раз
+            Subtask subtask = visible(subtasks.get(id)) == null ? null : subtasks.remove(id);
+            if (subtask != null) {
+                subtaskCounter.decrement();
+                reschedule(subtask, null);
+                events.publish(TaskEvent.Type.DELETED, subtask);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    TaskStatus oldStatus = epic.getStatus();
+                    epic.removeSubtaskId(id, subtask.getStatus());
+                    events.publishEpicStatus(epic, oldStatus);
+                }
+                historyManager.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Пакет проверяется и применяется под всеми блокировками полос и расписания, которые берёт любое изменение
+    // уже существующей сущности, поэтому проверенное состояние не меняется до конца применения.
+    // Читатели без блокировок, как и для постраничного чтения, видят пакет слабо согласованно;
+    // атомарную видимость для чтения даёт SnapshotTaskManager
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        lockAll();
+        scheduleLock.lock();
+        try {
+            // Блок id резервируется сразу; если пакет отклонён, эти id просто не используются
+            int firstId = nextId.getAndAdd(batch.createCount());
+            for (TaskBatch.Operation operation : BatchPlan.resolve(batch, firstId, this::find, prioritizedTasks)) {
+                apply(operation);
+            }
+            return batch.assignIds(firstId);
+        } finally {
+            scheduleLock.unlock();
+            unlockAll();
+        }
+    }
+
+    private void apply(TaskBatch.Operation operation) {
+        int id = operation.id();
+        switch (operation.kind()) {
+            case ADD -> {
+                operation.task().setVersion(1);
+                switch (operation.type()) {
+                    case TASK -> {
+                        tasks.put(id, operation.task());
+                        taskCounter.increment();
+                    }
+                    case EPIC -> {
+                        epics.put(id, (Epic) operation.task());
+                        epicCounter.increment();
+                    }
+                    case SUBTASK -> {
+                        Subtask subtask = (Subtask) operation.task();
+                        subtasks.put(id, subtask);
+                        subtaskCounter.increment();
+                        Epic epic = epics.get(subtask.getEpicId());
+                        TaskStatus oldStatus = epic.getStatus();
+                        epic.addSubtaskId(id, subtask.getStatus());
+                        events.publishEpicStatus(epic, oldStatus);
+                    }
+                }
+                prioritizedTasks.add(operation.task());
+                events.publish(TaskEvent.Type.CREATED, operation.task());
+            }
+            case UPDATE -> {
+                switch (operation.type()) {
+                    case TASK -> {
+                        Task oldTask = tasks.get(id);
+                        Task savedTask = operation.task();
+                        savedTask.setVersion(oldTask.getVersion() + 1);
+                        tasks.put(id, savedTask);
+                        prioritizedTasks.remove(oldTask);
+                        prioritizedTasks.add(savedTask);
+                        events.publish(TaskEvent.Type.UPDATED, savedTask);
+                    }
+                    case EPIC -> {
+                        Epic savedEpic = epics.get(id);
+                        savedEpic.setName(operation.task().getName());
+                        savedEpic.setDescription(operation.task().getDescription());
+                        savedEpic.setVersion(savedEpic.getVersion() + 1);
+                        events.publish(TaskEvent.Type.UPDATED, savedEpic);
+                    }
+                    case SUBTASK -> {
+                        Subtask oldSubtask = subtasks.get(id);
+                        Subtask savedSubtask = (Subtask) operation.task();
+                        savedSubtask.setVersion(oldSubtask.getVersion() + 1);
+                        subtasks.put(id, savedSubtask);
+                        prioritizedTasks.remove(oldSubtask);
+                        prioritizedTasks.add(savedSubtask);
+                        events.publish(TaskEvent.Type.UPDATED, savedSubtask);
+                        Epic epic = epics.get(oldSubtask.getEpicId());
+                        TaskStatus oldStatus = epic.getStatus();
+                        epic.changeSubtaskStatus(oldSubtask.getStatus(), savedSubtask.getStatus());
+                        events.publishEpicStatus(epic, oldStatus);
+                    }
+                }
+            }
+            // Блокировки уже взяты, а ReentrantLock допускает повторный захват
+            case DELETE -> {
+                switch (operation.type()) {
+                    case TASK -> deleteTask(id);
+                    case EPIC -> deleteEpic(id);
+                    case SUBTASK -> deleteSubtask(id);
+                }
+            }
+        }
+    }
+
+    private Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task != null ? task : visible(subtasks.get(id));
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return copyAll(Paging.page(tasks, afterId, limit));
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return copyAll(Paging.page(epics, afterId, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        if (detachedEpics.isEmpty()) {
+            return copyAll(Paging.page(subtasks, afterId, limit));
+        }
+        return copyAll(Paging.page(subtasks, afterId, limit, subtask -> visible(subtask) != null));
+    }
+
+    // Задачи и подзадачи в хранилище заменяются целиком, а эпик меняется на месте под блокировкой полосы:
+    // под ней же строится его представление, чтобы статус и подзадачи в нём были согласованы
+    @Override
+    public TaskView getTaskView(int id) {
+        Task task = tasks.get(id);
+        return task == null ? null : TaskView.of(task);
+    }
+
+    @Override
+    public EpicView getEpicView(int id) {
+        Epic epic = epics.get(id);
+        return epic == null ? null : epicView(epic);
+    }
+
+    @Override
+    public SubtaskView getSubtaskView(int id) {
+        Subtask subtask = visible(subtasks.get(id));
+        return subtask == null ? null : SubtaskView.of(subtask);
+    }
+
+    @Override
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        List<Epic> page = Paging.page(epics, afterId, limit);
+        List<EpicView> views = new ArrayList<>(page.size());
+        for (Epic epic : page) {
+            views.add(epicView(epic));
+        }
+        return views;
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream().map(Entities::copy);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream().map(this::copy);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream().filter(subtask -> visible(subtask) != null).map(Entities::copy);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        // Счётчик читается до истории: очистка, закончившаяся после чтения истории, всё равно будет учтена
+        boolean reclaiming = pendingReclaims.get() > 0;
+        List<Task> history = historyManager.getHistory();
+        if (reclaiming) {
+            history.removeIf(task -> !isLive(task));
+        }
+        return copyAll(history);
+    }
+
+    // Счётчик задач увеличивается после вставки без блокировки, и удаление может его опередить
+    @Override
+    public int taskCount() {
+        return (int) Math.max(0, taskCounter.sum());
+    }
+
+    @Override
+    public int epicCount() {
+        return epicCounter.intValue();
+    }
+
+    @Override
+    public int subtaskCount() {
+        return subtaskCounter.intValue();
+    }
+
+    // Пока идёт фоновая очистка, в истории могут оставаться удалённые подзадачи, и их приходится отфильтровать
+    @Override
+    public int historySize() {
+        return pendingReclaims.get() > 0 ? getHistory().size() : historyManager.size();
+    }
+
+    // Удалённые задачи отфильтровываются при чтении истории, поэтому повторная проверка не нужна
+    @Override
+    public Task getTask(String userId, int id) {
+        Task task = tasks.get(id);
+        userHistories.add(userId, task);
+        return Entities.copy(task);
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        Epic epic = epics.get(id);
+        userHistories.add(userId, epic);
+        return copy(epic);
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        Subtask subtask = visible(subtasks.get(id));
+        userHistories.add(userId, subtask);
+        return Entities.copy(subtask);
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        return copyAll(userHistories.getHistory(userId,
+                id -> tasks.containsKey(id) || epics.containsKey(id) || visible(subtasks.get(id)) != null));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> prioritized;
+        scheduleLock.lock();
+        try {
+            prioritized = prioritizedTasks.toList();
+            // Под scheduleLock очистка не снимет подзадачу из расписания, а значит, и из хранилища
+            if (pendingReclaims.get() > 0) {
+                prioritized.removeIf(task -> isReclaimed(task.getId()));
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+        // В расписании только задачи и подзадачи, которые после сохранения не меняются
+        return Entities.copyAll(prioritized);
+    }
+
+    /**
+     * Ждёт, пока фоновая очистка удалённых подзадач, запущенная до вызова, вычистит их целиком.
+     */
+    public void awaitReclamation() {
+        CompletableFuture<Void> current;
+        synchronized (reclaimLock) {
+            current = reclamation;
+        }
+        current.join();
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        return events.subscribe(listener, capacity, coalesce);
+    }
+
+    // Заменяет слот oldTask на newTask в индексе по времени или бросает исключение при пересечении
+    private void reschedule(Task oldTask, Task newTask) {
+        boolean oldScheduled = oldTask != null && oldTask.getStartTime() != null;
+        boolean newScheduled = newTask != null && newTask.getStartTime() != null;
+        if (!oldScheduled && !newScheduled) {
+            return;
+        }
+
+        scheduleLock.lock();
+        try {
+            if (newScheduled) {
+                checkTimeSlot(newTask);
+            }
+            prioritizedTasks.remove(oldTask);
+            if (newScheduled) {
+                prioritizedTasks.add(newTask);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void checkTimeSlot(Task task) {
+        boolean overlaps = pendingReclaims.get() > 0
+                ? prioritizedTasks.overlaps(task, this::isReclaimed) : prioritizedTasks.overlaps(task);
+        if (overlaps) {
+            throw new ManagerValidationException("Время задачи " + task.getName() + " пересекается с другой задачей");
+        }
+    }
+
+    // null для подзадачи отцепленного эпика: для чтения она уже удалена
+    private Subtask visible(Subtask subtask) {
+        if (subtask == null || detachedEpics.isEmpty() || !detachedEpics.contains(subtask.getEpicId())) {
+            return subtask;
+        }
+        return null;
+    }
+
+    private boolean isLive(Task task) {
+        return switch (task.getType()) {
+            case TASK -> tasks.containsKey(task.getId());
+            case EPIC -> epics.containsKey(task.getId());
+            case SUBTASK -> visible(subtasks.get(task.getId())) != null;
+        };
+    }
+
+    // Подзадача удалена, но ещё стоит в расписании до фоновой очистки
+    private boolean isReclaimed(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            return detachedEpics.contains(subtask.getEpicId());
+        }
+        for (ConcurrentNavigableMap<Integer, Subtask> retired : retiredSubtasks) {
+            if (retired.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Вызывается под блокировкой эпика: подзадачи эпика пропадают для чтения сразу, а вычищаются в фоне
+    private void detach(Epic epic) {
+        int id = epic.getId();
+        ConcurrentNavigableMap<Integer, Subtask> storage = subtasks;
+        pendingReclaims.incrementAndGet();
+        detachedEpics.add(id);
+        epics.remove(id);
+        historyManager.remove(id);
+        events.publish(TaskEvent.Type.DELETED, epic);
+        // Отцепленный эпик больше не меняется, поэтому его id подзадач читаются в фоне без блокировки
+        scheduleReclamation(() -> {
+            int[] ids = new int[epic.getSubtaskCount()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = epic.getSubtaskId(i);
+            }
+            reclaimSubtasks(storage, ids);
+            detachedEpics.remove(id);
+        });
+    }
+
+    // Вызывается под всеми блокировками, после подмены хранилища подзадач пустым
+    private void retire(ConcurrentNavigableMap<Integer, Subtask> storage, Runnable afterReclaim) {
+        pendingReclaims.incrementAndGet();
+        retiredSubtasks.add(storage);
+        scheduleReclamation(() -> {
+            reclaimSubtasks(storage, storage.keySet().stream().mapToInt(Integer::intValue).toArray());
+            retiredSubtasks.removeIf(retired -> retired == storage);
+            afterReclaim.run();
+        });
+    }
+
+    private void scheduleReclamation(Runnable job) {
+        synchronized (reclaimLock) {
+            // Ошибка одной очистки не должна останавливать следующие
+            reclamation = reclamation.exceptionally(e -> null).thenRunAsync(() -> {
+                try {
+                    job.run();
+                } finally {
+                    pendingReclaims.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    // Подзадачи снимаются порциями: сначала из расписания под scheduleLock, затем из хранилища и истории.
+    // Пока подзадача в расписании, она остаётся и в хранилище, по которому isReclaimed её узнаёт
+    private void reclaimSubtasks(ConcurrentNavigableMap<Integer, Subtask> storage, int[] ids) {
+        IntStream chunks = IntStream.range(0, (ids.length + RECLAIM_CHUNK - 1) / RECLAIM_CHUNK);
+        if (ids.length >= PARALLEL_RECLAIM_THRESHOLD) {
+            chunks = chunks.parallel();
+        }
+        chunks.forEach(chunk -> {
+            int from = chunk * RECLAIM_CHUNK;
+            int to = Math.min(ids.length, from + RECLAIM_CHUNK);
+            scheduleLock.lock();
+            try {
+                for (int i = from; i < to; i++) {
+                    prioritizedTasks.remove(storage.get(ids[i]));
+                }
+            } finally {
+                scheduleLock.unlock();
+            }
+            for (int i = from; i < to; i++) {
+                // Подзадачу могли уже снять синхронным deleteAll*; историю чистим в любом случае
+                historyManager.remove(ids[i]);
+                Subtask subtask = storage.remove(ids[i]);
+                if (subtask != null) {
+                    events.publish(TaskEvent.Type.DELETED, subtask);
+                }
+            }
+        });
+    }
+
+    private EpicView epicView(Epic epic) {
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            return EpicView.of(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Задачи и подзадачи в хранилище заменяются целиком и копируются без блокировок
+    private <T extends Task> T copy(T task) {
+        if (!(task instanceof Epic epic)) {
+            return Entities.copy(task);
+        }
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            return Entities.copy(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T extends Task> List<T> copyAll(List<T> tasks) {
+        tasks.replaceAll(this::copy);
+        return tasks;
+    }
+
+    // Полоса по id эпика, а для обычной задачи - по её собственному id
+    private ReentrantLock lockFor(int id) {
+        return epicLocks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : epicLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = epicLocks.length - 1; i >= 0; i--) {
+            epicLocks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package manager;
+
+import model.Task;
+import java.util.List;
+
+/**
+ * Копии хранимых сущностей для методов чтения: менеджеры не отдают наружу объекты из своих хранилищ,
+ * иначе вызывающий код мог бы изменить их состояние в обход проверок, индексов и журналов.
+ */
+final class Entities {
+    private Entities() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Task> T copy(T task) {
+        return task == null ? null : (T) task.copy();
+    }
+
+    // Заменяет элементы списка их копиями и возвращает тот же список
+    static <T extends Task> List<T> copyAll(List<T> tasks) {
+        tasks.replaceAll(Entities::copy);
+        return tasks;
+    }
+}
@@ -0,0 +1,781 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Менеджер, который дописывает каждую мутацию в бинарный журнал (write-ahead log)
+ * и периодически сворачивает журнал в снапшот, чтобы время восстановления не росло бесконечно.
+ * <p>
+ * Запись журнала: {@code [int длина][int crc32][long lsn][byte операция][данные]}.
+ * Снапшот состоит из тех же записей (сущности - вместе с версией), перед которыми стоит заголовок
+ * с LSN последней учтённой записи журнала. История просмотров не сохраняется.
+ * <p>
+ * Каждая запись сразу передаётся в файл, то есть операционной системе, а политика {@link FsyncPolicy}
+ * определяет только, когда делать fsync. Компактация по порогу не держит вызывающий поток: журнал
+ * переименовывается в сегмент {@code tasks.wal.<lsn>}, запись продолжается в новый файл, а снапшот
+ * пишется в фоне, после чего учтённые в нём сегменты удаляются.
+ */
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String LOG_FILE = "tasks.wal";
+    private static final String SEGMENT_PREFIX = LOG_FILE + ".";
+    private static final Pattern SEGMENT_NAME = Pattern.compile(Pattern.quote(SEGMENT_PREFIX) + "(\\d+)");
+    private static final String SNAPSHOT_FILE = "tasks.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x4B414E42;
+    private static final int SNAPSHOT_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Сущность в записи идёт сразу после lsn и операции: тип, затем id
+    private static final int ENTITY_ID_OFFSET = Long.BYTES + Byte.BYTES * 2;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE_TASK = 3;
+    private static final byte OP_DELETE_EPIC = 4;
+    private static final byte OP_DELETE_SUBTASK = 5;
+    private static final byte OP_DELETE_ALL_TASKS = 6;
+    private static final byte OP_DELETE_ALL_EPICS = 7;
+    private static final byte OP_DELETE_ALL_SUBTASKS = 8;
+    private static final byte OP_NEXT_ID = 9;
+    private static final byte OP_BATCH = 10;
+    // Сущность вместе с версией; пишется только в снапшот, в журнале версию восстанавливает сам порядок записей
+    private static final byte OP_RESTORE = 11;
+
+    private final Path logPath;
+    private final Path snapshotPath;
+    private final FsyncPolicy fsyncPolicy;
+    private final int batchSize;
+    private final int compactionThreshold;
+    private final Path directory;
+    private FileChannel logChannel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final RecordWriter record = new RecordWriter();
+    private long lastLsn;
+    private long snapshotLsn;
+    // Записи, переданные в файл, но ещё не прошедшие fsync
+    private int pendingRecords;
+    private int recordsSinceSnapshot;
+    // Фоновая запись снапшота; следующая компактация начинается только после её окончания
+    private CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+    private volatile ManagerSaveException compactionFailure;
+
+    public FileBackedTaskManager(Path directory) {
+        this(directory, FsyncPolicy.BATCH, 64, 100_000);
+    }
+
+    public FileBackedTaskManager(Path directory, FsyncPolicy fsyncPolicy, int batchSize, int compactionThreshold) {
+        if (batchSize < 1 || compactionThreshold < 1) {
+            throw new IllegalArgumentException("batchSize и compactionThreshold должны быть положительными");
+        }
+        this.directory = directory;
+        this.logPath = directory.resolve(LOG_FILE);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.fsyncPolicy = fsyncPolicy;
+        this.batchSize = batchSize;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(snapshotPath)) {
+                loadSnapshot();
+            }
+            replaySegments();
+            logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            replayLog();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось восстановить состояние из " + directory, e);
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        super.deleteAllTasks();
+        logOperation(OP_DELETE_ALL_TASKS);
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        startEntityRecord(OP_ADD, task);
+        Task added = super.addTask(task);
+        record.patchEntityId(added.getId());
+        appendStartedRecord();
+        return added;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (tasks.containsKey(task.getId())) {
+            startEntityRecord(OP_UPDATE, task);
+            super.updateTask(task);
+            appendStartedRecord();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        if (tasks.containsKey(id)) {
+            super.deleteTask(id);
+            logId(OP_DELETE_TASK, id);
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        super.deleteAllEpics();
+        logOperation(OP_DELETE_ALL_EPICS);
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        startEntityRecord(OP_ADD, epic);
+        Epic added = super.addEpic(epic);
+        record.patchEntityId(added.getId());
+        appendStartedRecord();
+        return added;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epics.containsKey(epic.getId())) {
+            startEntityRecord(OP_UPDATE, epic);
+            super.updateEpic(epic);
+            appendStartedRecord();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        if (epics.containsKey(id)) {
+            super.deleteEpic(id);
+            logId(OP_DELETE_EPIC, id);
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+        logOperation(OP_DELETE_ALL_SUBTASKS);
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        startEntityRecord(OP_ADD, subtask);
+        Subtask added = super.addSubtask(subtask);
+        if (added != null) {
+            record.patchEntityId(added.getId());
+            appendStartedRecord();
+        }
+        return added;
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtasks.containsKey(subtask.getId())) {
+            startEntityRecord(OP_UPDATE, subtask);
+            super.updateSubtask(subtask);
+            appendStartedRecord();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        if (subtasks.containsKey(id)) {
+            super.deleteSubtask(id);
+            logId(OP_DELETE_SUBTASK, id);
+        }
+    }
+
+    // Весь пакет - одна запись журнала: после падения он восстанавливается целиком или не восстанавливается
+    @Override
+    protected void applyOperations(List<TaskBatch.Operation> operations) {
+        // Запись собирается до применения, чтобы слишком большой пакет был отклонён без изменений
+        record.start(lastLsn + 1, OP_BATCH);
+        record.putInt(operations.size());
+        for (TaskBatch.Operation operation : operations) {
+            record.putByte((byte) operation.kind().ordinal());
+            if (operation.kind() == TaskBatch.Kind.DELETE) {
+                record.putByte((byte) operation.type().ordinal());
+                record.putInt(operation.id());
+            } else {
+                record.putEntity(operation.task());
+            }
+        }
+        if (record.size() > MAX_RECORD_SIZE) {
+            throw new ManagerValidationException("Пакет из " + operations.size()
+                    + " операций не помещается в одну запись журнала");
+        }
+        super.applyOperations(operations);
+        appendStartedRecord();
+    }
+
+    /**
+     * Делает fsync записей, переданных в файл после предыдущего, если политика это предусматривает.
+     */
+    public void flush() {
+        try {
+            flushBuffer(fsyncPolicy != FsyncPolicy.NEVER);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал " + logPath, e);
+        }
+    }
+
+    /**
+     * Сохраняет текущее состояние в снапшот и удаляет учтённые в нём записи журнала.
+     * В отличие от компактации по порогу, ждёт окончания записи снапшота.
+     */
+    public void compact() {
+        awaitCompaction();
+        writeSnapshot(startCompaction());
+        compactionFailure = null;
+    }
+
+    /**
+     * Ошибка последней компактации по порогу или null, если она прошла успешно. Записи при такой ошибке
+     * не теряются: они остаются в сегментах журнала, а компактация повторяется, когда наберётся
+     * следующий порог записей, и при {@link #close()}.
+     */
+    public ManagerSaveException compactionFailure() {
+        return compactionFailure;
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitCompaction();
+            // Компактация по порогу пропускается, пока идёт предыдущая, а неудачная ждёт следующего порога.
+            // Длинный хвост не оставляем следующему запуску, ошибка повторной попытки уходит вызывающему
+            if (recordsSinceSnapshot >= compactionThreshold || compactionFailure != null) {
+                compact();
+            }
+        } finally {
+            try {
+                flushBuffer(fsyncPolicy != FsyncPolicy.NEVER);
+                logChannel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось закрыть журнал " + logPath, e);
+            }
+        }
+    }
+
+    // Запись собирается до изменения памяти: если сущность не удаётся закодировать, менеджер остаётся прежним.
+    // В журнал она попадает через appendStartedRecord, только когда изменение применено
+    private void startEntityRecord(byte op, Task task) {
+        record.start(lastLsn + 1, op);
+        record.putEntity(task);
+        if (record.size() > MAX_RECORD_SIZE) {
+            throw new ManagerValidationException("Сущность " + task.getId() + " не помещается в одну запись журнала");
+        }
+    }
+
+    private void appendStartedRecord() {
+        lastLsn++;
+        appendRecord();
+    }
+
+    private void logId(byte op, int id) {
+        record.start(++lastLsn, op);
+        record.putInt(id);
+        appendRecord();
+    }
+
+    private void logOperation(byte op) {
+        record.start(++lastLsn, op);
+        appendRecord();
+    }
+
+    // Запись сразу уходит в файл: после падения процесса она не пропадёт, fsync откладывается по политике
+    private void appendRecord() {
+        try {
+            record.frame(logChannel, writeBuffer);
+            writeFully(logChannel, writeBuffer);
+            pendingRecords++;
+            recordsSinceSnapshot++;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                flushBuffer(true);
+            } else if (fsyncPolicy == FsyncPolicy.BATCH && pendingRecords >= batchSize) {
+                flushBuffer(true);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал " + logPath, e);
+        }
+        if (recordsSinceSnapshot >= compactionThreshold && compaction.isDone()) {
+            startBackgroundCompaction();
+        }
+    }
+
+    // Запись к этому моменту уже в журнале, поэтому ошибка компактации не достаётся вызывающему,
+    // а запоминается для compactionFailure()
+    private void startBackgroundCompaction() {
+        Snapshot snapshot;
+        try {
+            snapshot = startCompaction();
+        } catch (ManagerSaveException e) {
+            compactionFailure = e;
+            recordsSinceSnapshot = 0;
+            return;
+        }
+        compaction = CompletableFuture.runAsync(() -> {
+            try {
+                writeSnapshot(snapshot);
+                compactionFailure = null;
+            } catch (ManagerSaveException e) {
+                compactionFailure = e;
+            }
+        }, job -> Thread.ofVirtual().name("wal-compaction").start(job));
+    }
+
+    private void flushBuffer(boolean force) throws IOException {
+        writeFully(logChannel, writeBuffer);
+        if (force && pendingRecords > 0) {
+            logChannel.force(false);
+        }
+        pendingRecords = 0;
+    }
+
+    // Состояние, которое попадёт в снапшот: задачи и подзадачи при изменении заменяются целиком,
+    // поэтому хватает ссылок на них, а эпики, которые меняются на месте, копируются
+    private record Snapshot(long lsn, int nextId, List<Task> entities) {
+    }
+
+    // Переносит журнал в сегмент и запоминает состояние на его последней записи. Дёшево для вызывающего
+    // потока: ни сериализации, ни записи снапшота
+    private Snapshot startCompaction() {
+        try {
+            flushBuffer(fsyncPolicy != FsyncPolicy.NEVER);
+            if (logChannel.size() > 0) {
+                logChannel.close();
+                Files.move(logPath, directory.resolve(SEGMENT_PREFIX + lastLsn), StandardCopyOption.ATOMIC_MOVE);
+                logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал " + logPath, e);
+        }
+        recordsSinceSnapshot = 0;
+
+        List<Task> entities = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        for (Epic epic : epics.values()) {
+            entities.add(epic.copy());
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                entities.add(subtasks.get(epic.getSubtaskId(i)));
+            }
+        }
+        entities.addAll(tasks.values());
+        return new Snapshot(lastLsn, nextId, entities);
+    }
+
+    // Может выполняться в фоне, поэтому пользуется только snapshot и собственными буферами
+    private void writeSnapshot(Snapshot snapshot) {
+        Path tmpPath = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+                buffer.putInt(SNAPSHOT_MAGIC).putLong(snapshot.lsn());
+
+                RecordWriter writer = new RecordWriter();
+                writer.start(0, OP_NEXT_ID);
+                writer.putInt(snapshot.nextId());
+                writer.frame(out, buffer);
+                for (Task task : snapshot.entities()) {
+                    writer.start(0, OP_RESTORE);
+                    writer.putEntity(task);
+                    writer.putLong(task.getVersion());
+                    writer.frame(out, buffer);
+                }
+                writeFully(out, buffer);
+                out.force(true);
+            }
+            Files.move(tmpPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Записи с lsn <= snapshot.lsn() при восстановлении пропускаются, поэтому падение
+            // до удаления сегментов не приведёт к повторному применению
+            for (Segment segment : segments()) {
+                if (segment.lastLsn() <= snapshot.lsn()) {
+                    Files.deleteIfExists(segment.path());
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать снапшот " + snapshotPath, e);
+        }
+    }
+
+    private void awaitCompaction() {
+        try {
+            compaction.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ManagerSaveException saveException) {
+                throw saveException;
+            }
+            throw e;
+        } finally {
+            compaction = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private void loadSnapshot() throws IOException {
+        try (FileChannel in = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                // читаем заголовок целиком
+            }
+            header.flip();
+            if (header.remaining() < SNAPSHOT_HEADER_SIZE || header.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Неизвестный формат снапшота");
+            }
+            snapshotLsn = header.getLong();
+            lastLsn = snapshotLsn;
+
+            RecordReader reader = new RecordReader(in, SNAPSHOT_HEADER_SIZE);
+            ByteBuffer body;
+            while ((body = reader.next()) != null) {
+                body.getLong();
+                apply(body);
+            }
+            if (reader.position() != in.size()) {
+                throw new IOException("Снапшот повреждён на позиции " + reader.position());
+            }
+        }
+    }
+
+    // Сегменты, которые не успела удалить компактация: учтённые снапшотом удаляются, остальные применяются
+    private void replaySegments() throws IOException {
+        for (Segment segment : segments()) {
+            if (segment.lastLsn() <= snapshotLsn) {
+                Files.delete(segment.path());
+                continue;
+            }
+            try (FileChannel in = FileChannel.open(segment.path(), StandardOpenOption.READ)) {
+                replay(in);
+            }
+        }
+    }
+
+    private void replayLog() throws IOException {
+        long position = replay(logChannel);
+        // Недописанная или повреждённая запись в конце журнала - след падения, отбрасываем её
+        if (position < logChannel.size()) {
+            logChannel.truncate(position);
+        }
+        logChannel.position(position);
+    }
+
+    // Применяет записи после снапшота и возвращает позицию за последней целой записью
+    private long replay(FileChannel channel) throws IOException {
+        RecordReader reader = new RecordReader(channel, 0);
+        ByteBuffer body;
+        while ((body = reader.next()) != null) {
+            long lsn = body.getLong();
+            if (lsn > snapshotLsn) {
+                apply(body);
+                recordsSinceSnapshot++;
+            }
+            lastLsn = Math.max(lastLsn, lsn);
+        }
+        return reader.position();
+    }
+
+    private record Segment(Path path, long lastLsn) {
+    }
+
+    // Сегменты журнала по возрастанию LSN последней записи
+    private List<Segment> segments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(new Segment(file, Long.parseLong(matcher.group(1))));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(Segment::lastLsn));
+        return segments;
+    }
+
+    private void apply(ByteBuffer body) {
+        byte op = body.get();
+        switch (op) {
+            case OP_ADD -> restore(readEntity(body), 1);
+            case OP_RESTORE -> {
+                Task task = readEntity(body);
+                restore(task, body.getLong());
+            }
+            case OP_UPDATE -> {
+                Task task = readEntity(body);
+                switch (task.getType()) {
+                    case TASK -> super.updateTask(task);
+                    case EPIC -> super.updateEpic((Epic) task);
+                    case SUBTASK -> super.updateSubtask((Subtask) task);
+                }
+            }
+            case OP_DELETE_TASK -> super.deleteTask(body.getInt());
+            case OP_DELETE_EPIC -> super.deleteEpic(body.getInt());
+            case OP_DELETE_SUBTASK -> super.deleteSubtask(body.getInt());
+            case OP_DELETE_ALL_TASKS -> super.deleteAllTasks();
+            case OP_DELETE_ALL_EPICS -> super.deleteAllEpics();
+            case OP_DELETE_ALL_SUBTASKS -> super.deleteAllSubtasks();
+            case OP_NEXT_ID -> nextId = Math.max(nextId, body.getInt());
+            case OP_BATCH -> super.applyOperations(readBatch(body));
+            default -> throw new ManagerSaveException("Неизвестная операция в журнале: " + op, null);
+        }
+    }
+
+    private void restore(Task task, long version) {
+        task.setVersion(version);
+        switch (task.getType()) {
+            case TASK -> {
+                tasks.put(task.getId(), task);
+                prioritizedTasks.add(task);
+            }
+            case EPIC -> epics.put(task.getId(), (Epic) task);
+            case SUBTASK -> {
+                Subtask subtask = (Subtask) task;
+                subtasks.put(subtask.getId(), subtask);
+                prioritizedTasks.add(subtask);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    epic.addSubtaskId(subtask.getId(), subtask.getStatus());
+                }
+            }
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
+    }
+
+    private static Task readEntity(ByteBuffer in) {
+        TaskType type = TaskType.values()[in.get()];
+        int id = in.getInt();
+        String name = readString(in);
+        String description = readString(in);
+        byte statusCode = in.get();
+        TaskStatus status = statusCode == 0 ? null : TaskStatus.values()[statusCode - 1];
+        LocalDateTime startTime = TimeEncoding.getTime(in);
+        Duration duration = TimeEncoding.getDuration(in);
+        switch (type) {
+            case EPIC:
+                // Статус эпика складывается из подзадач, которые добавляются при загрузке
+                return new Epic(id, name, description);
+            case SUBTASK:
+                return new Subtask(id, name, description, status, in.getInt(), startTime, duration);
+            default:
+                return new Task(id, name, description, status, startTime, duration);
+        }
+    }
+
+    private static List<TaskBatch.Operation> readBatch(ByteBuffer in) {
+        int count = in.getInt();
+        List<TaskBatch.Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TaskBatch.Kind kind = TaskBatch.Kind.values()[in.get()];
+            if (kind == TaskBatch.Kind.DELETE) {
+                TaskType type = TaskType.values()[in.get()];
+                operations.add(new TaskBatch.Operation(kind, type, in.getInt(), null));
+            } else {
+                Task task = readEntity(in);
+                operations.add(new TaskBatch.Operation(kind, task.getType(), task.getId(), task));
+            }
+        }
+        return operations;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // Собирает тело записи и обрамляет его длиной и crc32. У журнала и у фоновой компактации - свои экземпляры
+    private static final class RecordWriter {
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer record = ByteBuffer.allocate(256);
+
+        void start(long lsn, byte op) {
+            record.clear();
+            record.putLong(lsn);
+            record.put(op);
+        }
+
+        int size() {
+            return record.position();
+        }
+
+        void putByte(byte value) {
+            ensureCapacity(Byte.BYTES);
+            record.put(value);
+        }
+
+        void putInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            record.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensureCapacity(Long.BYTES);
+            record.putLong(value);
+        }
+
+        void putEntity(Task task) {
+            byte[] name = encode(task.getName());
+            byte[] description = encode(task.getDescription());
+            ensureCapacity(Byte.BYTES * 2 + Integer.BYTES * 4 + TimeEncoding.BYTES * 2 + length(name)
+                    + length(description));
+            record.put((byte) task.getType().ordinal());
+            record.putInt(task.getId());
+            putBytes(name);
+            putBytes(description);
+            // Статус может отсутствовать, как и в TaskCodec: 0 - нет статуса, иначе ordinal + 1
+            TaskStatus status = task.getStatus();
+            record.put((byte) (status == null ? 0 : status.ordinal() + 1));
+            TimeEncoding.put(record, task.getStartTime());
+            TimeEncoding.put(record, task.getDuration());
+            if (task instanceof Subtask subtask) {
+                record.putInt(subtask.getEpicId());
+            }
+        }
+
+        // id новой сущности известен только после добавления, поэтому вписывается в уже собранную запись
+        void patchEntityId(int id) {
+            record.putInt(ENTITY_ID_OFFSET, id);
+        }
+
+        // Дописывает запись в buffer, а если не помещается - сбрасывает buffer в channel
+        void frame(FileChannel channel, ByteBuffer buffer) throws IOException {
+            record.flip();
+            crc.reset();
+            crc.update(record.duplicate());
+            if (buffer.remaining() < RECORD_HEADER_SIZE + record.remaining()) {
+                writeFully(channel, buffer);
+            }
+            if (buffer.remaining() < RECORD_HEADER_SIZE + record.remaining()) {
+                // Запись больше буфера целиком: пишем её напрямую
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                header.putInt(record.remaining()).putInt((int) crc.getValue()).flip();
+                ByteBuffer[] parts = {header, record};
+                while (record.hasRemaining()) {
+                    channel.write(parts);
+                }
+                return;
+            }
+            buffer.putInt(record.remaining());
+            buffer.putInt((int) crc.getValue());
+            buffer.put(record);
+        }
+
+        private void putBytes(byte[] bytes) {
+            if (bytes == null) {
+                record.putInt(-1);
+            } else {
+                record.putInt(bytes.length);
+                record.put(bytes);
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (record.remaining() < extra) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + extra));
+                record.flip();
+                grown.put(record);
+                record = grown;
+            }
+        }
+    }
+
+    private static final class RecordReader {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private long position;
+
+        RecordReader(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            this.position = start;
+            channel.position(start);
+            buffer.flip();
+        }
+
+        long position() {
+            return position;
+        }
+
+        ByteBuffer next() throws IOException {
+            if (!ensure(RECORD_HEADER_SIZE)) {
+                return null;
+            }
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + Integer.BYTES);
+            if (length <= 0 || length > MAX_RECORD_SIZE || !ensure(RECORD_HEADER_SIZE + length)) {
+                return null;
+            }
+
+            ByteBuffer body = buffer.slice(buffer.position() + RECORD_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            buffer.position(buffer.position() + RECORD_HEADER_SIZE + length);
+            position += RECORD_HEADER_SIZE + length;
+            return body;
+        }
+
+        private boolean ensure(int bytes) throws IOException {
+            while (buffer.remaining() < bytes) {
+                if (bytes > buffer.capacity()) {
+                    ByteBuffer grown = ByteBuffer.allocate(Integer.highestOneBit(bytes) << 1);
+                    grown.put(buffer);
+                    grown.flip();
+                    buffer = grown;
+                }
+                buffer.compact();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+public enum FsyncPolicy {
+    // fsync после каждой записи в журнал
+    ALWAYS,
+    // fsync один раз на пачку записей (group commit)
+    BATCH,
+    // сброс на диск оставляется операционной системе
+    NEVER
+}
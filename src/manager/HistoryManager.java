@@ -7,4 +7,8 @@ public interface HistoryManager {
     void add(Task task);
     void remove(int id);
     List<Task> getHistory();
+
+    default int size() {
+        return getHistory().size();
+    }
 }
\ No newline at end of file
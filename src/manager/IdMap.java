@@ -0,0 +1,295 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище сущностей по int id без упаковки ключей и узлов на каждую запись.
+ * <p>
+ * Значения лежат подряд в массиве в порядке возрастания id, позицию по id находит {@link IntIntMap}.
+ * Удаление оставляет дыру, которая убирается при уплотнении. Id обычно выдаются по возрастанию,
+ * поэтому вставка - это дописывание в конец; вставка меньшего id только снимает признак
+ * упорядоченности, и массив сортируется один раз перед ближайшим упорядоченным чтением.
+ * <p>
+ * Не потокобезопасно даже для одних чтений: упорядоченное чтение после вставки меньшего id
+ * перестраивает массивы. Владелец обращается к хранилищу из одного потока или под своей блокировкой.
+ */
+class IdMap<V> {
+    private final IntIntMap positions;
+    private int[] ids;
+    private Object[] values;
+    // Занятая часть массивов, включая дыры
+    private int length;
+    private int size;
+    private boolean sorted = true;
+
+    IdMap() {
+        this(16);
+    }
+
+    IdMap(int expectedSize) {
+        int capacity = Math.max(4, expectedSize);
+        positions = new IntIntMap(capacity);
+        ids = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        int position = positions.get(id);
+        return position == IntIntMap.MISSING ? null : (V) values[position];
+    }
+
+    boolean containsKey(int id) {
+        return positions.get(id) != IntIntMap.MISSING;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int id, V value) {
+        int position = positions.get(id);
+        if (position != IntIntMap.MISSING) {
+            V previous = (V) values[position];
+            values[position] = value;
+            return previous;
+        }
+
+        if (length == ids.length) {
+            grow();
+        }
+        if (length > 0 && ids[length - 1] > id) {
+            sorted = false;
+        }
+        ids[length] = id;
+        values[length] = value;
+        positions.put(id, length++);
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int id) {
+        int position = positions.remove(id);
+        if (position == IntIntMap.MISSING) {
+            return null;
+        }
+        V previous = (V) values[position];
+        values[position] = null;
+        size--;
+        if (position == length - 1) {
+            length--;
+        }
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        positions.clear();
+        Arrays.fill(values, 0, length, null);
+        length = 0;
+        size = 0;
+        sorted = true;
+    }
+
+    /**
+     * Значения в порядке возрастания id. Изменять хранилище во время обхода нельзя.
+     * Поток по коллекции делится по отрезкам массива, поэтому {@code parallel()} раздаёт их потокам.
+     */
+    Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return iteratorFrom(0);
+            }
+
+            @Override
+            public Spliterator<V> spliterator() {
+                ensureSorted();
+                // Без дыр размер каждого отрезка точный
+                int characteristics = Spliterator.ORDERED | Spliterator.NONNULL
+                        | (size == length ? Spliterator.SIZED | Spliterator.SUBSIZED : 0);
+                return new ValuesSpliterator<>(values, 0, length, characteristics);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * До limit значений с id больше afterId в порядке возрастания id.
+     */
+    List<V> page(int afterId, int limit) {
+        List<V> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<V> iterator = iteratorFrom(afterId == Integer.MAX_VALUE ? length : firstAfter(afterId));
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    private Iterator<V> iteratorFrom(int start) {
+        ensureSorted();
+        return new Iterator<>() {
+            private int next = skipHoles(start);
+
+            @Override
+            public boolean hasNext() {
+                return next < length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (next >= length) {
+                    throw new NoSuchElementException();
+                }
+                V value = (V) values[next];
+                next = skipHoles(next + 1);
+                return value;
+            }
+        };
+    }
+
+    private int skipHoles(int position) {
+        while (position < length && values[position] == null) {
+            position++;
+        }
+        return position;
+    }
+
+    private int firstAfter(int afterId) {
+        ensureSorted();
+        // У дыр id сохраняется, поэтому массив ids остаётся упорядоченным
+        int position = Arrays.binarySearch(ids, 0, length, afterId + 1);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    private void grow() {
+        // Если дыр много, достаточно уплотнить массивы на месте
+        if (size * 4 < length * 3) {
+            compact();
+            return;
+        }
+        int capacity = length + (length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int position = 0; position < length; position++) {
+            if (values[position] != null) {
+                if (target != position) {
+                    ids[target] = ids[position];
+                    values[target] = values[position];
+                    positions.put(ids[target], target);
+                }
+                target++;
+            }
+        }
+        Arrays.fill(values, target, length, null);
+        length = target;
+    }
+
+    private void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+        compact();
+        // Сортировка пар (id, позиция), упакованных в long, без объектов на элемент
+        long[] order = new long[length];
+        for (int position = 0; position < length; position++) {
+            order[position] = (long) ids[position] << 32 | position;
+        }
+        Arrays.sort(order);
+        Object[] sortedValues = new Object[values.length];
+        for (int position = 0; position < length; position++) {
+            int id = (int) (order[position] >> 32);
+            ids[position] = id;
+            sortedValues[position] = values[(int) order[position]];
+            positions.put(id, position);
+        }
+        values = sortedValues;
+        sorted = true;
+    }
+
+    /**
+     * Обход отрезка массива значений с пропуском дыр. Делится пополам по позициям.
+     */
+    private static final class ValuesSpliterator<V> implements Spliterator<V> {
+        private final Object[] values;
+        private int position;
+        private final int end;
+        private final int characteristics;
+
+        ValuesSpliterator(Object[] values, int position, int end, int characteristics) {
+            this.values = values;
+            this.position = position;
+            this.end = end;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (position < end) {
+                Object value = values[position++];
+                if (value != null) {
+                    action.accept((V) value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            int from = position;
+            position = end;
+            for (int index = from; index < end; index++) {
+                Object value = values[index];
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int middle = (position + end) >>> 1;
+            if (middle <= position) {
+                return null;
+            }
+            Spliterator<V> prefix = new ValuesSpliterator<>(values, position, middle, characteristics);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+}
@@ -42,6 +42,11 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
+    @Override
+    public int size() {
+        return historyMap.size();
+    }
+
     @Override
     public List<Task> getHistory() {
         List<Task> history = new ArrayList<>();
@@ -1,29 +1,76 @@
 package manager;
 
 import model.Epic;
+import model.EpicView;
 import model.Subtask;
+import model.SubtaskView;
 import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import model.TaskView;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * Однопоточная реализация {@link TaskManager} в памяти. Сущности копируются при добавлении и обновлении,
+ * а методы чтения отдают копии, поэтому изменение полученных объектов не затрагивает менеджер.
+ */
 public class InMemoryTaskManager implements TaskManager {
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
-    private final HistoryManager historyManager = new InMemoryHistoryManager();
-    private int nextId = 1;
+    // Упорядочены по id, чтобы обход и постраничное чтение были стабильными
+    protected final IdMap<Task> tasks = new IdMap<>();
+    protected final IdMap<Epic> epics = new IdMap<>();
+    protected final IdMap<Subtask> subtasks = new IdMap<>();
+    protected final HistoryManager historyManager;
+    protected final UserHistoryRegistry userHistories;
+    protected final PrioritizedIndex prioritizedTasks = new PrioritizedIndex();
+    protected int nextId = 1;
+    private final TaskEventBus events = new TaskEventBus();
+    private final AuditLog auditLog;
+    // Вторичные индексы строятся при первом запросе, до этого изменения их не затрагивают
+    private SecondaryIndex index;
+    private TextIndex textIndex;
+
+    public InMemoryTaskManager() {
+        this(new InMemoryHistoryManager());
+    }
+
+    // Например, new BoundedHistoryManager(capacity) для истории ограниченного размера
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new UserHistoryRegistry());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager, UserHistoryRegistry userHistories) {
+        this(historyManager, userHistories, null);
+    }
+
+    // Каждое изменение записывается в auditLog; один журнал ведёт один менеджер
+    public InMemoryTaskManager(AuditLog auditLog) {
+        this(new InMemoryHistoryManager(), new UserHistoryRegistry(), auditLog);
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager, UserHistoryRegistry userHistories, AuditLog auditLog) {
+        this.historyManager = historyManager;
+        this.userHistories = userHistories;
+        this.auditLog = auditLog;
+        if (auditLog != null) {
+            auditLog.attach();
+        }
+    }
 
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return Entities.copyAll(new ArrayList<>(tasks.values()));
     }
 
     @Override
     public void deleteAllTasks() {
-        for (Integer id : tasks.keySet()) {
-            historyManager.remove(id);
+        for (Task task : tasks.values()) {
+            historyManager.remove(task.getId());
+            prioritizedTasks.remove(task);
+            removed(task);
         }
         tasks.clear();
     }
@@ -34,41 +81,62 @@ public class InMemoryTaskManager implements TaskManager {
         if (task != null) {
             historyManager.add(task);
         }
-        return task;
+        return Entities.copy(task);
     }
 
     @Override
     public Task addTask(Task task) {
+        Task savedTask = new Task(task);
+        savedTask.setId(nextId);
+        checkTimeSlot(savedTask);
+
         task.setId(nextId++);
-        tasks.put(task.getId(), task);
+        insertTask(savedTask);
+        task.setVersion(savedTask.getVersion());
         return task;
     }
 
     @Override
     public void updateTask(Task task) {
-        if (tasks.containsKey(task.getId())) {
-            tasks.put(task.getId(), task);
+        Task oldTask = tasks.get(task.getId());
+        if (oldTask != null) {
+            Task savedTask = new Task(task);
+            checkTimeSlot(savedTask);
+            replaceTask(oldTask, savedTask);
+            task.setVersion(savedTask.getVersion());
         }
     }
 
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        Task oldTask = tasks.get(task.getId());
+        if (oldTask == null || oldTask.getVersion() != expectedVersion) {
+            return false;
+        }
+        updateTask(task);
+        return true;
+    }
+
     @Override
     public void deleteTask(int id) {
-        tasks.remove(id);
-        historyManager.remove(id);
+        removeTask(id);
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return Entities.copyAll(new ArrayList<>(epics.values()));
     }
 
     @Override
     public void deleteAllEpics() {
-        for (Integer id : epics.keySet()) {
-            historyManager.remove(id);
+        for (Epic epic : epics.values()) {
+            historyManager.remove(epic.getId());
+            removed(epic);
         }
-        for (Integer id : subtasks.keySet()) {
-            historyManager.remove(id);
+        for (Subtask subtask : subtasks.values()) {
+            historyManager.remove(subtask.getId());
+            prioritizedTasks.remove(subtask);
+            removed(subtask);
         }
         epics.clear();
         subtasks.clear();
@@ -80,35 +148,40 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic != null) {
             historyManager.add(epic);
         }
-        return epic;
+        return Entities.copy(epic);
     }
 
     @Override
     public Epic addEpic(Epic epic) {
         epic.setId(nextId++);
-        epics.put(epic.getId(), epic);
+        Epic savedEpic = new Epic(epic.getId(), epic.getName(), epic.getDescription());
+        insertEpic(savedEpic);
+        epic.setVersion(savedEpic.getVersion());
         return epic;
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        if (epics.containsKey(epic.getId())) {
-            Epic savedEpic = epics.get(epic.getId());
-            savedEpic.setName(epic.getName());
-            savedEpic.setDescription(epic.getDescription());
+        Epic savedEpic = epics.get(epic.getId());
+        if (savedEpic != null) {
+            renameEpic(savedEpic, epic);
+            epic.setVersion(savedEpic.getVersion());
         }
     }
 
     @Override
-    public void deleteEpic(int id) {
-        Epic epic = epics.remove(id);
-        if (epic != null) {
-            for (Integer subtaskId : epic.getSubtaskIds()) {
-                subtasks.remove(subtaskId);
-                historyManager.remove(subtaskId);
-            }
-            historyManager.remove(id);
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        Epic savedEpic = epics.get(epic.getId());
+        if (savedEpic == null || savedEpic.getVersion() != expectedVersion) {
+            return false;
         }
+        updateEpic(epic);
+        return true;
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        removeEpic(id);
     }
 
     @Override
@@ -119,26 +192,31 @@ public class InMemoryTaskManager implements TaskManager {
         }
 
         List<Subtask> result = new ArrayList<>();
-        for (Integer subtaskId : epic.getSubtaskIds()) {
-            result.add(subtasks.get(subtaskId));
+        for (int i = 0; i < epic.getSubtaskCount(); i++) {
+            int subtaskId = epic.getSubtaskId(i);
+            result.add(new Subtask(subtasks.get(subtaskId)));
         }
         return result;
     }
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return Entities.copyAll(new ArrayList<>(subtasks.values()));
     }
 
     @Override
     public void deleteAllSubtasks() {
-        for (Integer id : subtasks.keySet()) {
-            historyManager.remove(id);
+        for (Subtask subtask : subtasks.values()) {
+            historyManager.remove(subtask.getId());
+            prioritizedTasks.remove(subtask);
+            removed(subtask);
         }
         subtasks.clear();
 
         for (Epic epic : epics.values()) {
-            epic.getSubtaskIds().clear();
+            TaskStatus oldStatus = epic.getStatus();
+            epic.clearSubtaskIds();
+            epicStatusChanged(epic, oldStatus);
         }
     }
 
@@ -148,16 +226,19 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask != null) {
             historyManager.add(subtask);
         }
-        return subtask;
+        return Entities.copy(subtask);
     }
 
     @Override
     public Subtask addSubtask(Subtask subtask) {
         if (epics.containsKey(subtask.getEpicId())) {
+            Subtask savedSubtask = new Subtask(subtask);
+            savedSubtask.setId(nextId);
+            checkTimeSlot(savedSubtask);
+
             subtask.setId(nextId++);
-            subtasks.put(subtask.getId(), subtask);
-            Epic epic = epics.get(subtask.getEpicId());
-            epic.addSubtaskId(subtask.getId());
+            insertSubtask(savedSubtask);
+            subtask.setVersion(savedSubtask.getVersion());
             return subtask;
         }
         return null;
@@ -165,25 +246,462 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        if (subtasks.containsKey(subtask.getId())) {
-            subtasks.put(subtask.getId(), subtask);
+        Subtask oldSubtask = subtasks.get(subtask.getId());
+        // Подзадача не может сменить эпик
+        if (oldSubtask != null && oldSubtask.getEpicId() == subtask.getEpicId()) {
+            Subtask savedSubtask = new Subtask(subtask);
+            checkTimeSlot(savedSubtask);
+            replaceSubtask(oldSubtask, savedSubtask);
+            subtask.setVersion(savedSubtask.getVersion());
         }
     }
 
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        Subtask oldSubtask = subtasks.get(subtask.getId());
+        if (oldSubtask == null || oldSubtask.getVersion() != expectedVersion
+                || oldSubtask.getEpicId() != subtask.getEpicId()) {
+            return false;
+        }
+        updateSubtask(subtask);
+        return true;
+    }
+
     @Override
     public void deleteSubtask(int id) {
+        removeSubtask(id);
+    }
+
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        List<TaskBatch.Operation> operations = BatchPlan.resolve(batch, nextId, this::find, prioritizedTasks);
+        int firstId = nextId;
+        applyOperations(operations);
+        nextId = Math.max(nextId, firstId + batch.createCount());
+        return batch.assignIds(firstId);
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return Entities.copyAll(Paging.page(tasks, afterId, limit));
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return Entities.copyAll(Paging.page(epics, afterId, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return Entities.copyAll(Paging.page(subtasks, afterId, limit));
+    }
+
+    // get* отдают копии, и хранимые объекты не покидают менеджер: представление строится прямо по хранимому
+    // объекту и переиспользуется до изменения сущности
+    @Override
+    public TaskView getTaskView(int id) {
+        Task task = tasks.get(id);
+        return task == null ? null : TaskView.of(task);
+    }
+
+    @Override
+    public EpicView getEpicView(int id) {
+        Epic epic = epics.get(id);
+        return epic == null ? null : EpicView.of(epic);
+    }
+
+    @Override
+    public SubtaskView getSubtaskView(int id) {
+        Subtask subtask = subtasks.get(id);
+        return subtask == null ? null : SubtaskView.of(subtask);
+    }
+
+    @Override
+    public List<TaskView> getTaskViews(int afterId, int limit) {
+        return views(Paging.page(tasks, afterId, limit), TaskView::of);
+    }
+
+    @Override
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        return views(Paging.page(epics, afterId, limit), EpicView::of);
+    }
+
+    @Override
+    public List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        return views(Paging.page(subtasks, afterId, limit), SubtaskView::of);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream().map(Task::copy);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream().map(Epic::copy);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream().map(Subtask::copy);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return collect(index().withStatus(TaskType.TASK, status), tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return collect(index().withStatus(TaskType.EPIC, status), epics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return collect(index().withStatus(TaskType.SUBTASK, status), subtasks);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, TaskStatus status) {
+        Epic epic = epics.get(epicId);
+        List<Subtask> result = new ArrayList<>();
+        // Счётчики статусов эпика позволяют не просматривать подзадачи, если совпадений нет
+        if (epic == null || epic.getSubtaskCount(status) == 0) {
+            return result;
+        }
+
+        for (int i = 0; i < epic.getSubtaskCount(); i++) {
+            int subtaskId = epic.getSubtaskId(i);
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask.getStatus() == status) {
+                result.add(new Subtask(subtask));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> findByNamePrefix(String prefix) {
+        BitSet ids = index().withNamePrefix(prefix);
+        List<Task> result = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            result.add(task.copy());
+        }
+        return result;
+    }
+
+    @Override
+    public int[] search(String query, int limit) {
+        return textIndex().search(query, limit);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return Entities.copyAll(new ArrayList<>(historyManager.getHistory()));
+    }
+
+    @Override
+    public int taskCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public int epicCount() {
+        return epics.size();
+    }
+
+    @Override
+    public int subtaskCount() {
+        return subtasks.size();
+    }
+
+    @Override
+    public int historySize() {
+        return historyManager.size();
+    }
+
+    @Override
+    public Task getTask(String userId, int id) {
+        Task task = tasks.get(id);
+        userHistories.add(userId, task);
+        return Entities.copy(task);
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        Epic epic = epics.get(id);
+        userHistories.add(userId, epic);
+        return Entities.copy(epic);
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        Subtask subtask = subtasks.get(id);
+        userHistories.add(userId, subtask);
+        return Entities.copy(subtask);
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        return Entities.copyAll(userHistories.getHistory(userId, this::contains));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return Entities.copyAll(prioritizedTasks.toList());
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        return events.subscribe(listener, capacity, coalesce);
+    }
+
+    // Применяет уже проверенные операции пакета без повторных проверок
+    protected void applyOperations(List<TaskBatch.Operation> operations) {
+        for (TaskBatch.Operation operation : operations) {
+            int id = operation.id();
+            switch (operation.kind()) {
+                case ADD -> {
+                    switch (operation.type()) {
+                        case TASK -> insertTask(operation.task());
+                        case EPIC -> insertEpic((Epic) operation.task());
+                        case SUBTASK -> insertSubtask((Subtask) operation.task());
+                    }
+                    nextId = Math.max(nextId, id + 1);
+                }
+                case UPDATE -> {
+                    switch (operation.type()) {
+                        case TASK -> replaceTask(tasks.get(id), operation.task());
+                        case EPIC -> renameEpic(epics.get(id), (Epic) operation.task());
+                        case SUBTASK -> replaceSubtask(subtasks.get(id), (Subtask) operation.task());
+                    }
+                }
+                case DELETE -> {
+                    switch (operation.type()) {
+                        case TASK -> removeTask(id);
+                        case EPIC -> removeEpic(id);
+                        case SUBTASK -> removeSubtask(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertTask(Task savedTask) {
+        savedTask.setVersion(1);
+        tasks.put(savedTask.getId(), savedTask);
+        prioritizedTasks.add(savedTask);
+        added(savedTask);
+    }
+
+    private void replaceTask(Task oldTask, Task savedTask) {
+        savedTask.setVersion(oldTask.getVersion() + 1);
+        prioritizedTasks.remove(oldTask);
+        tasks.put(savedTask.getId(), savedTask);
+        prioritizedTasks.add(savedTask);
+        replaced(oldTask, savedTask);
+    }
+
+    private void removeTask(int id) {
+        Task task = tasks.remove(id);
+        if (task != null) {
+            prioritizedTasks.remove(task);
+            removed(task);
+        }
+        historyManager.remove(id);
+    }
+
+    private void insertEpic(Epic savedEpic) {
+        savedEpic.setVersion(1);
+        epics.put(savedEpic.getId(), savedEpic);
+        added(savedEpic);
+    }
+
+    private void renameEpic(Epic savedEpic, Epic epic) {
+        if (index != null) {
+            index.rename(savedEpic.getId(), savedEpic.getName(), epic.getName());
+        }
+        // Эпик меняется на месте: из текстового индекса он убирается по старому тексту
+        boolean reindex = textIndex != null && TextIndex.textChanged(savedEpic, epic);
+        if (reindex) {
+            textIndex.remove(savedEpic);
+        }
+        String oldName = savedEpic.getName();
+        String oldDescription = savedEpic.getDescription();
+        savedEpic.setName(epic.getName());
+        savedEpic.setDescription(epic.getDescription());
+        savedEpic.setVersion(savedEpic.getVersion() + 1);
+        if (reindex) {
+            textIndex.add(savedEpic);
+        }
+        if (auditLog != null) {
+            auditLog.renamed(savedEpic, oldName, oldDescription);
+        }
+        events.publish(TaskEvent.Type.UPDATED, savedEpic);
+    }
+
+    private void removeEpic(int id) {
+        Epic epic = epics.remove(id);
+        if (epic != null) {
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                int subtaskId = epic.getSubtaskId(i);
+                Subtask subtask = subtasks.remove(subtaskId);
+                prioritizedTasks.remove(subtask);
+                removed(subtask);
+                historyManager.remove(subtaskId);
+            }
+            removed(epic);
+            historyManager.remove(id);
+        }
+    }
+
+    private void insertSubtask(Subtask savedSubtask) {
+        savedSubtask.setVersion(1);
+        subtasks.put(savedSubtask.getId(), savedSubtask);
+        prioritizedTasks.add(savedSubtask);
+        added(savedSubtask);
+        Epic epic = epics.get(savedSubtask.getEpicId());
+        TaskStatus oldStatus = epic.getStatus();
+        epic.addSubtaskId(savedSubtask.getId(), savedSubtask.getStatus());
+        epicStatusChanged(epic, oldStatus);
+    }
+
+    private void replaceSubtask(Subtask oldSubtask, Subtask savedSubtask) {
+        savedSubtask.setVersion(oldSubtask.getVersion() + 1);
+        prioritizedTasks.remove(oldSubtask);
+        subtasks.put(savedSubtask.getId(), savedSubtask);
+        prioritizedTasks.add(savedSubtask);
+        replaced(oldSubtask, savedSubtask);
+        Epic epic = epics.get(oldSubtask.getEpicId());
+        TaskStatus oldStatus = epic.getStatus();
+        epic.changeSubtaskStatus(oldSubtask.getStatus(), savedSubtask.getStatus());
+        epicStatusChanged(epic, oldStatus);
+    }
+
+    private void removeSubtask(int id) {
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
+            prioritizedTasks.remove(subtask);
+            removed(subtask);
             Epic epic = epics.get(subtask.getEpicId());
             if (epic != null) {
-                epic.removeSubtaskId(id);
+                TaskStatus oldStatus = epic.getStatus();
+                epic.removeSubtaskId(id, subtask.getStatus());
+                epicStatusChanged(epic, oldStatus);
             }
             historyManager.remove(id);
         }
     }
 
-    @Override
-    public List<Task> getHistory() {
-        return historyManager.getHistory();
+    private Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task != null ? task : subtasks.get(id);
+    }
+
+    private SecondaryIndex index() {
+        if (index == null) {
+            // Поле задаётся только после полного построения, чтобы ошибка не оставила индекс недостроенным
+            SecondaryIndex built = new SecondaryIndex();
+            tasks.values().forEach(built::add);
+            epics.values().forEach(built::add);
+            subtasks.values().forEach(built::add);
+            index = built;
+        }
+        return index;
+    }
+
+    private TextIndex textIndex() {
+        if (textIndex == null) {
+            TextIndex built = new TextIndex();
+            tasks.values().forEach(built::add);
+            epics.values().forEach(built::add);
+            subtasks.values().forEach(built::add);
+            textIndex = built;
+        }
+        return textIndex;
+    }
+
+    // Все изменения хранилища проходят через added, removed, replaced и epicStatusChanged:
+    // они поддерживают вторичные индексы, журнал аудита и публикуют события подписчикам
+    private void added(Task task) {
+        if (index != null) {
+            index.add(task);
+        }
+        if (textIndex != null) {
+            textIndex.add(task);
+        }
+        if (auditLog != null) {
+            auditLog.created(task);
+        }
+        events.publish(TaskEvent.Type.CREATED, task);
+    }
+
+    private void removed(Task task) {
+        if (index != null) {
+            index.remove(task);
+        }
+        if (textIndex != null) {
+            textIndex.remove(task);
+        }
+        if (auditLog != null) {
+            auditLog.deleted(task);
+        }
+        events.publish(TaskEvent.Type.DELETED, task);
+    }
+
+    private void replaced(Task oldTask, Task newTask) {
+        if (index != null) {
+            index.replace(oldTask, newTask);
+        }
+        if (textIndex != null) {
+            textIndex.replace(oldTask, newTask);
+        }
+        if (auditLog != null) {
+            auditLog.updated(oldTask, newTask);
+        }
+        events.publish(TaskEvent.Type.UPDATED, newTask);
+    }
+
+    private void epicStatusChanged(Epic epic, TaskStatus oldStatus) {
+        if (index != null) {
+            index.changeStatus(TaskType.EPIC, epic.getId(), oldStatus, epic.getStatus());
+        }
+        events.publishEpicStatus(epic, oldStatus);
+    }
+
+    private static <T extends Task, V> List<V> views(List<T> page, Function<T, V> view) {
+        List<V> views = new ArrayList<>(page.size());
+        for (T task : page) {
+            views.add(view.apply(task));
+        }
+        return views;
+    }
+
+    private static <T extends Task> List<T> collect(BitSet ids, IdMap<T> storage) {
+        List<T> result = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(Entities.copy(storage.get(id)));
+        }
+        return result;
+    }
+
+    protected boolean contains(int id) {
+        return tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id);
+    }
+
+    protected void checkTimeSlot(Task task) {
+        if (prioritizedTasks.overlaps(task)) {
+            throw new ManagerValidationException("Время задачи " + task.getName() + " пересекается с другой задачей");
+        }
     }
 }
\ No newline at end of file
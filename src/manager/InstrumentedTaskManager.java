@@ -0,0 +1,742 @@
+package manager;
+
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.SubtaskView;
+import model.Task;
+import model.TaskStatus;
+import model.TaskView;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Обёртка над любым {@link TaskManager}, которая считает вызовы и задержки каждой операции.
+ * <p>
+ * Подключается без изменения вызывающего кода: достаточно передать обёртку вместо менеджера.
+ * Вызовы считаются точно, а задержка измеряется у случайной выборки в среднем из одного вызова
+ * на sampleInterval: System.nanoTime() стоит десятки наносекунд, и два замера на каждый вызов
+ * заметно замедлили бы дешёвые операции вроде getTask. Задержки пишутся в {@link LatencyHistogram}
+ * без блокировок; для stream* измеряется только создание потока.
+ * <p>
+ * Статистика доступна через {@link #calls(TaskOperation)} и {@link #latency(TaskOperation)}, текстом
+ * через {@link #dump()} и по JMX после {@link #registerMBeans(String)}. Размеры хранилища и истории
+ * вычисляются при запросе и в статистику операций не попадают.
+ */
+public class InstrumentedTaskManager implements TaskManager {
+    public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+    private static final String DOMAIN = "manager";
+    // Вызов без замера времени; System.nanoTime() может вернуть любое другое значение
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final TaskManager delegate;
+    private final int sampleInterval;
+    private final LongAdder[] calls = new LongAdder[TaskOperation.values().length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[TaskOperation.values().length];
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    public InstrumentedTaskManager(TaskManager delegate) {
+        this(delegate, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    // sampleInterval = 1 измеряет каждый вызов
+    public InstrumentedTaskManager(TaskManager delegate, int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Интервал выборки должен быть положительным: " + sampleInterval);
+        }
+        this.delegate = delegate;
+        this.sampleInterval = sampleInterval;
+        for (int i = 0; i < latencies.length; i++) {
+            calls[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    public long calls(TaskOperation operation) {
+        return calls[operation.ordinal()].sum();
+    }
+
+    // Задержки выборки вызовов операции
+    public LatencyHistogram latency(TaskOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    // Размеры берутся у менеджера без обхода и не учитываются как вызовы операций
+    @Override
+    public int taskCount() {
+        return delegate.taskCount();
+    }
+
+    @Override
+    public int epicCount() {
+        return delegate.epicCount();
+    }
+
+    @Override
+    public int subtaskCount() {
+        return delegate.subtaskCount();
+    }
+
+    @Override
+    public int historySize() {
+        return delegate.historySize();
+    }
+
+    /**
+     * Размеры хранилища и таблица по вызывавшимся операциям: число вызовов, число замеров
+     * и задержки в микросекундах.
+     */
+    public String dump() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT, "tasks=%d epics=%d subtasks=%d history=%d%n",
+                taskCount(), epicCount(), subtaskCount(), historySize()));
+        result.append(String.format(Locale.ROOT, "%-26s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "calls", "sampled", "mean", "p50", "p99", "p99.9", "max"));
+        for (TaskOperation operation : TaskOperation.values()) {
+            long count = calls(operation);
+            if (count == 0) {
+                continue;
+            }
+            LatencyHistogram histogram = latency(operation);
+            result.append(String.format(Locale.ROOT, "%-26s %10d %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.displayName(), count, histogram.count(), histogram.mean() / 1_000,
+                    micros(histogram.percentile(50)), micros(histogram.percentile(99)),
+                    micros(histogram.percentile(99.9)), micros(histogram.max())));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Регистрирует в платформенном MBeanServer сводку {@code manager:type=TaskManager,name=<name>}
+     * и по MBean на операцию {@code manager:type=TaskManagerOperation,name=<name>,operation=<операция>}.
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String quotedName = ObjectName.quote(name);
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=TaskManager,name=" + quotedName),
+                    new StandardMBean(new Metrics(), TaskManagerMetricsMXBean.class, true));
+            for (TaskOperation operation : TaskOperation.values()) {
+                ObjectName objectName = new ObjectName(DOMAIN + ":type=TaskManagerOperation,name=" + quotedName
+                        + ",operation=" + operation.displayName());
+                register(server, objectName, new StandardMBean(new OperationMetrics(operation),
+                        OperationMetricsMXBean.class, true));
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new IllegalStateException("Не удалось зарегистрировать MBean: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (InstanceNotFoundException e) {
+                // Уже снят снаружи
+            } catch (JMException e) {
+                throw new IllegalStateException("Не удалось снять MBean " + objectName, e);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        long start = begin(TaskOperation.GET_ALL_TASKS);
+        try {
+            return delegate.getAllTasks();
+        } finally {
+            end(TaskOperation.GET_ALL_TASKS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        long start = begin(TaskOperation.DELETE_ALL_TASKS);
+        try {
+            delegate.deleteAllTasks();
+        } finally {
+            end(TaskOperation.DELETE_ALL_TASKS, start);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        long start = begin(TaskOperation.GET_TASK);
+        try {
+            return delegate.getTask(id);
+        } finally {
+            end(TaskOperation.GET_TASK, start);
+        }
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        long start = begin(TaskOperation.ADD_TASK);
+        try {
+            return delegate.addTask(task);
+        } finally {
+            end(TaskOperation.ADD_TASK, start);
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        long start = begin(TaskOperation.UPDATE_TASK);
+        try {
+            delegate.updateTask(task);
+        } finally {
+            end(TaskOperation.UPDATE_TASK, start);
+        }
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        long start = begin(TaskOperation.UPDATE_TASK);
+        try {
+            return delegate.updateTask(task, expectedVersion);
+        } finally {
+            end(TaskOperation.UPDATE_TASK, start);
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        long start = begin(TaskOperation.DELETE_TASK);
+        try {
+            delegate.deleteTask(id);
+        } finally {
+            end(TaskOperation.DELETE_TASK, start);
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        long start = begin(TaskOperation.GET_ALL_EPICS);
+        try {
+            return delegate.getAllEpics();
+        } finally {
+            end(TaskOperation.GET_ALL_EPICS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        long start = begin(TaskOperation.DELETE_ALL_EPICS);
+        try {
+            delegate.deleteAllEpics();
+        } finally {
+            end(TaskOperation.DELETE_ALL_EPICS, start);
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        long start = begin(TaskOperation.GET_EPIC);
+        try {
+            return delegate.getEpic(id);
+        } finally {
+            end(TaskOperation.GET_EPIC, start);
+        }
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        long start = begin(TaskOperation.ADD_EPIC);
+        try {
+            return delegate.addEpic(epic);
+        } finally {
+            end(TaskOperation.ADD_EPIC, start);
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        long start = begin(TaskOperation.UPDATE_EPIC);
+        try {
+            delegate.updateEpic(epic);
+        } finally {
+            end(TaskOperation.UPDATE_EPIC, start);
+        }
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        long start = begin(TaskOperation.UPDATE_EPIC);
+        try {
+            return delegate.updateEpic(epic, expectedVersion);
+        } finally {
+            end(TaskOperation.UPDATE_EPIC, start);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        long start = begin(TaskOperation.DELETE_EPIC);
+        try {
+            delegate.deleteEpic(id);
+        } finally {
+            end(TaskOperation.DELETE_EPIC, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        long start = begin(TaskOperation.GET_EPIC_SUBTASKS);
+        try {
+            return delegate.getEpicSubtasks(epicId);
+        } finally {
+            end(TaskOperation.GET_EPIC_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        long start = begin(TaskOperation.GET_ALL_SUBTASKS);
+        try {
+            return delegate.getAllSubtasks();
+        } finally {
+            end(TaskOperation.GET_ALL_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        long start = begin(TaskOperation.DELETE_ALL_SUBTASKS);
+        try {
+            delegate.deleteAllSubtasks();
+        } finally {
+            end(TaskOperation.DELETE_ALL_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        long start = begin(TaskOperation.GET_SUBTASK);
+        try {
+            return delegate.getSubtask(id);
+        } finally {
+            end(TaskOperation.GET_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        long start = begin(TaskOperation.ADD_SUBTASK);
+        try {
+            return delegate.addSubtask(subtask);
+        } finally {
+            end(TaskOperation.ADD_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        long start = begin(TaskOperation.UPDATE_SUBTASK);
+        try {
+            delegate.updateSubtask(subtask);
+        } finally {
+            end(TaskOperation.UPDATE_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        long start = begin(TaskOperation.UPDATE_SUBTASK);
+        try {
+            return delegate.updateSubtask(subtask, expectedVersion);
+        } finally {
+            end(TaskOperation.UPDATE_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        long start = begin(TaskOperation.DELETE_SUBTASK);
+        try {
+            delegate.deleteSubtask(id);
+        } finally {
+            end(TaskOperation.DELETE_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        long start = begin(TaskOperation.APPLY_BATCH);
+        try {
+            return delegate.applyBatch(batch);
+        } finally {
+            end(TaskOperation.APPLY_BATCH, start);
+        }
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_TASKS_PAGE);
+        try {
+            return delegate.getTasks(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_TASKS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_EPICS_PAGE);
+        try {
+            return delegate.getEpics(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_EPICS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_SUBTASKS_PAGE);
+        try {
+            return delegate.getSubtasks(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_SUBTASKS_PAGE, start);
+        }
+    }
+
+    @Override
+    public TaskView getTaskView(int id) {
+        long start = begin(TaskOperation.GET_TASK_VIEW);
+        try {
+            return delegate.getTaskView(id);
+        } finally {
+            end(TaskOperation.GET_TASK_VIEW, start);
+        }
+    }
+
+    @Override
+    public EpicView getEpicView(int id) {
+        long start = begin(TaskOperation.GET_EPIC_VIEW);
+        try {
+            return delegate.getEpicView(id);
+        } finally {
+            end(TaskOperation.GET_EPIC_VIEW, start);
+        }
+    }
+
+    @Override
+    public SubtaskView getSubtaskView(int id) {
+        long start = begin(TaskOperation.GET_SUBTASK_VIEW);
+        try {
+            return delegate.getSubtaskView(id);
+        } finally {
+            end(TaskOperation.GET_SUBTASK_VIEW, start);
+        }
+    }
+
+    @Override
+    public List<TaskView> getTaskViews(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_TASK_VIEWS_PAGE);
+        try {
+            return delegate.getTaskViews(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_TASK_VIEWS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_EPIC_VIEWS_PAGE);
+        try {
+            return delegate.getEpicViews(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_EPIC_VIEWS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        long start = begin(TaskOperation.GET_SUBTASK_VIEWS_PAGE);
+        try {
+            return delegate.getSubtaskViews(afterId, limit);
+        } finally {
+            end(TaskOperation.GET_SUBTASK_VIEWS_PAGE, start);
+        }
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        long start = begin(TaskOperation.STREAM_TASKS);
+        try {
+            return delegate.streamTasks();
+        } finally {
+            end(TaskOperation.STREAM_TASKS, start);
+        }
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        long start = begin(TaskOperation.STREAM_EPICS);
+        try {
+            return delegate.streamEpics();
+        } finally {
+            end(TaskOperation.STREAM_EPICS, start);
+        }
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        long start = begin(TaskOperation.STREAM_SUBTASKS);
+        try {
+            return delegate.streamSubtasks();
+        } finally {
+            end(TaskOperation.STREAM_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        long start = begin(TaskOperation.GET_TASKS_BY_STATUS);
+        try {
+            return delegate.getTasksByStatus(status);
+        } finally {
+            end(TaskOperation.GET_TASKS_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        long start = begin(TaskOperation.GET_EPICS_BY_STATUS);
+        try {
+            return delegate.getEpicsByStatus(status);
+        } finally {
+            end(TaskOperation.GET_EPICS_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        long start = begin(TaskOperation.GET_SUBTASKS_BY_STATUS);
+        try {
+            return delegate.getSubtasksByStatus(status);
+        } finally {
+            end(TaskOperation.GET_SUBTASKS_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, TaskStatus status) {
+        long start = begin(TaskOperation.GET_EPIC_SUBTASKS_BY_STATUS);
+        try {
+            return delegate.getEpicSubtasks(epicId, status);
+        } finally {
+            end(TaskOperation.GET_EPIC_SUBTASKS_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Task> findByNamePrefix(String prefix) {
+        long start = begin(TaskOperation.FIND_BY_NAME_PREFIX);
+        try {
+            return delegate.findByNamePrefix(prefix);
+        } finally {
+            end(TaskOperation.FIND_BY_NAME_PREFIX, start);
+        }
+    }
+
+    @Override
+    public int[] search(String query, int limit) {
+        long start = begin(TaskOperation.SEARCH);
+        try {
+            return delegate.search(query, limit);
+        } finally {
+            end(TaskOperation.SEARCH, start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = begin(TaskOperation.GET_HISTORY);
+        try {
+            return delegate.getHistory();
+        } finally {
+            end(TaskOperation.GET_HISTORY, start);
+        }
+    }
+
+    @Override
+    public Task getTask(String userId, int id) {
+        long start = begin(TaskOperation.GET_TASK);
+        try {
+            return delegate.getTask(userId, id);
+        } finally {
+            end(TaskOperation.GET_TASK, start);
+        }
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        long start = begin(TaskOperation.GET_EPIC);
+        try {
+            return delegate.getEpic(userId, id);
+        } finally {
+            end(TaskOperation.GET_EPIC, start);
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        long start = begin(TaskOperation.GET_SUBTASK);
+        try {
+            return delegate.getSubtask(userId, id);
+        } finally {
+            end(TaskOperation.GET_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        long start = begin(TaskOperation.GET_HISTORY);
+        try {
+            return delegate.getHistory(userId);
+        } finally {
+            end(TaskOperation.GET_HISTORY, start);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long start = begin(TaskOperation.GET_PRIORITIZED_TASKS);
+        try {
+            return delegate.getPrioritizedTasks();
+        } finally {
+            end(TaskOperation.GET_PRIORITIZED_TASKS, start);
+        }
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        long start = begin(TaskOperation.SUBSCRIBE);
+        try {
+            return delegate.subscribe(listener, capacity, coalesce);
+        } finally {
+            end(TaskOperation.SUBSCRIBE, start);
+        }
+    }
+
+    private long begin(TaskOperation operation) {
+        calls[operation.ordinal()].increment();
+        if (sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0) {
+            return System.nanoTime();
+        }
+        return NOT_SAMPLED;
+    }
+
+    private void end(TaskOperation operation, long start) {
+        if (start != NOT_SAMPLED) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName objectName, Object mbean) throws JMException {
+        server.registerMBean(mbean, objectName);
+        registeredNames.add(objectName);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private class Metrics implements TaskManagerMetricsMXBean {
+        @Override
+        public long getTaskCount() {
+            return taskCount();
+        }
+
+        @Override
+        public long getEpicCount() {
+            return epicCount();
+        }
+
+        @Override
+        public long getSubtaskCount() {
+            return subtaskCount();
+        }
+
+        @Override
+        public int getHistorySize() {
+            return historySize();
+        }
+
+        @Override
+        public long getOperationCount() {
+            long total = 0;
+            for (LongAdder counter : calls) {
+                total += counter.sum();
+            }
+            return total;
+        }
+
+        @Override
+        public String getDump() {
+            return dump();
+        }
+    }
+
+    private class OperationMetrics implements OperationMetricsMXBean {
+        private final TaskOperation operation;
+        private final LatencyHistogram histogram;
+
+        OperationMetrics(TaskOperation operation) {
+            this.operation = operation;
+            this.histogram = latency(operation);
+        }
+
+        @Override
+        public long getCount() {
+            return calls(operation);
+        }
+
+        @Override
+        public long getSampledCount() {
+            return histogram.count();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return histogram.mean() / 1_000;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return micros(histogram.percentile(50));
+        }
+
+        @Override
+        public double getP99Micros() {
+            return micros(histogram.percentile(99));
+        }
+
+        @Override
+        public double getP999Micros() {
+            return micros(histogram.percentile(99.9));
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return micros(histogram.max());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package manager;
+
+import java.util.Arrays;
+
+/**
+ * Отображение int -> int (значения неотрицательные) на открытой адресации с линейным пробированием.
+ * Пустая ячейка хранит 0 в values, а значения сдвинуты на единицу, поэтому ключ может быть любым.
+ * При удалении хвост цепочки сдвигается назад, так что "надгробий" нет.
+ */
+class IntIntMap {
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == 0) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                return values[i] - 1;
+            }
+        }
+    }
+
+    void put(int key, int value) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == 0) {
+                keys[i] = key;
+                values[i] = value + 1;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value + 1;
+                return;
+            }
+        }
+    }
+
+    int remove(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == 0) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                int previous = values[i] - 1;
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void shiftBack(int hole) {
+        for (int i = (hole + 1) & mask; values[i] != 0; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            // Элемент можно перенести в дыру, если его цепочка начинается не позже неё
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = 0;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                put(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
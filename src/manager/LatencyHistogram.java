@@ -0,0 +1,108 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек в наносекундах с лог-линейными интервалами, как в HdrHistogram:
+ * значения до 32 хранятся точно, а каждая следующая степень двойки делится на 32 равных интервала,
+ * поэтому относительная ошибка перцентилей не больше 1/32. Запись не берёт блокировок
+ * и не выделяет память: одно атомарное увеличение счётчика и чтение максимума.
+ * Чтение статистики обходит все интервалы и рассчитано на редкие запросы мониторинга.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // Значения от 2^41 нс (около 36 минут) попадают в последний интервал
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = SUB_COUNT * (MAX_EXPONENT - SUB_BITS + 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.getAndIncrement(index(nanos));
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // Среднее по серединам интервалов, с той же точностью, что и перцентили
+    public double mean() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                total += count;
+                sum += count * ((lowestValue(i) + highestValue(i)) / 2.0);
+            }
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * Значение, не меньше которого percentile процентов записей: верхняя граница интервала,
+     * но не больше наблюдавшегося максимума.
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Перцентиль должен быть от 0 до 100: " + percentile);
+        }
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    static int index(long nanos) {
+        if (nanos < SUB_COUNT) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        return shift * SUB_COUNT + (int) (nanos >>> shift);
+    }
+
+    private static long lowestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        return (long) (index - shift * SUB_COUNT) << shift;
+    }
+
+    private static long highestValue(int index) {
+        return index < SUB_COUNT ? index : lowestValue(index) + (1L << (index / SUB_COUNT - 1)) - 1;
+    }
+}
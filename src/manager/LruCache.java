@@ -0,0 +1,127 @@
+package manager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш id -> значение ограниченного размера с вытеснением давно не читавшихся записей.
+ * <p>
+ * Ключи разложены по сегментам, каждый - LinkedHashMap в порядке доступа под своим монитором,
+ * поэтому чтения разных id редко конкурируют, а порядок LRU соблюдается в пределах сегмента.
+ * Загрузка значения идёт без блокировки; чтобы она не вернула в кеш устаревшее значение,
+ * каждая инвалидация увеличивает версию сегмента, и {@link #putIfUnchanged} отбрасывает значение,
+ * прочитанное до инвалидации.
+ */
+final class LruCache<V> {
+    private static final int SEGMENTS = 16;
+
+    private static final class Segment<V> extends LinkedHashMap<Integer, V> {
+        private final int capacity;
+        private final LongAdder evictions;
+        long version;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment<V>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    LruCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным: " + capacity);
+        }
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            // Остаток от деления достаётся первым сегментам, чтобы сумма совпала с capacity
+            int segmentCapacity = capacity / SEGMENTS + (i < capacity % SEGMENTS ? 1 : 0);
+            segments[i] = new Segment<>(Math.max(1, segmentCapacity), evictions);
+        }
+    }
+
+    V get(int key) {
+        Segment<V> segment = segment(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    boolean contains(int key) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.containsKey(key);
+        }
+    }
+
+    // Версия сегмента ключа; передаётся в putIfUnchanged после загрузки значения
+    long version(int key) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            return segment.version;
+        }
+    }
+
+    void putIfUnchanged(int key, V value, long version) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            if (segment.version == version) {
+                segment.put(key, value);
+            }
+        }
+    }
+
+    void invalidate(int key) {
+        Segment<V> segment = segment(key);
+        synchronized (segment) {
+            segment.version++;
+            segment.remove(key);
+        }
+    }
+
+    void invalidateAll() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.version++;
+                segment.clear();
+            }
+        }
+    }
+
+    CacheStats stats() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment<V> segment(int key) {
+        // Соседние id попадают в разные сегменты
+        return segments[key & (SEGMENTS - 1)];
+    }
+}
@@ -0,0 +1,7 @@
+package manager;
+
+public class ManagerSaveException extends RuntimeException {
+    public ManagerSaveException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package manager;
+
+public class ManagerValidationException extends RuntimeException {
+    public ManagerValidationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,427 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Компактный бинарный снапшот всего состояния {@link InMemoryTaskManager}, который читается
+ * через {@link MappedByteBuffer}.
+ * <p>
+ * Формат: заголовок, затем записи сущностей фиксированной длины вместе с их версиями (эпик и сразу
+ * за ним его подзадачи в порядке эпика, затем обычные задачи), затем id из истории просмотров
+ * и в конце область со строками в UTF-8. При ленивой загрузке название и описание
+ * декодируются из отображённого файла только при первом обращении.
+ */
+public final class MappedSnapshot {
+    private static final int MAGIC = 0x4B414E4D;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = Integer.BYTES * 5;
+    private static final int RECORD_SIZE = Byte.BYTES * 2 + Integer.BYTES * 6 + TimeEncoding.BYTES * 2 + Long.BYTES;
+    private static final int NAME_OFFSET = Byte.BYTES * 2 + Integer.BYTES * 2;
+    private static final int DESCRIPTION_OFFSET = NAME_OFFSET + Integer.BYTES * 2;
+    private static final int START_TIME_OFFSET = DESCRIPTION_OFFSET + Integer.BYTES * 2;
+    private static final int DURATION_OFFSET = START_TIME_OFFSET + TimeEncoding.BYTES;
+    private static final int ENTITY_VERSION_OFFSET = DURATION_OFFSET + TimeEncoding.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private MappedSnapshot() {
+    }
+
+    public static void write(InMemoryTaskManager manager, Path file) {
+        List<Task> history = manager.getHistory();
+        int entityCount = manager.tasks.size() + manager.epics.size() + manager.subtasks.size();
+        long stringsStart = HEADER_SIZE + (long) entityCount * RECORD_SIZE + (long) history.size() * Integer.BYTES;
+        Path tmpPath = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel, stringsStart);
+            for (Epic epic : manager.epics.values()) {
+                writer.writeEntity(epic);
+                for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                    int subtaskId = epic.getSubtaskId(i);
+                    writer.writeEntity(manager.subtasks.get(subtaskId));
+                }
+            }
+            for (Task task : manager.tasks.values()) {
+                writer.writeEntity(task);
+            }
+            for (Task task : history) {
+                writer.records().putInt(task.getId());
+                writer.flushRecordsIfFull();
+            }
+            writer.finish();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(manager.nextId).putInt(writer.entityCount())
+                    .putInt(history.size()).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать снапшот " + file, e);
+        }
+        try {
+            Files.move(tmpPath, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать снапшот " + file, e);
+        }
+    }
+
+    public static InMemoryTaskManager load(Path file) {
+        return load(file, true);
+    }
+
+    public static InMemoryTaskManager load(Path file, boolean lazyStrings) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снапшот больше 2 ГБ не поддерживается: " + file, null);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть снапшот " + file, e);
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new ManagerSaveException("Неизвестный формат снапшота " + file, null);
+        }
+        int nextId = buffer.getInt(8);
+        int entityCount = buffer.getInt(12);
+        int historyCount = buffer.getInt(16);
+
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        int position = HEADER_SIZE;
+        for (int i = 0; i < entityCount; i++, position += RECORD_SIZE) {
+            Task task = lazyStrings ? readLazy(buffer, position) : readEager(buffer, position);
+            task.setVersion(buffer.getLong(position + ENTITY_VERSION_OFFSET));
+            switch (task.getType()) {
+                case TASK -> {
+                    manager.tasks.put(task.getId(), task);
+                    manager.prioritizedTasks.add(task);
+                }
+                case EPIC -> manager.epics.put(task.getId(), (Epic) task);
+                case SUBTASK -> {
+                    Subtask subtask = (Subtask) task;
+                    manager.subtasks.put(subtask.getId(), subtask);
+                    manager.prioritizedTasks.add(subtask);
+                    Epic epic = manager.epics.get(subtask.getEpicId());
+                    if (epic != null) {
+                        epic.addSubtaskId(subtask.getId(), subtask.getStatus());
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < historyCount; i++, position += Integer.BYTES) {
+            int id = buffer.getInt(position);
+            Task task = manager.tasks.get(id);
+            if (task == null) {
+                task = manager.epics.get(id);
+            }
+            if (task == null) {
+                task = manager.subtasks.get(id);
+            }
+            manager.historyManager.add(task);
+        }
+        manager.nextId = nextId;
+        return manager;
+    }
+
+    private static Task readEager(ByteBuffer buffer, int record) {
+        TaskType type = TaskType.values()[buffer.get(record)];
+        TaskStatus status = readStatus(buffer, record);
+        int id = buffer.getInt(record + 2);
+        String name = readString(buffer, record + NAME_OFFSET);
+        String description = readString(buffer, record + DESCRIPTION_OFFSET);
+        switch (type) {
+            case EPIC:
+                // Статус эпика складывается из подзадач, которые добавляются при загрузке
+                return new Epic(id, name, description);
+            case SUBTASK:
+                return new Subtask(id, name, description, status, buffer.getInt(record + 6),
+                        readStartTime(buffer, record), readDuration(buffer, record));
+            default:
+                return new Task(id, name, description, status, readStartTime(buffer, record),
+                        readDuration(buffer, record));
+        }
+    }
+
+    private static Task readLazy(ByteBuffer buffer, int record) {
+        TaskType type = TaskType.values()[buffer.get(record)];
+        TaskStatus status = readStatus(buffer, record);
+        int id = buffer.getInt(record + 2);
+        switch (type) {
+            case EPIC:
+                return new LazyEpic(id, buffer, record);
+            case SUBTASK:
+                return new LazySubtask(id, status, buffer.getInt(record + 6), buffer, record);
+            default:
+                return new LazyTask(id, status, buffer, record);
+        }
+    }
+
+    // Статус может отсутствовать, как и в TaskCodec: 0 - нет статуса, иначе ordinal + 1
+    private static byte statusCode(TaskStatus status) {
+        return (byte) (status == null ? 0 : status.ordinal() + 1);
+    }
+
+    private static TaskStatus readStatus(ByteBuffer buffer, int record) {
+        byte code = buffer.get(record + 1);
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    private static LocalDateTime readStartTime(ByteBuffer buffer, int record) {
+        return TimeEncoding.getTime(buffer, record + START_TIME_OFFSET);
+    }
+
+    private static Duration readDuration(ByteBuffer buffer, int record) {
+        return TimeEncoding.getDuration(buffer, record + DURATION_OFFSET);
+    }
+
+    private static String readString(ByteBuffer buffer, int field) {
+        int offset = buffer.getInt(field);
+        int length = buffer.getInt(field + Integer.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer strings = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long recordsPosition = HEADER_SIZE;
+        private long stringsPosition;
+        private long stringsEnd;
+        private int entityCount;
+
+        Writer(FileChannel channel, long stringsStart) {
+            this.channel = channel;
+            this.stringsPosition = stringsStart;
+            this.stringsEnd = stringsStart;
+        }
+
+        ByteBuffer records() {
+            return records;
+        }
+
+        int entityCount() {
+            return entityCount;
+        }
+
+        void writeEntity(Task task) throws IOException {
+            records.put((byte) task.getType().ordinal());
+            records.put(statusCode(task.getStatus()));
+            records.putInt(task.getId());
+            records.putInt(task instanceof Subtask subtask ? subtask.getEpicId() : 0);
+            writeString(task.getName());
+            writeString(task.getDescription());
+            TimeEncoding.put(records, task.getStartTime());
+            TimeEncoding.put(records, task.getDuration());
+            records.putLong(task.getVersion());
+            entityCount++;
+            flushRecordsIfFull();
+        }
+
+        void flushRecordsIfFull() throws IOException {
+            if (records.remaining() < RECORD_SIZE) {
+                recordsPosition = flush(records, recordsPosition);
+            }
+        }
+
+        void finish() throws IOException {
+            recordsPosition = flush(records, recordsPosition);
+            stringsPosition = flush(strings, stringsPosition);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                records.putInt(0).putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (stringsEnd + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("Снапшот больше 2 ГБ не поддерживается");
+            }
+            records.putInt((int) stringsEnd).putInt(bytes.length);
+            stringsEnd += bytes.length;
+
+            if (strings.remaining() < bytes.length) {
+                stringsPosition = flush(strings, stringsPosition);
+            }
+            if (bytes.length > strings.capacity()) {
+                stringsPosition = flush(ByteBuffer.wrap(bytes).position(bytes.length), stringsPosition);
+            } else {
+                strings.put(bytes);
+            }
+        }
+
+        private long flush(ByteBuffer buffer, long position) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+            return position;
+        }
+    }
+
+    // Ленивые сущности хранят только позицию своей записи в отображённом файле. Название и описание читаются
+    // из файла при первом обращении, если до этого их не заменили сеттером; общая логика - в LazyStrings,
+    // а каждая сущность лишь перенаправляет в неё геттеры и сеттеры
+
+    private static final class LazyStrings {
+        private final ByteBuffer source;
+        private final int record;
+        private boolean nameLoaded;
+        private boolean descriptionLoaded;
+
+        LazyStrings(ByteBuffer source, int record) {
+            this.source = source;
+            this.record = record;
+        }
+
+        // Название из файла при первом обращении, дальше - текущее значение поля
+        String name(String current) {
+            if (nameLoaded) {
+                return current;
+            }
+            nameLoaded = true;
+            return readString(source, record + NAME_OFFSET);
+        }
+
+        String description(String current) {
+            if (descriptionLoaded) {
+                return current;
+            }
+            descriptionLoaded = true;
+            return readString(source, record + DESCRIPTION_OFFSET);
+        }
+
+        // Значение, заданное сеттером, не должно перезаписываться из файла
+        void nameSet() {
+            nameLoaded = true;
+        }
+
+        void descriptionSet() {
+            descriptionLoaded = true;
+        }
+    }
+
+    private static final class LazyTask extends Task {
+        private final LazyStrings strings;
+
+        LazyTask(int id, TaskStatus status, ByteBuffer source, int record) {
+            super(id, null, null, status, readStartTime(source, record), readDuration(source, record));
+            this.strings = new LazyStrings(source, record);
+        }
+
+        @Override
+        public String getName() {
+            name = strings.name(name);
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            super.setName(name);
+            strings.nameSet();
+        }
+
+        @Override
+        public String getDescription() {
+            description = strings.description(description);
+            return description;
+        }
+
+        @Override
+        public void setDescription(String description) {
+            super.setDescription(description);
+            strings.descriptionSet();
+        }
+    }
+
+    private static final class LazyEpic extends Epic {
+        private final LazyStrings strings;
+
+        LazyEpic(int id, ByteBuffer source, int record) {
+            super(id, null, null);
+            this.strings = new LazyStrings(source, record);
+        }
+
+        @Override
+        public String getName() {
+            name = strings.name(name);
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            super.setName(name);
+            strings.nameSet();
+        }
+
+        @Override
+        public String getDescription() {
+            description = strings.description(description);
+            return description;
+        }
+
+        @Override
+        public void setDescription(String description) {
+            super.setDescription(description);
+            strings.descriptionSet();
+        }
+    }
+
+    private static final class LazySubtask extends Subtask {
+        private final LazyStrings strings;
+
+        LazySubtask(int id, TaskStatus status, int epicId, ByteBuffer source, int record) {
+            super(id, null, null, status, epicId, readStartTime(source, record), readDuration(source, record));
+            this.strings = new LazyStrings(source, record);
+        }
+
+        @Override
+        public String getName() {
+            name = strings.name(name);
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            super.setName(name);
+            strings.nameSet();
+        }
+
+        @Override
+        public String getDescription() {
+            description = strings.description(description);
+            return description;
+        }
+
+        @Override
+        public void setDescription(String description) {
+            super.setDescription(description);
+            strings.descriptionSet();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package manager;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Префиксное дерево по названиям. Дети узла хранятся в отсортированных массивах,
+ * в конечном узле - id всех элементов с таким названием. Пустые ветки удаляются.
+ */
+class NameTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private static class Node {
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        int[] ids = NO_IDS;
+        int idCount;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            index = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, index, keys, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            Node node = new Node();
+            keys[index] = key;
+            children[index] = node;
+            childCount++;
+            return node;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+                System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+                children[--childCount] = null;
+            }
+        }
+
+        void addId(int id) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(1, idCount * 2));
+            }
+            ids[idCount++] = id;
+        }
+
+        boolean removeId(int id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--idCount];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return idCount == 0 && childCount == 0;
+        }
+    }
+
+    private final Node root = new Node();
+
+    void add(String name, int id) {
+        if (name == null) {
+            return;
+        }
+
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.childOrCreate(name.charAt(i));
+        }
+        node.addId(id);
+    }
+
+    void remove(String name, int id) {
+        if (name == null) {
+            return;
+        }
+
+        Node[] path = new Node[name.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < name.length(); i++) {
+            path[i + 1] = path[i].child(name.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        if (!path[name.length()].removeId(id)) {
+            return;
+        }
+        for (int i = name.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(name.charAt(i - 1));
+        }
+    }
+
+    // Отмечает в result id всех элементов, название которых начинается с prefix
+    void collect(String prefix, BitSet result) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node != null) {
+            collectSubtree(node, result);
+        }
+    }
+
+    private static void collectSubtree(Node node, BitSet result) {
+        // Явный стек: длинные названия не должны переполнять стек вызовов
+        Node[] stack = new Node[16];
+        int depth = 0;
+        stack[depth++] = node;
+        while (depth > 0) {
+            Node current = stack[--depth];
+            for (int i = 0; i < current.idCount; i++) {
+                result.set(current.ids[i]);
+            }
+            if (depth + current.childCount > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + current.childCount));
+            }
+            for (int i = 0; i < current.childCount; i++) {
+                stack[depth++] = current.children[i];
+            }
+        }
+    }
+}
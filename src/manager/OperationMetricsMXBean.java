@@ -0,0 +1,22 @@
+package manager;
+
+/**
+ * Статистика одной операции {@link InstrumentedTaskManager} для JMX. Задержки в микросекундах
+ * по выборке вызовов.
+ */
+public interface OperationMetricsMXBean {
+    long getCount();
+
+    // Число вызовов с замером времени
+    long getSampledCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
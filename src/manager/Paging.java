@@ -0,0 +1,68 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Постраничное чтение хранилищ, упорядоченных по id.
+ */
+final class Paging {
+    private Paging() {
+    }
+
+    static <T> List<T> page(IdMap<T> storage, int afterId, int limit) {
+        checkLimit(limit);
+        return storage.page(afterId, limit);
+    }
+
+    static <T> List<T> page(NavigableMap<Integer, T> storage, int afterId, int limit) {
+        checkLimit(limit);
+
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        for (T item : storage.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(item);
+        }
+        return page;
+    }
+
+    // Как page, но только элементы, для которых filter вернул true
+    static <T> List<T> page(NavigableMap<Integer, T> storage, int afterId, int limit, Predicate<? super T> filter) {
+        checkLimit(limit);
+
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        for (T item : storage.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (filter.test(item)) {
+                page.add(item);
+            }
+        }
+        return page;
+    }
+
+    // Для неизменяемого хранилища: элементы копируются, чтобы снимок нельзя было изменить через страницу
+    static <T, R> List<R> page(PersistentIdMap<T> storage, int afterId, int limit, Function<? super T, R> copy) {
+        checkLimit(limit);
+        List<R> page = new ArrayList<>(Math.min(limit, Math.min(storage.size(), 1024)));
+        if (limit > 0) {
+            storage.forEachAfter(afterId, item -> {
+                page.add(copy.apply(item));
+                return page.size() < limit;
+            });
+        }
+        return page;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер страницы не может быть отрицательным: " + limit);
+        }
+    }
+}
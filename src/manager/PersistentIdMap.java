@@ -0,0 +1,241 @@
+package manager;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Неизменяемое отображение неотрицательный id -> значение с общей структурой между версиями.
+ * <p>
+ * Префиксное дерево по 5 битам id на уровень, узлы сжаты битовой маской (как в HAMT, но без хеша:
+ * ключом служит сам id, поэтому обход идёт по возрастанию id). put и remove копируют только путь
+ * от корня до листа - не больше 7 узлов, - а остальное дерево разделяется со старой версией.
+ */
+final class PersistentIdMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // Глубже корня с таким сдвигом дерево не растёт: 7 уровней покрывают все 31 бит id
+    private static final int MAX_SHIFT = 30;
+    private static final PersistentIdMap<?> EMPTY = new PersistentIdMap<>(null, 0, 0);
+
+    private final Node root;
+    // Сдвиг id для выбора ветви в корне; у листового уровня сдвиг 0
+    private final int shift;
+    private final int size;
+
+    private PersistentIdMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIdMap<V> empty() {
+        return (PersistentIdMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int id) {
+        if (root == null || id < 0 || !fits(id, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.child((id >>> level) & MASK);
+            if (node == null) {
+                return null;
+            }
+        }
+        return (V) node.child(id & MASK);
+    }
+
+    boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    PersistentIdMap<V> put(int id, V value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id должен быть неотрицательным: " + id);
+        }
+        Node newRoot = root;
+        int newShift = shift;
+        while (!fits(id, newShift)) {
+            if (newRoot != null) {
+                newRoot = new Node(1, new Object[]{newRoot});
+            }
+            newShift += BITS;
+        }
+        int newSize = containsKey(id) ? size : size + 1;
+        return new PersistentIdMap<>(put(newRoot, newShift, id, value), newShift, newSize);
+    }
+
+    PersistentIdMap<V> remove(int id) {
+        if (!containsKey(id)) {
+            return this;
+        }
+        Node newRoot = remove(root, shift, id);
+        return newRoot == null ? empty() : new PersistentIdMap<>(newRoot, shift, size - 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Передаёт значения с id больше afterId по возрастанию id, пока action возвращает true.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachAfter(int afterId, Predicate<? super V> action) {
+        if (root != null) {
+            visit(root, shift, 0, afterId, (Predicate<Object>) action);
+        }
+    }
+
+    /**
+     * Значения по возрастанию id.
+     */
+    Iterator<V> iterator() {
+        return new Iterator<>() {
+            private final Node[] nodes = new Node[MAX_SHIFT / BITS + 1];
+            private final int[] positions = new int[nodes.length];
+            private int depth;
+            private Object next;
+
+            {
+                if (root != null) {
+                    nodes[0] = root;
+                    depth = 1;
+                }
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                V value = (V) next;
+                advance();
+                return value;
+            }
+
+            private void advance() {
+                next = null;
+                while (depth > 0) {
+                    int top = depth - 1;
+                    Node node = nodes[top];
+                    if (positions[top] == node.slots.length) {
+                        positions[top] = 0;
+                        depth--;
+                        continue;
+                    }
+                    Object child = node.slots[positions[top]++];
+                    if (shift - top * BITS == 0) {
+                        next = child;
+                        return;
+                    }
+                    nodes[depth++] = (Node) child;
+                }
+            }
+        };
+    }
+
+    private static boolean fits(int id, int shift) {
+        return shift >= MAX_SHIFT || id >>> shift >>> BITS == 0;
+    }
+
+    private static Node put(Node node, int shift, int id, Object value) {
+        int index = (id >>> shift) & MASK;
+        if (shift == 0) {
+            return node == null ? new Node(1 << index, new Object[]{value}) : node.with(index, value);
+        }
+        Node child = node == null ? null : (Node) node.child(index);
+        Node newChild = put(child, shift - BITS, id, value);
+        return node == null ? new Node(1 << index, new Object[]{newChild}) : node.with(index, newChild);
+    }
+
+    private static Node remove(Node node, int shift, int id) {
+        int index = (id >>> shift) & MASK;
+        if (shift == 0) {
+            return node.without(index);
+        }
+        Node newChild = remove((Node) node.child(index), shift - BITS, id);
+        return newChild == null ? node.without(index) : node.with(index, newChild);
+    }
+
+    private static boolean visit(Node node, int shift, long prefix, int afterId, Predicate<Object> action) {
+        int bitmap = node.bitmap;
+        for (int slot = 0; bitmap != 0; slot++, bitmap &= bitmap - 1) {
+            long start = prefix | (long) Integer.numberOfTrailingZeros(bitmap) << shift;
+            // Поддерево целиком не больше afterId - пропускаем
+            if (start + (1L << shift) - 1 <= afterId) {
+                continue;
+            }
+            Object child = node.slots[slot];
+            if (shift == 0) {
+                if (!action.test(child)) {
+                    return false;
+                }
+            } else if (!visit((Node) child, shift - BITS, start, afterId, action)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Узел хранит только занятые ветви, по порядку битов в bitmap
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object child(int index) {
+            int bit = 1 << index;
+            return (bitmap & bit) == 0 ? null : slots[Integer.bitCount(bitmap & (bit - 1))];
+        }
+
+        Node with(int index, Object value) {
+            int bit = 1 << index;
+            int slot = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) != 0) {
+                Object[] copy = slots.clone();
+                copy[slot] = value;
+                return new Node(bitmap, copy);
+            }
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, slot);
+            copy[slot] = value;
+            System.arraycopy(slots, slot, copy, slot + 1, slots.length - slot);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node without(int index) {
+            int bit = 1 << index;
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            if (slots.length == 1) {
+                return null;
+            }
+            int slot = Integer.bitCount(bitmap & (bit - 1));
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, slot);
+            System.arraycopy(slots, slot + 1, copy, slot, slots.length - slot - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+}
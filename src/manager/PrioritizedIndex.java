@@ -0,0 +1,72 @@
+package manager;
+
+import model.Task;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Задачи и подзадачи с заданным временем начала, упорядоченные по startTime.
+ * Интервалы в индексе не пересекаются, поэтому для проверки нового интервала
+ * достаточно сравнить его с двумя соседями - это O(log n).
+ */
+class PrioritizedIndex {
+    private final TreeSet<Task> byStartTime = new TreeSet<>(
+            Comparator.comparing(Task::getStartTime).thenComparingInt(Task::getId));
+
+    boolean overlaps(Task candidate) {
+        return overlaps(candidate, id -> false);
+    }
+
+    // Как overlaps(Task), но без задач, для которых ignored вернул true, - например, заменяемых или удаляемых
+    boolean overlaps(Task candidate, IntPredicate ignored) {
+        if (candidate.getStartTime() == null) {
+            return false;
+        }
+
+        Task previous = byStartTime.floor(candidate);
+        while (previous != null && (previous.getId() == candidate.getId() || ignored.test(previous.getId()))) {
+            previous = byStartTime.lower(previous);
+        }
+        if (previous != null && intersects(previous, candidate)) {
+            return true;
+        }
+
+        Task next = byStartTime.ceiling(candidate);
+        while (next != null && (next.getId() == candidate.getId() || ignored.test(next.getId()))) {
+            next = byStartTime.higher(next);
+        }
+        return next != null && intersects(candidate, next);
+    }
+
+    void add(Task task) {
+        if (task.getStartTime() != null) {
+            byStartTime.add(task);
+        }
+    }
+
+    void remove(Task task) {
+        if (task != null && task.getStartTime() != null) {
+            byStartTime.remove(task);
+        }
+    }
+
+    List<Task> toList() {
+        return new ArrayList<>(byStartTime);
+    }
+
+    // Интервалы полуоткрытые: задача, которая начинается ровно в момент окончания другой, не пересекается с ней.
+    // Задача без длительности - точка, и она пересекается с интервалом, который её содержит, в том числе
+    // с начинающимся в тот же момент: иначе точка встала бы в индексе после него и закрыла его от floor
+    static boolean intersects(Task first, Task second) {
+        LocalDateTime firstEnd = first.getEndTime();
+        LocalDateTime secondEnd = second.getEndTime();
+        if (first.getStartTime().equals(second.getStartTime())) {
+            return first.getStartTime().isBefore(firstEnd) || second.getStartTime().isBefore(secondEnd);
+        }
+        return first.getStartTime().isBefore(secondEnd) && second.getStartTime().isBefore(firstEnd);
+    }
+}
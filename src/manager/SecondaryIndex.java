@@ -0,0 +1,71 @@
+package manager;
+
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Вторичные индексы {@link InMemoryTaskManager}: тип и статус -> множество id
+ * и префиксное дерево названий. Множества id - это {@link BitSet}, так как id
+ * выдаются подряд, поэтому результаты сразу упорядочены по id.
+ */
+class SecondaryIndex {
+    // Индекс в массиве - ordinal статуса + 1, в нулевой ячейке задачи без статуса
+    private final Map<TaskType, BitSet[]> byStatus = new EnumMap<>(TaskType.class);
+    private final NameTrie names = new NameTrie();
+
+    SecondaryIndex() {
+        for (TaskType type : TaskType.values()) {
+            BitSet[] statuses = new BitSet[TaskStatus.values().length + 1];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new BitSet();
+            }
+            byStatus.put(type, statuses);
+        }
+    }
+
+    void add(Task task) {
+        withStatus(task.getType(), task.getStatus()).set(task.getId());
+        names.add(task.getName(), task.getId());
+    }
+
+    void remove(Task task) {
+        withStatus(task.getType(), task.getStatus()).clear(task.getId());
+        names.remove(task.getName(), task.getId());
+    }
+
+    void replace(Task oldTask, Task newTask) {
+        if (oldTask.getStatus() != newTask.getStatus()) {
+            changeStatus(oldTask.getType(), oldTask.getId(), oldTask.getStatus(), newTask.getStatus());
+        }
+        rename(oldTask.getId(), oldTask.getName(), newTask.getName());
+    }
+
+    void changeStatus(TaskType type, int id, TaskStatus oldStatus, TaskStatus newStatus) {
+        if (oldStatus != newStatus) {
+            withStatus(type, oldStatus).clear(id);
+            withStatus(type, newStatus).set(id);
+        }
+    }
+
+    void rename(int id, String oldName, String newName) {
+        if (oldName == null ? newName != null : !oldName.equals(newName)) {
+            names.remove(oldName, id);
+            names.add(newName, id);
+        }
+    }
+
+    // Возвращает живое множество - вызывающий код не должен его менять
+    BitSet withStatus(TaskType type, TaskStatus status) {
+        return byStatus.get(type)[status == null ? 0 : status.ordinal() + 1];
+    }
+
+    BitSet withNamePrefix(String prefix) {
+        BitSet result = new BitSet();
+        names.collect(prefix, result);
+        return result;
+    }
+}
@@ -0,0 +1,934 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Менеджер, распределяющий сущности по нескольким {@link TaskManager} - шардам.
+ * <p>
+ * Эпик и все его подзадачи лежат в одном шарде, поэтому getEpicSubtasks, статус эпика и каскадное удаление
+ * обходятся одним шардом. Задачи и эпики раскладываются по кругу, подзадача идёт в шард своего эпика.
+ * Глобальный id = id в шарде * число шардов + номер шарда: шард определяется по id без таблицы маршрутов,
+ * а порядок id внутри шарда сохраняется.
+ * <p>
+ * Запросы по всем сущностям (getAll*, выборки, страницы, потоки, история, расписание) рассылаются всем шардам,
+ * ответы сливаются в порядке id, просмотров или startTime. Шард виден только через интерфейс TaskManager,
+ * поэтому на его месте может быть клиент удалённого узла; для таких шардов рассылку стоит выполнять
+ * параллельно, передав executor.
+ * <p>
+ * Пересечения по времени проверяются по всем шардам: менеджер ведёт общий индекс интервалов.
+ * Пакет applyBatch атомарен только в пределах шарда, поэтому все сущности пакета должны быть в одном шарде.
+ * Методы чтения возвращают копии с глобальными id. Менеджер потокобезопасен, если потокобезопасны шарды.
+ * <p>
+ * Для слияния историй менеджер помнит номер последнего просмотра каждой сущности. Номера сущностей, которых
+ * уже нет в историях шардов, вычищаются, когда номеров становится вдвое больше, чем осталось после прошлой
+ * чистки. Номера пользователя, который дольше idleTimeout ничего не просматривал, забываются целиком,
+ * как сессии в {@link UserHistoryRegistry}.
+ */
+public class ShardedTaskManager implements TaskManager {
+    // Буфер пересылки событий каждого шарда подписчикам менеджера
+    private static final int FORWARD_CAPACITY = 1 << 16;
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    // Меньше этого числа номера просмотров не чистятся
+    private static final int MIN_PRUNE_SIZE = 64;
+
+    // Номера последних просмотров по глобальному id
+    private static class ViewOrder {
+        final Map<Integer, Long> sequences = new ConcurrentHashMap<>();
+        // Размер, после которого номера чистятся; Integer.MAX_VALUE - чистка уже идёт
+        final AtomicInteger pruneAt = new AtomicInteger(MIN_PRUNE_SIZE);
+        volatile long lastAccess;
+    }
+
+    private final TaskManager[] shards;
+    // null - шарды опрашиваются по очереди в вызывающем потоке
+    private final Executor executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    // Интервалы всех шардов с глобальными id; изменяются под scheduleLock
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final PrioritizedIndex schedule = new PrioritizedIndex();
+    private final Map<Integer, Task> scheduled = new ConcurrentHashMap<>();
+    // Номер последнего просмотра по глобальному id: по нему сливаются истории шардов
+    private final AtomicLong viewSequence = new AtomicLong();
+    private final ViewOrder views = new ViewOrder();
+    private final Map<String, ViewOrder> userViews = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final TaskEventBus events = new TaskEventBus();
+    private boolean forwarding;
+
+    public ShardedTaskManager(List<? extends TaskManager> shards) {
+        this(shards, null);
+    }
+
+    public ShardedTaskManager(List<? extends TaskManager> shards, Executor executor) {
+        this(shards, executor, UserHistoryRegistry.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    // idleTimeout стоит брать равным таймауту реестров историй в шардах
+    public ShardedTaskManager(List<? extends TaskManager> shards, Executor executor, Duration idleTimeout) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один шард");
+        }
+        this.shards = shards.toArray(new TaskManager[0]);
+        this.executor = executor;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public TaskManager shard(int index) {
+        return shards[index];
+    }
+
+    // Число пользователей, для которых хранится порядок просмотров
+    public int viewedUserCount() {
+        return userViews.size();
+    }
+
+    // Номер шарда, в котором лежит сущность с глобальным id
+    public int shardOf(int id) {
+        return Math.floorMod(id, shards.length);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return gatherAll(shard -> shards[shard].getAllTasks());
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        gather(shard -> {
+            shards[shard].deleteAllTasks();
+            return null;
+        });
+        unscheduleAll(TaskType.TASK);
+    }
+
+    @Override
+    public Task getTask(int id) {
+        int shard = shardOf(id);
+        return viewed(toGlobal(shard, shards[shard].getTask(localId(id))));
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        int shard = nextShard();
+        return add(shard, task, () -> shards[shard].addTask(new Task(task)));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        int shard = shardOf(task.getId());
+        Task local = new Task(task);
+        local.setId(localId(task.getId()));
+        update(task, TaskType.TASK, () -> {
+            shards[shard].updateTask(local);
+            return true;
+        });
+        task.setVersion(local.getVersion());
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        int shard = shardOf(task.getId());
+        Task local = new Task(task);
+        local.setId(localId(task.getId()));
+        boolean updated = update(task, TaskType.TASK, () -> shards[shard].updateTask(local, expectedVersion));
+        task.setVersion(local.getVersion());
+        return updated;
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        shards[shardOf(id)].deleteTask(localId(id));
+        unschedule(id);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return gatherAll(shard -> shards[shard].getAllEpics());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        gather(shard -> {
+            shards[shard].deleteAllEpics();
+            return null;
+        });
+        unscheduleAll(TaskType.SUBTASK);
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        int shard = shardOf(id);
+        return viewed(toGlobal(shard, shards[shard].getEpic(localId(id))));
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        int shard = nextShard();
+        Epic added = shards[shard].addEpic(new Epic(0, epic.getName(), epic.getDescription()));
+        epic.setId(globalId(shard, added.getId()));
+        epic.setVersion(added.getVersion());
+        return epic;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        Epic local = new Epic(localId(epic.getId()), epic.getName(), epic.getDescription());
+        shards[shardOf(epic.getId())].updateEpic(local);
+        epic.setVersion(local.getVersion());
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        Epic local = new Epic(localId(epic.getId()), epic.getName(), epic.getDescription());
+        boolean updated = shards[shardOf(epic.getId())].updateEpic(local, expectedVersion);
+        epic.setVersion(local.getVersion());
+        return updated;
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        int shard = shardOf(id);
+        // Подзадачи из общего расписания снимаются по списку, прочитанному до удаления
+        List<Subtask> subtasks = scheduled.isEmpty() ? List.of() : shards[shard].getEpicSubtasks(localId(id));
+        shards[shard].deleteEpic(localId(id));
+        for (Subtask subtask : subtasks) {
+            if (subtask.getStartTime() != null) {
+                unschedule(globalId(shard, subtask.getId()));
+            }
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        int shard = shardOf(epicId);
+        return toGlobal(shard, shards[shard].getEpicSubtasks(localId(epicId)));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return gatherAll(shard -> shards[shard].getAllSubtasks());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        gather(shard -> {
+            shards[shard].deleteAllSubtasks();
+            return null;
+        });
+        unscheduleAll(TaskType.SUBTASK);
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        int shard = shardOf(id);
+        return viewed(toGlobal(shard, shards[shard].getSubtask(localId(id))));
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        int shard = shardOf(subtask.getEpicId());
+        Subtask local = new Subtask(subtask);
+        local.setEpicId(localId(subtask.getEpicId()));
+        return add(shard, subtask, () -> shards[shard].addSubtask(local));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        int shard = shardOf(subtask.getId());
+        Subtask local = new Subtask(subtask);
+        local.setId(localId(subtask.getId()));
+        // Эпик из другого шарда заведомо не эпик этой подзадачи: шард отклонит смену эпика
+        local.setEpicId(shardOf(subtask.getEpicId()) == shard ? localId(subtask.getEpicId()) : 0);
+        update(subtask, TaskType.SUBTASK, () -> {
+            shards[shard].updateSubtask(local);
+            return true;
+        });
+        subtask.setVersion(local.getVersion());
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        int shard = shardOf(subtask.getId());
+        Subtask local = new Subtask(subtask);
+        local.setId(localId(subtask.getId()));
+        local.setEpicId(shardOf(subtask.getEpicId()) == shard ? localId(subtask.getEpicId()) : 0);
+        boolean updated = update(subtask, TaskType.SUBTASK,
+                () -> shards[shard].updateSubtask(local, expectedVersion));
+        subtask.setVersion(local.getVersion());
+        return updated;
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        shards[shardOf(id)].deleteSubtask(localId(id));
+        unschedule(id);
+    }
+
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        int shard = batchShard(batch);
+        TaskBatch local = new TaskBatch();
+        // Существующие сущности, которые пакет меняет или удаляет, и типы создаваемых
+        Map<Integer, TaskType> touched = new LinkedHashMap<>();
+        List<TaskType> createdTypes = new ArrayList<>();
+        List<Task> timed = new ArrayList<>();
+        for (TaskBatch.Operation operation : batch.operations()) {
+            int id = operation.id() > 0 ? localId(operation.id()) : operation.id();
+            if (operation.id() > 0) {
+                touched.put(operation.id(), operation.type());
+            }
+            if (operation.task() != null && operation.task().getStartTime() != null) {
+                // Создаваемой сущности id ещё не выдан: 0 не совпадёт ни с одним настоящим id
+                Task candidate = new Task(operation.task());
+                candidate.setId(operation.kind() == TaskBatch.Kind.ADD ? 0 : operation.id());
+                timed.add(candidate);
+            }
+            switch (operation.kind()) {
+                case ADD -> {
+                    createdTypes.add(operation.type());
+                    switch (operation.type()) {
+                        case TASK -> local.addTask(new Task(operation.task()));
+                        case EPIC -> local.addEpic(new Epic(0, operation.task().getName(),
+                                operation.task().getDescription()));
+                        case SUBTASK -> local.addSubtask(toLocal((Subtask) operation.task(), 0));
+                    }
+                }
+                case UPDATE -> {
+                    switch (operation.type()) {
+                        case TASK -> {
+                            Task task = new Task(operation.task());
+                            task.setId(id);
+                            local.updateTask(task);
+                        }
+                        case EPIC -> local.updateEpic(new Epic(id, operation.task().getName(),
+                                operation.task().getDescription()));
+                        case SUBTASK -> local.updateSubtask(toLocal((Subtask) operation.task(), id));
+                    }
+                }
+                case DELETE -> {
+                    switch (operation.type()) {
+                        case TASK -> local.deleteTask(id);
+                        case EPIC -> {
+                            local.deleteEpic(id);
+                            if (operation.id() > 0 && !scheduled.isEmpty()) {
+                                for (Subtask subtask : shards[shard].getEpicSubtasks(id)) {
+                                    touched.put(globalId(shard, subtask.getId()), TaskType.SUBTASK);
+                                }
+                            }
+                        }
+                        case SUBTASK -> local.deleteSubtask(id);
+                    }
+                }
+            }
+        }
+
+        boolean reschedule = !timed.isEmpty() || touched.keySet().stream().anyMatch(scheduled::containsKey);
+        if (!reschedule) {
+            return assignIds(batch, shard, shards[shard].applyBatch(local));
+        }
+        scheduleLock.lock();
+        try {
+            // Пересечения внутри шарда с учётом всего пакета проверит сам шард, здесь - с другими шардами
+            for (Task candidate : timed) {
+                checkTimeSlot(candidate, touched::containsKey);
+            }
+            int[] ids = assignIds(batch, shard, shards[shard].applyBatch(local));
+            for (Map.Entry<Integer, TaskType> entry : touched.entrySet()) {
+                resync(entry.getKey(), entry.getValue());
+            }
+            for (int i = 0; i < ids.length; i++) {
+                resync(ids[i], createdTypes.get(i));
+            }
+            return ids;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return page(limit, shard -> shards[shard].getTasks(localAfter(afterId, shard), limit));
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return page(limit, shard -> shards[shard].getEpics(localAfter(afterId, shard), limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return page(limit, shard -> shards[shard].getSubtasks(localAfter(afterId, shard), limit));
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return merged(shard -> shards[shard].streamTasks());
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return merged(shard -> shards[shard].streamEpics());
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return merged(shard -> shards[shard].streamSubtasks());
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return gatherAll(shard -> shards[shard].getTasksByStatus(status));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return gatherAll(shard -> shards[shard].getEpicsByStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return gatherAll(shard -> shards[shard].getSubtasksByStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, TaskStatus status) {
+        int shard = shardOf(epicId);
+        return toGlobal(shard, shards[shard].getEpicSubtasks(localId(epicId), status));
+    }
+
+    @Override
+    public List<Task> findByNamePrefix(String prefix) {
+        return gatherAll(shard -> shards[shard].findByNamePrefix(prefix));
+    }
+
+    /**
+     * Результаты шардов чередуются по месту в их выдаче: релевантность у каждого шарда считается
+     * по его собственным частотам слов, поэтому между шардами порядок приблизительный.
+     */
+    @Override
+    public int[] search(String query, int limit) {
+        List<int[]> parts = gather(shard -> shards[shard].search(query, limit));
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] result = new int[Math.min(total, limit)];
+        int count = 0;
+        for (int rank = 0; count < result.length; rank++) {
+            for (int shard = 0; shard < shards.length && count < result.length; shard++) {
+                if (rank < parts.get(shard).length) {
+                    result[count++] = globalId(shard, parts.get(shard)[rank]);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long since = viewSequence.get();
+        return mergeHistories(gather(shard -> shards[shard].getHistory()), views, since);
+    }
+
+    @Override
+    public int taskCount() {
+        return sum(TaskManager::taskCount);
+    }
+
+    @Override
+    public int epicCount() {
+        return sum(TaskManager::epicCount);
+    }
+
+    @Override
+    public int subtaskCount() {
+        return sum(TaskManager::subtaskCount);
+    }
+
+    // Id в историях шардов не пересекаются, поэтому общая история - сумма историй шардов
+    @Override
+    public int historySize() {
+        return sum(TaskManager::historySize);
+    }
+
+    @Override
+    public Task getTask(String userId, int id) {
+        int shard = shardOf(id);
+        return viewed(userId, toGlobal(shard, shards[shard].getTask(userId, localId(id))));
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        int shard = shardOf(id);
+        return viewed(userId, toGlobal(shard, shards[shard].getEpic(userId, localId(id))));
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        int shard = shardOf(id);
+        return viewed(userId, toGlobal(shard, shards[shard].getSubtask(userId, localId(id))));
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        long now = System.nanoTime();
+        long since = viewSequence.get();
+        ViewOrder order = userViews.get(userId);
+        if (order == null) {
+            order = new ViewOrder();
+        }
+        order.lastAccess = now;
+        evictIdle(now);
+        return mergeHistories(gather(shard -> shards[shard].getHistory(userId)), order, since);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = gatherAll(shard -> shards[shard].getPrioritizedTasks());
+        result.sort(Comparator.comparing(Task::getStartTime).thenComparingInt(Task::getId));
+        return result;
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        startForwarding();
+        return events.subscribe(listener, capacity, coalesce);
+    }
+
+    // События шардов пересылаются в общую шину с глобальными id; пересылка включается при первой подписке
+    private synchronized void startForwarding() {
+        if (forwarding) {
+            return;
+        }
+        forwarding = true;
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            shards[shard].subscribe(event -> events.publish(new TaskEvent(event.type(), event.entityType(),
+                    globalId(shard, event.id()), event.status())), FORWARD_CAPACITY, false);
+        }
+    }
+
+    private int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.length);
+    }
+
+    private int localId(int id) {
+        return Math.floorDiv(id, shards.length);
+    }
+
+    private int globalId(int shard, int localId) {
+        return localId * shards.length + shard;
+    }
+
+    // Наибольший id в шарде, после которого начинаются его сущности с глобальным id > afterId
+    private int localAfter(int afterId, int shard) {
+        return Math.floorDiv(afterId - shard, shards.length);
+    }
+
+    // Все сущности пакета должны быть в одном шарде; пакет только из новых сущностей идёт в очередной шард
+    private int batchShard(TaskBatch batch) {
+        int shard = -1;
+        for (TaskBatch.Operation operation : batch.operations()) {
+            int reference = operation.id() > 0 ? operation.id()
+                    : operation.task() instanceof Subtask subtask && subtask.getEpicId() > 0 ? subtask.getEpicId() : 0;
+            if (reference == 0) {
+                continue;
+            }
+            if (shard >= 0 && shard != shardOf(reference)) {
+                throw new ManagerValidationException("Пакет затрагивает сущности из разных шардов: " + shard
+                        + " и " + shardOf(reference));
+            }
+            shard = shardOf(reference);
+        }
+        return shard >= 0 ? shard : nextShard();
+    }
+
+    private int[] assignIds(TaskBatch batch, int shard, int[] localIds) {
+        int[] ids = new int[localIds.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = globalId(shard, localIds[i]);
+        }
+        batch.assignIds(ids);
+        return ids;
+    }
+
+    // Копия подзадачи пакета с локальными id; отрицательные ссылки на создаваемые сущности не меняются
+    private Subtask toLocal(Subtask subtask, int localId) {
+        Subtask local = new Subtask(subtask);
+        local.setId(localId);
+        if (subtask.getEpicId() > 0) {
+            local.setEpicId(localId(subtask.getEpicId()));
+        }
+        return local;
+    }
+
+    private <T extends Task> T add(int shard, T task, Supplier<T> add) {
+        if (task.getStartTime() == null) {
+            T added = add.get();
+            if (added == null) {
+                return null;
+            }
+            task.setId(globalId(shard, added.getId()));
+            task.setVersion(added.getVersion());
+            return task;
+        }
+        scheduleLock.lock();
+        try {
+            Task candidate = new Task(task);
+            candidate.setId(0);
+            checkTimeSlot(candidate, id -> false);
+            T added = add.get();
+            if (added == null) {
+                return null;
+            }
+            task.setId(globalId(shard, added.getId()));
+            task.setVersion(added.getVersion());
+            scheduleEntry(task);
+            return task;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Возвращает результат update: false, если шард отклонил обновление с проверкой версии
+    private boolean update(Task task, TaskType type, BooleanSupplier update) {
+        if (task.getStartTime() == null && !scheduled.containsKey(task.getId())) {
+            return update.getAsBoolean();
+        }
+        scheduleLock.lock();
+        try {
+            // Как и шард, обновление несуществующей сущности молча игнорируется
+            if (task.getStartTime() != null && peek(shardOf(task.getId()), localId(task.getId()), type) != null) {
+                checkTimeSlot(task, id -> false);
+            }
+            boolean updated = update.getAsBoolean();
+            resync(task.getId(), type);
+            return updated;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void checkTimeSlot(Task task, IntPredicate ignored) {
+        if (schedule.overlaps(task, ignored)) {
+            throw new ManagerValidationException("Время задачи " + task.getName() + " пересекается с другой задачей");
+        }
+    }
+
+    // Приводит общее расписание для id к состоянию шарда; под scheduleLock
+    private void resync(int id, TaskType type) {
+        Task previous = scheduled.remove(id);
+        schedule.remove(previous);
+        Task current = peek(shardOf(id), localId(id), type);
+        if (current != null && current.getStartTime() != null) {
+            scheduleEntry(toGlobal(shardOf(id), current));
+        }
+    }
+
+    // Под scheduleLock
+    private void scheduleEntry(Task task) {
+        Task entry = task instanceof Subtask subtask ? new Subtask(subtask) : new Task(task);
+        schedule.remove(scheduled.put(entry.getId(), entry));
+        schedule.add(entry);
+    }
+
+    private void unschedule(int id) {
+        if (!scheduled.containsKey(id)) {
+            return;
+        }
+        scheduleLock.lock();
+        try {
+            schedule.remove(scheduled.remove(id));
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void unscheduleAll(TaskType type) {
+        scheduleLock.lock();
+        try {
+            scheduled.values().removeIf(task -> {
+                if (task.getType() != type) {
+                    return false;
+                }
+                schedule.remove(task);
+                return true;
+            });
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Чтение из шарда без записи в его историю: страница из одного элемента после id - 1
+    private Task peek(int shard, int localId, TaskType type) {
+        List<? extends Task> page = switch (type) {
+            case EPIC -> shards[shard].getEpics(localId - 1, 1);
+            case SUBTASK -> shards[shard].getSubtasks(localId - 1, 1);
+            default -> shards[shard].getTasks(localId - 1, 1);
+        };
+        return page.isEmpty() || page.getFirst().getId() != localId ? null : page.getFirst();
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            views.sequences.put(task.getId(), viewSequence.incrementAndGet());
+            maybePrune(views, shard -> shards[shard].getHistory());
+        }
+        return task;
+    }
+
+    // Запись идёт внутри compute, чтобы просмотр не попал в порядок, который в этот момент вытесняется
+    private <T extends Task> T viewed(String userId, T task) {
+        long now = System.nanoTime();
+        if (task != null) {
+            ViewOrder order = userViews.compute(userId, (key, current) -> {
+                ViewOrder result = current == null ? new ViewOrder() : current;
+                result.lastAccess = now;
+                result.sequences.put(task.getId(), viewSequence.incrementAndGet());
+                return result;
+            });
+            maybePrune(order, shard -> shards[shard].getHistory(userId));
+        }
+        evictIdle(now);
+        return task;
+    }
+
+    // Чистку выполняет поток, который первым поднял порог; новый порог - вдвое больше оставшихся номеров
+    private void maybePrune(ViewOrder order, IntFunction<List<Task>> history) {
+        int threshold = order.pruneAt.get();
+        if (order.sequences.size() <= threshold || !order.pruneAt.compareAndSet(threshold, Integer.MAX_VALUE)) {
+            return;
+        }
+        try {
+            long since = viewSequence.get();
+            mergeHistories(gather(history), order, since);
+        } finally {
+            order.pruneAt.set(Math.max(MIN_PRUNE_SIZE, order.sequences.size() * 2));
+        }
+    }
+
+    // Пользователи просматриваются не чаще раза в idleTimeout, как шарды UserHistoryRegistry
+    private void evictIdle(long now) {
+        long last = lastSweep.get();
+        if (now - last <= idleTimeoutNanos || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        for (String userId : userViews.keySet()) {
+            userViews.computeIfPresent(userId,
+                    (key, order) -> now - order.lastAccess > idleTimeoutNanos ? null : order);
+        }
+    }
+
+    // Истории шардов сливаются по номеру последнего просмотра. Номера сущностей, которых нет ни в одной
+    // истории (удалены или вытеснены), забываются, кроме просмотренных после начала сбора
+    private List<Task> mergeHistories(List<List<Task>> parts, ViewOrder order, long since) {
+        Map<Integer, Long> viewOrder = order.sequences;
+        List<Task> result = new ArrayList<>();
+        for (int shard = 0; shard < parts.size(); shard++) {
+            for (Task task : parts.get(shard)) {
+                result.add(toGlobal(shard, task));
+            }
+        }
+        result.sort(Comparator.comparingLong(task -> viewOrder.getOrDefault(task.getId(), 0L)));
+        Set<Integer> present = new HashSet<>();
+        for (Task task : result) {
+            present.add(task.getId());
+        }
+        viewOrder.entrySet().removeIf(entry -> entry.getValue() <= since && !present.contains(entry.getKey()));
+        return result;
+    }
+
+    private int sum(ToIntFunction<TaskManager> size) {
+        int total = 0;
+        for (TaskManager shard : shards) {
+            total += size.applyAsInt(shard);
+        }
+        return total;
+    }
+
+    private <T extends Task> List<T> gatherAll(IntFunction<List<T>> query) {
+        List<List<T>> parts = gather(query);
+        List<T> result = new ArrayList<>();
+        for (int shard = 0; shard < parts.size(); shard++) {
+            for (T task : parts.get(shard)) {
+                result.add(toGlobal(shard, task));
+            }
+        }
+        // Списки шардов уже упорядочены по id, и сортировка лишь сливает их
+        result.sort(BY_ID);
+        return result;
+    }
+
+    // Каждый шард отдаёт до limit элементов; копируются только попавшие в страницу
+    private <T extends Task> List<T> page(int limit, IntFunction<List<T>> query) {
+        List<List<T>> parts = gather(query);
+        int[] positions = new int[parts.size()];
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        while (page.size() < limit) {
+            int next = -1;
+            int nextId = Integer.MAX_VALUE;
+            for (int shard = 0; shard < parts.size(); shard++) {
+                if (positions[shard] < parts.get(shard).size()) {
+                    int id = globalId(shard, parts.get(shard).get(positions[shard]).getId());
+                    if (id < nextId) {
+                        next = shard;
+                        nextId = id;
+                    }
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            page.add(toGlobal(next, parts.get(next).get(positions[next]++)));
+        }
+        return page;
+    }
+
+    private <T> List<T> gather(IntFunction<T> query) {
+        List<T> results = new ArrayList<>(shards.length);
+        if (executor == null) {
+            for (int shard = 0; shard < shards.length; shard++) {
+                results.add(query.apply(shard));
+            }
+            return results;
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int index = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(index), executor));
+        }
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    private <T extends Task> Stream<T> merged(IntFunction<Stream<T>> query) {
+        List<Stream<T>> streams = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int index = shard;
+            streams.add(query.apply(shard).map(task -> toGlobal(index, task)));
+        }
+        Iterator<T> iterator = new MergingIterator<>(streams);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    private <T extends Task> List<T> toGlobal(int shard, List<T> tasks) {
+        List<T> result = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            result.add(toGlobal(shard, task));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> T toGlobal(int shard, T task) {
+        if (task == null) {
+            return null;
+        }
+        int id = globalId(shard, task.getId());
+        if (task instanceof Epic epic) {
+            return (T) new Epic(epic, id, subtaskId -> globalId(shard, subtaskId));
+        }
+        if (task instanceof Subtask subtask) {
+            Subtask copy = new Subtask(subtask);
+            copy.setId(id);
+            copy.setEpicId(globalId(shard, subtask.getEpicId()));
+            return (T) copy;
+        }
+        Task copy = new Task(task);
+        copy.setId(id);
+        return (T) copy;
+    }
+
+    // Слияние упорядоченных по id потоков шардов
+    private static final class MergingIterator<T extends Task> implements Iterator<T> {
+        private record Head<T>(T task, Iterator<T> rest) {
+        }
+
+        private final List<Stream<T>> streams;
+        private PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<Stream<T>> streams) {
+            this.streams = streams;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads().isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads().poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new Head<>(head.rest().next(), head.rest()));
+            }
+            return head.task();
+        }
+
+        // Шарды опрашиваются при первом обращении, как и положено ленивому потоку
+        private PriorityQueue<Head<T>> heads() {
+            if (heads == null) {
+                heads = new PriorityQueue<>(Math.max(1, streams.size()),
+                        Comparator.comparingInt((Head<T> head) -> head.task().getId()));
+                for (Stream<T> stream : streams) {
+                    Iterator<T> iterator = stream.iterator();
+                    if (iterator.hasNext()) {
+                        heads.add(new Head<>(iterator.next(), iterator));
+                    }
+                }
+            }
+            return heads;
+        }
+    }
+}
@@ -0,0 +1,652 @@
+package manager;
+
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.SubtaskView;
+import model.Task;
+import model.TaskStatus;
+import model.TaskView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасная реализация {@link TaskManager} на неизменяемых снимках.
+ * <p>
+ * Всё состояние - это {@link TaskSnapshot} в volatile-поле. Изменения выполняются по одному под общей
+ * блокировкой: каждое строит новый снимок, разделяющий с предыдущим всё, кроме изменённых путей
+ * в деревьях, и публикует его одной записью. Чтение не берёт блокировок и видит операцию целиком
+ * или не видит её вовсе - в том числе каскадное удаление эпика и пакет {@link #applyBatch(TaskBatch)}.
+ * {@link #snapshot()} стоит одно чтение volatile-поля. Методы чтения возвращают копии сущностей.
+ */
+public class SnapshotTaskManager implements TaskManager {
+    private volatile TaskSnapshot state = TaskSnapshot.EMPTY;
+    private final HistoryManager historyManager = new ConcurrentHistoryManager();
+    private final UserHistoryRegistry userHistories;
+    private final TaskEventBus events = new TaskEventBus();
+
+    // Поля ниже меняются только под writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Следующий снимок, который станет виден читателям в publish()
+    private TaskSnapshot draft = TaskSnapshot.EMPTY;
+    // Эпики со счётчиками статусов подзадач: по ним определяется смена статуса эпика
+    private final IdMap<Epic> epicStates = new IdMap<>();
+    private final PrioritizedIndex prioritizedTasks = new PrioritizedIndex();
+    // События рассылаются после публикации снимка, чтобы подписчик уже мог прочитать изменение
+    private final List<TaskEvent> pendingEvents = new ArrayList<>();
+    private int nextId = 1;
+
+    public SnapshotTaskManager() {
+        this(new UserHistoryRegistry());
+    }
+
+    public SnapshotTaskManager(UserHistoryRegistry userHistories) {
+        this.userHistories = userHistories;
+    }
+
+    /**
+     * Согласованное состояние менеджера на текущий момент. Не меняется при последующих изменениях.
+     */
+    public TaskSnapshot snapshot() {
+        return state;
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return state.getAllTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        writeLock.lock();
+        try {
+            draft.tasks.forEachAfter(-1, task -> {
+                historyManager.remove(task.getId());
+                prioritizedTasks.remove(task);
+                event(TaskEvent.Type.DELETED, task);
+                return true;
+            });
+            draft = draft.clearTasks();
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(state.getTask(id));
+    }
+
+    @Override
+    public Task addTask(Task task) {
+        writeLock.lock();
+        try {
+            Task savedTask = new Task(task);
+            savedTask.setId(nextId);
+            checkTimeSlot(savedTask);
+            task.setId(nextId++);
+            insertTask(savedTask);
+            task.setVersion(savedTask.getVersion());
+            publish();
+            return task;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        writeLock.lock();
+        try {
+            Task oldTask = draft.tasks.get(task.getId());
+            if (oldTask != null) {
+                Task savedTask = new Task(task);
+                checkTimeSlot(savedTask);
+                replaceTask(oldTask, savedTask);
+                task.setVersion(savedTask.getVersion());
+                publish();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateTask(Task task, long expectedVersion) {
+        writeLock.lock();
+        try {
+            Task oldTask = draft.tasks.get(task.getId());
+            if (oldTask == null || oldTask.getVersion() != expectedVersion) {
+                return false;
+            }
+            updateTask(task);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        writeLock.lock();
+        try {
+            removeTask(id);
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return state.getAllEpics();
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        writeLock.lock();
+        try {
+            draft.subtasks.forEachAfter(-1, subtask -> {
+                historyManager.remove(subtask.getId());
+                prioritizedTasks.remove(subtask);
+                event(TaskEvent.Type.DELETED, subtask);
+                return true;
+            });
+            for (Epic epic : epicStates.values()) {
+                historyManager.remove(epic.getId());
+                event(TaskEvent.Type.DELETED, epic);
+            }
+            epicStates.clear();
+            draft = draft.clearEpics();
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(state.getEpic(id));
+    }
+
+    @Override
+    public Epic addEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            epic.setId(nextId++);
+            Epic epicState = new Epic(epic.getId(), epic.getName(), epic.getDescription());
+            insertEpic(epicState);
+            epic.setVersion(epicState.getVersion());
+            publish();
+            return epic;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            Epic epicState = epicStates.get(epic.getId());
+            if (epicState != null) {
+                renameEpic(epicState, epic);
+                epic.setVersion(epicState.getVersion());
+                publish();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic, long expectedVersion) {
+        writeLock.lock();
+        try {
+            Epic epicState = epicStates.get(epic.getId());
+            if (epicState == null || epicState.getVersion() != expectedVersion) {
+                return false;
+            }
+            updateEpic(epic);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        writeLock.lock();
+        try {
+            removeEpic(id);
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return state.getEpicSubtasks(epicId);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return state.getAllSubtasks();
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        writeLock.lock();
+        try {
+            draft.subtasks.forEachAfter(-1, subtask -> {
+                historyManager.remove(subtask.getId());
+                prioritizedTasks.remove(subtask);
+                event(TaskEvent.Type.DELETED, subtask);
+                return true;
+            });
+            for (Epic epic : epicStates.values()) {
+                TaskStatus oldStatus = epic.getStatus();
+                epic.clearSubtaskIds();
+                epicStatusChanged(epic, oldStatus);
+            }
+            draft = draft.clearSubtasks();
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return viewed(state.getSubtask(id));
+    }
+
+    @Override
+    public Subtask addSubtask(Subtask subtask) {
+        writeLock.lock();
+        try {
+            if (!epicStates.containsKey(subtask.getEpicId())) {
+                return null;
+            }
+            Subtask savedSubtask = new Subtask(subtask);
+            savedSubtask.setId(nextId);
+            checkTimeSlot(savedSubtask);
+            subtask.setId(nextId++);
+            insertSubtask(savedSubtask);
+            subtask.setVersion(savedSubtask.getVersion());
+            publish();
+            return subtask;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        writeLock.lock();
+        try {
+            Subtask oldSubtask = draft.subtasks.get(subtask.getId());
+            // Подзадача не может сменить эпик
+            if (oldSubtask != null && oldSubtask.getEpicId() == subtask.getEpicId()) {
+                Subtask savedSubtask = new Subtask(subtask);
+                checkTimeSlot(savedSubtask);
+                replaceSubtask(oldSubtask, savedSubtask);
+                subtask.setVersion(savedSubtask.getVersion());
+                publish();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        writeLock.lock();
+        try {
+            Subtask oldSubtask = draft.subtasks.get(subtask.getId());
+            if (oldSubtask == null || oldSubtask.getVersion() != expectedVersion
+                    || oldSubtask.getEpicId() != subtask.getEpicId()) {
+                return false;
+            }
+            updateSubtask(subtask);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        writeLock.lock();
+        try {
+            removeSubtask(id);
+            publish();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Весь пакет публикуется одним снимком: читатели не видят его применённым частично
+    @Override
+    public int[] applyBatch(TaskBatch batch) {
+        writeLock.lock();
+        try {
+            int firstId = nextId;
+            for (TaskBatch.Operation operation : BatchPlan.resolve(batch, firstId, this::find, prioritizedTasks)) {
+                apply(operation);
+            }
+            nextId = Math.max(nextId, firstId + batch.createCount());
+            publish();
+            return batch.assignIds(firstId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasks(int afterId, int limit) {
+        return state.getTasks(afterId, limit);
+    }
+
+    @Override
+    public List<Epic> getEpics(int afterId, int limit) {
+        return state.getEpics(afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return state.getSubtasks(afterId, limit);
+    }
+
+    @Override
+    public TaskView getTaskView(int id) {
+        return state.getTaskView(id);
+    }
+
+    @Override
+    public EpicView getEpicView(int id) {
+        return state.getEpicView(id);
+    }
+
+    @Override
+    public SubtaskView getSubtaskView(int id) {
+        return state.getSubtaskView(id);
+    }
+
+    @Override
+    public List<TaskView> getTaskViews(int afterId, int limit) {
+        return state.getTaskViews(afterId, limit);
+    }
+
+    @Override
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        return state.getEpicViews(afterId, limit);
+    }
+
+    @Override
+    public List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        return state.getSubtaskViews(afterId, limit);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return state.streamTasks();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return state.streamEpics();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return state.streamSubtasks();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return Entities.copyAll(historyManager.getHistory());
+    }
+
+    @Override
+    public int taskCount() {
+        return state.taskCount();
+    }
+
+    @Override
+    public int epicCount() {
+        return state.epicCount();
+    }
+
+    @Override
+    public int subtaskCount() {
+        return state.subtaskCount();
+    }
+
+    @Override
+    public int historySize() {
+        return historyManager.size();
+    }
+
+    @Override
+    public Task getTask(String userId, int id) {
+        Task task = state.getTask(id);
+        userHistories.add(userId, Entities.copy(task));
+        return task;
+    }
+
+    @Override
+    public Epic getEpic(String userId, int id) {
+        Epic epic = state.getEpic(id);
+        userHistories.add(userId, Entities.copy(epic));
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtask(String userId, int id) {
+        Subtask subtask = state.getSubtask(id);
+        userHistories.add(userId, Entities.copy(subtask));
+        return subtask;
+    }
+
+    @Override
+    public List<Task> getHistory(String userId) {
+        return Entities.copyAll(userHistories.getHistory(userId, id -> state.contains(id)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        writeLock.lock();
+        try {
+            List<Task> result = new ArrayList<>();
+            for (Task task : prioritizedTasks.toList()) {
+                result.add(task instanceof Subtask subtask ? new Subtask(subtask) : new Task(task));
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        return events.subscribe(listener, capacity, coalesce);
+    }
+
+    // В историю попадает отдельная копия: возвращённый объект вызывающий код может менять
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            historyManager.add(Entities.copy(task));
+            // Сущность могли удалить между чтением и записью в историю
+            if (!state.contains(task.getId())) {
+                historyManager.remove(task.getId());
+            }
+        }
+        return task;
+    }
+
+    private void apply(TaskBatch.Operation operation) {
+        int id = operation.id();
+        switch (operation.kind()) {
+            case ADD -> {
+                switch (operation.type()) {
+                    case TASK -> insertTask(operation.task());
+                    case EPIC -> insertEpic((Epic) operation.task());
+                    case SUBTASK -> insertSubtask((Subtask) operation.task());
+                }
+            }
+            case UPDATE -> {
+                switch (operation.type()) {
+                    case TASK -> replaceTask(draft.tasks.get(id), operation.task());
+                    case EPIC -> renameEpic(epicStates.get(id), (Epic) operation.task());
+                    case SUBTASK -> replaceSubtask(draft.subtasks.get(id), (Subtask) operation.task());
+                }
+            }
+            case DELETE -> {
+                switch (operation.type()) {
+                    case TASK -> removeTask(id);
+                    case EPIC -> removeEpic(id);
+                    case SUBTASK -> removeSubtask(id);
+                }
+            }
+        }
+    }
+
+    private void insertTask(Task savedTask) {
+        savedTask.setVersion(1);
+        prioritizedTasks.add(savedTask);
+        draft = draft.putTask(savedTask);
+        event(TaskEvent.Type.CREATED, savedTask);
+    }
+
+    private void replaceTask(Task oldTask, Task savedTask) {
+        savedTask.setVersion(oldTask.getVersion() + 1);
+        prioritizedTasks.remove(oldTask);
+        prioritizedTasks.add(savedTask);
+        draft = draft.putTask(savedTask);
+        event(TaskEvent.Type.UPDATED, savedTask);
+    }
+
+    private void removeTask(int id) {
+        Task task = draft.tasks.get(id);
+        if (task != null) {
+            prioritizedTasks.remove(task);
+            draft = draft.removeTask(id);
+            event(TaskEvent.Type.DELETED, task);
+        }
+        historyManager.remove(id);
+    }
+
+    private void insertEpic(Epic epic) {
+        epic.setVersion(1);
+        epicStates.put(epic.getId(), epic);
+        draft = draft.putEpic(header(epic));
+        event(TaskEvent.Type.CREATED, epic);
+    }
+
+    private void renameEpic(Epic epicState, Epic epic) {
+        epicState.setName(epic.getName());
+        epicState.setDescription(epic.getDescription());
+        epicState.setVersion(epicState.getVersion() + 1);
+        draft = draft.putEpic(header(epicState));
+        event(TaskEvent.Type.UPDATED, epicState);
+    }
+
+    // В снимке эпик хранится без подзадач: список собирается из подзадач снимка при чтении
+    private static Epic header(Epic epic) {
+        Epic header = new Epic(epic.getId(), epic.getName(), epic.getDescription());
+        header.setVersion(epic.getVersion());
+        return header;
+    }
+
+    private void removeEpic(int id) {
+        Epic epic = epicStates.remove(id);
+        if (epic != null) {
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                Subtask subtask = draft.subtasks.get(epic.getSubtaskId(i));
+                prioritizedTasks.remove(subtask);
+                historyManager.remove(subtask.getId());
+                event(TaskEvent.Type.DELETED, subtask);
+            }
+            draft = draft.removeEpic(id);
+            historyManager.remove(id);
+            event(TaskEvent.Type.DELETED, epic);
+        }
+    }
+
+    private void insertSubtask(Subtask savedSubtask) {
+        savedSubtask.setVersion(1);
+        prioritizedTasks.add(savedSubtask);
+        draft = draft.putSubtask(savedSubtask);
+        event(TaskEvent.Type.CREATED, savedSubtask);
+        Epic epic = epicStates.get(savedSubtask.getEpicId());
+        TaskStatus oldStatus = epic.getStatus();
+        epic.addSubtaskId(savedSubtask.getId(), savedSubtask.getStatus());
+        epicStatusChanged(epic, oldStatus);
+    }
+
+    private void replaceSubtask(Subtask oldSubtask, Subtask savedSubtask) {
+        savedSubtask.setVersion(oldSubtask.getVersion() + 1);
+        prioritizedTasks.remove(oldSubtask);
+        prioritizedTasks.add(savedSubtask);
+        draft = draft.putSubtask(savedSubtask);
+        event(TaskEvent.Type.UPDATED, savedSubtask);
+        Epic epic = epicStates.get(oldSubtask.getEpicId());
+        TaskStatus oldStatus = epic.getStatus();
+        epic.changeSubtaskStatus(oldSubtask.getStatus(), savedSubtask.getStatus());
+        epicStatusChanged(epic, oldStatus);
+    }
+
+    private void removeSubtask(int id) {
+        Subtask subtask = draft.subtasks.get(id);
+        if (subtask != null) {
+            prioritizedTasks.remove(subtask);
+            draft = draft.removeSubtask(id);
+            event(TaskEvent.Type.DELETED, subtask);
+            Epic epic = epicStates.get(subtask.getEpicId());
+            TaskStatus oldStatus = epic.getStatus();
+            epic.removeSubtaskId(id, subtask.getStatus());
+            epicStatusChanged(epic, oldStatus);
+            historyManager.remove(id);
+        }
+    }
+
+    // Для проверки пакета: эпик нужен вместе со списком подзадач, он есть только в epicStates
+    private Task find(int id) {
+        Task task = draft.tasks.get(id);
+        if (task == null) {
+            task = epicStates.get(id);
+        }
+        return task != null ? task : draft.subtasks.get(id);
+    }
+
+    private void checkTimeSlot(Task task) {
+        if (prioritizedTasks.overlaps(task)) {
+            throw new ManagerValidationException("Время задачи " + task.getName() + " пересекается с другой задачей");
+        }
+    }
+
+    private void event(TaskEvent.Type type, Task task) {
+        if (events.hasSubscribers()) {
+            pendingEvents.add(TaskEvent.of(type, task));
+        }
+    }
+
+    private void epicStatusChanged(Epic epic, TaskStatus oldStatus) {
+        if (epic.getStatus() != oldStatus) {
+            event(TaskEvent.Type.UPDATED, epic);
+        }
+    }
+
+    private void publish() {
+        state = draft;
+        for (TaskEvent event : pendingEvents) {
+            events.publish(event);
+        }
+        pendingEvents.clear();
+    }
+}
@@ -0,0 +1,112 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Пакет изменений для {@link TaskManager#applyBatch(TaskBatch)}.
+ * <p>
+ * Методы add* возвращают ссылку на будущий id: -1 для первого создания в пакете, -2 для второго и т.д.
+ * Ссылку можно передать как epicId подзадачи или как id в update* и delete* того же пакета.
+ * Реальные id выдаются подряд одним блоком при применении пакета.
+ */
+public class TaskBatch {
+    enum Kind {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    // Для ADD и UPDATE task - сама сущность, для DELETE - null
+    record Operation(Kind kind, TaskType type, int id, Task task) {
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<Task> created = new ArrayList<>();
+
+    public int addTask(Task task) {
+        return add(TaskType.TASK, task);
+    }
+
+    public int addEpic(Epic epic) {
+        return add(TaskType.EPIC, epic);
+    }
+
+    public int addSubtask(Subtask subtask) {
+        return add(TaskType.SUBTASK, subtask);
+    }
+
+    public TaskBatch updateTask(Task task) {
+        operations.add(new Operation(Kind.UPDATE, TaskType.TASK, task.getId(), task));
+        return this;
+    }
+
+    public TaskBatch updateEpic(Epic epic) {
+        operations.add(new Operation(Kind.UPDATE, TaskType.EPIC, epic.getId(), epic));
+        return this;
+    }
+
+    public TaskBatch updateSubtask(Subtask subtask) {
+        operations.add(new Operation(Kind.UPDATE, TaskType.SUBTASK, subtask.getId(), subtask));
+        return this;
+    }
+
+    public TaskBatch deleteTask(int id) {
+        operations.add(new Operation(Kind.DELETE, TaskType.TASK, id, null));
+        return this;
+    }
+
+    public TaskBatch deleteEpic(int id) {
+        operations.add(new Operation(Kind.DELETE, TaskType.EPIC, id, null));
+        return this;
+    }
+
+    public TaskBatch deleteSubtask(int id) {
+        operations.add(new Operation(Kind.DELETE, TaskType.SUBTASK, id, null));
+        return this;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    List<Operation> operations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    int createCount() {
+        return created.size();
+    }
+
+    // После успешного применения проставляет id переданным в add* объектам, как это делают addTask и др.
+    int[] assignIds(int firstId) {
+        int[] ids = new int[created.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = firstId + i;
+        }
+        assignIds(ids);
+        return ids;
+    }
+
+    // То же для id, выданных не подряд: ids[i] - id i-й создаваемой сущности
+    void assignIds(int[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            Task task = created.get(i);
+            task.setId(ids[i]);
+            if (task instanceof Subtask subtask && subtask.getEpicId() < 0) {
+                subtask.setEpicId(ids[-subtask.getEpicId() - 1]);
+            }
+        }
+    }
+
+    private int add(TaskType type, Task task) {
+        created.add(task);
+        operations.add(new Operation(Kind.ADD, type, -created.size(), task));
+        return -created.size();
+    }
+}
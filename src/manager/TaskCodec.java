@@ -0,0 +1,389 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компактный бинарный формат задач, эпиков и подзадач для записи прямо в {@link ByteBuffer}.
+ * <p>
+ * Запись: байт версии, байт флагов (тип, статус, наличие времени и длительности), id и номер изменения
+ * сущности в varint, название и описание, время (секунды в zigzag-varint и наносекунды), у подзадачи
+ * id эпика, у эпика id подзадач разностями от предыдущего и счётчики подзадач по статусам. Записи версии 1
+ * номера изменения не содержат и читаются с нулевым.
+ * <p>
+ * Строка начинается с varint-тега: 0 - null, нечётный - ссылка на словарь, чётный - длина в байтах UTF-8
+ * плюс один и сами байты. Словарь нужен, когда записи читаются тем же порядком, что писались (поток,
+ * файл): каждая новая строка получает следующий номер, пока словарь не заполнится, и повторы пишутся
+ * ссылками. Экземпляр со словарём ведёт одно направление; пишущий и читающий должны начинать
+ * с одинакового состояния, см. {@link #reset()}. Экземпляр не потокобезопасен.
+ */
+public final class TaskCodec {
+    public static final byte VERSION = 2;
+
+    private static final int TYPE_MASK = 0b11;
+    private static final int STATUS_SHIFT = 2;
+    private static final int STATUS_MASK = 0b11;
+    private static final int HAS_START_TIME = 1 << 4;
+    private static final int HAS_DURATION = 1 << 5;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final int dictionaryCapacity;
+    // Строка -> номер при записи и номер -> строка при чтении
+    private final Map<String, Integer> codes;
+    private String[] entries;
+    private int size;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Кодек без словаря: каждая запись самодостаточна.
+     */
+    public TaskCodec() {
+        this(0);
+    }
+
+    /**
+     * Кодек со словарём на dictionaryCapacity строк.
+     */
+    public TaskCodec(int dictionaryCapacity) {
+        if (dictionaryCapacity < 0) {
+            throw new IllegalArgumentException("Размер словаря не может быть отрицательным: " + dictionaryCapacity);
+        }
+        this.dictionaryCapacity = dictionaryCapacity;
+        codes = dictionaryCapacity == 0 ? null : new HashMap<>();
+        entries = new String[Math.min(dictionaryCapacity, 64)];
+    }
+
+    /**
+     * Очищает словарь, чтобы начать новый поток.
+     */
+    public void reset() {
+        if (codes != null) {
+            codes.clear();
+        }
+        Arrays.fill(entries, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Дописывает запись с позиции буфера. Если места не хватило, бросает {@link BufferOverflowException},
+     * а позиция буфера и словарь остаются прежними.
+     */
+    public void write(Task task, ByteBuffer out) {
+        int position = out.position();
+        int dictionarySize = size;
+        try {
+            writeRecord(task, out);
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            for (int i = dictionarySize; i < size; i++) {
+                codes.remove(entries[i]);
+                entries[i] = null;
+            }
+            size = dictionarySize;
+            throw e;
+        }
+    }
+
+    /**
+     * Читает запись с позиции буфера. Повреждённые данные дают {@link ManagerSaveException}.
+     */
+    public Task read(ByteBuffer in) {
+        try {
+            return readRecord(in);
+        } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException | DateTimeException e) {
+            throw new ManagerSaveException("Повреждённая запись на позиции " + in.position(), e);
+        }
+    }
+
+    private void writeRecord(Task task, ByteBuffer out) {
+        TaskStatus status = task.getStatus();
+        LocalDateTime startTime = task.getStartTime();
+        Duration duration = task.getDuration();
+        int flags = task.getType().ordinal()
+                | (status == null ? 0 : status.ordinal() + 1) << STATUS_SHIFT
+                | (startTime == null ? 0 : HAS_START_TIME)
+                | (duration == null ? 0 : HAS_DURATION);
+        out.put(VERSION);
+        out.put((byte) flags);
+        putVarInt(out, task.getId());
+        putVarLong(out, task.getVersion());
+        writeString(task.getName(), out);
+        writeString(task.getDescription(), out);
+        if (startTime != null) {
+            putVarLong(out, zigzag(startTime.toEpochSecond(ZoneOffset.UTC)));
+            putVarInt(out, startTime.getNano());
+        }
+        if (duration != null) {
+            putVarLong(out, zigzag(duration.getSeconds()));
+            putVarInt(out, duration.getNano());
+        }
+        if (task instanceof Subtask subtask) {
+            putVarInt(out, subtask.getEpicId());
+        } else if (task instanceof Epic epic) {
+            int count = epic.getSubtaskCount();
+            putVarInt(out, count);
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                int id = epic.getSubtaskId(i);
+                putVarInt(out, id - previous);
+                previous = id;
+            }
+            for (TaskStatus subtaskStatus : STATUSES) {
+                putVarInt(out, epic.getSubtaskCount(subtaskStatus));
+            }
+        }
+    }
+
+    private Task readRecord(ByteBuffer in) {
+        byte version = in.get();
+        if (version != VERSION && version != 1) {
+            throw new IllegalArgumentException("Неподдерживаемая версия формата: " + version);
+        }
+        int flags = in.get();
+        int typeOrdinal = flags & TYPE_MASK;
+        int statusCode = flags >>> STATUS_SHIFT & STATUS_MASK;
+        if ((flags & ~(TYPE_MASK | STATUS_MASK << STATUS_SHIFT | HAS_START_TIME | HAS_DURATION)) != 0
+                || typeOrdinal >= TYPES.length || statusCode > STATUSES.length) {
+            throw new IllegalArgumentException("Неизвестные флаги " + flags);
+        }
+        TaskStatus status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+        int id = getVarInt(in);
+        long entityVersion = version == 1 ? 0 : getVarLong(in);
+        String name = readString(in);
+        String description = readString(in);
+        LocalDateTime startTime = null;
+        if ((flags & HAS_START_TIME) != 0) {
+            long seconds = unzigzag(getVarLong(in));
+            startTime = LocalDateTime.ofEpochSecond(seconds, getVarInt(in), ZoneOffset.UTC);
+        }
+        Duration duration = null;
+        if ((flags & HAS_DURATION) != 0) {
+            long seconds = unzigzag(getVarLong(in));
+            duration = Duration.ofSeconds(seconds, getVarInt(in));
+        }
+        Task task = switch (TYPES[typeOrdinal]) {
+            case SUBTASK -> new Subtask(id, name, description, status, getVarInt(in), startTime, duration);
+            case EPIC -> {
+                int count = getVarInt(in);
+                // Каждый id занимает хотя бы байт, так что длина не может превышать остаток буфера
+                if (count < 0 || count > in.remaining()) {
+                    throw new IllegalArgumentException("Неверное число подзадач " + count);
+                }
+                int[] subtaskIds = new int[count];
+                int previous = 0;
+                for (int i = 0; i < count; i++) {
+                    int delta = getVarInt(in);
+                    if (i > 0 && delta <= 0) {
+                        throw new IllegalArgumentException("id подзадач не по возрастанию");
+                    }
+                    previous += delta;
+                    subtaskIds[i] = previous;
+                }
+                int[] statusCounts = new int[STATUSES.length];
+                for (int i = 0; i < statusCounts.length; i++) {
+                    statusCounts[i] = getVarInt(in);
+                }
+                Epic epic = new Epic(id, name, description, subtaskIds, statusCounts);
+                epic.setStartTime(startTime);
+                epic.setDuration(duration);
+                yield epic;
+            }
+            default -> new Task(id, name, description, status, startTime, duration);
+        };
+        task.setVersion(entityVersion);
+        return task;
+    }
+
+    private void writeString(String value, ByteBuffer out) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        if (codes != null) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                putVarInt(out, code << 1 | 1);
+                return;
+            }
+        }
+        int length = utf8Length(value);
+        putVarInt(out, (length + 1) << 1);
+        if (out.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        if (out.hasArray()) {
+            // Побайтовый put в кучный буфер проверяет границы на каждом байте, в массив пишем напрямую
+            int end = putUtf8(value, out.array(), out.arrayOffset() + out.position());
+            out.position(end - out.arrayOffset());
+        } else {
+            byte[] bytes = scratch(length);
+            putUtf8(value, bytes, 0);
+            out.put(bytes, 0, length);
+        }
+        remember(value);
+    }
+
+    private String readString(ByteBuffer in) {
+        int tag = getVarInt(in);
+        if (tag == 0) {
+            return null;
+        }
+        if ((tag & 1) != 0) {
+            int code = tag >>> 1;
+            if (code >= size) {
+                throw new IllegalArgumentException("Нет строки " + code + " в словаре");
+            }
+            return entries[code];
+        }
+        int length = (tag >>> 1) - 1;
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = scratch(length);
+            in.get(bytes, 0, length);
+            value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        remember(value);
+        return value;
+    }
+
+    private void remember(String value) {
+        if (size == dictionaryCapacity) {
+            return;
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.min(dictionaryCapacity, size * 2));
+        }
+        entries[size] = value;
+        if (codes != null) {
+            codes.putIfAbsent(value, size);
+        }
+        size++;
+    }
+
+    // Длина в UTF-8; одиночная суррогатная половина кодируется как '?', как в String.getBytes
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    // Пишет value в UTF-8 начиная с offset и возвращает позицию за последним байтом
+    private static int putUtf8(String value, byte[] out, int offset) {
+        int length = value.length();
+        int position = offset;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | c >> 6);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | codePoint >> 18);
+                out[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                out[position++] = (byte) '?';
+            } else {
+                out[position++] = (byte) (0xE0 | c >> 12);
+                out[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                out[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+
+    private byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+
+    // Целые без знака в 7-битных группах; используются и другими форматами пакета
+    static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинный varint");
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинный varint");
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,21 @@
+package manager;
+
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+
+/**
+ * Изменение сущности менеджера. Для удаления status - статус на момент удаления.
+ * Изменение статуса эпика из-за его подзадач публикуется как UPDATED эпика.
+ */
+public record TaskEvent(Type type, TaskType entityType, int id, TaskStatus status) {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    static TaskEvent of(Type type, Task task) {
+        return new TaskEvent(type, task.getType(), task.getId(), task.getStatus());
+    }
+}
@@ -0,0 +1,64 @@
+package manager;
+
+import model.Epic;
+import model.Task;
+import model.TaskStatus;
+import java.util.Arrays;
+
+/**
+ * Рассылка событий менеджера подписчикам. Список подписок копируется при изменении,
+ * поэтому публикация не берёт блокировок, а без подписчиков не создаёт даже объект события.
+ */
+final class TaskEventBus {
+    private static final TaskSubscription[] NO_SUBSCRIPTIONS = new TaskSubscription[0];
+
+    private volatile TaskSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce) {
+        TaskSubscription subscription = new TaskSubscription(this, listener, capacity, coalesce);
+        synchronized (this) {
+            TaskSubscription[] current = subscriptions;
+            TaskSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            subscriptions = updated;
+        }
+        subscription.start();
+        return subscription;
+    }
+
+    synchronized void unsubscribe(TaskSubscription subscription) {
+        TaskSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                TaskSubscription[] updated = new TaskSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    void publish(TaskEvent.Type type, Task task) {
+        if (hasSubscribers()) {
+            publish(TaskEvent.of(type, task));
+        }
+    }
+
+    void publish(TaskEvent event) {
+        for (TaskSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    // Статус эпика пересчитывается при изменении подзадач; событие нужно, только если он поменялся
+    void publishEpicStatus(Epic epic, TaskStatus oldStatus) {
+        if (epic.getStatus() != oldStatus) {
+            publish(TaskEvent.Type.UPDATED, epic);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package manager;
+
+@FunctionalInterface
+public interface TaskListener {
+    void onEvent(TaskEvent event);
+}
@@ -1,9 +1,18 @@
 package manager;
 
 import model.Epic;
+import model.EpicView;
 import model.Subtask;
+import model.SubtaskView;
 import model.Task;
+import model.TaskStatus;
+import model.TaskView;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     // Методы для Task
@@ -31,6 +40,170 @@ public interface TaskManager {
     void updateSubtask(Subtask subtask);
     void deleteSubtask(int id);
 
+    // Обновление с проверкой версии (compare-and-set): применяется, только если хранимая версия сущности
+    // равна expectedVersion, иначе ничего не меняет и возвращает false. Как и обычное обновление, увеличивает
+    // версию на единицу и записывает её в переданный объект. get* возвращают копии, поэтому для
+    // чтения-изменения-записи можно менять сам прочитанный объект. Реализация по умолчанию читает версию
+    // и обновляет отдельными вызовами, поэтому атомарна только в однопоточных менеджерах
+    default boolean updateTask(Task task, long expectedVersion) {
+        if (!hasVersion(getTasks(task.getId() - 1, 1), task.getId(), expectedVersion)) {
+            return false;
+        }
+        updateTask(task);
+        return true;
+    }
+
+    default boolean updateEpic(Epic epic, long expectedVersion) {
+        if (!hasVersion(getEpics(epic.getId() - 1, 1), epic.getId(), expectedVersion)) {
+            return false;
+        }
+        updateEpic(epic);
+        return true;
+    }
+
+    default boolean updateSubtask(Subtask subtask, long expectedVersion) {
+        List<Subtask> page = getSubtasks(subtask.getId() - 1, 1);
+        if (!hasVersion(page, subtask.getId(), expectedVersion) || page.getFirst().getEpicId() != subtask.getEpicId()) {
+            return false;
+        }
+        updateSubtask(subtask);
+        return true;
+    }
+
+    // Пакет создаётся, обновляется и удаляется целиком либо не применяется вовсе
+    // (ManagerValidationException). Возвращает id созданных сущностей в порядке add* в пакете
+    int[] applyBatch(TaskBatch batch);
+
+    // Постраничное чтение в порядке id: не больше limit элементов с id > afterId.
+    // Следующая страница запрашивается с afterId, равным id последнего элемента
+    List<Task> getTasks(int afterId, int limit);
+    List<Epic> getEpics(int afterId, int limit);
+    List<Subtask> getSubtasks(int afterId, int limit);
+
+    // Неизменяемые представления сущностей для чтения без копий: get* на каждый вызов отдают изменяемую копию,
+    // а представление можно хранить и передавать между потоками, и изменить через него менеджер нельзя.
+    // Чтение не попадает в историю просмотров. Менеджеры, хранящие сущности в памяти, строят представление
+    // по хранимому объекту и отдают одно и то же, пока сущность не изменится. Реализация по умолчанию
+    // строит представления по копиям из страниц get*, то есть заново при каждом чтении
+    default TaskView getTaskView(int id) {
+        Task task = found(getTasks(id - 1, 1), id);
+        return task == null ? null : TaskView.of(task);
+    }
+
+    default EpicView getEpicView(int id) {
+        Epic epic = found(getEpics(id - 1, 1), id);
+        return epic == null ? null : EpicView.of(epic);
+    }
+
+    default SubtaskView getSubtaskView(int id) {
+        Subtask subtask = found(getSubtasks(id - 1, 1), id);
+        return subtask == null ? null : SubtaskView.of(subtask);
+    }
+
+    default List<TaskView> getTaskViews(int afterId, int limit) {
+        return views(getTasks(afterId, limit), TaskView::of);
+    }
+
+    default List<EpicView> getEpicViews(int afterId, int limit) {
+        return views(getEpics(afterId, limit), EpicView::of);
+    }
+
+    default List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        return views(getSubtasks(afterId, limit), SubtaskView::of);
+    }
+
+    // Ленивые потоки в порядке id поверх хранилища; элементы копируются по мере обхода. Поддерживают parallel()
+    Stream<Task> streamTasks();
+    Stream<Epic> streamEpics();
+    Stream<Subtask> streamSubtasks();
+
+    // Выборки в порядке id. Реализация по умолчанию просматривает хранилище целиком
+    default List<Task> getTasksByStatus(TaskStatus status) {
+        return streamTasks().filter(task -> task.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default List<Epic> getEpicsByStatus(TaskStatus status) {
+        return streamEpics().filter(epic -> epic.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return streamSubtasks().filter(subtask -> subtask.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default List<Subtask> getEpicSubtasks(int epicId, TaskStatus status) {
+        return getEpicSubtasks(epicId).stream()
+                .filter(subtask -> subtask.getStatus() == status)
+                .collect(Collectors.toList());
+    }
+
+    default List<Task> findByNamePrefix(String prefix) {
+        return Stream.of(streamTasks(), streamEpics(), streamSubtasks())
+                .flatMap(stream -> stream)
+                .filter(task -> task.getName() != null && task.getName().startsWith(prefix))
+                .sorted(Comparator.comparingInt(Task::getId))
+                .collect(Collectors.toList());
+    }
+
+    // Полнотекстовый поиск по названиям и описаниям: id не больше limit сущностей по убыванию релевантности.
+    // Все слова запроса должны встретиться, слово со * на конце ищется как префикс (подробнее - TextIndex).
+    // Реализация по умолчанию просматривает хранилище целиком
+    default int[] search(String query, int limit) {
+        return TextIndex.scan(Stream.of(streamTasks(), streamEpics(), streamSubtasks()).flatMap(stream -> stream),
+                query, limit);
+    }
+
     // История просмотров
     List<Task> getHistory();
+
+    // Размеры хранилища и истории, например для метрик. Менеджеры в памяти отвечают без обхода;
+    // реализация по умолчанию считает элементы потоков и копию истории
+    default int taskCount() {
+        return (int) streamTasks().count();
+    }
+
+    default int epicCount() {
+        return (int) streamEpics().count();
+    }
+
+    default int subtaskCount() {
+        return (int) streamSubtasks().count();
+    }
+
+    default int historySize() {
+        return getHistory().size();
+    }
+
+    // Просмотры отдельного пользователя попадают только в его собственную историю
+    Task getTask(String userId, int id);
+    Epic getEpic(String userId, int id);
+    Subtask getSubtask(String userId, int id);
+    List<Task> getHistory(String userId);
+
+    // Задачи и подзадачи с заданным временем начала, по возрастанию startTime
+    List<Task> getPrioritizedTasks();
+
+    // Подписка на создание, изменение и удаление сущностей. События доставляются асинхронно;
+    // при переполнении буфера подписчик теряет события, а изменения в менеджере не ждут его.
+    // coalesce объединяет недоставленные события одной сущности в одно
+    TaskSubscription subscribe(TaskListener listener, int capacity, boolean coalesce);
+
+    default TaskSubscription subscribe(TaskListener listener) {
+        return subscribe(listener, TaskSubscription.DEFAULT_CAPACITY, false);
+    }
+
+    private static <T extends Task, V> List<V> views(List<T> page, Function<T, V> view) {
+        List<V> views = new ArrayList<>(page.size());
+        for (T task : page) {
+            views.add(view.apply(task));
+        }
+        return views;
+    }
+
+    private static <T extends Task> T found(List<T> page, int id) {
+        return page.isEmpty() || page.getFirst().getId() != id ? null : page.getFirst();
+    }
+
+    private static boolean hasVersion(List<? extends Task> page, int id, long version) {
+        return !page.isEmpty() && page.getFirst().getId() == id && page.getFirst().getVersion() == version;
+    }
 }
\ No newline at end of file
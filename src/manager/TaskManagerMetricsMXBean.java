@@ -0,0 +1,20 @@
+package manager;
+
+/**
+ * Размеры хранилища и сводка по операциям {@link InstrumentedTaskManager} для JMX.
+ */
+public interface TaskManagerMetricsMXBean {
+    long getTaskCount();
+
+    long getEpicCount();
+
+    long getSubtaskCount();
+
+    int getHistorySize();
+
+    // Число вызовов всех операций
+    long getOperationCount();
+
+    // Текстовая сводка, как в InstrumentedTaskManager.dump()
+    String getDump();
+}
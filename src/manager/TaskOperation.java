@@ -0,0 +1,71 @@
+package manager;
+
+/**
+ * Операции {@link TaskManager}, по которым {@link InstrumentedTaskManager} ведёт статистику.
+ * Варианты с userId учитываются вместе с обычными get*.
+ */
+public enum TaskOperation {
+    GET_ALL_TASKS,
+    DELETE_ALL_TASKS,
+    GET_TASK,
+    ADD_TASK,
+    UPDATE_TASK,
+    DELETE_TASK,
+    GET_ALL_EPICS,
+    DELETE_ALL_EPICS,
+    GET_EPIC,
+    ADD_EPIC,
+    UPDATE_EPIC,
+    DELETE_EPIC,
+    GET_EPIC_SUBTASKS,
+    GET_ALL_SUBTASKS,
+    DELETE_ALL_SUBTASKS,
+    GET_SUBTASK,
+    ADD_SUBTASK,
+    UPDATE_SUBTASK,
+    DELETE_SUBTASK,
+    APPLY_BATCH,
+    GET_TASKS_PAGE,
+    GET_EPICS_PAGE,
+    GET_SUBTASKS_PAGE,
+    GET_TASK_VIEW,
+    GET_EPIC_VIEW,
+    GET_SUBTASK_VIEW,
+    GET_TASK_VIEWS_PAGE,
+    GET_EPIC_VIEWS_PAGE,
+    GET_SUBTASK_VIEWS_PAGE,
+    STREAM_TASKS,
+    STREAM_EPICS,
+    STREAM_SUBTASKS,
+    GET_TASKS_BY_STATUS,
+    GET_EPICS_BY_STATUS,
+    GET_SUBTASKS_BY_STATUS,
+    GET_EPIC_SUBTASKS_BY_STATUS,
+    FIND_BY_NAME_PREFIX,
+    SEARCH,
+    GET_HISTORY,
+    GET_PRIORITIZED_TASKS,
+    SUBSCRIBE;
+
+    private final String displayName = toCamelCase(name());
+
+    // Имя в стиле метода: GET_ALL_TASKS -> getAllTasks
+    public String displayName() {
+        return displayName;
+    }
+
+    private static String toCamelCase(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        boolean upper = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_') {
+                upper = true;
+            } else {
+                result.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return result.toString();
+    }
+}
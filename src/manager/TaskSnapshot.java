@@ -0,0 +1,254 @@
+package manager;
+
+import model.Epic;
+import model.EpicView;
+import model.Subtask;
+import model.SubtaskView;
+import model.Task;
+import model.TaskView;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Неизменяемое согласованное состояние {@link SnapshotTaskManager} на момент {@link SnapshotTaskManager#snapshot()}
+ * или доска, восстановленная {@link AuditLog} на момент времени.
+ * <p>
+ * Снимок не меняется при последующих изменениях менеджера и читается без блокировок: например,
+ * эпик и его подзадачи всегда видны в одном и том же состоянии. Методы возвращают копии сущностей,
+ * так что изменение полученных объектов не затрагивает ни снимок, ни менеджер.
+ * Чтение из снимка не попадает в историю просмотров.
+ */
+public final class TaskSnapshot {
+    static final TaskSnapshot EMPTY = new TaskSnapshot(PersistentIdMap.empty(), PersistentIdMap.empty(),
+            PersistentIdMap.empty(), PersistentIdMap.empty(), 0);
+
+    final PersistentIdMap<Task> tasks;
+    // Эпики без подзадач: имя и описание. Подзадачи и статус берутся из epicSubtasks
+    final PersistentIdMap<Epic> epics;
+    final PersistentIdMap<Subtask> subtasks;
+    final PersistentIdMap<PersistentIdMap<Subtask>> epicSubtasks;
+    private final long version;
+
+    private TaskSnapshot(PersistentIdMap<Task> tasks, PersistentIdMap<Epic> epics, PersistentIdMap<Subtask> subtasks,
+                         PersistentIdMap<PersistentIdMap<Subtask>> epicSubtasks, long version) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.epicSubtasks = epicSubtasks;
+        this.version = version;
+    }
+
+    /**
+     * Номер версии состояния: растёт с каждым изменением менеджера.
+     */
+    public long version() {
+        return version;
+    }
+
+    public Task getTask(int id) {
+        Task task = tasks.get(id);
+        return task == null ? null : new Task(task);
+    }
+
+    public Epic getEpic(int id) {
+        Epic header = epics.get(id);
+        return header == null ? null : buildEpic(header);
+    }
+
+    public Subtask getSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        return subtask == null ? null : new Subtask(subtask);
+    }
+
+    public List<Task> getAllTasks() {
+        return getTasks(-1, Integer.MAX_VALUE);
+    }
+
+    public List<Epic> getAllEpics() {
+        return getEpics(-1, Integer.MAX_VALUE);
+    }
+
+    public List<Subtask> getAllSubtasks() {
+        return getSubtasks(-1, Integer.MAX_VALUE);
+    }
+
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        List<Subtask> result = new ArrayList<>();
+        PersistentIdMap<Subtask> ofEpic = epicSubtasks.get(epicId);
+        if (ofEpic != null) {
+            ofEpic.forEachAfter(-1, subtask -> result.add(new Subtask(subtask)));
+        }
+        return result;
+    }
+
+    // Представления задач и подзадач строятся из хранимых объектов снимка, которые не меняются,
+    // и переиспользуются; представление эпика собирается при каждом чтении
+    public TaskView getTaskView(int id) {
+        Task task = tasks.get(id);
+        return task == null ? null : TaskView.of(task);
+    }
+
+    public EpicView getEpicView(int id) {
+        Epic header = epics.get(id);
+        return header == null ? null : EpicView.of(buildEpic(header));
+    }
+
+    public SubtaskView getSubtaskView(int id) {
+        Subtask subtask = subtasks.get(id);
+        return subtask == null ? null : SubtaskView.of(subtask);
+    }
+
+    public List<TaskView> getTaskViews(int afterId, int limit) {
+        return Paging.page(tasks, afterId, limit, TaskView::of);
+    }
+
+    public List<EpicView> getEpicViews(int afterId, int limit) {
+        return Paging.page(epics, afterId, limit, header -> EpicView.of(buildEpic(header)));
+    }
+
+    public List<SubtaskView> getSubtaskViews(int afterId, int limit) {
+        return Paging.page(subtasks, afterId, limit, SubtaskView::of);
+    }
+
+    // Постраничное чтение в порядке id, как в TaskManager
+    public List<Task> getTasks(int afterId, int limit) {
+        return Paging.page(tasks, afterId, limit, Task::new);
+    }
+
+    public List<Epic> getEpics(int afterId, int limit) {
+        return Paging.page(epics, afterId, limit, this::buildEpic);
+    }
+
+    public List<Subtask> getSubtasks(int afterId, int limit) {
+        return Paging.page(subtasks, afterId, limit, Subtask::new);
+    }
+
+    public Stream<Task> streamTasks() {
+        return stream(tasks, Task::new);
+    }
+
+    public Stream<Epic> streamEpics() {
+        return stream(epics, this::buildEpic);
+    }
+
+    public Stream<Subtask> streamSubtasks() {
+        return stream(subtasks, Subtask::new);
+    }
+
+    // Снимок не хранит индекс по времени, поэтому список строится сортировкой
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>();
+        tasks.forEachAfter(-1, task -> {
+            if (task.getStartTime() != null) {
+                result.add(new Task(task));
+            }
+            return true;
+        });
+        subtasks.forEachAfter(-1, subtask -> {
+            if (subtask.getStartTime() != null) {
+                result.add(new Subtask(subtask));
+            }
+            return true;
+        });
+        result.sort(Comparator.comparing(Task::getStartTime).thenComparingInt(Task::getId));
+        return result;
+    }
+
+    public int taskCount() {
+        return tasks.size();
+    }
+
+    public int epicCount() {
+        return epics.size();
+    }
+
+    public int subtaskCount() {
+        return subtasks.size();
+    }
+
+    boolean contains(int id) {
+        return tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id);
+    }
+
+    TaskSnapshot putTask(Task task) {
+        return new TaskSnapshot(tasks.put(task.getId(), task), epics, subtasks, epicSubtasks, version + 1);
+    }
+
+    TaskSnapshot removeTask(int id) {
+        return new TaskSnapshot(tasks.remove(id), epics, subtasks, epicSubtasks, version + 1);
+    }
+
+    TaskSnapshot clearTasks() {
+        return new TaskSnapshot(PersistentIdMap.empty(), epics, subtasks, epicSubtasks, version + 1);
+    }
+
+    TaskSnapshot putEpic(Epic header) {
+        PersistentIdMap<PersistentIdMap<Subtask>> newEpicSubtasks = epicSubtasks.containsKey(header.getId())
+                ? epicSubtasks : epicSubtasks.put(header.getId(), PersistentIdMap.empty());
+        return new TaskSnapshot(tasks, epics.put(header.getId(), header), subtasks, newEpicSubtasks, version + 1);
+    }
+
+    TaskSnapshot removeEpic(int id) {
+        PersistentIdMap<Subtask> newSubtasks = subtasks;
+        PersistentIdMap<Subtask> ofEpic = epicSubtasks.get(id);
+        if (ofEpic != null) {
+            for (Iterator<Subtask> iterator = ofEpic.iterator(); iterator.hasNext(); ) {
+                newSubtasks = newSubtasks.remove(iterator.next().getId());
+            }
+        }
+        return new TaskSnapshot(tasks, epics.remove(id), newSubtasks, epicSubtasks.remove(id), version + 1);
+    }
+
+    TaskSnapshot clearEpics() {
+        return new TaskSnapshot(tasks, PersistentIdMap.empty(), PersistentIdMap.empty(), PersistentIdMap.empty(),
+                version + 1);
+    }
+
+    TaskSnapshot putSubtask(Subtask subtask) {
+        PersistentIdMap<Subtask> ofEpic = epicSubtasks.get(subtask.getEpicId());
+        return new TaskSnapshot(tasks, epics, subtasks.put(subtask.getId(), subtask),
+                epicSubtasks.put(subtask.getEpicId(), ofEpic.put(subtask.getId(), subtask)), version + 1);
+    }
+
+    TaskSnapshot removeSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            return this;
+        }
+        PersistentIdMap<Subtask> ofEpic = epicSubtasks.get(subtask.getEpicId());
+        return new TaskSnapshot(tasks, epics, subtasks.remove(id),
+                epicSubtasks.put(subtask.getEpicId(), ofEpic.remove(id)), version + 1);
+    }
+
+    TaskSnapshot clearSubtasks() {
+        PersistentIdMap<PersistentIdMap<Subtask>> newEpicSubtasks = PersistentIdMap.empty();
+        for (Iterator<Epic> iterator = epics.iterator(); iterator.hasNext(); ) {
+            newEpicSubtasks = newEpicSubtasks.put(iterator.next().getId(), PersistentIdMap.empty());
+        }
+        return new TaskSnapshot(tasks, epics, PersistentIdMap.empty(), newEpicSubtasks, version + 1);
+    }
+
+    // Эпик собирается из заголовка и подзадач снимка, его статус вычисляется заново
+    private Epic buildEpic(Epic header) {
+        Epic epic = new Epic(header.getId(), header.getName(), header.getDescription());
+        epic.setVersion(header.getVersion());
+        epicSubtasks.get(header.getId()).forEachAfter(-1, subtask -> {
+            epic.addSubtaskId(subtask.getId(), subtask.getStatus());
+            return true;
+        });
+        return epic;
+    }
+
+    private static <T, R> Stream<R> stream(PersistentIdMap<T> storage, Function<? super T, R> copy) {
+        Spliterator<T> spliterator = Spliterators.spliterator(storage.iterator(), storage.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false).map(copy);
+    }
+}
@@ -0,0 +1,148 @@
+package manager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Подписка на события {@link TaskManager#subscribe(TaskListener, int, boolean)}.
+ * <p>
+ * События попадают в ограниченное кольцо и доставляются слушателю в отдельном виртуальном потоке,
+ * поэтому изменения в менеджере не ждут подписчика. Если кольцо заполнено, событие теряется
+ * и учитывается в {@link #droppedEvents()}. Исключение слушателя не прерывает доставку: событие
+ * учитывается в {@link #failedEvents()}, а последнее исключение доступно через {@link #lastFailure()}.
+ * <p>
+ * С объединением в кольце стоит не больше одного события на сущность: пока слушатель его не получил,
+ * новые события той же сущности заменяют его, так что серия обновлений приходит одним событием.
+ * Создание, за которым следуют обновления, остаётся созданием с последним статусом.
+ */
+public final class TaskSubscription implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final TaskListener listener;
+    private final EventRing<TaskEvent> ring;
+    // Последнее недоставленное событие по id сущности, только при объединении
+    private final ConcurrentMap<Integer, TaskEvent> pending;
+    private final TaskEventBus bus;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile RuntimeException lastFailure;
+    private final Thread consumer;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    TaskSubscription(TaskEventBus bus, TaskListener listener, int capacity, boolean coalesce) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера событий должен быть положительным: " + capacity);
+        }
+        this.bus = bus;
+        this.listener = listener;
+        this.ring = new EventRing<>(capacity);
+        this.pending = coalesce ? new ConcurrentHashMap<>() : null;
+        this.consumer = Thread.ofVirtual().name("task-events").unstarted(this::deliver);
+    }
+
+    void start() {
+        consumer.start();
+    }
+
+    /**
+     * Количество событий, потерянных из-за переполнения буфера.
+     */
+    public long droppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * Количество событий, на которых слушатель бросил исключение.
+     */
+    public long failedEvents() {
+        return failed.sum();
+    }
+
+    /**
+     * Последнее исключение слушателя или null, если их не было.
+     */
+    public RuntimeException lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Отписывает слушателя. Недоставленные события отбрасываются.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            bus.unsubscribe(this);
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    void offer(TaskEvent event) {
+        if (pending == null) {
+            enqueue(event);
+            return;
+        }
+        while (true) {
+            TaskEvent previous = pending.putIfAbsent(event.id(), event);
+            if (previous == null) {
+                // В кольцо кладётся только отметка о сущности, актуальное событие берётся из pending
+                if (!enqueue(event)) {
+                    pending.remove(event.id());
+                }
+                return;
+            }
+            if (pending.replace(event.id(), previous, merge(previous, event))) {
+                return;
+            }
+        }
+    }
+
+    private boolean enqueue(TaskEvent event) {
+        if (!ring.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void deliver() {
+        while (!closed) {
+            TaskEvent event = ring.poll();
+            if (event == null) {
+                // Производитель, увидевший waiting, разбудит поток; иначе он увидит событие в кольце
+                waiting = true;
+                if (ring.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+            if (pending != null) {
+                event = pending.remove(event.id());
+                if (event == null) {
+                    continue;
+                }
+            }
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                // Ошибка слушателя не должна останавливать доставку остальных событий
+                lastFailure = e;
+                failed.increment();
+            }
+        }
+    }
+
+    private static TaskEvent merge(TaskEvent previous, TaskEvent next) {
+        if (previous.type() == TaskEvent.Type.CREATED && next.type() == TaskEvent.Type.UPDATED) {
+            return new TaskEvent(TaskEvent.Type.CREATED, next.entityType(), next.id(), next.status());
+        }
+        return next;
+    }
+}
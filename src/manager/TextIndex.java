@@ -0,0 +1,574 @@
+package manager;
+
+import model.Task;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Инвертированный индекс по словам названий и описаний для {@link TaskManager#search}.
+ * <p>
+ * Слово - непрерывная последовательность букв, цифр и диакритических знаков Unicode; текст приводится
+ * к NFKC и нижнему регистру, ё считается за е. Для каждого слова хранится список id по возрастанию
+ * и флаги: встретилось ли слово в названии и в описании.
+ * <p>
+ * Запрос - набор слов, и все они должны встретиться в названии или описании; слово со звёздочкой
+ * на конце ищется как префикс. Релевантность - сумма по словам запроса idf * (2 за название + 1 за описание),
+ * где idf = ln(1 + N / df), а для префикса df - сумма df подходящих слов; при равной релевантности раньше
+ * идёт меньший id. Списки пересекаются от самого короткого с перескоками, поэтому запрос с редким словом
+ * не просматривает списки частых слов целиком, а просмотр прекращается, как только набрано limit сущностей
+ * с наибольшей возможной релевантностью.
+ */
+class TextIndex {
+    static final int NAME = 1;
+    static final int DESCRIPTION = 2;
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int[] NO_IDS = new int[0];
+
+    // Слово запроса; prefix - было ли на конце *
+    record Term(String text, boolean prefix) {
+    }
+
+    private static final class Postings {
+        int[] ids = new int[2];
+        byte[] flags = new byte[2];
+        int size;
+        // Количество id с каждым значением флагов: из них видна наибольшая возможная релевантность
+        final int[] flagCounts = new int[(NAME | DESCRIPTION) + 1];
+
+        void add(int id, int flag) {
+            // id выдаются по возрастанию, поэтому вставка обычно в конец
+            int position = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                flagCounts[flags[position]]--;
+                flags[position] |= (byte) flag;
+                flagCounts[flags[position]]++;
+                return;
+            }
+            if (position < 0) {
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+                flags = Arrays.copyOf(flags, ids.length);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(flags, position, flags, position + 1, size - position);
+            ids[position] = id;
+            flags[position] = (byte) flag;
+            flagCounts[flag]++;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                flagCounts[flags[position]]--;
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                System.arraycopy(flags, position + 1, flags, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Курсор по id одного слова запроса в порядке возрастания. id и flags - текущая позиция,
+     * после конца списка id равен END. df - длина списка, maxWeight - оценка сверху веса флагов в нём.
+     */
+    private abstract static class Cursor {
+        static final int END = Integer.MAX_VALUE;
+
+        int id;
+        int flags;
+
+        abstract int df();
+
+        abstract int maxWeight();
+
+        // Переходит к первому id >= target; назад не возвращается
+        abstract void advance(int target);
+    }
+
+    private static final class PostingsCursor extends Cursor {
+        private final Postings postings;
+        private int position;
+
+        PostingsCursor(Postings postings) {
+            this.postings = postings;
+            settle();
+        }
+
+        @Override
+        int df() {
+            return postings.size;
+        }
+
+        @Override
+        int maxWeight() {
+            int maxWeight = 0;
+            for (int flags = 1; flags < postings.flagCounts.length; flags++) {
+                if (postings.flagCounts[flags] > 0) {
+                    maxWeight = Math.max(maxWeight, weight(flags));
+                }
+            }
+            return maxWeight;
+        }
+
+        // Объединение всех значений флагов, которые встречаются в списке
+        int presentFlags() {
+            int present = 0;
+            for (int flags = 1; flags < postings.flagCounts.length; flags++) {
+                if (postings.flagCounts[flags] > 0) {
+                    present |= flags;
+                }
+            }
+            return present;
+        }
+
+        @Override
+        void advance(int target) {
+            if (id >= target) {
+                return;
+            }
+            // Экспоненциальный шаг, затем двоичный поиск: короткий список быстро проходит длинный
+            int[] ids = postings.ids;
+            int size = postings.size;
+            int low = position;
+            int step = 1;
+            int high = position + 1;
+            while (high < size && ids[high] < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            int found = Arrays.binarySearch(ids, low + 1, Math.min(high, size - 1) + 1, target);
+            position = found >= 0 ? found : -found - 1;
+            settle();
+        }
+
+        private void settle() {
+            if (position < postings.size) {
+                id = postings.ids[position];
+                flags = postings.flags[position];
+            } else {
+                id = END;
+                flags = 0;
+            }
+        }
+    }
+
+    // Объединение списков всех слов с префиксом: куча курсоров по текущему id
+    private static final class UnionCursor extends Cursor {
+        private final PostingsCursor[] heap;
+        private final int df;
+        private final int maxWeight;
+
+        UnionCursor(PostingsCursor[] parts) {
+            heap = parts;
+            int df = 0;
+            int present = 0;
+            for (PostingsCursor part : parts) {
+                df += part.df();
+                present |= part.presentFlags();
+            }
+            this.df = df;
+            // Флаги одного id складываются из разных слов: название из одного, описание из другого
+            this.maxWeight = weight(present);
+            for (int i = heap.length / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+            settle();
+        }
+
+        @Override
+        int df() {
+            return df;
+        }
+
+        @Override
+        int maxWeight() {
+            return maxWeight;
+        }
+
+        @Override
+        void advance(int target) {
+            if (id >= target) {
+                return;
+            }
+            while (heap[0].id < target) {
+                heap[0].advance(target);
+                siftDown(0);
+            }
+            settle();
+        }
+
+        // Флаги текущего id - объединение флагов всех курсоров на нём; они образуют вершину кучи
+        private void settle() {
+            id = heap[0].id;
+            flags = collectFlags(0);
+        }
+
+        private int collectFlags(int index) {
+            if (index >= heap.length || heap[index].id != id) {
+                return 0;
+            }
+            return heap[index].flags | collectFlags(2 * index + 1) | collectFlags(2 * index + 2);
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                if (left < heap.length && heap[left].id < heap[smallest].id) {
+                    smallest = left;
+                }
+                if (left + 1 < heap.length && heap[left + 1].id < heap[smallest].id) {
+                    smallest = left + 1;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                PostingsCursor cursor = heap[index];
+                heap[index] = heap[smallest];
+                heap[smallest] = cursor;
+                index = smallest;
+            }
+        }
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private int documents;
+
+    void add(Task task) {
+        for (Map.Entry<String, Integer> entry : words(task).entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), key -> new Postings()).add(task.getId(), entry.getValue());
+        }
+        documents++;
+    }
+
+    void remove(Task task) {
+        for (String word : words(task).keySet()) {
+            Postings postings = terms.get(word);
+            if (postings != null) {
+                postings.remove(task.getId());
+                if (postings.size == 0) {
+                    terms.remove(word);
+                }
+            }
+        }
+        documents--;
+    }
+
+    void replace(Task oldTask, Task newTask) {
+        if (textChanged(oldTask, newTask)) {
+            remove(oldTask);
+            add(newTask);
+        }
+    }
+
+    static boolean textChanged(Task oldTask, Task newTask) {
+        return !Objects.equals(oldTask.getName(), newTask.getName())
+                || !Objects.equals(oldTask.getDescription(), newTask.getDescription());
+    }
+
+    int[] search(String query, int limit) {
+        List<Term> parsed = parse(query, limit);
+        if (parsed.isEmpty() || limit == 0) {
+            return NO_IDS;
+        }
+
+        Cursor[] cursors = new Cursor[parsed.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = cursor(parsed.get(i));
+            if (cursors[i] == null) {
+                return NO_IDS;
+            }
+        }
+        double[] idf = new double[cursors.length];
+        Integer[] order = new Integer[cursors.length];
+        // Сущность с наибольшей возможной релевантностью не обойдёт никакая следующая: у них id больше
+        double maxScore = 0;
+        for (int i = 0; i < cursors.length; i++) {
+            idf[i] = idf(cursors[i].df(), documents);
+            maxScore += idf[i] * cursors[i].maxWeight();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(cursors[a].df(), cursors[b].df()));
+
+        Cursor driver = cursors[order[0]];
+        int[] flags = new int[cursors.length];
+        int[] matches = new int[Math.min(driver.df(), 1024)];
+        double[] scores = new double[matches.length];
+        int count = 0;
+        int best = 0;
+        int target = 0;
+        candidates:
+        while (true) {
+            driver.advance(target);
+            int id = driver.id;
+            if (id == Cursor.END) {
+                break;
+            }
+            for (int j = 1; j < order.length; j++) {
+                Cursor cursor = cursors[order[j]];
+                cursor.advance(id);
+                if (cursor.id != id) {
+                    // Ведущий список сразу перескакивает к id, где продолжается другой
+                    target = cursor.id;
+                    continue candidates;
+                }
+            }
+            for (int i = 0; i < cursors.length; i++) {
+                flags[i] = cursors[i].flags;
+            }
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, count * 2);
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            matches[count] = id;
+            scores[count] = score(idf, flags);
+            if (scores[count++] == maxScore && ++best == limit) {
+                break;
+            }
+            target = id + 1;
+        }
+        return top(matches, scores, count, limit);
+    }
+
+    /**
+     * Поиск без индекса: один проход по всем сущностям с тем же разбором и той же релевантностью.
+     */
+    static int[] scan(Stream<? extends Task> tasks, String query, int limit) {
+        List<Term> parsed = parse(query, limit);
+        if (parsed.isEmpty() || limit == 0) {
+            return NO_IDS;
+        }
+
+        int[] df = new int[parsed.size()];
+        int[] documents = new int[1];
+        List<int[]> matched = new ArrayList<>();
+        tasks.forEachOrdered(task -> {
+            documents[0]++;
+            Map<String, Integer> words = words(task);
+            // Последний элемент - id, остальные - флаги слов запроса
+            int[] flags = new int[parsed.size() + 1];
+            boolean all = true;
+            for (int i = 0; i < parsed.size(); i++) {
+                Term term = parsed.get(i);
+                if (term.prefix()) {
+                    for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                        if (entry.getKey().startsWith(term.text())) {
+                            flags[i] |= entry.getValue();
+                            df[i]++;
+                        }
+                    }
+                } else {
+                    flags[i] = words.getOrDefault(term.text(), 0);
+                    df[i] += flags[i] != 0 ? 1 : 0;
+                }
+                all &= flags[i] != 0;
+            }
+            if (all) {
+                flags[parsed.size()] = task.getId();
+                matched.add(flags);
+            }
+        });
+
+        double[] idf = new double[parsed.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = idf(df[i], documents[0]);
+        }
+        int[] ids = new int[matched.size()];
+        double[] scores = new double[matched.size()];
+        for (int i = 0; i < ids.length; i++) {
+            int[] flags = matched.get(i);
+            ids[i] = flags[parsed.size()];
+            scores[i] = score(idf, flags);
+        }
+        return top(ids, scores, ids.length, limit);
+    }
+
+    // Слова запроса без повторов в порядке появления
+    static List<Term> parse(String query, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("Поисковый запрос не задан");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество результатов не может быть отрицательным: " + limit);
+        }
+
+        Map<String, Term> result = new LinkedHashMap<>();
+        String text = normalize(query);
+        StringBuilder word = new StringBuilder();
+        int position = 0;
+        while ((position = nextWord(text, position, word)) >= 0) {
+            boolean prefix = position < text.length() && text.charAt(position) == '*';
+            // Префикс покрывает точное слово с тем же текстом
+            result.merge(word.toString(), new Term(word.toString(), prefix), (a, b) -> a.prefix() ? a : b);
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    // Слова названия и описания с флагами NAME и DESCRIPTION
+    static Map<String, Integer> words(Task task) {
+        Map<String, Integer> result = new HashMap<>();
+        collectWords(task.getName(), NAME, result);
+        collectWords(task.getDescription(), DESCRIPTION, result);
+        return result;
+    }
+
+    private static void collectWords(String text, int flag, Map<String, Integer> result) {
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        StringBuilder word = new StringBuilder();
+        int position = 0;
+        while ((position = nextWord(normalized, position, word)) >= 0) {
+            result.merge(word.toString(), flag, (a, b) -> a | b);
+        }
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.isNormalized(text, Normalizer.Form.NFKC) ? text : Normalizer.normalize(text, Normalizer.Form.NFKC);
+    }
+
+    // Записывает в word следующее слово начиная с from и возвращает позицию после него, либо -1
+    private static int nextWord(String text, int from, StringBuilder word) {
+        word.setLength(0);
+        int position = from;
+        while (position < text.length()) {
+            int codePoint = text.codePointAt(position);
+            if (isWordPart(codePoint)) {
+                break;
+            }
+            position += Character.charCount(codePoint);
+        }
+        if (position == text.length()) {
+            return -1;
+        }
+        while (position < text.length()) {
+            int codePoint = text.codePointAt(position);
+            if (!isWordPart(codePoint)) {
+                break;
+            }
+            int lower = Character.toLowerCase(codePoint);
+            word.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            position += Character.charCount(codePoint);
+        }
+        return position;
+    }
+
+    private static boolean isWordPart(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    // Курсор по словам запроса; null, если подходящих слов в индексе нет
+    private Cursor cursor(Term term) {
+        if (!term.prefix()) {
+            Postings postings = terms.get(term.text());
+            return postings == null ? null : new PostingsCursor(postings);
+        }
+
+        NavigableMap<String, Postings> range = terms.subMap(term.text(), true, term.text() + Character.MAX_VALUE, false);
+        if (range.size() <= 1) {
+            return range.isEmpty() ? null : new PostingsCursor(range.firstEntry().getValue());
+        }
+        PostingsCursor[] parts = new PostingsCursor[range.size()];
+        int i = 0;
+        for (Postings postings : range.values()) {
+            parts[i++] = new PostingsCursor(postings);
+        }
+        return new UnionCursor(parts);
+    }
+
+    private static double idf(int df, int documents) {
+        return Math.log(1 + (double) documents / Math.max(df, 1));
+    }
+
+    // Слагаемые суммируются в порядке слов запроса, чтобы результат не зависел от порядка пересечения
+    private static double score(double[] idf, int[] flags) {
+        double score = 0;
+        for (int i = 0; i < idf.length; i++) {
+            score += idf[i] * weight(flags[i]);
+        }
+        return score;
+    }
+
+    private static int weight(int flags) {
+        return ((flags & NAME) != 0 ? NAME_WEIGHT : 0) + ((flags & DESCRIPTION) != 0 ? DESCRIPTION_WEIGHT : 0);
+    }
+
+    // limit лучших по убыванию score, при равенстве по возрастанию id; куча из limit элементов
+    private static int[] top(int[] ids, double[] scores, int count, int limit) {
+        int size = Math.min(count, limit);
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            if (heapSize < size) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, ids, scores);
+            } else if (size > 0 && better(i, heap[0], ids, scores)) {
+                heap[0] = i;
+                siftDown(heap, heapSize, ids, scores);
+            }
+        }
+        // Худший элемент в корне: извлекаем с конца результата
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = ids[heap[0]];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, ids, scores);
+        }
+        return result;
+    }
+
+    private static boolean better(int a, int b, int[] ids, double[] scores) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : ids[a] < ids[b];
+    }
+
+    private static void siftUp(int[] heap, int position, int[] ids, double[] scores) {
+        while (position > 0) {
+            int parent = (position - 1) >> 1;
+            if (!better(heap[parent], heap[position], ids, scores)) {
+                break;
+            }
+            swap(heap, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int[] ids, double[] scores) {
+        int position = 0;
+        while (true) {
+            int worst = position;
+            int left = 2 * position + 1;
+            if (left < size && better(heap[worst], heap[left], ids, scores)) {
+                worst = left;
+            }
+            if (left + 1 < size && better(heap[worst], heap[left + 1], ids, scores)) {
+                worst = left + 1;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(heap, position, worst);
+            position = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int value = heap[a];
+        heap[a] = heap[b];
+        heap[b] = value;
+    }
+}
@@ -0,0 +1,54 @@
+package manager;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Время хранится в бинарных форматах как секунды и наносекунды отдельно, как в TaskCodec: так помещается
+// весь диапазон LocalDateTime и Duration. Наносекунды -1 означают отсутствие значения
+final class TimeEncoding {
+    static final int BYTES = Long.BYTES + Integer.BYTES;
+    private static final int NONE = -1;
+
+    private TimeEncoding() {
+    }
+
+    static void put(ByteBuffer out, LocalDateTime time) {
+        if (time == null) {
+            out.putLong(0).putInt(NONE);
+        } else {
+            out.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+        }
+    }
+
+    static void put(ByteBuffer out, Duration duration) {
+        if (duration == null) {
+            out.putLong(0).putInt(NONE);
+        } else {
+            out.putLong(duration.getSeconds()).putInt(duration.getNano());
+        }
+    }
+
+    static LocalDateTime getTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return nanos == NONE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static LocalDateTime getTime(ByteBuffer in, int index) {
+        int nanos = in.getInt(index + Long.BYTES);
+        return nanos == NONE ? null : LocalDateTime.ofEpochSecond(in.getLong(index), nanos, ZoneOffset.UTC);
+    }
+
+    static Duration getDuration(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return nanos == NONE ? null : Duration.ofSeconds(seconds, nanos);
+    }
+
+    static Duration getDuration(ByteBuffer in, int index) {
+        int nanos = in.getInt(index + Long.BYTES);
+        return nanos == NONE ? null : Duration.ofSeconds(in.getLong(index), nanos);
+    }
+}
@@ -0,0 +1,189 @@
+package manager;
+
+import model.Task;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Истории просмотров отдельных пользователей. Сессии разложены по независимым шардам,
+ * каждая сессия блокируется только собственным монитором, поэтому разные пользователи
+ * не конкурируют между собой.
+ * <p>
+ * Сессии, к которым не обращались дольше idleTimeout, вытесняются: шард просматривается
+ * не чаще раза в idleTimeout при очередном обращении к нему либо вызовом {@link #evictIdle()}.
+ * Удалённые задачи не вычищаются из всех сессий сразу, а отфильтровываются при чтении истории.
+ */
+public class UserHistoryRegistry {
+    public static final int DEFAULT_CAPACITY = 10;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int SHARDS = 64;
+
+    private static class Session {
+        final HistoryManager history;
+        volatile long lastAccess;
+        boolean evicted;
+
+        Session(HistoryManager history, long lastAccess) {
+            this.history = history;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static class Shard {
+        final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+        final AtomicLong lastSweep;
+
+        Shard(long now) {
+            lastSweep = new AtomicLong(now);
+        }
+    }
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final Supplier<HistoryManager> historyFactory;
+    private final long idleTimeoutNanos;
+
+    public UserHistoryRegistry() {
+        this(() -> new BoundedHistoryManager(DEFAULT_CAPACITY), DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public UserHistoryRegistry(Supplier<HistoryManager> historyFactory, Duration idleTimeout) {
+        this.historyFactory = historyFactory;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        long now = System.nanoTime();
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(now);
+        }
+    }
+
+    public void add(String userId, Task task) {
+        if (task == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        Shard shard = shardFor(userId);
+        while (true) {
+            Session session = shard.sessions.get(userId);
+            if (session == null) {
+                session = shard.sessions.computeIfAbsent(userId, key -> new Session(historyFactory.get(), now));
+            }
+            synchronized (session) {
+                // Сессию вытеснили между поиском и захватом монитора - берём новую
+                if (session.evicted) {
+                    continue;
+                }
+                session.lastAccess = now;
+                session.history.add(task);
+            }
+            break;
+        }
+        maybeSweep(shard, now);
+    }
+
+    public void remove(String userId, int id) {
+        Session session = shardFor(userId).sessions.get(userId);
+        if (session != null) {
+            synchronized (session) {
+                session.history.remove(id);
+            }
+        }
+    }
+
+    /**
+     * История пользователя без задач, для которых {@code exists} вернул false.
+     * Такие задачи заодно удаляются из сессии.
+     */
+    public List<Task> getHistory(String userId, IntPredicate exists) {
+        long now = System.nanoTime();
+        Shard shard = shardFor(userId);
+        Session session = shard.sessions.get(userId);
+        if (session == null) {
+            return new ArrayList<>();
+        }
+
+        List<Task> result;
+        synchronized (session) {
+            session.lastAccess = now;
+            List<Task> history = session.history.getHistory();
+            result = new ArrayList<>(history.size());
+            for (Task task : history) {
+                if (exists.test(task.getId())) {
+                    result.add(task);
+                } else {
+                    session.history.remove(task.getId());
+                }
+            }
+        }
+        maybeSweep(shard, now);
+        return result;
+    }
+
+    public void removeUser(String userId) {
+        Session session = shardFor(userId).sessions.remove(userId);
+        if (session != null) {
+            synchronized (session) {
+                session.evicted = true;
+            }
+        }
+    }
+
+    public int sessionCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.sessions.size();
+        }
+        return count;
+    }
+
+    /**
+     * Вытесняет из всех шардов сессии, простаивающие дольше idleTimeout.
+     *
+     * @return количество вытесненных сессий
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Shard shard : shards) {
+            shard.lastSweep.set(now);
+            evicted += sweep(shard, now);
+        }
+        return evicted;
+    }
+
+    private void maybeSweep(Shard shard, long now) {
+        long lastSweep = shard.lastSweep.get();
+        // Шард просматривает только тот поток, который первым сдвинул отметку
+        if (now - lastSweep > idleTimeoutNanos && shard.lastSweep.compareAndSet(lastSweep, now)) {
+            sweep(shard, now);
+        }
+    }
+
+    private int sweep(Shard shard, long now) {
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : shard.sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (now - session.lastAccess <= idleTimeoutNanos) {
+                continue;
+            }
+            synchronized (session) {
+                if (now - session.lastAccess > idleTimeoutNanos && shard.sessions.remove(entry.getKey(), session)) {
+                    session.evicted = true;
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    private Shard shardFor(String userId) {
+        int hash = userId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+    }
+}
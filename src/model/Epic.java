@@ -1,35 +1,183 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 public class Epic extends Task {
-    private final List<Integer> subtaskIds = new ArrayList<>();
+    private static final int[] NO_SUBTASKS = new int[0];
+
+    // id подзадач по возрастанию, занято subtaskCount первых ячеек
+    private int[] subtaskIds = NO_SUBTASKS;
+    private int subtaskCount;
+    // Количество подзадач в каждом статусе, индекс - TaskStatus.ordinal()
+    private final int[] statusCounts = new int[TaskStatus.values().length];
 
     public Epic(int id, String name, String description) {
         super(id, name, description, TaskStatus.NEW);
     }
 
+    public Epic(Epic other) {
+        this(other.getId(), other.getName(), other.getDescription());
+        subtaskIds = other.subtaskCount == 0 ? NO_SUBTASKS : Arrays.copyOf(other.subtaskIds, other.subtaskCount);
+        subtaskCount = other.subtaskCount;
+        System.arraycopy(other.statusCounts, 0, statusCounts, 0, statusCounts.length);
+        status = other.status;
+        version = other.version;
+    }
+
+    // Копия с другим id и id подзадач, пересчитанными через subtaskIdMapping; он должен сохранять порядок id
+    public Epic(Epic other, int id, IntUnaryOperator subtaskIdMapping) {
+        this(id, other.getName(), other.getDescription());
+        subtaskIds = new int[other.subtaskCount];
+        for (int i = 0; i < other.subtaskCount; i++) {
+            subtaskIds[i] = subtaskIdMapping.applyAsInt(other.subtaskIds[i]);
+        }
+        subtaskCount = other.subtaskCount;
+        System.arraycopy(other.statusCounts, 0, statusCounts, 0, statusCounts.length);
+        status = other.status;
+        version = other.version;
+    }
+
+    // Восстановление из бинарного вида: subtaskIds по возрастанию, statusCounts по TaskStatus.ordinal().
+    // Массивы не копируются
+    public Epic(int id, String name, String description, int[] subtaskIds, int[] statusCounts) {
+        this(id, name, description);
+        int total = 0;
+        for (int count : statusCounts) {
+            total += count;
+        }
+        if (statusCounts.length != this.statusCounts.length || total != subtaskIds.length) {
+            throw new IllegalArgumentException("Счётчики статусов не сходятся с числом подзадач");
+        }
+        this.subtaskIds = subtaskIds.length == 0 ? NO_SUBTASKS : subtaskIds;
+        subtaskCount = subtaskIds.length;
+        System.arraycopy(statusCounts, 0, this.statusCounts, 0, statusCounts.length);
+        updateStatus();
+    }
+
+    /**
+     * Неизменяемое представление id подзадач в порядке возрастания. Отражает последующие изменения эпика.
+     */
     public List<Integer> getSubtaskIds() {
-        return subtaskIds;
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return getSubtaskId(index);
+            }
+
+            @Override
+            public int size() {
+                return subtaskCount;
+            }
+        };
     }
 
-    public void addSubtaskId(int subtaskId) {
-        subtaskIds.add(subtaskId);
+    public int getSubtaskCount() {
+        return subtaskCount;
     }
 
-    public void removeSubtaskId(int subtaskId) {
-        subtaskIds.remove((Integer) subtaskId);
+    public int getSubtaskId(int index) {
+        if (index < 0 || index >= subtaskCount) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + subtaskCount);
+        }
+        return subtaskIds[index];
+    }
+
+    public void addSubtaskId(int subtaskId, TaskStatus status) {
+        // Новые id почти всегда больше всех имеющихся, поэтому вставка обычно в конец
+        int position = subtaskCount == 0 || subtaskIds[subtaskCount - 1] < subtaskId
+                ? subtaskCount : Arrays.binarySearch(subtaskIds, 0, subtaskCount, subtaskId);
+        if (position < 0) {
+            position = -position - 1;
+        } else if (position < subtaskCount) {
+            return;
+        }
+        if (subtaskCount == subtaskIds.length) {
+            subtaskIds = Arrays.copyOf(subtaskIds, Math.max(4, subtaskCount + (subtaskCount >> 1)));
+        }
+        System.arraycopy(subtaskIds, position, subtaskIds, position + 1, subtaskCount - position);
+        subtaskIds[position] = subtaskId;
+        subtaskCount++;
+        statusCounts[counter(status)]++;
+        updateStatus();
+    }
+
+    public void removeSubtaskId(int subtaskId, TaskStatus status) {
+        int position = Arrays.binarySearch(subtaskIds, 0, subtaskCount, subtaskId);
+        if (position >= 0) {
+            System.arraycopy(subtaskIds, position + 1, subtaskIds, position, subtaskCount - position - 1);
+            subtaskCount--;
+            statusCounts[counter(status)]--;
+            updateStatus();
+        }
+    }
+
+    public void changeSubtaskStatus(TaskStatus oldStatus, TaskStatus newStatus) {
+        if (oldStatus != newStatus) {
+            statusCounts[counter(oldStatus)]--;
+            statusCounts[counter(newStatus)]++;
+            updateStatus();
+        }
+    }
+
+    public void clearSubtaskIds() {
+        subtaskIds = NO_SUBTASKS;
+        subtaskCount = 0;
+        Arrays.fill(statusCounts, 0);
+        updateStatus();
+    }
+
+    public int getSubtaskCount(TaskStatus status) {
+        return statusCounts[counter(status)];
+    }
+
+    int[] copySubtaskIds() {
+        return subtaskCount == 0 ? NO_SUBTASKS : Arrays.copyOf(subtaskIds, subtaskCount);
+    }
+
+    // Подзадача без статуса считается ещё не начатой
+    private static int counter(TaskStatus status) {
+        return (status == null ? TaskStatus.NEW : status).ordinal();
+    }
+
+    // Вызывается после каждого изменения подзадач
+    private void updateStatus() {
+        view = null;
+        int total = subtaskCount;
+        if (total == statusCounts[TaskStatus.NEW.ordinal()]) {
+            status = TaskStatus.NEW;
+        } else if (total == statusCounts[TaskStatus.DONE.ordinal()]) {
+            status = TaskStatus.DONE;
+        } else {
+            status = TaskStatus.IN_PROGRESS;
+        }
+    }
+
+    // Статус эпика вычисляется по подзадачам, поэтому заданное снаружи значение игнорируется
+    @Override
+    public void setStatus(TaskStatus status) {
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.EPIC;
+    }
+
+    @Override
+    public Epic copy() {
+        return new Epic(this);
     }
 
     @Override
     public String toString() {
         return "Epic{" +
                 "id=" + id +
-                ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", name='" + getName() + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
-                ", subtaskIds=" + subtaskIds +
+                ", subtaskIds=" + getSubtaskIds() +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Неизменяемое представление эпика, см. {@link TaskView}. Статус и id подзадач зафиксированы на момент
+ * построения; id подзадач хранятся массивом int по возрастанию, subtaskIds() - его неизменяемая обёртка.
+ */
+public record EpicView(int id, String name, String description, TaskStatus status, List<Integer> subtaskIds,
+                       long version) {
+    public EpicView {
+        subtaskIds = IdList.copyOf(subtaskIds);
+    }
+
+    public static EpicView of(Epic epic) {
+        if (epic.view instanceof EpicView view) {
+            return view;
+        }
+        EpicView view = new EpicView(epic.getId(), epic.getName(), epic.getDescription(), epic.getStatus(),
+                new IdList(epic.copySubtaskIds()), epic.getVersion());
+        epic.view = view;
+        return view;
+    }
+
+    public int subtaskCount() {
+        return subtaskIds.size();
+    }
+
+    // Без упаковки в Integer
+    public int subtaskId(int index) {
+        return ((IdList) subtaskIds).getInt(index);
+    }
+
+    // Копия для изменения: только имя, описание и версия, как их принимает updateEpic
+    public Epic toEpic() {
+        Epic epic = new Epic(id, name, description);
+        epic.setVersion(version);
+        return epic;
+    }
+}
@@ -0,0 +1,39 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Неизменяемый список id поверх массива int, который никто больше не изменяет
+final class IdList extends AbstractList<Integer> implements RandomAccess {
+    private final int[] ids;
+
+    IdList(int[] ids) {
+        this.ids = ids;
+    }
+
+    static IdList copyOf(List<Integer> ids) {
+        if (ids instanceof IdList list) {
+            return list;
+        }
+        int[] copy = new int[ids.size()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = ids.get(i);
+        }
+        return new IdList(copy);
+    }
+
+    int getInt(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public Integer get(int index) {
+        return ids[index];
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+}
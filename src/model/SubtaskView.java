@@ -0,0 +1,34 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемое представление подзадачи, см. {@link TaskView}.
+ */
+public record SubtaskView(int id, String name, String description, TaskStatus status, int epicId,
+                          LocalDateTime startTime, Duration duration, long version) {
+    public static SubtaskView of(Subtask subtask) {
+        if (subtask.view instanceof SubtaskView view) {
+            return view;
+        }
+        SubtaskView view = new SubtaskView(subtask.getId(), subtask.getName(), subtask.getDescription(),
+                subtask.getStatus(), subtask.getEpicId(), subtask.getStartTime(), subtask.getDuration(),
+                subtask.getVersion());
+        subtask.view = view;
+        return view;
+    }
+
+    public LocalDateTime endTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration == null ? startTime : startTime.plus(duration);
+    }
+
+    public Subtask toSubtask() {
+        Subtask subtask = new Subtask(id, name, description, status, epicId, startTime, duration);
+        subtask.setVersion(version);
+        return subtask;
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 public class Task {
@@ -7,12 +9,32 @@ public class Task {
     protected String name;
     protected String description;
     protected TaskStatus status;
+    protected LocalDateTime startTime;
+    protected Duration duration;
+    // Номер изменения сущности: менеджер ставит 1 при создании и увеличивает при каждом обновлении
+    protected long version;
+    // Неизменяемое представление текущего состояния (TaskView, SubtaskView или EpicView):
+    // строится при первом чтении и сбрасывается любым изменением сущности
+    Object view;
 
     public Task(int id, String name, String description, TaskStatus status) {
+        this(id, name, description, status, null, null);
+    }
+
+    public Task(int id, String name, String description, TaskStatus status, LocalDateTime startTime,
+                Duration duration) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.status = status;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
+    public Task(Task other) {
+        this(other.getId(), other.getName(), other.getDescription(), other.getStatus(), other.getStartTime(),
+                other.getDuration());
+        version = other.version;
     }
 
     // Геттеры и сеттеры
@@ -22,6 +44,7 @@ public class Task {
 
     public void setId(int id) {
         this.id = id;
+        view = null;
     }
 
     public String getName() {
@@ -30,6 +53,7 @@ public class Task {
 
     public void setName(String name) {
         this.name = name;
+        view = null;
     }
 
     public String getDescription() {
@@ -38,6 +62,7 @@ public class Task {
 
     public void setDescription(String description) {
         this.description = description;
+        view = null;
     }
 
     public TaskStatus getStatus() {
@@ -46,29 +71,75 @@ public class Task {
 
     public void setStatus(TaskStatus status) {
         this.status = status;
+        view = null;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+        view = null;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+        view = null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+        view = null;
+    }
+
+    public LocalDateTime getEndTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration == null ? startTime : startTime.plus(duration);
+    }
+
+    public TaskType getType() {
+        return TaskType.TASK;
+    }
+
+    // Независимая копия того же типа, что и сама сущность
+    public Task copy() {
+        return new Task(this);
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Task task = (Task) o;
-        return id == task.id && Objects.equals(name, task.name) &&
-                Objects.equals(description, task.description) && status == task.status;
+        if (!(o instanceof Task task) || getType() != task.getType()) return false;
+        return id == task.id && Objects.equals(getName(), task.getName()) &&
+                Objects.equals(getDescription(), task.getDescription()) && status == task.status &&
+                Objects.equals(startTime, task.startTime) && Objects.equals(duration, task.duration);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, description, status);
+        return Objects.hash(id, getName(), getDescription(), status, startTime, duration);
     }
 
     @Override
     public String toString() {
         return "Task{" +
                 "id=" + id +
-                ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", name='" + getName() + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
+                ", startTime=" + startTime +
+                ", duration=" + duration +
                 '}';
     }
 }
\ No newline at end of file
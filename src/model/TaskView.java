@@ -0,0 +1,35 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемое представление задачи. Передаётся между потоками без копирования и синхронизации.
+ * Для изменения задачи строится копия через {@link #toTask()}.
+ */
+public record TaskView(int id, String name, String description, TaskStatus status, LocalDateTime startTime,
+                       Duration duration, long version) {
+    // Представление, построенное при прошлом чтении, переиспользуется, пока задача не изменится
+    public static TaskView of(Task task) {
+        if (task.view instanceof TaskView view) {
+            return view;
+        }
+        TaskView view = new TaskView(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), task.getDuration(), task.getVersion());
+        task.view = view;
+        return view;
+    }
+
+    public LocalDateTime endTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration == null ? startTime : startTime.plus(duration);
+    }
+
+    public Task toTask() {
+        Task task = new Task(id, name, description, status, startTime, duration);
+        task.setVersion(version);
+        return task;
+    }
+}
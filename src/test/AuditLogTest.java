@@ -0,0 +1,240 @@
+package test;
+
+import manager.AuditLog;
+import manager.InMemoryTaskManager;
+import manager.TaskSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void boardAtShouldMatchEveryRecordedState() {
+        ManualClock clock = new ManualClock();
+        AuditLog auditLog = new AuditLog(clock, 8);
+        InMemoryTaskManager manager = new InMemoryTaskManager(auditLog);
+        Map<Long, List<String>> states = new TreeMap<>();
+        states.put(clock.millis(), describe(manager));
+        Random random = new Random(24);
+        for (int step = 0; step < 2_000; step++) {
+            clock.advance(random.nextInt(3));
+            mutate(manager, random, step);
+            states.put(clock.millis(), describe(manager));
+        }
+
+        for (Map.Entry<Long, List<String>> state : states.entrySet()) {
+            assertEquals(state.getValue(), describe(auditLog.boardAt(Instant.ofEpochMilli(state.getKey()))),
+                    "Доска на " + state.getKey());
+        }
+        assertEquals(describe(manager), describe(auditLog.boardAt(Instant.ofEpochMilli(Long.MAX_VALUE))));
+        assertEquals(0, auditLog.boardAt(Instant.ofEpochMilli(ManualClock.START - 1)).epicCount());
+    }
+
+    @Test
+    void entityAtShouldReturnPastVersionsOfOneEntity() {
+        ManualClock clock = new ManualClock();
+        AuditLog auditLog = new AuditLog(clock, 2);
+        InMemoryTaskManager manager = new InMemoryTaskManager(auditLog);
+        Instant beforeLog = clock.instant().minusMillis(1);
+
+        Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+        Subtask subtask = manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+        Task task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        Instant created = clock.instant();
+        clock.advance(10);
+        manager.updateEpic(new Epic(epic.getId(), "Переименованный эпик", "Описание"));
+        manager.updateSubtask(new Subtask(subtask.getId(), "Подзадача", "Описание", TaskStatus.DONE, epic.getId()));
+        Instant renamed = clock.instant();
+        clock.advance(10);
+        manager.deleteTask(task.getId());
+        Instant deleted = clock.instant();
+
+        Epic oldEpic = (Epic) auditLog.entityAt(epic.getId(), created);
+        assertEquals("Эпик", oldEpic.getName());
+        assertEquals(TaskStatus.NEW, oldEpic.getStatus());
+        assertEquals(List.of(subtask.getId()), oldEpic.getSubtaskIds());
+        Epic newEpic = (Epic) auditLog.entityAt(epic.getId(), renamed);
+        assertEquals("Переименованный эпик", newEpic.getName());
+        assertEquals(TaskStatus.DONE, newEpic.getStatus());
+        assertEquals(manager.getEpic(epic.getId()).getVersion(), newEpic.getVersion());
+
+        assertEquals(task, auditLog.entityAt(task.getId(), renamed));
+        assertNull(auditLog.entityAt(task.getId(), deleted));
+        assertNull(auditLog.entityAt(epic.getId(), beforeLog));
+        assertEquals(TaskStatus.NEW, auditLog.entityAt(subtask.getId(), created).getStatus());
+    }
+
+    @Test
+    void updateOfFetchedTaskShouldBeRecorded() {
+        ManualClock clock = new ManualClock();
+        AuditLog auditLog = new AuditLog(clock, 8);
+        InMemoryTaskManager manager = new InMemoryTaskManager(auditLog);
+        Task task = manager.addTask(new Task(0, "orig", "Описание", TaskStatus.NEW));
+        Instant created = clock.instant();
+        clock.advance(10);
+
+        Task fetched = manager.getTask(task.getId());
+        fetched.setName("renamed");
+        fetched.setStatus(TaskStatus.DONE);
+        manager.updateTask(fetched);
+
+        Task recorded = auditLog.entityAt(task.getId(), clock.instant());
+        assertEquals(manager.getTask(task.getId()), recorded);
+        assertEquals("renamed", recorded.getName());
+        assertEquals(TaskStatus.DONE, recorded.getStatus());
+        assertEquals(2, recorded.getVersion());
+        assertEquals("orig", auditLog.entityAt(task.getId(), created).getName());
+    }
+
+    @Test
+    void logShouldSurviveReopen() {
+        ManualClock clock = new ManualClock();
+        TreeMap<Long, List<String>> states = new TreeMap<>();
+        Random random = new Random(7);
+        try (AuditLog auditLog = new AuditLog(directory, clock, 16)) {
+            InMemoryTaskManager manager = new InMemoryTaskManager(auditLog);
+            for (int step = 0; step < 300; step++) {
+                clock.advance(1);
+                mutate(manager, random, step);
+                states.put(clock.millis(), describe(manager));
+            }
+        }
+
+        clock.advance(1);
+        try (AuditLog reopened = new AuditLog(directory, clock, 16)) {
+            for (Map.Entry<Long, List<String>> state : states.entrySet()) {
+                assertEquals(state.getValue(), describe(reopened.boardAt(Instant.ofEpochMilli(state.getKey()))));
+            }
+            // Новый менеджер начинает с пустой доски, прошлое остаётся доступным
+            InMemoryTaskManager manager = new InMemoryTaskManager(reopened);
+            clock.advance(1);
+            Task task = manager.addTask(new Task(0, "После перезапуска", "Описание", TaskStatus.NEW));
+            assertEquals(List.of(task), reopened.boardAt(clock.instant()).getAllTasks());
+            assertEquals(states.lastEntry().getValue(),
+                    describe(reopened.boardAt(Instant.ofEpochMilli(states.lastKey()))));
+        }
+    }
+
+    @Test
+    void logShouldServeOnlyOneManager() {
+        AuditLog auditLog = new AuditLog(new ManualClock(), 8);
+        new InMemoryTaskManager(auditLog);
+        assertThrows(IllegalStateException.class, () -> new InMemoryTaskManager(auditLog));
+    }
+
+    private static void mutate(InMemoryTaskManager manager, Random random, int step) {
+        List<Task> tasks = manager.getAllTasks();
+        List<Epic> epics = manager.getAllEpics();
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        int action = random.nextInt(20);
+        if (action < 4 || tasks.isEmpty() && epics.isEmpty()) {
+            LocalDateTime startTime = random.nextBoolean() ? null : START.plusHours(step);
+            manager.addTask(new Task(0, "Задача " + step, "Описание", status(random), startTime,
+                    startTime == null ? null : Duration.ofMinutes(30)));
+        } else if (action < 6 || epics.isEmpty()) {
+            manager.addEpic(new Epic(0, "Эпик " + step, "Описание " + step));
+        } else if (action < 10) {
+            Epic epic = epics.get(random.nextInt(epics.size()));
+            manager.addSubtask(new Subtask(0, "Подзадача " + step, "Описание", status(random), epic.getId()));
+        } else if (action < 13 && !tasks.isEmpty()) {
+            Task task = new Task(tasks.get(random.nextInt(tasks.size())));
+            task.setStatus(status(random));
+            if (random.nextBoolean()) {
+                task.setDescription("Описание " + step);
+                task.setStartTime(random.nextBoolean() ? null : START.plusHours(step));
+                task.setDuration(task.getStartTime() == null ? null : Duration.ofMinutes(15));
+            }
+            manager.updateTask(task);
+        } else if (action < 15 && !subtasks.isEmpty()) {
+            Subtask subtask = new Subtask(subtasks.get(random.nextInt(subtasks.size())));
+            subtask.setStatus(status(random));
+            manager.updateSubtask(subtask);
+        } else if (action == 15) {
+            Epic epic = epics.get(random.nextInt(epics.size()));
+            manager.updateEpic(new Epic(epic.getId(), "Эпик " + step, epic.getDescription()));
+        } else if (action == 16 && !tasks.isEmpty()) {
+            manager.deleteTask(tasks.get(random.nextInt(tasks.size())).getId());
+        } else if (action == 17 && !subtasks.isEmpty()) {
+            manager.deleteSubtask(subtasks.get(random.nextInt(subtasks.size())).getId());
+        } else if (action == 18) {
+            manager.deleteEpic(epics.get(random.nextInt(epics.size())).getId());
+        } else if (step % 10 == 0) {
+            manager.deleteAllSubtasks();
+        }
+    }
+
+    private static TaskStatus status(Random random) {
+        return STATUSES[random.nextInt(STATUSES.length)];
+    }
+
+    private static List<String> describe(InMemoryTaskManager manager) {
+        return describe(manager.getAllTasks(), manager.getAllEpics(), manager.getAllSubtasks());
+    }
+
+    private static List<String> describe(TaskSnapshot board) {
+        return describe(board.getAllTasks(), board.getAllEpics(), board.getAllSubtasks());
+    }
+
+    // Все поля, которые видит пользователь, включая версию, статус эпика и его подзадачи
+    private static List<String> describe(List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) {
+        List<String> result = new ArrayList<>();
+        for (List<? extends Task> group : List.of(tasks, epics, subtasks)) {
+            for (Task task : group) {
+                result.add(task + " v" + task.getVersion());
+            }
+        }
+        return result;
+    }
+
+    private static final class ManualClock extends Clock {
+        static final long START = 1_700_000_000_000L;
+
+        private long millis = START;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
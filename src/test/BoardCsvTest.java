@@ -0,0 +1,113 @@
+package test;
+
+import manager.BoardCsv;
+import manager.InMemoryTaskManager;
+import manager.ManagerValidationException;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardCsvTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    void boardShouldSurviveRoundTripIntoNonEmptyManager() {
+        TaskManager source = new InMemoryTaskManager();
+        Task task = source.addTask(new Task(0, "Купить \"молоко\", хлеб", "Первая строка\nвторая строка",
+                TaskStatus.IN_PROGRESS, START, Duration.ofMinutes(90)));
+        Task empty = source.addTask(new Task(0, "", null, TaskStatus.NEW));
+        Epic epic = source.addEpic(new Epic(0, "Переезд", "Ёлки, палки"));
+        Subtask subtask = source.addSubtask(new Subtask(0, "Упаковать", "Коробки", TaskStatus.DONE, epic.getId(),
+                START.plusHours(3), Duration.ofHours(1)));
+        source.getSubtask(subtask.getId());
+        source.getTask(task.getId());
+        source.getEpic(epic.getId());
+
+        byte[] csv = export(source);
+        // Целевой менеджер уже занят, поэтому id эпика при импорте меняются
+        TaskManager target = new InMemoryTaskManager();
+        target.addEpic(new Epic(0, "Старый эпик", "Описание"));
+        target.addTask(new Task(0, "Старая задача", "Описание", TaskStatus.NEW));
+        target.addTask(new Task(0, "Ещё одна", "Описание", TaskStatus.NEW));
+        assertEquals(4, BoardCsv.read(target, Channels.newChannel(new ByteArrayInputStream(csv))));
+
+        Epic copiedEpic = target.getAllEpics().getLast();
+        assertNotEquals(epic.getId(), copiedEpic.getId());
+        assertEquals("Ёлки, палки", copiedEpic.getDescription());
+        Subtask copiedSubtask = target.getAllSubtasks().getFirst();
+        assertEquals(copiedEpic.getId(), copiedSubtask.getEpicId());
+        assertEquals(List.of(copiedSubtask.getId()), copiedEpic.getSubtaskIds());
+        assertEquals(TaskStatus.DONE, copiedEpic.getStatus());
+        assertEquals(START.plusHours(3), copiedSubtask.getStartTime());
+
+        List<Task> tasks = target.getAllTasks();
+        assertEquals(4, tasks.size());
+        Task copiedTask = tasks.get(2);
+        assertEquals(task.getName(), copiedTask.getName());
+        assertEquals(task.getDescription(), copiedTask.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, copiedTask.getStatus());
+        assertEquals(Duration.ofMinutes(90), copiedTask.getDuration());
+        assertEquals("", tasks.get(3).getName());
+        assertNull(tasks.get(3).getDescription());
+        assertNull(tasks.get(3).getStartTime());
+
+        assertEquals(List.of(copiedSubtask.getId(), copiedTask.getId(), copiedEpic.getId()),
+                target.getHistory().stream().map(Task::getId).toList());
+        // Ids копии идут в порядке файла, поэтому её повторный перенос в пустой менеджер даёт тот же файл
+        TaskManager copy = new InMemoryTaskManager();
+        BoardCsv.read(copy, Channels.newChannel(new ByteArrayInputStream(csv)));
+        byte[] copyCsv = export(copy);
+        TaskManager again = new InMemoryTaskManager();
+        BoardCsv.read(again, Channels.newChannel(new ByteArrayInputStream(copyCsv)));
+        assertArrayEquals(copyCsv, export(again));
+        assertEquals(empty.getName(), again.getAllTasks().getLast().getName());
+    }
+
+    @Test
+    void fieldsShouldSpanBufferBoundaries() {
+        TaskManager source = new InMemoryTaskManager();
+        String description = "Строка \"с кавычками\", запятой\n".repeat(5_000);
+        for (int i = 0; i < 3; i++) {
+            source.addTask(new Task(0, "Задача " + i, description, TaskStatus.NEW));
+        }
+
+        TaskManager target = new InMemoryTaskManager();
+        assertEquals(3, BoardCsv.read(target, Channels.newChannel(new ByteArrayInputStream(export(source)))));
+        assertEquals(source.getAllTasks(), target.getAllTasks());
+        assertEquals(description, target.getAllTasks().getLast().getDescription());
+    }
+
+    @Test
+    void malformedInputShouldBeRejected() {
+        String header = "type,id,name,description,status,startTime,duration,epic\n";
+        assertThrows(ManagerValidationException.class, () -> read("id,name\n"));
+        assertThrows(ManagerValidationException.class, () -> read(header + "SUBTASK,2,Сирота,,NEW,,,1\n"));
+        assertThrows(ManagerValidationException.class, () -> read(header + "TASK,1,\"Без конца,,NEW,,,\n"));
+        assertThrows(ManagerValidationException.class, () -> read(header + "TASK,1,Задача,,NEW,вчера,,\n"));
+        assertThrows(ManagerValidationException.class, () -> read(header + "TASK,1,Задача,,NEW,,\n"));
+        assertEquals(2, read(header + "EPIC,7,Эпик,,NEW,,,\r\nSUBTASK,8,Подзадача,,NEW,,,7"));
+    }
+
+    private static byte[] export(TaskManager manager) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BoardCsv.write(manager, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static long read(String csv) {
+        InputStream in = new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+        return BoardCsv.read(new InMemoryTaskManager(), Channels.newChannel(in));
+    }
+}
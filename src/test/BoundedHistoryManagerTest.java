@@ -0,0 +1,119 @@
+package test;
+
+import manager.BoundedHistoryManager;
+import manager.InMemoryHistoryManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedHistoryManagerTest {
+    private BoundedHistoryManager historyManager;
+    private Task[] tasks;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new BoundedHistoryManager(3);
+        tasks = new Task[10];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(i + 1, "Task " + (i + 1), "Description", TaskStatus.NEW);
+        }
+    }
+
+    @Test
+    void addShouldEvictOldestWhenFull() {
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[1]);
+        historyManager.add(tasks[2]);
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[3]);
+
+        assertEquals(List.of(tasks[2], tasks[0], tasks[3]), historyManager.getHistory());
+        assertEquals(3, historyManager.size());
+    }
+
+    @Test
+    void removeShouldFreeSlotForNextTask() {
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[1]);
+        historyManager.add(tasks[2]);
+        historyManager.remove(tasks[1].getId());
+        historyManager.add(tasks[3]);
+
+        assertEquals(List.of(tasks[0], tasks[2], tasks[3]), historyManager.getHistory());
+    }
+
+    @Test
+    void getHistoryShouldFillCallerBuffer() {
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[1]);
+        historyManager.add(tasks[2]);
+
+        Task[] buffer = new Task[2];
+        assertEquals(2, historyManager.getHistory(buffer));
+        assertArrayEquals(new Task[]{tasks[0], tasks[1]}, buffer);
+    }
+
+    @Test
+    void historyViewShouldBeReadOnlyAndDetectModification() {
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[1]);
+
+        List<Task> view = historyManager.historyView();
+        assertEquals(List.of(tasks[0], tasks[1]), view);
+        assertEquals(tasks[1], view.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+
+        Iterator<Task> iterator = view.iterator();
+        iterator.next();
+        historyManager.add(tasks[2]);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+        assertEquals(List.of(tasks[0], tasks[1], tasks[2]), view);
+    }
+
+    @Test
+    void randomOperationsShouldMatchUnboundedHistoryTail() {
+        int capacity = 64;
+        BoundedHistoryManager bounded = new BoundedHistoryManager(capacity);
+        InMemoryHistoryManager unbounded = new InMemoryHistoryManager();
+        Random random = new Random(7);
+        for (int step = 0; step < 50_000; step++) {
+            Task task = new Task(random.nextInt(500), "Task", "Description", TaskStatus.NEW);
+            if (random.nextInt(4) == 0) {
+                bounded.remove(task.getId());
+                unbounded.remove(task.getId());
+            } else {
+                bounded.add(task);
+                unbounded.add(task);
+            }
+            // Эталон - неограниченная история, из которой вручную вытеснены самые давние просмотры
+            List<Task> expected = unbounded.getHistory();
+            for (Task evicted : expected.subList(0, Math.max(0, expected.size() - capacity))) {
+                unbounded.remove(evicted.getId());
+            }
+            assertEquals(unbounded.getHistory(), bounded.getHistory());
+            assertEquals(bounded.getHistory(), bounded.historyView());
+        }
+    }
+
+    @Test
+    void taskManagerShouldUseBoundedHistory() {
+        TaskManager taskManager = new InMemoryTaskManager(new BoundedHistoryManager(2));
+        Task task1 = taskManager.addTask(new Task(0, "Task 1", "Description", TaskStatus.NEW));
+        Task task2 = taskManager.addTask(new Task(0, "Task 2", "Description", TaskStatus.NEW));
+        Task task3 = taskManager.addTask(new Task(0, "Task 3", "Description", TaskStatus.NEW));
+
+        taskManager.getTask(task1.getId());
+        taskManager.getTask(task2.getId());
+        taskManager.getTask(task3.getId());
+
+        assertEquals(List.of(task2, task3), taskManager.getHistory());
+    }
+}
@@ -0,0 +1,186 @@
+package test;
+
+import manager.CacheStats;
+import manager.CachingTaskManager;
+import manager.InMemoryTaskManager;
+import manager.TaskBatch;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingTaskManagerTest {
+    // Медленное хранилище: каждое чтение по id или списка подзадач ждёт и считается
+    private static class SlowTaskManager extends InMemoryTaskManager {
+        final AtomicInteger reads = new AtomicInteger();
+
+        private void slowRead() {
+            reads.incrementAndGet();
+            LockSupport.parkNanos(200_000);
+        }
+
+        @Override
+        public List<Task> getTasks(int afterId, int limit) {
+            slowRead();
+            return super.getTasks(afterId, limit);
+        }
+
+        @Override
+        public List<Epic> getEpics(int afterId, int limit) {
+            slowRead();
+            return super.getEpics(afterId, limit);
+        }
+
+        @Override
+        public List<Subtask> getSubtasks(int afterId, int limit) {
+            slowRead();
+            return super.getSubtasks(afterId, limit);
+        }
+
+        @Override
+        public List<Subtask> getEpicSubtasks(int epicId) {
+            slowRead();
+            return super.getEpicSubtasks(epicId);
+        }
+    }
+
+    private SlowTaskManager backend;
+    private CachingTaskManager taskManager;
+
+    @BeforeEach
+    void setUp() {
+        backend = new SlowTaskManager();
+        taskManager = new CachingTaskManager(backend, 100);
+    }
+
+    @Test
+    void repeatedReadsShouldBeServedFromCache() {
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.DONE, epic.getId()));
+        backend.reads.set(0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(task, taskManager.getTask(task.getId()));
+            assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+            assertEquals(1, taskManager.getEpicSubtasks(epic.getId()).size());
+        }
+
+        assertEquals(3, backend.reads.get());
+        CacheStats stats = taskManager.entityStats();
+        assertEquals(18, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0.9, stats.hitRate(), 1e-9);
+        assertEquals(9, taskManager.epicSubtasksStats().hits());
+    }
+
+    @Test
+    void cacheHitsShouldStillBeRecordedInHistory() {
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        taskManager.getTask(task.getId());
+        taskManager.getEpic(epic.getId());
+        taskManager.getTask(task.getId());
+        taskManager.getTask("user", task.getId());
+
+        assertEquals(List.of(epic.getId(), task.getId()),
+                taskManager.getHistory().stream().map(Task::getId).toList());
+        assertTrue(backend.getHistory().isEmpty());
+
+        taskManager.deleteTask(task.getId());
+        assertEquals(List.of(epic), taskManager.getHistory());
+        assertTrue(taskManager.getHistory("user").isEmpty());
+        assertNull(taskManager.getTask(task.getId()));
+    }
+
+    @Test
+    void subtaskChangesShouldInvalidateEpicAndItsSubtaskList() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+        assertEquals(TaskStatus.NEW, taskManager.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic.getId()));
+
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Done", TaskStatus.DONE, epic.getId()));
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+        assertEquals("Done", taskManager.getEpicSubtasks(epic.getId()).getFirst().getDescription());
+        assertEquals(TaskStatus.DONE, taskManager.getSubtask(subtask.getId()).getStatus());
+
+        Subtask second = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager.getEpic(epic.getId()).getStatus());
+        assertEquals(2, taskManager.getEpicSubtasks(epic.getId()).size());
+
+        taskManager.deleteSubtask(subtask.getId());
+        assertEquals(List.of(second), taskManager.getEpicSubtasks(epic.getId()));
+        assertEquals(List.of(second.getId()), taskManager.getEpic(epic.getId()).getSubtaskIds());
+
+        taskManager.deleteEpic(epic.getId());
+        assertNull(taskManager.getEpic(epic.getId()));
+        assertNull(taskManager.getSubtask(second.getId()));
+        assertTrue(taskManager.getEpicSubtasks(epic.getId()).isEmpty());
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void returnedEntitiesShouldNotAffectCache() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+
+        taskManager.getEpic(epic.getId()).setName("Изменено снаружи");
+        taskManager.getEpicSubtasks(epic.getId()).getFirst().setStatus(TaskStatus.DONE);
+        taskManager.getHistory().getFirst().setDescription("Изменено через историю");
+        taskManager.getEpic("user", epic.getId());
+        taskManager.getHistory("user").getFirst().setDescription("Изменено через историю");
+
+        assertEquals("Epic", taskManager.getEpic(epic.getId()).getName());
+        assertEquals("Description", taskManager.getEpic(epic.getId()).getDescription());
+        assertEquals(TaskStatus.NEW, taskManager.getEpicSubtasks(epic.getId()).getFirst().getStatus());
+    }
+
+    @Test
+    void addSubtaskToMissingEpicShouldReturnNull() {
+        assertNull(taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW, 42)));
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void cacheShouldBeBoundedAndTypeAware() {
+        for (int i = 0; i < 500; i++) {
+            Task task = taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW));
+            taskManager.getTask(task.getId());
+        }
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+
+        CacheStats stats = taskManager.entityStats();
+        assertTrue(stats.size() <= 100, "размер кеша: " + stats.size());
+        assertEquals(400, stats.evictions());
+        assertNull(taskManager.getTask(epic.getId()));
+        assertNull(taskManager.getSubtask(epic.getId()));
+        assertEquals(epic, taskManager.getEpic(epic.getId()));
+    }
+
+    @Test
+    void batchShouldClearCacheAndHistoryOfDeletedEntities() {
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+        taskManager.getTask(task.getId());
+        taskManager.getSubtask(subtask.getId());
+
+        taskManager.applyBatch(new TaskBatch()
+                .updateTask(new Task(task.getId(), "Task", "Description", TaskStatus.DONE))
+                .deleteEpic(epic.getId()));
+
+        assertEquals(TaskStatus.DONE, taskManager.getTask(task.getId()).getStatus());
+        assertNull(taskManager.getSubtask(subtask.getId()));
+        assertEquals(List.of(task.getId()), taskManager.getHistory().stream().map(Task::getId).toList());
+    }
+}
@@ -0,0 +1,481 @@
+package test;
+
+import manager.ConcurrentTaskManager;
+import manager.ManagerValidationException;
+import manager.TaskBatch;
+import manager.TaskEvent;
+import manager.TaskSubscription;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest {
+    private TaskManager taskManager;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    void addTaskShouldAddTask() {
+        Task task = new Task(0, "Task", "Description", TaskStatus.NEW);
+        taskManager.addTask(task);
+
+        Task savedTask = taskManager.getTask(task.getId());
+        assertNotNull(savedTask);
+        assertEquals(task, savedTask);
+    }
+
+    @Test
+    void readsShouldReturnCopiesOfStoredEntities() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW,
+                epic.getId(), LocalDateTime.of(2024, 1, 1, 10, 0), Duration.ofHours(1)));
+        Epic fetched = taskManager.getEpic(epic.getId());
+
+        taskManager.addSubtask(new Subtask(0, "Done", "Description", TaskStatus.DONE, epic.getId()));
+        taskManager.getSubtask(subtask.getId()).setStartTime(LocalDateTime.of(2024, 1, 2, 10, 0));
+        taskManager.getAllEpics().getFirst().setName("Changed");
+        taskManager.getHistory().getFirst().setDescription("Changed");
+
+        assertEquals(List.of(subtask.getId()), fetched.getSubtaskIds());
+        assertEquals(TaskStatus.NEW, fetched.getStatus());
+        Epic stored = taskManager.getEpic(epic.getId());
+        assertEquals("Epic", stored.getName());
+        assertEquals("Description", stored.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, stored.getStatus());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), taskManager.getPrioritizedTasks().getFirst().getStartTime());
+    }
+
+    @Test
+    void addSubtaskShouldReturnNullForMissingEpic() {
+        Subtask subtask = new Subtask(0, "Subtask", "Description", TaskStatus.NEW, 42);
+        assertNull(taskManager.addSubtask(subtask));
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void deleteEpicShouldDeleteSubtasksAndHistory() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+
+        taskManager.getEpic(epic.getId());
+        taskManager.getSubtask(subtask.getId());
+        taskManager.deleteEpic(epic.getId());
+
+        assertNull(taskManager.getSubtask(subtask.getId()));
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void historyShouldKeepOrderOfLastView() {
+        Task task1 = taskManager.addTask(new Task(0, "Task 1", "Description", TaskStatus.NEW));
+        Task task2 = taskManager.addTask(new Task(0, "Task 2", "Description", TaskStatus.NEW));
+
+        taskManager.getTask(task1.getId());
+        taskManager.getTask(task2.getId());
+        taskManager.getTask(task1.getId());
+
+        List<Task> history = taskManager.getHistory();
+        assertEquals(List.of(task2, task1), history);
+    }
+
+    @Test
+    void concurrentOverlappingSlotsShouldBeRejected() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                latch.await();
+                for (int i = 0; i < 200; i++) {
+                    LocalDateTime slot = start.plusMinutes((i * 8L + offset) * 10);
+                    try {
+                        if (i % 2 == 0) {
+                            taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW,
+                                    slot, Duration.ofMinutes(25)));
+                        } else {
+                            taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW,
+                                    epic.getId(), slot, Duration.ofMinutes(25)));
+                        }
+                    } catch (ManagerValidationException ignored) {
+                        // Пересекающийся слот - ожидаемый отказ
+                    }
+                }
+                return null;
+            }));
+        }
+        latch.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertFalse(prioritized.isEmpty());
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()));
+        }
+        assertEquals(prioritized.size(), taskManager.getAllTasks().size() + taskManager.getAllSubtasks().size());
+    }
+
+    @Test
+    void idsShouldBeUniqueUnderConcurrentAdds() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : taskManager.getAllTasks()) {
+            ids.add(task.getId());
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void versionedUpdatesShouldNotLoseIncrements() throws Exception {
+        int threads = 8;
+        int perThread = 1_000;
+        Task counter = taskManager.addTask(new Task(0, "0", "Счётчик", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        Subtask subtaskCounter = taskManager.addSubtask(new Subtask(0, "0", "Счётчик", TaskStatus.NEW, epic.getId()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Task task;
+                    do {
+                        task = new Task(taskManager.getTasks(counter.getId() - 1, 1).getFirst());
+                        task.setName(String.valueOf(Integer.parseInt(task.getName()) + 1));
+                    } while (!taskManager.updateTask(task, task.getVersion()));
+                    Subtask subtask;
+                    do {
+                        subtask = new Subtask(taskManager.getSubtasks(subtaskCounter.getId() - 1, 1).getFirst());
+                        subtask.setName(String.valueOf(Integer.parseInt(subtask.getName()) + 1));
+                    } while (!taskManager.updateSubtask(subtask, subtask.getVersion()));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Task task = taskManager.getTask(counter.getId());
+        assertEquals(String.valueOf(threads * perThread), task.getName());
+        assertEquals(threads * perThread + 1, task.getVersion());
+        Subtask subtask = taskManager.getSubtask(subtaskCounter.getId());
+        assertEquals(String.valueOf(threads * perThread), subtask.getName());
+        assertEquals(threads * perThread + 1, subtask.getVersion());
+    }
+
+    @Test
+    void concurrentAddSubtaskAndDeleteEpicShouldNotLeaveOrphans() throws Exception {
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            epicIds.add(taskManager.addEpic(new Epic(0, "Epic " + i, "Description")).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                    taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epicId));
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < 2; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100; i++) {
+                    taskManager.deleteEpic(epicIds.get(random.nextInt(epicIds.size())));
+                    for (Subtask subtask : taskManager.getAllSubtasks()) {
+                        if (random.nextInt(50) == 0) {
+                            taskManager.deleteSubtask(subtask.getId());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Set<Integer> subtaskIdsFromEpics = new HashSet<>();
+        for (Epic epic : taskManager.getAllEpics()) {
+            for (Integer subtaskId : epic.getSubtaskIds()) {
+                assertNotNull(taskManager.getSubtask(subtaskId), "Орфанный id подзадачи в эпике " + epic.getId());
+                subtaskIdsFromEpics.add(subtaskId);
+            }
+        }
+        for (Subtask subtask : taskManager.getAllSubtasks()) {
+            assertNotNull(taskManager.getEpic(subtask.getEpicId()));
+            assertTrue(subtaskIdsFromEpics.contains(subtask.getId()));
+        }
+    }
+
+    @Test
+    void pagingShouldStayOrderedDuringConcurrentAdds() throws Exception {
+        for (int i = 0; i < 1_000; i++) {
+            taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+            }
+        });
+
+        int afterId = 0;
+        int seen = 0;
+        List<Task> page;
+        do {
+            page = taskManager.getTasks(afterId, 64);
+            for (Task task : page) {
+                assertTrue(task.getId() > afterId);
+                afterId = task.getId();
+                seen++;
+            }
+        } while (!page.isEmpty());
+        writer.get();
+        executor.shutdown();
+
+        assertTrue(seen >= 1_000);
+        assertEquals(6_000, taskManager.streamTasks().parallel().count());
+    }
+
+    @Test
+    void applyBatchShouldReserveContiguousIdsUnderConcurrentAdds() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+            }
+        });
+        List<int[]> batches = new ArrayList<>();
+        for (int b = 0; b < 20; b++) {
+            TaskBatch batch = new TaskBatch();
+            int epicRef = batch.addEpic(new Epic(0, "Epic", "Description"));
+            for (int i = 0; i < 10; i++) {
+                batch.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epicRef));
+            }
+            batches.add(taskManager.applyBatch(batch));
+        }
+        writer.get();
+        executor.shutdown();
+
+        for (int[] ids : batches) {
+            for (int i = 1; i < ids.length; i++) {
+                assertEquals(ids[0] + i, ids[i]);
+            }
+            assertEquals(10, taskManager.getEpicSubtasks(ids[0]).size());
+        }
+        assertEquals(2_000, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void batchShouldNotSkipUpdateOfConcurrentlyDeletedTask() throws Exception {
+        Set<Integer> updated = ConcurrentHashMap.newKeySet();
+        Set<Integer> created = ConcurrentHashMap.newKeySet();
+        TaskSubscription subscription = taskManager.subscribe(event -> {
+            if (event.type() == TaskEvent.Type.UPDATED) {
+                updated.add(event.id());
+            } else if (event.type() == TaskEvent.Type.CREATED) {
+                created.add(event.id());
+            }
+        }, 16_384, false);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Integer> appliedUpdates = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+            Future<?> deleter = executor.submit(() -> taskManager.deleteTask(task.getId()));
+            TaskBatch batch = new TaskBatch();
+            batch.updateTask(new Task(task.getId(), "Batch", "Description", TaskStatus.DONE));
+            batch.addTask(new Task(0, "Added", "Description", TaskStatus.NEW));
+            try {
+                taskManager.applyBatch(batch);
+                appliedUpdates.add(task.getId());
+            } catch (ManagerValidationException e) {
+                // Задачу удалили до проверки пакета - он отклонён целиком
+            }
+            deleter.get();
+        }
+        executor.shutdown();
+
+        // События доходят по порядку, поэтому после последнего дошли и все обновления
+        int last = taskManager.addTask(new Task(0, "Last", "Description", TaskStatus.NEW)).getId();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!created.contains(last) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        subscription.close();
+        assertTrue(created.contains(last));
+        assertTrue(updated.containsAll(appliedUpdates));
+    }
+
+    @Test
+    void subscriberShouldReceiveEventsFromConcurrentWriters() throws Exception {
+        Set<Integer> created = ConcurrentHashMap.newKeySet();
+        CountDownLatch allDelivered = new CountDownLatch(4 * 1_000);
+        TaskSubscription subscription = taskManager.subscribe(event -> {
+            if (event.type() == TaskEvent.Type.CREATED && created.add(event.id())) {
+                allDelivered.countDown();
+            }
+        }, 8_192, false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(allDelivered.await(5, TimeUnit.SECONDS));
+        assertEquals(0, subscription.droppedEvents());
+        subscription.close();
+    }
+
+    @Test
+    void largeEpicDeletionShouldHideSubtasksImmediatelyAndReclaimThemInBackground() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        int count = ConcurrentTaskManager.ASYNC_CASCADE_THRESHOLD + 100;
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        Epic epic = manager.addEpic(new Epic(0, "Epic", "Description"));
+        Epic other = manager.addEpic(new Epic(0, "Other", "Description"));
+        Subtask survivor = manager.addSubtask(new Subtask(0, "Survivor", "Description", TaskStatus.NEW,
+                other.getId()));
+        List<Subtask> doomed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            doomed.add(manager.addSubtask(new Subtask(0, "Subtask " + i, "Description", TaskStatus.NEW,
+                    epic.getId(), start.plusMinutes(i), Duration.ofMinutes(1))));
+        }
+        manager.getSubtask(doomed.get(0).getId());
+        manager.getSubtask(survivor.getId());
+        manager.getEpic(epic.getId());
+        CountDownLatch deleted = new CountDownLatch(count + 1);
+        TaskSubscription subscription = manager.subscribe(event -> {
+            if (event.type() == TaskEvent.Type.DELETED) {
+                deleted.countDown();
+            }
+        }, 2 * count, false);
+
+        manager.deleteEpic(epic.getId());
+
+        Subtask first = doomed.get(0);
+        assertNull(manager.getEpic(epic.getId()));
+        assertNull(manager.getSubtask(first.getId()));
+        assertEquals(List.of(survivor), manager.getAllSubtasks());
+        assertEquals(List.of(survivor), manager.getSubtasks(0, 10));
+        assertEquals(1, manager.streamSubtasks().count());
+        assertEquals(1, manager.subtaskCount());
+        assertEquals(1, manager.epicCount());
+        assertEquals(List.of(survivor), manager.getHistory());
+        assertEquals(1, manager.historySize());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        manager.updateSubtask(new Subtask(first.getId(), "Subtask", "Description", TaskStatus.DONE, epic.getId()));
+        manager.deleteSubtask(first.getId());
+        assertNull(manager.getSubtask(first.getId()));
+        // Слот удалённой подзадачи свободен сразу, а не после очистки
+        assertNotNull(manager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW, start,
+                Duration.ofMinutes(1))));
+
+        manager.awaitReclamation();
+        assertTrue(deleted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, subscription.droppedEvents());
+        subscription.close();
+        assertEquals(List.of(survivor), manager.getHistory());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void largeDeleteAllShouldLeaveEpicsEmptyAndAcceptNewSubtasks() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Epic epic = manager.addEpic(new Epic(0, "Epic", "Description"));
+        for (int i = 0; i < ConcurrentTaskManager.ASYNC_CASCADE_THRESHOLD; i++) {
+            Subtask subtask = manager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.DONE,
+                    epic.getId()));
+            manager.getSubtask(subtask.getId());
+        }
+
+        manager.deleteAllSubtasks();
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertEquals(TaskStatus.NEW, manager.getEpic(epic.getId()).getStatus());
+        assertTrue(manager.getEpicSubtasks(epic.getId()).isEmpty());
+        assertEquals(List.of(epic.getId()), manager.getHistory().stream().map(Task::getId).toList());
+        assertEquals(0, manager.subtaskCount());
+        assertEquals(1, manager.historySize());
+        Subtask added = manager.addSubtask(new Subtask(0, "New", "Description", TaskStatus.NEW, epic.getId()));
+        assertEquals(List.of(added), manager.getEpicSubtasks(epic.getId()));
+
+        manager.deleteAllEpics();
+        assertTrue(manager.getAllEpics().isEmpty());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertEquals(0, manager.epicCount());
+        assertEquals(0, manager.subtaskCount());
+        manager.awaitReclamation();
+        assertTrue(manager.getHistory().isEmpty());
+        assertEquals(0, manager.historySize());
+        assertNull(manager.getSubtask(added.getId()));
+    }
+}
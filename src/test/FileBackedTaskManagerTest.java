@@ -0,0 +1,326 @@
+package test;
+
+import manager.FileBackedTaskManager;
+import manager.FsyncPolicy;
+import manager.TaskBatch;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedTaskManagerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void stateShouldSurviveRestart() {
+        Task task;
+        Epic epic;
+        Subtask subtask;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+            epic = manager.addEpic(new Epic(0, "Эпик", "Описание эпика"));
+            subtask = manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, epic.getId(),
+                    LocalDateTime.of(2024, 3, 1, 9, 30, 15, 500), Duration.ofMinutes(90)));
+            manager.updateTask(new Task(task.getId(), "Задача", "Новое описание", TaskStatus.IN_PROGRESS));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            Task restoredTask = restored.getTask(task.getId());
+            assertEquals("Новое описание", restoredTask.getDescription());
+            assertEquals(TaskStatus.IN_PROGRESS, restoredTask.getStatus());
+            assertEquals(List.of(subtask.getId()), restored.getEpic(epic.getId()).getSubtaskIds());
+            assertEquals(subtask, restored.getSubtask(subtask.getId()));
+            assertEquals(List.of(subtask), restored.getPrioritizedTasks());
+
+            Task next = restored.addTask(new Task(0, "Ещё задача", "Описание", TaskStatus.NEW));
+            assertEquals(subtask.getId() + 1, next.getId());
+        }
+    }
+
+    @Test
+    void deletesShouldBeReplayed() {
+        int keptId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+            keptId = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW)).getId();
+            manager.addTask(new Task(0, "Удаляемая", "Описание", TaskStatus.NEW));
+            manager.deleteEpic(epic.getId());
+            manager.deleteTask(keptId + 1);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertTrue(restored.getAllEpics().isEmpty());
+            assertTrue(restored.getAllSubtasks().isEmpty());
+            assertEquals(1, restored.getAllTasks().size());
+            assertNotNull(restored.getTask(keptId));
+        }
+    }
+
+    @Test
+    void compactionShouldKeepStateAndTruncateLog() throws IOException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.NEVER, 16, 10)) {
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            for (int i = 0; i < 25; i++) {
+                manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epic.getId()));
+            }
+        }
+        assertTrue(Files.exists(directory.resolve("tasks.snapshot")));
+        assertTrue(Files.size(directory.resolve("tasks.wal")) < Files.size(directory.resolve("tasks.snapshot")));
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(25, restored.getAllSubtasks().size());
+            assertEquals(25, restored.getEpicSubtasks(1).size());
+        }
+    }
+
+    @Test
+    void versionsShouldSurviveRestartAndCompaction() {
+        int taskId;
+        int epicId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.NEVER, 16, 10)) {
+            Task task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            taskId = task.getId();
+            epicId = epic.getId();
+            // Больше записей, чем порог компактации: часть версий попадёт в снимок, часть останется в журнале
+            for (int i = 0; i < 25; i++) {
+                task.setName("Задача " + i);
+                assertTrue(manager.updateTask(task, task.getVersion()));
+            }
+            manager.updateEpic(new Epic(epicId, "Эпик 2", "Описание"));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(26, restored.getTask(taskId).getVersion());
+            assertEquals(2, restored.getEpic(epicId).getVersion());
+            assertFalse(restored.updateTask(new Task(taskId, "Задача", "Описание", TaskStatus.DONE), 25));
+            assertTrue(restored.updateTask(new Task(taskId, "Задача", "Описание", TaskStatus.DONE), 26));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(27, restored.getTask(taskId).getVersion());
+        }
+    }
+
+    @Test
+    void timesOutsideNanosecondRangeShouldSurviveRestart() {
+        LocalDateTime past = LocalDateTime.of(1600, 5, 1, 12, 0);
+        Duration longDuration = Duration.ofDays(365L * 400).plusNanos(7);
+        int id;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            id = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW, past, longDuration)).getId();
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(past, restored.getTask(id).getStartTime());
+            assertEquals(longDuration, restored.getTask(id).getDuration());
+        }
+    }
+
+    @Test
+    void entitiesWithoutStatusShouldSurviveRestart() {
+        Task task;
+        Subtask subtask;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory)) {
+            task = manager.addTask(new Task(0, "Задача", "Описание", null));
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            subtask = manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, epic.getId()));
+            manager.updateSubtask(new Subtask(subtask.getId(), "Подзадача", "Описание", null, epic.getId()));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(List.of(task), restored.getAllTasks());
+            assertNull(restored.getTask(task.getId()).getStatus());
+            assertNull(restored.getSubtask(subtask.getId()).getStatus());
+            assertEquals(TaskStatus.NEW, restored.getEpic(subtask.getEpicId()).getStatus());
+        }
+    }
+
+    @Test
+    void failedBackgroundCompactionShouldNotFailWrites() throws Exception {
+        // Каталог на месте временного файла снапшота не даёт его записать
+        Path blocker = Files.createDirectories(directory.resolve("tasks.snapshot.tmp").resolve("blocker"));
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.NEVER, 16, 10)) {
+            for (int i = 0; i < 25; i++) {
+                manager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manager.compactionFailure() == null && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertNotNull(manager.compactionFailure());
+            assertEquals(25, manager.getAllTasks().size());
+
+            // Закрытие повторяет компактацию
+            Files.delete(blocker);
+            Files.delete(blocker.getParent());
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(25, restored.getAllTasks().size());
+            assertNull(restored.compactionFailure());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("tasks.snapshot", "tasks.wal"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void restoredStorageShouldIterateInIdOrder() {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.NEVER, 16, 10)) {
+            for (int i = 0; i < 20; i++) {
+                Epic epic = manager.addEpic(new Epic(0, "Эпик " + i, "Описание"));
+                manager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+                manager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epic.getId()));
+            }
+        }
+
+        // В снимке задачи идут после эпиков с подзадачами, то есть не по порядку id
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            List<Integer> ids = restored.getAllTasks().stream().map(Task::getId).toList();
+            assertEquals(20, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+            assertEquals(ids.subList(5, 8), restored.getTasks(ids.get(4), 3).stream().map(Task::getId).toList());
+            assertEquals(ids, restored.streamTasks().parallel().map(Task::getId).toList());
+        }
+    }
+
+    @Test
+    void tornTailShouldBeDiscarded() throws IOException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.ALWAYS, 1, 1_000)) {
+            manager.addTask(new Task(0, "Задача 1", "Описание", TaskStatus.NEW));
+            manager.addTask(new Task(0, "Задача 2", "Описание", TaskStatus.NEW));
+        }
+        Path log = directory.resolve("tasks.wal");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(1, restored.getAllTasks().size());
+            assertEquals(2, restored.addTask(new Task(0, "Задача 3", "Описание", TaskStatus.NEW)).getId());
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals("Задача 3", restored.getTask(2).getName());
+        }
+    }
+
+    @Test
+    void batchShouldBeLoggedAsSingleRecord() throws IOException {
+        int[] ids;
+        long logSizeBeforeBatch;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.ALWAYS, 1, 1_000)) {
+            manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+            logSizeBeforeBatch = Files.size(directory.resolve("tasks.wal"));
+            TaskBatch batch = new TaskBatch();
+            int epicRef = batch.addEpic(new Epic(0, "Эпик", "Описание"));
+            for (int i = 0; i < 100; i++) {
+                batch.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.DONE, epicRef));
+            }
+            batch.deleteTask(1);
+            ids = manager.applyBatch(batch);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertTrue(restored.getAllTasks().isEmpty());
+            assertEquals(100, restored.getEpicSubtasks(ids[0]).size());
+            assertEquals(TaskStatus.DONE, restored.getEpic(ids[0]).getStatus());
+        }
+
+        // Оборванная запись пакета отбрасывается целиком
+        try (FileChannel channel = FileChannel.open(directory.resolve("tasks.wal"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(logSizeBeforeBatch, Files.size(directory.resolve("tasks.wal")));
+            assertEquals(1, restored.getAllTasks().size());
+            assertTrue(restored.getAllEpics().isEmpty());
+            assertTrue(restored.getAllSubtasks().isEmpty());
+        }
+    }
+
+    @Test
+    void recordsShouldReachFileBeforeFsync() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory.resolve("live"),
+                FsyncPolicy.NEVER, 64, 1_000)) {
+            manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+            manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            // Копия файлов до flush и close - то, что увидит новый процесс после падения этого
+            copyDirectory(directory.resolve("live"), crashed);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(crashed)) {
+            assertEquals(1, restored.getAllTasks().size());
+            assertEquals(1, restored.getAllEpics().size());
+        }
+    }
+
+    @Test
+    void segmentsLeftByInterruptedCompactionShouldBeReplayed() throws IOException {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.NEVER, 16, 1_000)) {
+            manager.addTask(new Task(0, "Задача 1", "Описание", TaskStatus.NEW));
+            manager.compact();
+            manager.addTask(new Task(0, "Задача 2", "Описание", TaskStatus.NEW));
+            manager.updateTask(new Task(2, "Задача 2", "Новое описание", TaskStatus.DONE));
+        }
+        // Журнал уже перенесён в сегмент, а снапшот записать не успели
+        Files.move(directory.resolve("tasks.wal"), directory.resolve("tasks.wal.3"));
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(2, restored.getAllTasks().size());
+            assertEquals("Новое описание", restored.getTask(2).getDescription());
+            restored.addTask(new Task(0, "Задача 3", "Описание", TaskStatus.NEW));
+            restored.compact();
+            assertFalse(Files.exists(directory.resolve("tasks.wal.3")));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(3, restored.getAllTasks().size());
+            assertEquals(2, restored.getTask(2).getVersion());
+        }
+    }
+
+    @Test
+    void backgroundCompactionShouldKeepEveryRecord() {
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(directory, FsyncPolicy.BATCH, 8, 50)) {
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            for (int i = 0; i < 1_000; i++) {
+                Subtask subtask = manager.addSubtask(
+                        new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epic.getId()));
+                subtask.setStatus(TaskStatus.DONE);
+                manager.updateSubtask(subtask);
+            }
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(directory)) {
+            assertEquals(1_000, restored.getAllSubtasks().size());
+            assertEquals(TaskStatus.DONE, restored.getEpic(1).getStatus());
+            assertTrue(restored.getAllSubtasks().stream().allMatch(subtask -> subtask.getVersion() == 2));
+        }
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package test;
+
+import http.HttpTaskServer;
+import manager.ConcurrentTaskManager;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+    private TaskManager taskManager;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        taskManager = new ConcurrentTaskManager();
+        server = new HttpTaskServer(taskManager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+        client.close();
+    }
+
+    @Test
+    void postShouldCreateAndUpdateTask() throws Exception {
+        HttpResponse<String> created = send("POST", "/tasks", """
+                {"name": "Задача \\"1\\"", "description": "Описание", "status": "NEW",
+                 "startTime": "2024-03-01T09:00", "duration": "PT1H30M"}""");
+        assertEquals(201, created.statusCode());
+        assertTrue(created.body().contains("\"id\":1"));
+
+        Task task = taskManager.getTask(1);
+        assertEquals("Задача \"1\"", task.getName());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 9, 0), task.getStartTime());
+        assertEquals(Duration.ofMinutes(90), task.getDuration());
+
+        HttpResponse<String> updated = send("POST", "/tasks",
+                "{\"id\": 1, \"name\": \"Задача\", \"description\": \"Новое\", \"status\": \"DONE\"}");
+        assertEquals(200, updated.statusCode());
+        assertEquals(TaskStatus.DONE, taskManager.getTask(1).getStatus());
+        assertEquals(404, send("POST", "/tasks", "{\"id\": 42, \"name\": \"Задача\"}").statusCode());
+    }
+
+    @Test
+    void getShouldReturnTasksAndNotFound() throws Exception {
+        Task task = taskManager.addTask(new Task(0, "Задача", "Строка\nс переводом", TaskStatus.NEW));
+
+        HttpResponse<String> list = send("GET", "/tasks", null);
+        assertEquals(200, list.statusCode());
+        assertEquals("[{\"id\":" + task.getId() + ",\"type\":\"TASK\",\"name\":\"Задача\","
+                + "\"description\":\"Строка\\nс переводом\",\"status\":\"NEW\",\"version\":1}]", list.body());
+        assertEquals(200, send("GET", "/tasks/" + task.getId(), null).statusCode());
+        assertEquals(404, send("GET", "/tasks/42", null).statusCode());
+        assertEquals(400, send("GET", "/tasks/abc", null).statusCode());
+    }
+
+    @Test
+    void subtasksShouldBeListedByEpic() throws Exception {
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        HttpResponse<String> created = send("POST", "/subtasks",
+                "{\"name\": \"Подзадача\", \"status\": \"IN_PROGRESS\", \"epicId\": " + epic.getId() + "}");
+        assertEquals(201, created.statusCode());
+
+        HttpResponse<String> bySubtasks = send("GET", "/subtasks/epic/" + epic.getId(), null);
+        assertEquals(200, bySubtasks.statusCode());
+        assertTrue(bySubtasks.body().contains("\"epicId\":" + epic.getId()));
+        assertTrue(send("GET", "/epics/" + epic.getId(), null).body().contains("\"status\":\"IN_PROGRESS\""));
+        assertEquals(404, send("GET", "/subtasks/epic/42", null).statusCode());
+        assertEquals(404, send("POST", "/subtasks", "{\"name\": \"Подзадача\", \"epicId\": 42}").statusCode());
+    }
+
+    @Test
+    void subtaskUpdateWithOtherEpicShouldBeRejected() throws Exception {
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        Epic other = taskManager.addEpic(new Epic(0, "Другой эпик", "Описание"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+
+        String body = "{\"id\": " + subtask.getId() + ", \"name\": \"Подзадача\", \"status\": \"DONE\", \"epicId\": "
+                + other.getId() + "}";
+        assertEquals(409, send("POST", "/subtasks", body).statusCode());
+        assertEquals(TaskStatus.NEW, taskManager.getSubtask(subtask.getId()).getStatus());
+        assertEquals(409, send("POST", "/subtasks", body.replace("}", ", \"version\": 1}")).statusCode());
+        assertEquals(200, send("POST", "/subtasks", body.replace("\"epicId\": " + other.getId(),
+                "\"epicId\": " + epic.getId())).statusCode());
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    void postWithStaleVersionShouldBeRejected() throws Exception {
+        Task task = taskManager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        String body = "{\"id\": " + task.getId() + ", \"name\": \"Задача\", \"status\": \"DONE\", \"version\": 1}";
+
+        HttpResponse<String> updated = send("POST", "/tasks", body);
+        assertEquals(200, updated.statusCode());
+        assertTrue(updated.body().contains("\"version\":2"));
+        assertEquals(409, send("POST", "/tasks", body).statusCode());
+        assertEquals(2, taskManager.getTask(task.getId()).getVersion());
+
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        String epicBody = "{\"id\": " + epic.getId() + ", \"name\": \"Эпик 2\", \"version\": 2}";
+        assertEquals(409, send("POST", "/epics", epicBody).statusCode());
+        assertEquals("Эпик", taskManager.getEpic(epic.getId()).getName());
+    }
+
+    @Test
+    void overlappingTaskShouldBeRejected() throws Exception {
+        String body = "{\"name\": \"Задача\", \"startTime\": \"2024-03-01T09:00\", \"duration\": \"PT1H\"}";
+        assertEquals(201, send("POST", "/tasks", body).statusCode());
+        assertEquals(406, send("POST", "/tasks", body).statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"name\": ").statusCode());
+    }
+
+    @Test
+    void historyShouldBeGlobalOrPerUser() throws Exception {
+        Task task1 = taskManager.addTask(new Task(0, "Задача 1", "Описание", TaskStatus.NEW));
+        Task task2 = taskManager.addTask(new Task(0, "Задача 2", "Описание", TaskStatus.NEW));
+        send("GET", "/tasks/" + task1.getId(), null);
+        client.send(request("GET", "/tasks/" + task2.getId(), null).header("X-User-Id", "alice").build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(List.of(task1), taskManager.getHistory());
+        assertEquals(List.of(task2), taskManager.getHistory("alice"));
+        HttpResponse<String> history = client.send(request("GET", "/history", null)
+                .header("X-User-Id", "alice").build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(history.body().contains("Задача 2"));
+        assertFalse(history.body().contains("Задача 1"));
+
+        assertEquals(200, send("DELETE", "/tasks/" + task1.getId(), null).statusCode());
+        assertEquals("[]", send("GET", "/history", null).body());
+    }
+
+    @Test
+    void listsShouldSupportPaging() throws Exception {
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        for (int i = 0; i < 5; i++) {
+            taskManager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epic.getId()));
+        }
+
+        String page = send("GET", "/subtasks?afterId=" + (epic.getId() + 2) + "&limit=2", null).body();
+        assertTrue(page.startsWith("[{\"id\":" + (epic.getId() + 3)));
+        assertEquals(2, page.split("\"type\"").length - 1);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body)
+            throws IOException, InterruptedException {
+        return client.send(request(method, path, body).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+    }
+}
@@ -1,14 +1,35 @@
 package test;
 
+import manager.CachingTaskManager;
+import manager.InstrumentedTaskManager;
+import manager.ConcurrentTaskManager;
 import manager.InMemoryTaskManager;
+import manager.ManagerValidationException;
+import manager.ShardedTaskManager;
+import manager.SnapshotTaskManager;
+import manager.TaskBatch;
+import manager.TaskEvent;
+import manager.TaskSubscription;
 import manager.TaskManager;
 import model.Epic;
+import model.EpicView;
 import model.Subtask;
+import model.SubtaskView;
 import model.Task;
 import model.TaskStatus;
+import model.TaskType;
+import model.TaskView;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest {
@@ -29,6 +50,42 @@ class InMemoryTaskManagerTest {
         assertEquals(task, savedTask);
     }
 
+    @Test
+    void updatingFetchedSubtaskShouldRecalculateEpicStatus() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW,
+                epic.getId()));
+
+        Subtask fetched = taskManager.getSubtask(subtask.getId());
+        fetched.setStatus(TaskStatus.DONE);
+        // Пока изменение не передано менеджеру, он его не видит
+        assertEquals(TaskStatus.NEW, taskManager.getSubtask(subtask.getId()).getStatus());
+        taskManager.updateSubtask(fetched);
+
+        assertEquals(TaskStatus.DONE, taskManager.getSubtask(subtask.getId()).getStatus());
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(epic.getId()),
+                taskManager.getEpicsByStatus(TaskStatus.DONE).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void readsShouldNotExposeStoredEntities() {
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+
+        taskManager.getTask(task.getId()).setId(100);
+        taskManager.getAllTasks().getFirst().setStatus(TaskStatus.DONE);
+        taskManager.getTasks(0, 1).getFirst().setName("Changed");
+        taskManager.getHistory().getFirst().setDescription("Changed");
+        taskManager.streamEpics().findFirst().orElseThrow().setName("Changed");
+
+        assertEquals(new Task(task.getId(), "Task", "Description", TaskStatus.NEW), taskManager.getTask(task.getId()));
+        assertEquals("Epic", taskManager.getEpic(epic.getId()).getName());
+        Epic fetched = taskManager.getEpic(epic.getId());
+        fetched.setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, fetched.getStatus());
+    }
+
     @Test
     void addEpicShouldAddEpic() {
         Epic epic = new Epic(1, "Epic", "Description");
@@ -119,6 +176,108 @@ class InMemoryTaskManagerTest {
         assertEquals("Task", fromHistory.getName());
     }
 
+    @Test
+    void versionedUpdateShouldRejectStaleVersionInEveryManager() {
+        List<TaskManager> managers = List.of(taskManager, new ConcurrentTaskManager(), new SnapshotTaskManager(),
+                new CachingTaskManager(new InMemoryTaskManager()),
+                new ShardedTaskManager(List.of(new InMemoryTaskManager(), new ConcurrentTaskManager())));
+        for (TaskManager manager : managers) {
+            Task task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+            assertEquals(1, task.getVersion());
+            // Чтение-изменение-запись прямо над объектами из get*
+            Task first = manager.getTask(task.getId());
+            Task second = manager.getTask(task.getId());
+            first.setStatus(TaskStatus.IN_PROGRESS);
+            assertTrue(manager.updateTask(first, first.getVersion()));
+            assertEquals(2, first.getVersion());
+            second.setStatus(TaskStatus.DONE);
+            assertFalse(manager.updateTask(second, second.getVersion()));
+            assertEquals(TaskStatus.IN_PROGRESS, manager.getTask(task.getId()).getStatus());
+            assertEquals(2, manager.getTask(task.getId()).getVersion());
+            manager.updateTask(second);
+            assertEquals(3, manager.getTask(task.getId()).getVersion());
+            assertFalse(manager.updateTask(new Task(1_000, "Задача", "Описание", TaskStatus.NEW), 1));
+
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            Subtask subtask = manager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+            Subtask stale = manager.getSubtask(subtask.getId());
+            subtask.setStatus(TaskStatus.DONE);
+            assertTrue(manager.updateSubtask(subtask, 1));
+            assertFalse(manager.updateSubtask(stale, 1));
+            assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).getStatus());
+            // Статус эпика производный, его смена не меняет версию эпика
+            assertEquals(1, manager.getEpic(epic.getId()).getVersion());
+            assertFalse(manager.updateEpic(new Epic(epic.getId(), "Эпик 2", "Описание"), 2));
+            assertTrue(manager.updateEpic(new Epic(epic.getId(), "Эпик 2", "Описание"), 1));
+            assertEquals(2, manager.getEpic(epic.getId()).getVersion());
+            assertEquals("Эпик 2", manager.getEpic(epic.getId()).getName());
+        }
+    }
+
+    @Test
+    void viewsShouldFollowStateInEveryManager() {
+        List<TaskManager> managers = List.of(taskManager, new ConcurrentTaskManager(), new SnapshotTaskManager(),
+                new CachingTaskManager(new InMemoryTaskManager()),
+                new InstrumentedTaskManager(new InMemoryTaskManager()),
+                new ShardedTaskManager(List.of(new InMemoryTaskManager(), new ConcurrentTaskManager())));
+        for (TaskManager manager : managers) {
+            Task task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW,
+                    LocalDateTime.of(2024, 5, 1, 10, 0), Duration.ofMinutes(30)));
+            Epic epic = manager.addEpic(new Epic(0, "Эпик", "Описание"));
+            Subtask first = manager.addSubtask(new Subtask(0, "Первая", "Описание", TaskStatus.DONE, epic.getId()));
+            Subtask second = manager.addSubtask(new Subtask(0, "Вторая", "Описание", TaskStatus.NEW, epic.getId()));
+
+            TaskView taskView = manager.getTaskView(task.getId());
+            assertEquals(new TaskView(task.getId(), "Задача", "Описание", TaskStatus.NEW,
+                    LocalDateTime.of(2024, 5, 1, 10, 0), Duration.ofMinutes(30), 1), taskView);
+            assertEquals(LocalDateTime.of(2024, 5, 1, 10, 30), taskView.endTime());
+            EpicView epicView = manager.getEpicView(epic.getId());
+            assertEquals(TaskStatus.IN_PROGRESS, epicView.status());
+            assertEquals(List.of(first.getId(), second.getId()), epicView.subtaskIds());
+            assertEquals(second.getId(), epicView.subtaskId(1));
+            assertThrows(UnsupportedOperationException.class, () -> epicView.subtaskIds().add(1_000));
+            assertEquals(epic.getId(), manager.getSubtaskView(second.getId()).epicId());
+            assertNull(manager.getTaskView(epic.getId()));
+            assertNull(manager.getSubtaskView(1_000));
+            assertEquals(List.of(epicView), manager.getEpicViews(-1, 10));
+            assertEquals(List.of(second.getId()),
+                    manager.getSubtaskViews(first.getId(), 10).stream().map(SubtaskView::id).toList());
+
+            Subtask done = manager.getSubtaskView(second.getId()).toSubtask();
+            done.setStatus(TaskStatus.DONE);
+            manager.updateSubtask(done);
+            // Выданное представление не меняется вместе с менеджером
+            assertEquals(TaskStatus.IN_PROGRESS, epicView.status());
+            assertEquals(TaskStatus.DONE, manager.getEpicView(epic.getId()).status());
+            manager.deleteSubtask(first.getId());
+            assertEquals(List.of(second.getId()), manager.getEpicView(epic.getId()).subtaskIds());
+            assertEquals(2, epicView.subtaskCount());
+            manager.updateEpic(epicView.toEpic());
+            assertEquals(2, manager.getEpicView(epic.getId()).version());
+            assertTrue(manager.getHistory().isEmpty());
+        }
+    }
+
+    @Test
+    void viewShouldBeReusedUntilEntityChanges() {
+        Task task = taskManager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        TaskView taskView = taskManager.getTaskView(task.getId());
+        EpicView epicView = taskManager.getEpicView(epic.getId());
+        assertSame(taskView, taskManager.getTaskView(task.getId()));
+        assertSame(taskView, taskManager.getTaskViews(-1, 1).getFirst());
+        assertSame(epicView, taskManager.getEpicView(epic.getId()));
+
+        taskManager.updateTask(new Task(task.getId(), "Задача", "Описание", TaskStatus.DONE));
+        assertNotSame(taskView, taskManager.getTaskView(task.getId()));
+        assertEquals(TaskStatus.DONE, taskManager.getTaskView(task.getId()).status());
+        taskManager.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+        assertEquals(1, taskManager.getEpicView(epic.getId()).subtaskCount());
+        // get* отдаёт копию: её изменение не затрагивает ни менеджер, ни представление
+        taskManager.getEpic(epic.getId()).setName("Новое имя");
+        assertEquals("Эпик", taskManager.getEpicView(epic.getId()).name());
+    }
+
     @Test
     void deletingSubtaskShouldRemoveItFromEpic() {
         Epic epic = new Epic(1, "Epic", "Description");
@@ -131,4 +290,647 @@ class InMemoryTaskManagerTest {
 
         assertFalse(taskManager.getEpic(1).getSubtaskIds().contains(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void epicSubtaskIdsShouldStayOrderedAfterRemovals() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add(taskManager.addSubtask(
+                    new Subtask(0, "Subtask " + i, "Description", TaskStatus.NEW, epic.getId())).getId());
+        }
+        for (int index : new int[]{9, 4, 0}) {
+            taskManager.deleteSubtask(expected.remove(index));
+        }
+
+        assertEquals(expected, taskManager.getEpic(epic.getId()).getSubtaskIds());
+        assertEquals(7, taskManager.getEpic(epic.getId()).getSubtaskCount());
+    }
+
+    @Test
+    void epicStatusShouldFollowSubtaskStatuses() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        assertEquals(TaskStatus.NEW, taskManager.getEpic(epic.getId()).getStatus());
+
+        Subtask subtask1 = taskManager.addSubtask(new Subtask(0, "Subtask 1", "Description",
+                TaskStatus.NEW, epic.getId()));
+        Subtask subtask2 = taskManager.addSubtask(new Subtask(0, "Subtask 2", "Description",
+                TaskStatus.DONE, epic.getId()));
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager.getEpic(epic.getId()).getStatus());
+
+        taskManager.updateSubtask(new Subtask(subtask1.getId(), "Subtask 1", "Description",
+                TaskStatus.DONE, epic.getId()));
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+
+        taskManager.deleteSubtask(subtask2.getId());
+        taskManager.deleteAllSubtasks();
+        assertEquals(TaskStatus.NEW, taskManager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    void subtaskWithoutStatusShouldCountAsNew() {
+        for (TaskManager manager : List.of(taskManager, new ConcurrentTaskManager(), new SnapshotTaskManager())) {
+            Epic epic = manager.addEpic(new Epic(0, "Epic", "Description"));
+            Subtask subtask = manager.addSubtask(new Subtask(0, "Subtask", "Description", null, epic.getId()));
+
+            assertEquals(List.of(subtask.getId()), manager.getEpic(epic.getId()).getSubtaskIds());
+            assertEquals(TaskStatus.NEW, manager.getEpic(epic.getId()).getStatus());
+            manager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Description", TaskStatus.DONE,
+                    epic.getId()));
+            assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).getStatus());
+            manager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Description", null, epic.getId()));
+            assertEquals(TaskStatus.NEW, manager.getEpic(epic.getId()).getStatus());
+            manager.deleteSubtask(subtask.getId());
+            assertEquals(0, manager.getEpic(epic.getId()).getSubtaskCount());
+        }
+    }
+
+    @Test
+    void epicStatusShouldMatchFullRecomputeAfterRandomMutations() {
+        Random random = new Random(42);
+        TaskStatus[] statuses = TaskStatus.values();
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+
+        for (int step = 0; step < 5_000; step++) {
+            int action = random.nextInt(100);
+            if (action < 10 || epicIds.isEmpty()) {
+                epicIds.add(taskManager.addEpic(new Epic(0, "Epic", "Description")).getId());
+            } else if (action < 50) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Subtask subtask = new Subtask(0, "Subtask", "Description",
+                        statuses[random.nextInt(statuses.length)], epicId);
+                subtaskIds.add(taskManager.addSubtask(subtask).getId());
+            } else if (action < 80 && !subtaskIds.isEmpty()) {
+                Subtask saved = taskManager.getSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                taskManager.updateSubtask(new Subtask(saved.getId(), saved.getName(), saved.getDescription(),
+                        statuses[random.nextInt(statuses.length)], saved.getEpicId()));
+            } else if (action < 93 && !subtaskIds.isEmpty()) {
+                taskManager.deleteSubtask(subtaskIds.remove(random.nextInt(subtaskIds.size())));
+            } else if (action < 98) {
+                int epicId = epicIds.remove(random.nextInt(epicIds.size()));
+                subtaskIds.removeAll(taskManager.getEpic(epicId).getSubtaskIds());
+                taskManager.deleteEpic(epicId);
+            } else {
+                taskManager.deleteAllSubtasks();
+                subtaskIds.clear();
+            }
+
+            for (Epic epic : taskManager.getAllEpics()) {
+                assertEquals(recomputeStatus(taskManager.getEpicSubtasks(epic.getId())), epic.getStatus(),
+                        "Статус эпика " + epic.getId() + " на шаге " + step);
+            }
+        }
+    }
+
+    @Test
+    void secondaryIndexesShouldMatchScanAfterRandomMutations() {
+        Random random = new Random(17);
+        TaskStatus[] statuses = {TaskStatus.NEW, TaskStatus.IN_PROGRESS, TaskStatus.DONE, null};
+        String[] names = {"Alpha", "Alpha beta", "Alp", "Beta", "Гамма", "Гамма дельта", ""};
+        String[] prefixes = {"", "A", "Alp", "Alpha ", "B", "Гам", "X"};
+        List<Integer> taskIds = new ArrayList<>();
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+        // Индексы строятся при первом запросе, дальше поддерживаются инкрементально
+        taskManager.findByNamePrefix("");
+
+        for (int step = 0; step < 3_000; step++) {
+            String name = names[random.nextInt(names.length)];
+            TaskStatus status = statuses[random.nextInt(statuses.length)];
+            int action = random.nextInt(100);
+            if (action < 15) {
+                taskIds.add(taskManager.addTask(new Task(0, name, "Description", status)).getId());
+            } else if (action < 25 && !taskIds.isEmpty()) {
+                int id = taskIds.get(random.nextInt(taskIds.size()));
+                taskManager.updateTask(new Task(id, name, "Description", status));
+            } else if (action < 30 && !taskIds.isEmpty()) {
+                taskManager.deleteTask(taskIds.remove(random.nextInt(taskIds.size())));
+            } else if (action < 38 || epicIds.isEmpty()) {
+                epicIds.add(taskManager.addEpic(new Epic(0, name, "Description")).getId());
+            } else if (action < 43) {
+                int id = epicIds.get(random.nextInt(epicIds.size()));
+                taskManager.updateEpic(new Epic(id, name, "Description"));
+            } else if (action < 70) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                subtaskIds.add(taskManager.addSubtask(
+                        new Subtask(0, name, "Description", status, epicId)).getId());
+            } else if (action < 88 && !subtaskIds.isEmpty()) {
+                Subtask saved = taskManager.getSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                taskManager.updateSubtask(new Subtask(saved.getId(), name, "Description", status, saved.getEpicId()));
+            } else if (action < 94 && !subtaskIds.isEmpty()) {
+                taskManager.deleteSubtask(subtaskIds.remove(random.nextInt(subtaskIds.size())));
+            } else if (action < 97) {
+                int epicId = epicIds.remove(random.nextInt(epicIds.size()));
+                subtaskIds.removeAll(taskManager.getEpic(epicId).getSubtaskIds());
+                taskManager.deleteEpic(epicId);
+            } else if (action < 98) {
+                taskManager.deleteAllSubtasks();
+                subtaskIds.clear();
+            } else if (action < 99) {
+                taskManager.deleteAllTasks();
+                taskIds.clear();
+            } else {
+                taskManager.deleteAllEpics();
+                epicIds.clear();
+                subtaskIds.clear();
+            }
+
+            for (TaskStatus expected : statuses) {
+                assertEquals(taskManager.streamTasks().filter(task -> task.getStatus() == expected).toList(),
+                        taskManager.getTasksByStatus(expected), "Задачи " + expected + " на шаге " + step);
+                assertEquals(taskManager.streamEpics().filter(epic -> epic.getStatus() == expected).toList(),
+                        taskManager.getEpicsByStatus(expected), "Эпики " + expected + " на шаге " + step);
+                assertEquals(taskManager.streamSubtasks().filter(subtask -> subtask.getStatus() == expected).toList(),
+                        taskManager.getSubtasksByStatus(expected), "Подзадачи " + expected + " на шаге " + step);
+            }
+            for (String prefix : prefixes) {
+                List<Integer> expectedIds = new ArrayList<>();
+                for (List<? extends Task> all : List.of(taskManager.getAllTasks(), taskManager.getAllEpics(),
+                        taskManager.getAllSubtasks())) {
+                    for (Task task : all) {
+                        if (task.getName().startsWith(prefix)) {
+                            expectedIds.add(task.getId());
+                        }
+                    }
+                }
+                expectedIds.sort(null);
+                assertEquals(expectedIds, taskManager.findByNamePrefix(prefix).stream().map(Task::getId).toList(),
+                        "Префикс '" + prefix + "' на шаге " + step);
+            }
+        }
+    }
+
+    @Test
+    void indexesShouldBeBuiltOverTasksWithoutStatus() {
+        taskManager.addTask(new Task(0, "a", "Description", TaskStatus.NEW));
+        taskManager.addTask(new Task(0, "b", "Description", TaskStatus.NEW));
+        Task withoutStatus = taskManager.addTask(new Task(0, "c", "Description", null));
+
+        assertEquals(2, taskManager.getTasksByStatus(TaskStatus.NEW).size());
+        assertEquals(2, taskManager.getTasksByStatus(TaskStatus.NEW).size());
+        assertEquals(List.of(withoutStatus), taskManager.getTasksByStatus(null));
+        assertEquals(List.of(withoutStatus), taskManager.findByNamePrefix("c"));
+    }
+
+    @Test
+    void searchShouldRankNameMatchesFirstAndSupportRussianPrefixes() {
+        Task inDescription = taskManager.addTask(new Task(0, "Переезд", "Собрать вещи и заказать грузовик",
+                TaskStatus.NEW));
+        Task inName = taskManager.addTask(new Task(0, "Заказать ГРУЗОВИК", "На субботу", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Ёлка", "Купить ёлку и игрушки"));
+        Subtask subtask = taskManager.addSubtask(new Subtask(0, "Игрушки", "Шары, гирлянда",
+                TaskStatus.NEW, epic.getId()));
+
+        assertArrayEquals(new int[]{inName.getId(), inDescription.getId()}, taskManager.search("грузовик", 10));
+        assertArrayEquals(new int[]{inName.getId()}, taskManager.search("грузовик", 1));
+        assertArrayEquals(new int[]{inName.getId(), inDescription.getId()}, taskManager.search("заказ* груз*", 10));
+        assertArrayEquals(new int[]{epic.getId()}, taskManager.search("елка", 10));
+        assertArrayEquals(new int[]{subtask.getId(), epic.getId()}, taskManager.search("игрушк*", 10));
+        assertEquals(0, taskManager.search("грузовик субботу ёлка", 10).length);
+        assertEquals(0, taskManager.search(" ,.! ", 10).length);
+
+        taskManager.updateTask(new Task(inName.getId(), "Заказать такси", "На субботу", TaskStatus.NEW));
+        taskManager.deleteEpic(epic.getId());
+        assertArrayEquals(new int[]{inDescription.getId()}, taskManager.search("грузовик", 10));
+        assertArrayEquals(new int[]{inName.getId()}, taskManager.search("такси", 10));
+        assertEquals(0, taskManager.search("игрушк*", 10).length);
+        assertThrows(IllegalArgumentException.class, () -> taskManager.search("такси", -1));
+    }
+
+    @Test
+    void searchIndexShouldMatchFullScanAfterRandomMutations() {
+        // У ConcurrentTaskManager нет текстового индекса: search просматривает хранилище целиком
+        TaskManager reference = new ConcurrentTaskManager();
+        Random random = new Random(23);
+        String[] words = {"отчёт", "отчет", "отчеты", "Встреча", "встречи", "план", "Plan", "план-график",
+                "q3", "naïve", "café"};
+        String[] queries = {"отчет", "отч*", "встреч* план", "план", "q3 отчёт", "caf*", "naive", "p*", "планы"};
+        List<Integer> taskIds = new ArrayList<>();
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+        taskManager.search("", 1);
+
+        for (int step = 0; step < 2_000; step++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            String description = random.nextBoolean() ? null : words[random.nextInt(words.length)];
+            int action = random.nextInt(100);
+            if (action < 20) {
+                Task task = new Task(0, name, description, TaskStatus.NEW);
+                taskIds.add(taskManager.addTask(task).getId());
+                assertEquals(task.getId(), reference.addTask(new Task(0, name, description, TaskStatus.NEW)).getId());
+            } else if (action < 30 && !taskIds.isEmpty()) {
+                int id = taskIds.get(random.nextInt(taskIds.size()));
+                taskManager.updateTask(new Task(id, name, description, TaskStatus.DONE));
+                reference.updateTask(new Task(id, name, description, TaskStatus.DONE));
+            } else if (action < 35 && !taskIds.isEmpty()) {
+                int id = taskIds.remove(random.nextInt(taskIds.size()));
+                taskManager.deleteTask(id);
+                reference.deleteTask(id);
+            } else if (action < 45 || epicIds.isEmpty()) {
+                int id = taskManager.addEpic(new Epic(0, name, description)).getId();
+                assertEquals(id, reference.addEpic(new Epic(0, name, description)).getId());
+                epicIds.add(id);
+            } else if (action < 50) {
+                int id = epicIds.get(random.nextInt(epicIds.size()));
+                taskManager.updateEpic(new Epic(id, name, description));
+                reference.updateEpic(new Epic(id, name, description));
+            } else if (action < 80) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                int id = taskManager.addSubtask(new Subtask(0, name, description, TaskStatus.NEW, epicId)).getId();
+                assertEquals(id, reference.addSubtask(new Subtask(0, name, description, TaskStatus.NEW, epicId)).getId());
+                subtaskIds.add(id);
+            } else if (action < 90 && !subtaskIds.isEmpty()) {
+                int id = subtaskIds.get(random.nextInt(subtaskIds.size()));
+                Subtask subtask = taskManager.getSubtask(id);
+                taskManager.updateSubtask(new Subtask(id, name, description, TaskStatus.DONE, subtask.getEpicId()));
+                reference.updateSubtask(new Subtask(id, name, description, TaskStatus.DONE, subtask.getEpicId()));
+            } else if (action < 95 && !subtaskIds.isEmpty()) {
+                int id = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                taskManager.deleteSubtask(id);
+                reference.deleteSubtask(id);
+            } else if (epicIds.size() > 1) {
+                int id = epicIds.remove(random.nextInt(epicIds.size()));
+                List<Integer> removed = reference.getEpicSubtasks(id).stream().map(Task::getId).toList();
+                subtaskIds.removeAll(removed);
+                taskManager.deleteEpic(id);
+                reference.deleteEpic(id);
+            }
+
+            if (step % 50 == 0) {
+                for (String query : queries) {
+                    int limit = 1 + random.nextInt(30);
+                    assertArrayEquals(reference.search(query, limit), taskManager.search(query, limit),
+                            "Запрос '" + query + "' на шаге " + step);
+                }
+            }
+        }
+    }
+
+    @Test
+    void prefixSearchShouldCountNameAndDescriptionMatchedByDifferentWords() {
+        TaskManager reference = new ConcurrentTaskManager();
+        for (TaskManager manager : List.of(taskManager, reference)) {
+            manager.addTask(new Task(0, "abc", "x", TaskStatus.NEW));
+            manager.addTask(new Task(0, "abc", "abd", TaskStatus.NEW));
+            manager.addTask(new Task(0, "abd", "abc", TaskStatus.NEW));
+            manager.addTask(new Task(0, "x", "abc", TaskStatus.NEW));
+        }
+
+        assertArrayEquals(new int[]{2}, taskManager.search("ab*", 1));
+        for (String query : List.of("ab*", "a*", "abc*", "ab* x", "x a*")) {
+            for (int limit = 1; limit <= 5; limit++) {
+                assertArrayEquals(reference.search(query, limit), taskManager.search(query, limit),
+                        "Запрос '" + query + "' с limit " + limit);
+            }
+        }
+    }
+
+    @Test
+    void getEpicSubtasksShouldFilterByStatus() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask done = taskManager.addSubtask(new Subtask(0, "Done", "Description", TaskStatus.DONE, epic.getId()));
+        taskManager.addSubtask(new Subtask(0, "New", "Description", TaskStatus.NEW, epic.getId()));
+
+        assertEquals(List.of(done), taskManager.getEpicSubtasks(epic.getId(), TaskStatus.DONE));
+        assertTrue(taskManager.getEpicSubtasks(epic.getId(), TaskStatus.IN_PROGRESS).isEmpty());
+        assertTrue(taskManager.getEpicSubtasks(42, TaskStatus.NEW).isEmpty());
+    }
+
+    private static TaskStatus recomputeStatus(List<Subtask> subtasks) {
+        boolean allNew = true;
+        boolean allDone = true;
+        for (Subtask subtask : subtasks) {
+            allNew &= subtask.getStatus() == TaskStatus.NEW;
+            allDone &= subtask.getStatus() == TaskStatus.DONE;
+        }
+        if (allNew) {
+            return TaskStatus.NEW;
+        }
+        return allDone ? TaskStatus.DONE : TaskStatus.IN_PROGRESS;
+    }
+
+    @Test
+    void prioritizedTasksShouldBeOrderedByStartTime() {
+        LocalDateTime morning = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Task late = taskManager.addTask(new Task(0, "Late", "Description", TaskStatus.NEW,
+                morning.plusHours(3), Duration.ofMinutes(30)));
+        taskManager.addTask(new Task(0, "Unscheduled", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask early = taskManager.addSubtask(new Subtask(0, "Early", "Description", TaskStatus.NEW,
+                epic.getId(), morning, Duration.ofHours(1)));
+
+        assertEquals(List.of(early.getId(), late.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        taskManager.updateTask(new Task(late.getId(), "Late", "Description", TaskStatus.NEW,
+                morning.minusHours(1), Duration.ofMinutes(30)));
+        assertEquals(List.of(late.getId(), early.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        taskManager.deleteEpic(epic.getId());
+        assertEquals(List.of(late.getId()), taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void overlappingTasksShouldBeRejected() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Task first = taskManager.addTask(new Task(0, "First", "Description", TaskStatus.NEW,
+                start, Duration.ofHours(1)));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+
+        assertThrows(ManagerValidationException.class, () -> taskManager.addTask(
+                new Task(0, "Overlapping", "Description", TaskStatus.NEW, start.plusMinutes(30), Duration.ofHours(1))));
+        assertThrows(ManagerValidationException.class, () -> taskManager.addSubtask(new Subtask(0, "Inside",
+                "Description", TaskStatus.NEW, epic.getId(), start.plusMinutes(10), Duration.ofMinutes(5))));
+
+        Task adjacent = taskManager.addTask(new Task(0, "Adjacent", "Description", TaskStatus.NEW,
+                start.plusHours(1), Duration.ofHours(1)));
+        assertThrows(ManagerValidationException.class, () -> taskManager.updateTask(new Task(adjacent.getId(),
+                "Adjacent", "Description", TaskStatus.NEW, start.plusMinutes(59), Duration.ofHours(1))));
+
+        // Сдвиг задачи внутри собственного слота не считается пересечением
+        taskManager.updateTask(new Task(first.getId(), "First", "Description", TaskStatus.DONE,
+                start, Duration.ofMinutes(45)));
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+        assertEquals(2, taskManager.getAllTasks().size());
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void taskWithoutDurationShouldNotHideTaskStartingAtSameTime() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 10, 0);
+        for (TaskManager manager : List.of(taskManager, new ConcurrentTaskManager(), new SnapshotTaskManager())) {
+            manager.addTask(new Task(0, "Long", "Description", TaskStatus.NEW, start, Duration.ofHours(10)));
+
+            assertThrows(ManagerValidationException.class, () -> manager.addTask(
+                    new Task(0, "Point", "Description", TaskStatus.NEW, start, null)));
+            assertThrows(ManagerValidationException.class, () -> manager.addTask(
+                    new Task(0, "Inside", "Description", TaskStatus.NEW, start.plusHours(2), Duration.ofHours(1))));
+            manager.addTask(new Task(0, "End", "Description", TaskStatus.NEW, start.plusHours(10), null));
+
+            LocalDateTime later = start.plusDays(1);
+            manager.addTask(new Task(0, "Point", "Description", TaskStatus.NEW, later, Duration.ZERO));
+            assertThrows(ManagerValidationException.class, () -> manager.addTask(
+                    new Task(0, "Long", "Description", TaskStatus.NEW, later, Duration.ofHours(10))));
+            assertEquals(3, manager.getPrioritizedTasks().size());
+        }
+    }
+
+    @Test
+    void pagesShouldCoverAllTasksInIdOrder() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            expectedIds.add(taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW)).getId());
+            taskManager.addSubtask(new Subtask(0, "Subtask " + i, "Description", TaskStatus.NEW, epic.getId()));
+        }
+
+        List<Integer> pagedIds = new ArrayList<>();
+        int afterId = 0;
+        List<Task> page;
+        do {
+            page = taskManager.getTasks(afterId, 100);
+            assertTrue(page.size() <= 100);
+            for (Task task : page) {
+                pagedIds.add(task.getId());
+                afterId = task.getId();
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(expectedIds, pagedIds);
+        assertEquals(List.of(epic.getId()), taskManager.getEpics(0, 10).stream().map(Task::getId).toList());
+        assertTrue(taskManager.getSubtasks(Integer.MAX_VALUE, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getTasks(0, -1));
+    }
+
+    @Test
+    void streamsShouldBeOrderedAndSupportParallel() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        for (int i = 0; i < 10_000; i++) {
+            taskManager.addSubtask(new Subtask(0, "Subtask " + i, "Description",
+                    i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW, epic.getId()));
+        }
+
+        List<Integer> ids = taskManager.streamSubtasks().parallel().map(Task::getId).toList();
+        assertEquals(taskManager.getAllSubtasks().stream().map(Task::getId).toList(), ids);
+        assertEquals(5_000, taskManager.streamSubtasks().parallel()
+                .filter(subtask -> subtask.getStatus() == TaskStatus.DONE).count());
+        assertEquals(1, taskManager.streamEpics().count());
+        assertEquals(0, taskManager.streamTasks().count());
+
+        // Поток делится по отрезкам хранилища, дыры от удалений пропускаются
+        assertNotNull(taskManager.streamSubtasks().parallel().spliterator().trySplit());
+        for (int i = 0; i < ids.size(); i += 3) {
+            taskManager.deleteSubtask(ids.get(i));
+        }
+        assertEquals(taskManager.getAllSubtasks().stream().map(Task::getId).toList(),
+                taskManager.streamSubtasks().parallel().map(Task::getId).toList());
+    }
+
+    @Test
+    void applyBatchShouldCreateEpicWithSubtasksByReference() {
+        Task existing = taskManager.addTask(new Task(0, "Существующая", "Описание", TaskStatus.NEW));
+        TaskBatch batch = new TaskBatch();
+        Epic epic = new Epic(0, "Спринт", "Описание");
+        int epicRef = batch.addEpic(epic);
+        Subtask subtask1 = new Subtask(0, "Подзадача 1", "Описание", TaskStatus.DONE, epicRef);
+        batch.addSubtask(subtask1);
+        int subtask2Ref = batch.addSubtask(new Subtask(0, "Подзадача 2", "Описание", TaskStatus.NEW, epicRef));
+        batch.updateSubtask(new Subtask(subtask2Ref, "Подзадача 2", "Описание", TaskStatus.DONE, epicRef));
+        batch.deleteTask(existing.getId());
+
+        int[] ids = taskManager.applyBatch(batch);
+
+        assertArrayEquals(new int[]{existing.getId() + 1, existing.getId() + 2, existing.getId() + 3}, ids);
+        assertEquals(ids[0], epic.getId());
+        assertEquals(ids[1], subtask1.getId());
+        assertEquals(ids[0], subtask1.getEpicId());
+        assertEquals(subtask1, taskManager.getSubtask(ids[1]));
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(ids[0]).getStatus());
+        assertEquals(List.of(ids[1], ids[2]), taskManager.getEpic(ids[0]).getSubtaskIds());
+        assertNull(taskManager.getTask(existing.getId()));
+        assertEquals(ids[2] + 1, taskManager.addTask(new Task(0, "Следующая", "Описание", TaskStatus.NEW)).getId());
+    }
+
+    @Test
+    void invalidBatchShouldNotChangeAnything() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        TaskBatch batch = new TaskBatch();
+        batch.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        batch.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, epic.getId()));
+        batch.deleteEpic(epic.getId());
+        batch.addSubtask(new Subtask(0, "Осиротевшая", "Описание", TaskStatus.NEW, epic.getId()));
+
+        assertThrows(ManagerValidationException.class, () -> taskManager.applyBatch(batch));
+        assertTrue(taskManager.getAllTasks().isEmpty());
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+        assertNotNull(taskManager.getEpic(epic.getId()));
+        assertEquals(epic.getId() + 1, taskManager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW)).getId());
+
+        TaskBatch forwardReference = new TaskBatch();
+        forwardReference.addSubtask(new Subtask(0, "Подзадача", "Описание", TaskStatus.NEW, -2));
+        forwardReference.addEpic(new Epic(0, "Эпик", "Описание"));
+        assertThrows(ManagerValidationException.class, () -> taskManager.applyBatch(forwardReference));
+    }
+
+    @Test
+    void applyBatchShouldValidateTimeSlotsOfFinalState() {
+        LocalDateTime nine = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Task first = taskManager.addTask(new Task(0, "Первая", "Описание", TaskStatus.NEW,
+                nine, Duration.ofHours(1)));
+        Task second = taskManager.addTask(new Task(0, "Вторая", "Описание", TaskStatus.NEW,
+                nine.plusHours(1), Duration.ofHours(1)));
+
+        // Одиночными вызовами поменять задачи местами нельзя, пакетом - можно
+        TaskBatch swap = new TaskBatch();
+        swap.updateTask(new Task(first.getId(), "Первая", "Описание", TaskStatus.NEW,
+                nine.plusHours(1), Duration.ofHours(1)));
+        swap.updateTask(new Task(second.getId(), "Вторая", "Описание", TaskStatus.NEW,
+                nine, Duration.ofHours(1)));
+        taskManager.applyBatch(swap);
+        assertEquals(List.of(second.getId(), first.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        TaskBatch overlapping = new TaskBatch();
+        overlapping.addTask(new Task(0, "Новая 1", "Описание", TaskStatus.NEW,
+                nine.plusHours(5), Duration.ofHours(2)));
+        overlapping.addTask(new Task(0, "Новая 2", "Описание", TaskStatus.NEW,
+                nine.plusHours(6), Duration.ofMinutes(10)));
+        assertThrows(ManagerValidationException.class, () -> taskManager.applyBatch(overlapping));
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void storageShouldKeepIdOrderAfterDeletesAndReinserts() {
+        for (int i = 0; i < 1_000; i++) {
+            taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW));
+        }
+        for (int id = 2; id <= 1_000; id += 2) {
+            taskManager.deleteTask(id);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        }
+
+        List<Integer> ids = taskManager.getAllTasks().stream().map(Task::getId).toList();
+        assertEquals(1_500, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+        assertEquals(List.of(999, 1_001, 1_002), taskManager.getTasks(997, 3).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void subscriberShouldReceiveTypedEvents() throws InterruptedException {
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskSubscription subscription = taskManager.subscribe(received::add);
+
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.DONE, epic.getId()));
+        taskManager.updateSubtask(
+                new Subtask(subtask.getId(), "Subtask", "Description", TaskStatus.IN_PROGRESS, epic.getId()));
+        taskManager.deleteEpic(epic.getId());
+
+        List<TaskEvent> expected = List.of(
+                new TaskEvent(TaskEvent.Type.CREATED, TaskType.EPIC, epic.getId(), TaskStatus.NEW),
+                new TaskEvent(TaskEvent.Type.CREATED, TaskType.SUBTASK, subtask.getId(), TaskStatus.DONE),
+                new TaskEvent(TaskEvent.Type.UPDATED, TaskType.EPIC, epic.getId(), TaskStatus.DONE),
+                new TaskEvent(TaskEvent.Type.UPDATED, TaskType.SUBTASK, subtask.getId(), TaskStatus.IN_PROGRESS),
+                new TaskEvent(TaskEvent.Type.UPDATED, TaskType.EPIC, epic.getId(), TaskStatus.IN_PROGRESS),
+                new TaskEvent(TaskEvent.Type.DELETED, TaskType.SUBTASK, subtask.getId(), TaskStatus.IN_PROGRESS),
+                new TaskEvent(TaskEvent.Type.DELETED, TaskType.EPIC, epic.getId(), TaskStatus.IN_PROGRESS));
+        for (TaskEvent event : expected) {
+            assertEquals(event, received.poll(5, TimeUnit.SECONDS));
+        }
+
+        subscription.close();
+        taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void coalescingShouldCollapseBurstOfUpdates() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskSubscription subscription = taskManager.subscribe(event -> {
+            received.add(event);
+            awaitQuietly(release);
+        }, 16, true);
+
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        // Пока слушатель занят первым событием, обновления копятся в одном событии
+        assertEquals(TaskEvent.Type.CREATED, received.poll(5, TimeUnit.SECONDS).type());
+        TaskStatus[] statuses = TaskStatus.values();
+        for (int i = 0; i < 100; i++) {
+            taskManager.updateTask(new Task(task.getId(), "Task", "Description", statuses[i % statuses.length]));
+        }
+        taskManager.updateTask(new Task(task.getId(), "Task", "Description", TaskStatus.DONE));
+        release.countDown();
+
+        assertEquals(new TaskEvent(TaskEvent.Type.UPDATED, TaskType.TASK, task.getId(), TaskStatus.DONE),
+                received.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, subscription.droppedEvents());
+        subscription.close();
+    }
+
+    @Test
+    void slowSubscriberShouldLoseEventsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskSubscription subscription = taskManager.subscribe(event -> {
+            awaitQuietly(release);
+            received.add(event);
+        }, 4, false);
+
+        for (int i = 0; i < 100; i++) {
+            taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW));
+        }
+        assertTrue(subscription.droppedEvents() > 0);
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() + subscription.droppedEvents() < 100 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(100, received.size() + subscription.droppedEvents());
+        subscription.close();
+    }
+
+    @Test
+    void listenerFailuresShouldBeCountedWithoutStoppingDelivery() throws InterruptedException {
+        BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+        TaskSubscription subscription = taskManager.subscribe(event -> {
+            received.add(event);
+            if (event.id() % 2 == 0) {
+                throw new IllegalStateException("Событие " + event.id());
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        }
+        // Счётчик увеличивается после возврата из слушателя
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscription.failedEvents() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, subscription.failedEvents());
+        assertEquals("Событие 10", subscription.lastFailure().getMessage());
+        assertEquals(0, subscription.droppedEvents());
+        subscription.close();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
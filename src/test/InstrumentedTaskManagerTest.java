@@ -0,0 +1,190 @@
+package test;
+
+import http.HttpTaskServer;
+import manager.CachingTaskManager;
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.InstrumentedTaskManager;
+import manager.LatencyHistogram;
+import manager.ManagerValidationException;
+import manager.ShardedTaskManager;
+import manager.SnapshotTaskManager;
+import manager.TaskBatch;
+import manager.TaskManager;
+import manager.TaskOperation;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTaskManagerTest {
+    private InstrumentedTaskManager taskManager;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new InstrumentedTaskManager(new InMemoryTaskManager(), 1);
+    }
+
+    @Test
+    void operationsShouldBeDelegatedAndCounted() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.DONE, epic.getId()));
+        taskManager.getSubtask(subtask.getId());
+        taskManager.getSubtask("user", subtask.getId());
+        taskManager.getEpic(epic.getId());
+
+        assertEquals(TaskStatus.DONE, taskManager.getDelegate().getEpic(epic.getId()).getStatus());
+        assertEquals(1, taskManager.calls(TaskOperation.ADD_EPIC));
+        assertEquals(2, taskManager.calls(TaskOperation.GET_SUBTASK));
+        assertEquals(2, taskManager.latency(TaskOperation.GET_SUBTASK).count());
+        assertEquals(0, taskManager.calls(TaskOperation.DELETE_EPIC));
+        assertEquals(1, taskManager.epicCount());
+        assertEquals(1, taskManager.subtaskCount());
+        assertEquals(2, taskManager.historySize());
+        assertTrue(taskManager.latency(TaskOperation.GET_EPIC).max() > 0);
+    }
+
+    @Test
+    void sizesShouldFollowChangesInEveryManager() {
+        List<TaskManager> delegates = List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new SnapshotTaskManager(), new CachingTaskManager(new InMemoryTaskManager()),
+                new ShardedTaskManager(List.of(new InMemoryTaskManager(), new InMemoryTaskManager())));
+        for (TaskManager delegate : delegates) {
+            InstrumentedTaskManager manager = new InstrumentedTaskManager(delegate, 1);
+            Task task = manager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+            manager.addTask(new Task(0, "Other", "Description", TaskStatus.NEW));
+            Epic epic = manager.addEpic(new Epic(0, "Epic", "Description"));
+            Subtask subtask = manager.addSubtask(
+                    new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+            manager.addSubtask(new Subtask(0, "Other", "Description", TaskStatus.DONE, epic.getId()));
+            TaskBatch batch = new TaskBatch();
+            int batchEpic = batch.addEpic(new Epic(0, "Batch", "Description"));
+            batch.addSubtask(new Subtask(0, "Batch", "Description", TaskStatus.NEW, batchEpic));
+            manager.applyBatch(batch);
+            manager.getTask(task.getId());
+            manager.getEpic(epic.getId());
+            manager.getSubtask(subtask.getId());
+
+            assertEquals(2, manager.taskCount());
+            assertEquals(2, manager.epicCount());
+            assertEquals(3, manager.subtaskCount());
+            assertEquals(3, manager.historySize());
+
+            manager.deleteTask(task.getId());
+            manager.deleteEpic(epic.getId());
+            assertEquals(1, manager.taskCount());
+            assertEquals(1, manager.epicCount());
+            assertEquals(1, manager.subtaskCount());
+            assertEquals(0, manager.historySize());
+
+            manager.deleteAllSubtasks();
+            assertEquals(0, manager.subtaskCount());
+            manager.deleteAllEpics();
+            manager.deleteAllTasks();
+            assertEquals(0, manager.taskCount());
+            assertEquals(0, manager.epicCount());
+            assertEquals(0, manager.calls(TaskOperation.GET_HISTORY));
+        }
+    }
+
+    @Test
+    void failedOperationShouldStillBeRecorded() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW, start, Duration.ofHours(1)));
+
+        assertThrows(ManagerValidationException.class, () -> taskManager.addTask(
+                new Task(0, "Task", "Description", TaskStatus.NEW, start, Duration.ofHours(1))));
+        assertEquals(2, taskManager.calls(TaskOperation.ADD_TASK));
+        assertEquals(2, taskManager.latency(TaskOperation.ADD_TASK).count());
+    }
+
+    @Test
+    void sampledManagerShouldCountEveryCallButTimeOnlySome() {
+        InstrumentedTaskManager sampled = new InstrumentedTaskManager(new InMemoryTaskManager());
+        Task task = sampled.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        for (int i = 0; i < 10_000; i++) {
+            sampled.getTask(task.getId());
+        }
+
+        assertEquals(10_000, sampled.calls(TaskOperation.GET_TASK));
+        long timed = sampled.latency(TaskOperation.GET_TASK).count();
+        assertTrue(timed > 0 && timed < 1_000, "замеров: " + timed);
+        assertThrows(IllegalArgumentException.class, () -> new InstrumentedTaskManager(sampled, 0));
+    }
+
+    @Test
+    void histogramPercentilesShouldBeWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        assertEquals(50_000_000, histogram.percentile(50), 50_000_000 / 32.0);
+        assertEquals(99_000_000, histogram.percentile(99), 99_000_000 / 32.0);
+        assertEquals(100_000_000, histogram.percentile(100));
+        assertEquals(50_000_500, histogram.mean(), 50_000_500 / 32.0);
+        assertEquals(0, new LatencyHistogram().percentile(99));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(101));
+    }
+
+    @Test
+    void metricsShouldBeExposedThroughJmxAndDump() throws Exception {
+        taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        taskManager.getAllTasks();
+        taskManager.registerMBeans("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName summary = new ObjectName("manager:type=TaskManager,name=\"test\"");
+            ObjectName addTask = new ObjectName(
+                    "manager:type=TaskManagerOperation,name=\"test\",operation=addTask");
+
+            assertEquals(1L, server.getAttribute(summary, "TaskCount"));
+            assertEquals(2L, server.getAttribute(summary, "OperationCount"));
+            assertEquals(1L, server.getAttribute(addTask, "Count"));
+            assertEquals(1L, server.getAttribute(addTask, "SampledCount"));
+            assertTrue((Double) server.getAttribute(addTask, "MaxMicros") > 0);
+            String dump = (String) server.getAttribute(summary, "Dump");
+            assertTrue(dump.startsWith("tasks=1 epics=0 subtasks=0 history=0"));
+            assertTrue(dump.contains("getAllTasks"));
+            assertFalse(dump.contains("deleteEpic"));
+        } finally {
+            taskManager.unregisterMBeans();
+        }
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("manager:name=\"test\",*"), null).isEmpty());
+    }
+
+    @Test
+    void httpServerShouldServeMetrics() throws Exception {
+        HttpTaskServer server = new HttpTaskServer(taskManager, 0);
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI base = URI.create("http://localhost:" + server.getPort());
+            client.send(HttpRequest.newBuilder(base.resolve("/tasks")).build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(base.resolve("/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, metrics.statusCode());
+            assertTrue(metrics.body().startsWith("tasks=0"));
+            assertTrue(metrics.body().contains("streamTasks"));
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package test;
+
+import manager.InMemoryTaskManager;
+import manager.MappedSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotTest {
+    @TempDir
+    Path directory;
+
+    private InMemoryTaskManager taskManager;
+    private Task task;
+    private Epic epic;
+    private Subtask subtask1;
+    private Subtask subtask2;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new InMemoryTaskManager();
+        task = taskManager.addTask(new Task(0, "Помыть посуду", "Помыть посуду вечером", TaskStatus.NEW));
+        epic = taskManager.addEpic(new Epic(0, "Переезд", null));
+        subtask1 = taskManager.addSubtask(new Subtask(0, "Собрать коробки", "Купить коробки",
+                TaskStatus.DONE, epic.getId(), LocalDateTime.of(2024, 3, 1, 18, 0), Duration.ofHours(2)));
+        subtask2 = taskManager.addSubtask(new Subtask(0, "Упаковать вещи", "", TaskStatus.IN_PROGRESS, epic.getId()));
+        taskManager.getSubtask(subtask2.getId());
+        taskManager.getTask(task.getId());
+        taskManager.getEpic(epic.getId());
+    }
+
+    @Test
+    void lazyLoadShouldRestoreWholeState() {
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+
+        InMemoryTaskManager restored = MappedSnapshot.load(file);
+
+        assertEquals(taskManager.getHistory(), restored.getHistory());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(subtask1, subtask2), restored.getEpicSubtasks(epic.getId()));
+        assertEquals(List.of(subtask1), restored.getPrioritizedTasks());
+        assertNull(restored.getEpic(epic.getId()).getDescription());
+        assertEquals("Помыть посуду вечером", restored.getTask(task.getId()).getDescription());
+        assertEquals(subtask2.getId() + 1, restored.addTask(new Task(0, "Новая", "", TaskStatus.NEW)).getId());
+    }
+
+    @Test
+    void lazyAndEagerLoadShouldBeEqual() {
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+
+        InMemoryTaskManager lazy = MappedSnapshot.load(file, true);
+        InMemoryTaskManager eager = MappedSnapshot.load(file, false);
+
+        assertEquals(eager.getAllTasks(), lazy.getAllTasks());
+        assertEquals(eager.getAllEpics(), lazy.getAllEpics());
+        assertEquals(eager.getAllSubtasks(), lazy.getAllSubtasks());
+    }
+
+    @Test
+    void updatesToLazyEntitiesShouldNotBeOverwrittenByFile() {
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+        InMemoryTaskManager restored = MappedSnapshot.load(file);
+
+        restored.updateEpic(new Epic(epic.getId(), "Переезд в Казань", "Новое описание"));
+
+        Epic updated = restored.getEpic(epic.getId());
+        assertEquals("Переезд в Казань", updated.getName());
+        assertEquals("Новое описание", updated.getDescription());
+    }
+
+    @Test
+    void taskWithoutStatusShouldBeRestored() {
+        Task withoutStatus = taskManager.addTask(new Task(0, "Без статуса", "", null));
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+
+        for (boolean lazyStrings : new boolean[] {true, false}) {
+            InMemoryTaskManager restored = MappedSnapshot.load(file, lazyStrings);
+            assertNull(restored.getTask(withoutStatus.getId()).getStatus());
+            assertEquals(TaskStatus.NEW, restored.getTask(task.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void timesOutsideNanosecondRangeShouldBeRestored() {
+        LocalDateTime farFuture = LocalDateTime.of(2300, 1, 1, 0, 0, 0, 1);
+        Duration longDuration = Duration.ofDays(365L * 400);
+        Task far = taskManager.addTask(new Task(0, "Капсула времени", "", TaskStatus.NEW, farFuture, longDuration));
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+
+        for (boolean lazyStrings : new boolean[] {true, false}) {
+            Task restored = MappedSnapshot.load(file, lazyStrings).getTask(far.getId());
+            assertEquals(farFuture, restored.getStartTime());
+            assertEquals(longDuration, restored.getDuration());
+        }
+    }
+
+    @Test
+    void loadShouldRestoreVersions() {
+        taskManager.updateTask(new Task(task.getId(), "Помыть посуду", "Утром", TaskStatus.DONE));
+        taskManager.updateEpic(new Epic(epic.getId(), "Переезд", "В Казань"));
+        taskManager.updateEpic(new Epic(epic.getId(), "Переезд", "В Самару"));
+        Path file = directory.resolve("board.snapshot");
+        MappedSnapshot.write(taskManager, file);
+
+        for (boolean lazyStrings : new boolean[] {true, false}) {
+            InMemoryTaskManager restored = MappedSnapshot.load(file, lazyStrings);
+
+            assertEquals(2, restored.getTask(task.getId()).getVersion());
+            assertEquals(3, restored.getEpic(epic.getId()).getVersion());
+            assertEquals(1, restored.getSubtask(subtask1.getId()).getVersion());
+            Task stale = restored.getTask(task.getId());
+            stale.setStatus(TaskStatus.NEW);
+            assertFalse(restored.updateTask(stale, 1));
+            assertEquals(TaskStatus.DONE, restored.getTask(task.getId()).getStatus());
+            assertTrue(restored.updateTask(stale, 2));
+            assertEquals(3, restored.getTask(task.getId()).getVersion());
+        }
+    }
+}
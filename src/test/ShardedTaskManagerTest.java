@@ -0,0 +1,243 @@
+package test;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.ManagerValidationException;
+import manager.ShardedTaskManager;
+import manager.TaskBatch;
+import manager.TaskEvent;
+import manager.TaskSubscription;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedTaskManagerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private ShardedTaskManager taskManager;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new ShardedTaskManager(List.of(new InMemoryTaskManager(), new InMemoryTaskManager(),
+                new InMemoryTaskManager()));
+    }
+
+    @Test
+    void epicAndItsSubtasksShouldStayOnOneShard() {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Epic epic = taskManager.addEpic(new Epic(0, "Эпик " + i, "Описание"));
+            epics.add(epic);
+            taskManager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.DONE, epic.getId()));
+            taskManager.addSubtask(new Subtask(0, "Подзадача " + i, "Описание", TaskStatus.NEW, epic.getId()));
+        }
+
+        for (int shard = 0; shard < taskManager.shardCount(); shard++) {
+            assertEquals(2, taskManager.shard(shard).getAllEpics().size());
+            assertEquals(4, taskManager.shard(shard).getAllSubtasks().size());
+        }
+        for (Epic epic : epics) {
+            Epic saved = taskManager.getEpic(epic.getId());
+            assertEquals(TaskStatus.IN_PROGRESS, saved.getStatus());
+            List<Subtask> subtasks = taskManager.getEpicSubtasks(epic.getId());
+            assertEquals(saved.getSubtaskIds(), subtasks.stream().map(Task::getId).toList());
+            for (Subtask subtask : subtasks) {
+                assertEquals(epic.getId(), subtask.getEpicId());
+                assertEquals(taskManager.shardOf(epic.getId()), taskManager.shardOf(subtask.getId()));
+                assertEquals(subtask, taskManager.getSubtask(subtask.getId()));
+            }
+        }
+
+        Epic first = epics.getFirst();
+        taskManager.deleteEpic(first.getId());
+        assertNull(taskManager.getEpic(first.getId()));
+        assertEquals(10, taskManager.getAllSubtasks().size());
+        assertNull(taskManager.addSubtask(new Subtask(0, "Сирота", "Описание", TaskStatus.NEW, first.getId())));
+    }
+
+    @Test
+    void scatterGatherShouldMergeShardsInIdOrder() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TaskStatus status = i % 2 == 0 ? TaskStatus.NEW : TaskStatus.DONE;
+            ids.add(taskManager.addTask(new Task(0, "Задача " + i, "Описание", status)).getId());
+        }
+        assertEquals(ids.stream().sorted().toList(), ids);
+
+        assertEquals(ids, taskManager.getAllTasks().stream().map(Task::getId).toList());
+        assertEquals(ids, taskManager.streamTasks().map(Task::getId).toList());
+        assertEquals(5, taskManager.getTasksByStatus(TaskStatus.DONE).size());
+        assertEquals(List.of(ids.get(1)), taskManager.findByNamePrefix("Задача 1").stream().map(Task::getId).toList());
+
+        List<Integer> paged = new ArrayList<>();
+        int afterId = 0;
+        List<Task> page;
+        while (!(page = taskManager.getTasks(afterId, 3)).isEmpty()) {
+            assertTrue(page.size() <= 3);
+            page.forEach(task -> paged.add(task.getId()));
+            afterId = page.getLast().getId();
+        }
+        assertEquals(ids, paged);
+
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    void historyShouldFollowViewOrderAcrossShards() {
+        Task first = taskManager.addTask(new Task(0, "Первая", "Описание", TaskStatus.NEW));
+        Task second = taskManager.addTask(new Task(0, "Вторая", "Описание", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+
+        taskManager.getEpic(epic.getId());
+        taskManager.getTask(second.getId());
+        taskManager.getTask(first.getId());
+        taskManager.getEpic(epic.getId());
+        taskManager.getTask("alice", first.getId());
+
+        assertEquals(List.of(second.getId(), first.getId(), epic.getId()),
+                taskManager.getHistory().stream().map(Task::getId).toList());
+        assertEquals(List.of(first.getId()), taskManager.getHistory("alice").stream().map(Task::getId).toList());
+
+        taskManager.deleteTask(second.getId());
+        assertEquals(List.of(first.getId(), epic.getId()), taskManager.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void historyOrderShouldSurvivePruningOfDeletedViews() {
+        // Номера удалённых задач вычищаются по ходу просмотров, не дожидаясь чтения истории
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Task task = taskManager.addTask(new Task(0, "Задача " + i, "Описание", TaskStatus.NEW));
+            taskManager.getTask(task.getId());
+            taskManager.getTask("alice", task.getId());
+            if (i < 250) {
+                taskManager.deleteTask(task.getId());
+            } else {
+                tasks.add(task);
+            }
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (Task task : tasks.reversed()) {
+            taskManager.getTask(task.getId());
+            expected.add(task.getId());
+        }
+
+        assertEquals(expected, taskManager.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void idleUsersShouldBeForgotten() throws InterruptedException {
+        ShardedTaskManager manager = new ShardedTaskManager(List.of(new InMemoryTaskManager(),
+                new InMemoryTaskManager()), null, Duration.ofMillis(20));
+        Task task = manager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        for (int i = 0; i < 100; i++) {
+            manager.getTask("user" + i, task.getId());
+        }
+        assertEquals(100, manager.viewedUserCount());
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        manager.getTask("alice", task.getId());
+
+        assertEquals(1, manager.viewedUserCount());
+        assertEquals(List.of(task.getId()), manager.getHistory("alice").stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void timeSlotsShouldBeCheckedAcrossShards() {
+        Task morning = taskManager.addTask(new Task(0, "Утро", "Описание", TaskStatus.NEW, START,
+                Duration.ofHours(1)));
+        // Следующая задача попала бы в другой шард, но пересекается с первой
+        assertThrows(ManagerValidationException.class, () -> taskManager.addTask(new Task(0, "Пересечение",
+                "Описание", TaskStatus.NEW, START.plusMinutes(30), Duration.ofHours(1))));
+        Task noon = taskManager.addTask(new Task(0, "Полдень", "Описание", TaskStatus.NEW, START.plusHours(3),
+                Duration.ofHours(1)));
+        Epic epic = taskManager.addEpic(new Epic(0, "Эпик", "Описание"));
+        Subtask early = taskManager.addSubtask(new Subtask(0, "Рано", "Описание", TaskStatus.NEW, epic.getId(),
+                START.minusHours(2), Duration.ofHours(1)));
+        assertNotEquals(taskManager.shardOf(morning.getId()), taskManager.shardOf(noon.getId()));
+
+        assertEquals(List.of(early.getId(), morning.getId(), noon.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertThrows(ManagerValidationException.class, () -> taskManager.updateTask(new Task(noon.getId(),
+                "Полдень", "Описание", TaskStatus.NEW, START.plusMinutes(10), Duration.ofHours(1))));
+
+        // После переноса и удаления освободившееся время можно занять
+        taskManager.updateTask(new Task(morning.getId(), "Утро", "Описание", TaskStatus.NEW, START.plusHours(5),
+                Duration.ofHours(1)));
+        taskManager.deleteEpic(epic.getId());
+        taskManager.addTask(new Task(0, "Снова утро", "Описание", TaskStatus.NEW, START, Duration.ofHours(1)));
+        taskManager.addTask(new Task(0, "Снова рано", "Описание", TaskStatus.NEW, START.minusHours(2),
+                Duration.ofHours(1)));
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void batchShouldBeAppliedToSingleShard() {
+        TaskBatch batch = new TaskBatch();
+        Epic epic = new Epic(0, "Эпик", "Описание");
+        int epicRef = batch.addEpic(epic);
+        Subtask subtask = new Subtask(0, "Подзадача", "Описание", TaskStatus.DONE, epicRef, START, Duration.ofHours(1));
+        batch.addSubtask(subtask);
+
+        int[] ids = taskManager.applyBatch(batch);
+        assertArrayEquals(new int[]{epic.getId(), subtask.getId()}, ids);
+        assertEquals(epic.getId(), subtask.getEpicId());
+        assertEquals(taskManager.shardOf(epic.getId()), taskManager.shardOf(subtask.getId()));
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).getStatus());
+
+        Task other = taskManager.addTask(new Task(0, "Задача", "Описание", TaskStatus.NEW));
+        assertNotEquals(taskManager.shardOf(epic.getId()), taskManager.shardOf(other.getId()));
+        assertThrows(ManagerValidationException.class, () -> taskManager.applyBatch(new TaskBatch()
+                .deleteTask(other.getId())
+                .deleteEpic(epic.getId())));
+        // Пересечение с задачей другого шарда тоже отклоняет пакет целиком
+        TaskBatch overlapping = new TaskBatch();
+        overlapping.addTask(new Task(0, "Пересечение", "Описание", TaskStatus.NEW, START, Duration.ofMinutes(10)));
+        assertThrows(ManagerValidationException.class, () -> taskManager.applyBatch(overlapping));
+
+        taskManager.applyBatch(new TaskBatch().deleteEpic(epic.getId()));
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+        assertEquals(List.of(other), taskManager.getAllTasks());
+    }
+
+    @Test
+    void parallelScatterGatherAndEventsShouldUseGlobalIds() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ShardedTaskManager manager = new ShardedTaskManager(List.of(new ConcurrentTaskManager(),
+                    new ConcurrentTaskManager()), executor);
+            BlockingQueue<TaskEvent> received = new LinkedBlockingQueue<>();
+            try (TaskSubscription ignored = manager.subscribe(received::add)) {
+                Task first = manager.addTask(new Task(0, "Первая", "Описание", TaskStatus.NEW));
+                Task second = manager.addTask(new Task(0, "Вторая", "Описание", TaskStatus.NEW));
+
+                assertEquals(List.of(first, second), manager.getAllTasks());
+                List<Integer> eventIds = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    TaskEvent event = received.poll(5, TimeUnit.SECONDS);
+                    assertNotNull(event);
+                    assertEquals(TaskEvent.Type.CREATED, event.type());
+                    eventIds.add(event.id());
+                }
+                eventIds.sort(null);
+                assertEquals(List.of(first.getId(), second.getId()), eventIds);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package test;
+
+import manager.InMemoryTaskManager;
+import manager.ManagerValidationException;
+import manager.SnapshotTaskManager;
+import manager.TaskBatch;
+import manager.TaskSnapshot;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTaskManagerTest {
+    private SnapshotTaskManager taskManager;
+
+    @BeforeEach
+    void setUp() {
+        taskManager = new SnapshotTaskManager();
+    }
+
+    @Test
+    void snapshotShouldNotSeeLaterChanges() {
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.DONE, epic.getId()));
+        TaskSnapshot snapshot = taskManager.snapshot();
+
+        taskManager.updateSubtask(
+                new Subtask(subtask.getId(), "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+        taskManager.deleteEpic(epic.getId());
+        taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+
+        assertEquals(TaskStatus.DONE, snapshot.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(subtask.getId()), snapshot.getEpic(epic.getId()).getSubtaskIds());
+        assertEquals(List.of(subtask), snapshot.getEpicSubtasks(epic.getId()));
+        assertTrue(snapshot.getAllTasks().isEmpty());
+        assertTrue(taskManager.snapshot().version() > snapshot.version());
+
+        assertNull(taskManager.getEpic(epic.getId()));
+        assertNull(taskManager.getSubtask(subtask.getId()));
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void returnedEntitiesShouldBeCopies() {
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        TaskSnapshot snapshot = taskManager.snapshot();
+
+        taskManager.getTask(task.getId()).setName("Изменено снаружи");
+        snapshot.getTask(task.getId()).setStatus(TaskStatus.DONE);
+        taskManager.getAllTasks().get(0).setDescription("Изменено снаружи");
+        taskManager.getTask("alice", task.getId()).setName("Изменено снаружи");
+        taskManager.getHistory().getFirst().setStatus(TaskStatus.DONE);
+        taskManager.getHistory("alice").getFirst().setStatus(TaskStatus.DONE);
+
+        assertEquals(task, taskManager.getTask(task.getId()));
+        assertEquals(task, snapshot.getTask(task.getId()));
+        assertEquals(List.of(task), taskManager.getHistory());
+        assertEquals(List.of(task), taskManager.getHistory("alice"));
+    }
+
+    @Test
+    void stateShouldMatchInMemoryManagerAfterRandomMutations() {
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        Random random = new Random(15);
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+        List<Integer> taskIds = new ArrayList<>();
+        TaskStatus[] statuses = TaskStatus.values();
+
+        for (int step = 0; step < 3_000; step++) {
+            TaskStatus status = statuses[random.nextInt(statuses.length)];
+            int action = random.nextInt(10);
+            if (action < 2 || epicIds.isEmpty()) {
+                epicIds.add(taskManager.addEpic(new Epic(0, "Epic " + step, "Description")).getId());
+                reference.addEpic(new Epic(0, "Epic " + step, "Description"));
+            } else if (action < 5) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                subtaskIds.add(taskManager.addSubtask(
+                        new Subtask(0, "Subtask " + step, "Description", status, epicId)).getId());
+                reference.addSubtask(new Subtask(0, "Subtask " + step, "Description", status, epicId));
+            } else if (action < 6) {
+                taskIds.add(taskManager.addTask(new Task(0, "Task " + step, "Description", status)).getId());
+                reference.addTask(new Task(0, "Task " + step, "Description", status));
+            } else if (action < 8 && !subtaskIds.isEmpty()) {
+                Subtask subtask = taskManager.getSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                if (subtask != null) {
+                    subtask.setStatus(status);
+                    taskManager.updateSubtask(subtask);
+                    reference.updateSubtask(new Subtask(subtask));
+                }
+            } else if (action < 9 && !subtaskIds.isEmpty()) {
+                int id = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                taskManager.deleteSubtask(id);
+                reference.deleteSubtask(id);
+            } else if (random.nextBoolean()) {
+                int id = epicIds.remove(random.nextInt(epicIds.size()));
+                taskManager.deleteEpic(id);
+                reference.deleteEpic(id);
+            } else if (!taskIds.isEmpty()) {
+                int id = taskIds.remove(random.nextInt(taskIds.size()));
+                taskManager.deleteTask(id);
+                reference.deleteTask(id);
+            }
+        }
+
+        assertEquals(reference.getAllTasks(), taskManager.getAllTasks());
+        assertEquals(reference.getAllSubtasks(), taskManager.getAllSubtasks());
+        List<Epic> expectedEpics = reference.getAllEpics();
+        List<Epic> actualEpics = taskManager.getAllEpics();
+        assertEquals(expectedEpics, actualEpics);
+        for (int i = 0; i < expectedEpics.size(); i++) {
+            assertEquals(expectedEpics.get(i).getStatus(), actualEpics.get(i).getStatus());
+            assertEquals(expectedEpics.get(i).getSubtaskIds(), actualEpics.get(i).getSubtaskIds());
+        }
+        assertEquals(reference.getSubtasks(100, 50), taskManager.getSubtasks(100, 50));
+        assertEquals(reference.streamTasks().toList(), taskManager.streamTasks().toList());
+    }
+
+    @Test
+    void overlappingSlotShouldBeRejectedWithoutPublishingChanges() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW, start, Duration.ofHours(1)));
+        long version = taskManager.snapshot().version();
+
+        assertThrows(ManagerValidationException.class, () -> taskManager.addTask(
+                new Task(0, "Task", "Description", TaskStatus.NEW, start.plusMinutes(30), Duration.ofHours(1))));
+        assertEquals(version, taskManager.snapshot().version());
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void readersShouldNeverSeeEpicPartiallyDeletedOrBatchPartiallyApplied() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> {
+            try {
+                for (int round = 0; round < 500; round++) {
+                    TaskBatch batch = new TaskBatch();
+                    int epicRef = batch.addEpic(new Epic(0, "Epic", "Description"));
+                    for (int i = 0; i < 10; i++) {
+                        batch.addSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.DONE, epicRef));
+                    }
+                    int[] ids = taskManager.applyBatch(batch);
+                    if (round % 2 == 0) {
+                        taskManager.deleteEpic(ids[0]);
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+        });
+        Future<Integer> reader = executor.submit(() -> {
+            int checked = 0;
+            while (running.get()) {
+                TaskSnapshot snapshot = taskManager.snapshot();
+                for (Epic epic : snapshot.getAllEpics()) {
+                    assertEquals(10, epic.getSubtaskIds().size());
+                    assertEquals(TaskStatus.DONE, epic.getStatus());
+                    assertEquals(10, snapshot.getEpicSubtasks(epic.getId()).size());
+                }
+                assertEquals(snapshot.epicCount() * 10, snapshot.subtaskCount());
+                checked++;
+            }
+            return checked;
+        });
+
+        writer.get();
+        assertTrue(reader.get() > 0);
+        executor.shutdown();
+        assertEquals(250, taskManager.getAllEpics().size());
+        assertEquals(2_500, taskManager.getAllSubtasks().size());
+    }
+}
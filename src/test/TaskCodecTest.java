@@ -0,0 +1,179 @@
+package test;
+
+import manager.ManagerSaveException;
+import manager.TaskCodec;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskCodecTest {
+    private static final String[] NAMES = {"Отчёт", "Релиз", "Встреча", "Deploy", "", "Ёлка 🎄"};
+
+    @Test
+    void randomEntitiesShouldSurviveRoundTrip() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0, count = random.nextInt(50); i < count; i++) {
+                tasks.add(randomTask(random));
+            }
+            int dictionary = new int[]{0, 4, 1 << 16}[round % 3];
+            ByteBuffer buffer = round % 2 == 0 ? ByteBuffer.allocate(1 << 20) : ByteBuffer.allocateDirect(1 << 20);
+
+            TaskCodec writer = new TaskCodec(dictionary);
+            for (Task task : tasks) {
+                writer.write(task, buffer);
+            }
+            buffer.flip();
+            TaskCodec reader = new TaskCodec(dictionary);
+            for (Task task : tasks) {
+                assertSame(task, reader.read(buffer));
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    void dictionaryShouldShrinkRepeatedNamesAndSurviveOverflow() {
+        Task task = new Task(1, "Очень длинное повторяющееся название", "Такое же длинное описание", TaskStatus.NEW);
+        ByteBuffer plain = ByteBuffer.allocate(4096);
+        ByteBuffer compressed = ByteBuffer.allocate(1024);
+        TaskCodec plainCodec = new TaskCodec();
+        TaskCodec dictionaryCodec = new TaskCodec(16);
+        for (int i = 0; i < 10; i++) {
+            plainCodec.write(task, plain);
+            dictionaryCodec.write(task, compressed);
+        }
+        assertTrue(compressed.position() * 4 < plain.position());
+
+        // Неудачная запись не должна оставить строки в словаре пишущей стороны
+        TaskCodec writer = new TaskCodec(16);
+        Task other = new Task(2, "Новое название", "Новое описание", TaskStatus.DONE);
+        ByteBuffer small = ByteBuffer.allocate(10);
+        assertThrows(BufferOverflowException.class, () -> writer.write(other, small));
+        assertEquals(0, small.position());
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        writer.write(other, buffer);
+        writer.write(other, buffer);
+        buffer.flip();
+        TaskCodec reader = new TaskCodec(16);
+        assertEquals(other, reader.read(buffer));
+        assertEquals(other, reader.read(buffer));
+
+        writer.reset();
+        reader.reset();
+        buffer.clear();
+        writer.write(task, buffer);
+        buffer.flip();
+        assertEquals(task, reader.read(buffer));
+    }
+
+    @Test
+    void corruptedRecordShouldBeRejected() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        new TaskCodec().write(new Subtask(3, "Подзадача", "Описание", TaskStatus.NEW, 1), buffer);
+        buffer.flip();
+
+        ByteBuffer truncated = buffer.duplicate().limit(buffer.limit() - 1);
+        assertThrows(ManagerSaveException.class, () -> new TaskCodec().read(truncated));
+        ByteBuffer wrongVersion = ByteBuffer.allocate(buffer.limit()).put(buffer.duplicate()).flip();
+        wrongVersion.put(0, (byte) (TaskCodec.VERSION + 1));
+        assertThrows(ManagerSaveException.class, () -> new TaskCodec().read(wrongVersion));
+        // Ссылка на словарь, которого у читающей стороны нет
+        ByteBuffer reference = ByteBuffer.wrap(new byte[]{TaskCodec.VERSION, 0, 1, 0, 3, 0});
+        assertThrows(ManagerSaveException.class, () -> new TaskCodec(4).read(reference));
+        // Запись версии 1 без номера изменения
+        Task legacy = new TaskCodec().read(ByteBuffer.wrap(new byte[]{1, 0, 5, 0, 0}));
+        assertEquals(5, legacy.getId());
+        assertEquals(0, legacy.getVersion());
+    }
+
+    private static void assertSame(Task expected, Task actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        if (expected instanceof Subtask subtask) {
+            assertEquals(subtask.getEpicId(), ((Subtask) actual).getEpicId());
+        } else if (expected instanceof Epic epic) {
+            Epic copy = (Epic) actual;
+            assertEquals(epic.getSubtaskIds(), copy.getSubtaskIds());
+            for (TaskStatus status : TaskStatus.values()) {
+                assertEquals(epic.getSubtaskCount(status), copy.getSubtaskCount(status));
+            }
+        }
+    }
+
+    private static Task randomTask(Random random) {
+        int id = random.nextInt(10) == 0 ? random.nextInt() : random.nextInt(1_000_000);
+        String name = randomString(random);
+        String description = randomString(random);
+        TaskStatus status = TaskStatus.values()[random.nextInt(3)];
+        Task task = switch (random.nextInt(3)) {
+            case 0 -> {
+                Epic epic = new Epic(id, name, description);
+                int subtaskId = random.nextInt(100);
+                for (int i = 0, count = random.nextInt(20); i < count; i++) {
+                    subtaskId += 1 + random.nextInt(random.nextBoolean() ? 3 : 100_000);
+                    epic.addSubtaskId(subtaskId, TaskStatus.values()[random.nextInt(3)]);
+                }
+                yield epic;
+            }
+            case 1 -> new Subtask(id, name, description, status, random.nextInt(Integer.MAX_VALUE),
+                    randomTime(random), randomDuration(random));
+            default -> new Task(id, name, description, random.nextInt(10) == 0 ? null : status, randomTime(random),
+                    randomDuration(random));
+        };
+        task.setVersion(random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(1_000));
+        return task;
+    }
+
+    // Повторяющиеся названия, null, произвольные символы UTF-16, включая одиночные суррогаты
+    private static String randomString(Random random) {
+        switch (random.nextInt(4)) {
+            case 0 -> {
+                return NAMES[random.nextInt(NAMES.length)];
+            }
+            case 1 -> {
+                return random.nextInt(4) == 0 ? null : "Задача " + random.nextInt(100);
+            }
+            default -> {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0, length = random.nextInt(random.nextBoolean() ? 10 : 300); i < length; i++) {
+                    char c = (char) random.nextInt(random.nextBoolean() ? 0x80 : 0x10000);
+                    // Одиночная половина суррогатной пары при кодировании в UTF-8 заменяется на '?'
+                    builder.append(Character.isSurrogate(c) ? 'ж' : c);
+                }
+                if (random.nextBoolean()) {
+                    builder.appendCodePoint(0x1F600 + random.nextInt(50));
+                }
+                return builder.toString();
+            }
+        }
+    }
+
+    private static LocalDateTime randomTime(Random random) {
+        if (random.nextInt(3) == 0) {
+            return null;
+        }
+        return LocalDateTime.of(1900 + random.nextInt(300), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(4) == 0
+                        ? random.nextInt(1_000_000_000) : 0);
+    }
+
+    private static Duration randomDuration(Random random) {
+        if (random.nextInt(3) == 0) {
+            return null;
+        }
+        return Duration.ofSeconds(random.nextLong(-1_000_000_000L, 1_000_000_000L), random.nextInt(1_000_000_000));
+    }
+}
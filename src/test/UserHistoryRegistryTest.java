@@ -0,0 +1,106 @@
+package test;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryHistoryManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import manager.UserHistoryRegistry;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserHistoryRegistryTest {
+    @Test
+    void usersShouldSeeOnlyTheirOwnViews() {
+        TaskManager taskManager = new InMemoryTaskManager();
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+
+        taskManager.getTask("alice", task.getId());
+        taskManager.getEpic("bob", epic.getId());
+        taskManager.getTask("bob", task.getId());
+
+        assertEquals(List.of(task), taskManager.getHistory("alice"));
+        assertEquals(List.of(epic, task), taskManager.getHistory("bob"));
+        assertTrue(taskManager.getHistory().isEmpty());
+        assertTrue(taskManager.getHistory("carol").isEmpty());
+    }
+
+    @Test
+    void deletedTasksShouldBeFilteredFromUserHistory() {
+        TaskManager taskManager = new ConcurrentTaskManager();
+        Epic epic = taskManager.addEpic(new Epic(0, "Epic", "Description"));
+        Subtask subtask = taskManager.addSubtask(
+                new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId()));
+        Task task = taskManager.addTask(new Task(0, "Task", "Description", TaskStatus.NEW));
+
+        taskManager.getSubtask("alice", subtask.getId());
+        taskManager.getTask("alice", task.getId());
+        taskManager.deleteEpic(epic.getId());
+
+        assertEquals(List.of(task), taskManager.getHistory("alice"));
+    }
+
+    @Test
+    void idleSessionsShouldBeEvicted() throws InterruptedException {
+        UserHistoryRegistry registry = new UserHistoryRegistry(InMemoryHistoryManager::new, Duration.ofMillis(20));
+        Task task = new Task(1, "Task", "Description", TaskStatus.NEW);
+        registry.add("alice", task);
+        registry.add("bob", task);
+
+        Thread.sleep(50);
+        registry.add("bob", task);
+
+        assertEquals(1, registry.evictIdle());
+        assertEquals(1, registry.sessionCount());
+        assertTrue(registry.getHistory("alice", id -> true).isEmpty());
+        assertEquals(List.of(task), registry.getHistory("bob", id -> true));
+    }
+
+    @Test
+    void manySessionsShouldBeTrackedConcurrently() throws Exception {
+        UserHistoryRegistry registry = new UserHistoryRegistry();
+        TaskManager taskManager = new ConcurrentTaskManager(registry);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(taskManager.addTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW)));
+        }
+
+        int threads = 8;
+        int usersPerThread = 25_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int u = 0; u < usersPerThread; u++) {
+                    String userId = "user-" + thread + "-" + u;
+                    for (int i = 0; i < 3; i++) {
+                        taskManager.getTask(userId, tasks.get((u + i) % tasks.size()).getId());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * usersPerThread, registry.sessionCount());
+        assertEquals(List.of(tasks.get(7), tasks.get(8), tasks.get(9)), taskManager.getHistory("user-3-7"));
+    }
+}